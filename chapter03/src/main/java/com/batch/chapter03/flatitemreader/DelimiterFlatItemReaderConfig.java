@@ -1,5 +1,23 @@
 package com.batch.chapter03.flatitemreader;
 
+import com.batch.chapter03.flatitemreader.support.AsyncReadAheadItemReader;
+import com.batch.chapter03.flatitemreader.support.ByteDictionary;
+import com.batch.chapter03.flatitemreader.support.ByteRangePartitioner;
+import com.batch.chapter03.flatitemreader.support.CursorFieldSetMapper;
+import com.batch.chapter03.flatitemreader.support.CursorLineMapper;
+import com.batch.chapter03.flatitemreader.support.DelimitedBlockTokenizer;
+import com.batch.chapter03.flatitemreader.support.DelimitedCursorTokenizer;
+import com.batch.chapter03.flatitemreader.support.FieldCursor;
+import com.batch.chapter03.flatitemreader.support.FieldPredicate;
+import com.batch.chapter03.flatitemreader.support.GzipLineItemReader;
+import com.batch.chapter03.flatitemreader.support.LineIndexTasklet;
+import com.batch.chapter03.flatitemreader.support.LineRangePartitioner;
+import com.batch.chapter03.flatitemreader.support.MappedLineItemReader;
+import com.batch.chapter03.flatitemreader.support.MappedLineItemReaderBuilder;
+import com.batch.chapter03.flatitemreader.support.SwarDelimitedItemReader;
+import com.batch.chapter03.flatitemreader.support.SystemFailureColumns;
+import com.batch.chapter03.flatitemreader.support.SystemFailureColumnsItemReader;
+import com.batch.chapter03.flatitemwriter.support.SystemFailureColumnsLineAggregator;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
@@ -7,19 +25,29 @@ import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobScope;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ItemProcessor;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.batch.item.file.FlatFileItemWriter;
 import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
+import org.springframework.batch.item.file.builder.FlatFileItemWriterBuilder;
+import org.springframework.batch.item.file.mapping.BeanWrapperFieldSetMapper;
+import org.springframework.batch.item.file.mapping.DefaultLineMapper;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
 
+import java.util.Arrays;
+
 @Slf4j
 @Configuration
 @RequiredArgsConstructor
@@ -97,10 +125,428 @@ public class DelimiterFlatItemReaderConfig {
                 .build();
     }
 
+    /*
+    바이트 위치 체크포인트 모드
+        delimiterFlatItemReader와 같은 DelimitedLineTokenizer + BeanWrapperFieldSetMapper로 매핑하지만
+        MappedLineItemReader가 커밋된 바이트 위치와 라인 번호를 저장하므로 재시작 시 read.count만큼 라인을 다시 읽지 않고 바로 이동한다.
+        파일의 [0, 커밋 위치) 구간이 바뀌었으면(크기/수정 시각/CRC 지문 불일치) 라인 번호만큼 건너뛰는 방식으로 돌아간다.
+    */
+    @Bean
+    public Job delimiterOffsetRestartFlatItemReaderJob(Step delimiterOffsetRestartFlatItemReaderStep) {
+        return new JobBuilder("delimiterOffsetRestartFlatItemReaderJob", jobRepository)
+                .start(delimiterOffsetRestartFlatItemReaderStep)
+                .build();
+    }
+
+    @Bean
+    public Step delimiterOffsetRestartFlatItemReaderStep(MappedLineItemReader<SystemFailure> delimiterOffsetRestartFlatItemReader) {
+        return new StepBuilder("delimiterOffsetRestartFlatItemReaderStep", jobRepository)
+                .<SystemFailure, SystemFailure>chunk(10, transactionManager)
+                .reader(delimiterOffsetRestartFlatItemReader)
+                .writer(delimiterFlatItemReader())
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public MappedLineItemReader<SystemFailure> delimiterOffsetRestartFlatItemReader(@Value("#{jobParameters['filePath']}") String filePath) {
+        DelimitedLineTokenizer tokenizer = new DelimitedLineTokenizer(",");
+        tokenizer.setNames("errorId", "errorDateTime", "severity", "processId", "errorMessage");
+
+        BeanWrapperFieldSetMapper<SystemFailure> fieldSetMapper = new BeanWrapperFieldSetMapper<>();
+        fieldSetMapper.setTargetType(SystemFailure.class);
+
+        DefaultLineMapper<SystemFailure> lineMapper = new DefaultLineMapper<>();
+        lineMapper.setLineTokenizer(tokenizer);
+        lineMapper.setFieldSetMapper(fieldSetMapper);
+
+        return new MappedLineItemReaderBuilder<SystemFailure>()
+                .name("delimiterOffsetRestartFlatItemReader")
+                .resource(new FileSystemResource(filePath))
+                .lineMapper(lineMapper)
+                .linesToSkip(1)
+                .build();
+    }
+
+    /*
+    파티셔닝 모드
+        delimiterFlatItemReader는 파일 전체를 하나의 스레드에서 읽기 때문에 수십 GB 파일은 처리 시간이 매우 길다.
+        ByteRangePartitioner가 파일을 개행 경계에 맞춘 gridSize개의 바이트 구간으로 나누고,
+        각 워커 스텝은 MappedLineItemReader로 자기 구간만 메모리 매핑해서 읽는다.
+        파티션마다 StepExecution이 따로 생성되므로 실패한 파티션만 재시작된다.
+
+        gridSize 잡 파라미터를 생략하면 CPU 코어 수만큼 나눈다.
+    */
+    @Bean
+    public Job delimiterPartitionedFlatItemReaderJob(Step delimiterPartitionedFlatItemReaderStep) {
+        return new JobBuilder("delimiterPartitionedFlatItemReaderJob", jobRepository)
+                .start(delimiterPartitionedFlatItemReaderStep)
+                .build();
+    }
+
+    @Bean
+    @JobScope
+    public Step delimiterPartitionedFlatItemReaderStep(@Value("#{jobParameters['gridSize']}") Integer gridSize,
+                                                       ByteRangePartitioner delimiterByteRangePartitioner,
+                                                       Step delimiterPartitionWorkerStep) {
+        int partitionCount = gridSize != null ? gridSize : Runtime.getRuntime().availableProcessors();
+
+        SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("delimiter-partition-");
+        taskExecutor.setConcurrencyLimit(partitionCount);
+
+        return new StepBuilder("delimiterPartitionedFlatItemReaderStep", jobRepository)
+                .partitioner("delimiterPartitionWorkerStep", delimiterByteRangePartitioner)
+                .step(delimiterPartitionWorkerStep)
+                .gridSize(partitionCount)
+                .taskExecutor(taskExecutor)
+                .build();
+    }
+
+    @Bean
+    @JobScope
+    public ByteRangePartitioner delimiterByteRangePartitioner(@Value("#{jobParameters['filePath']}") String filePath) {
+        return new ByteRangePartitioner(new FileSystemResource(filePath));
+    }
+
+    @Bean
+    public Step delimiterPartitionWorkerStep(MappedLineItemReader<SystemFailure> delimiterPartitionItemReader) {
+        return new StepBuilder("delimiterPartitionWorkerStep", jobRepository)
+                .<SystemFailure, SystemFailure>chunk(10, transactionManager)
+                .reader(delimiterPartitionItemReader)
+                .writer(delimiterFlatItemReader())
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public MappedLineItemReader<SystemFailure> delimiterPartitionItemReader(@Value("#{jobParameters['filePath']}") String filePath,
+                                                                           @Value("#{stepExecutionContext['startOffset']}") Long startOffset,
+                                                                           @Value("#{stepExecutionContext['endOffset']}") Long endOffset) {
+        return new MappedLineItemReaderBuilder<SystemFailure>()
+                .name("delimiterPartitionItemReader")
+                .resource(new FileSystemResource(filePath))
+                .startOffset(startOffset)
+                .endOffset(endOffset)
+                .lineMapper(delimiterLineMapper())
+                .linesToSkip(1)
+                .build();
+    }
+
+    /*
+    라인 인덱스 파티셔닝 모드
+        delimiterLineIndexStep이 LineIndexTasklet으로 interval번째 라인마다 바이트 위치를 기록한 라인 인덱스(<파일명>.idx)를 만들고
+        (원본이 바뀌지 않았으면 기존 인덱스를 그대로 사용한다.)
+        LineRangePartitioner가 인덱스만으로 파일을 gridSize개의 라인 구간으로 나눈다.
+        각 워커는 인덱스로 자기 구간의 시작 위치로 바로 이동하며 line.number는 파일 처음부터 센 값이 된다.
+
+        interval 잡 파라미터를 생략하면 1024라인마다 기록한다.
+    */
+    @Bean
+    public Job lineIndexedPartitionedFlatItemReaderJob(Step delimiterLineIndexStep, Step lineIndexedPartitionedFlatItemReaderStep) {
+        return new JobBuilder("lineIndexedPartitionedFlatItemReaderJob", jobRepository)
+                .start(delimiterLineIndexStep)
+                .next(lineIndexedPartitionedFlatItemReaderStep)
+                .build();
+    }
+
+    @Bean
+    @JobScope
+    public Step delimiterLineIndexStep(@Value("#{jobParameters['filePath']}") String filePath,
+                                       @Value("#{jobParameters['interval']}") Integer interval) {
+        return new StepBuilder("delimiterLineIndexStep", jobRepository)
+                .tasklet(new LineIndexTasklet(new FileSystemResource(filePath), interval != null ? interval : 1024), transactionManager)
+                .build();
+    }
+
+    @Bean
+    @JobScope
+    public Step lineIndexedPartitionedFlatItemReaderStep(@Value("#{jobParameters['gridSize']}") Integer gridSize,
+                                                         @Value("#{jobParameters['filePath']}") String filePath,
+                                                         Step lineRangePartitionWorkerStep) {
+        int partitionCount = gridSize != null ? gridSize : Runtime.getRuntime().availableProcessors();
+
+        SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("line-range-partition-");
+        taskExecutor.setConcurrencyLimit(partitionCount);
+
+        return new StepBuilder("lineIndexedPartitionedFlatItemReaderStep", jobRepository)
+                .partitioner("lineRangePartitionWorkerStep", new LineRangePartitioner(new FileSystemResource(filePath)))
+                .step(lineRangePartitionWorkerStep)
+                .gridSize(partitionCount)
+                .taskExecutor(taskExecutor)
+                .build();
+    }
+
+    @Bean
+    public Step lineRangePartitionWorkerStep(MappedLineItemReader<SystemFailure> lineRangePartitionItemReader) {
+        return new StepBuilder("lineRangePartitionWorkerStep", jobRepository)
+                .<SystemFailure, SystemFailure>chunk(10, transactionManager)
+                .reader(lineRangePartitionItemReader)
+                .writer(delimiterFlatItemReader())
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public MappedLineItemReader<SystemFailure> lineRangePartitionItemReader(@Value("#{jobParameters['filePath']}") String filePath,
+                                                                           @Value("#{stepExecutionContext['startLine']}") Long startLine,
+                                                                           @Value("#{stepExecutionContext['endOffset']}") Long endOffset) {
+        return new MappedLineItemReaderBuilder<SystemFailure>()
+                .name("lineRangePartitionItemReader")
+                .resource(new FileSystemResource(filePath))
+                .startLine(startLine)
+                .useLineIndex(true)
+                .endOffset(endOffset)
+                .lineMapper(delimiterLineMapper())
+                .linesToSkip(1)
+                .build();
+    }
+
+    /*
+    비동기 선읽기 모드
+        AsyncReadAheadItemReader가 전용 I/O 스레드에서 FlatFileItemReader를 batchSize개씩 미리 읽어 두므로
+        스텝 스레드는 청크 트랜잭션 안에서 디스크를 기다리지 않는다.
+        FlatFileItemReader의 상태(read.count)는 배치 시작 시점의 스냅샷으로 저장되고 재시작 시 소비한 아이템 수만큼만 더 건너뛴다.
+    */
+    @Bean
+    public Job asyncReadAheadFlatItemReaderJob(Step asyncReadAheadFlatItemReaderStep) {
+        return new JobBuilder("asyncReadAheadFlatItemReaderJob", jobRepository)
+                .start(asyncReadAheadFlatItemReaderStep)
+                .build();
+    }
+
+    @Bean
+    public Step asyncReadAheadFlatItemReaderStep(AsyncReadAheadItemReader<SystemFailure> asyncReadAheadFlatItemReader) {
+        return new StepBuilder("asyncReadAheadFlatItemReaderStep", jobRepository)
+                .<SystemFailure, SystemFailure>chunk(10, transactionManager)
+                .reader(asyncReadAheadFlatItemReader)
+                .writer(delimiterFlatItemReader())
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public AsyncReadAheadItemReader<SystemFailure> asyncReadAheadFlatItemReader(@Value("#{jobParameters['filePath']}") String filePath) {
+        FlatFileItemReader<SystemFailure> delegate = new FlatFileItemReaderBuilder<SystemFailure>()
+                .name("delimiterFlatItemReader")
+                .resource(new FileSystemResource(filePath))
+                .delimited()
+                .delimiter(",")
+                .names("errorId", "errorDateTime", "severity", "processId", "errorMessage")
+                .targetType(SystemFailure.class)
+                .linesToSkip(1)
+                .build();
+
+        AsyncReadAheadItemReader<SystemFailure> reader = new AsyncReadAheadItemReader<>(delegate);
+        reader.setName("asyncReadAheadFlatItemReader");
+        return reader;
+    }
+
+    /*
+    컬럼 블록 모드
+        SystemFailureColumnsItemReader가 blockSize개의 라인을 SystemFailureColumns 블록 하나로 읽으므로 청크의 아이템은 블록이다.
+        프로세서는 severity 사전 id와 processId int[]만 훑는 루프로 CRITICAL 행만 남기고,
+        FlatFileItemWriter는 SystemFailureColumnsLineAggregator로 블록을 여러 라인으로 쓴다.
+        재시작 위치는 MappedLineItemReader의 바이트 위치이며 블록 경계와 같다.
+    */
+    @Bean
+    public Job columnarFlatItemReaderJob(Step columnarFlatItemReaderStep) {
+        return new JobBuilder("columnarFlatItemReaderJob", jobRepository)
+                .start(columnarFlatItemReaderStep)
+                .build();
+    }
+
+    @Bean
+    public Step columnarFlatItemReaderStep(SystemFailureColumnsItemReader columnarFlatItemReader,
+                                           FlatFileItemWriter<SystemFailureColumns> columnarFlatItemWriter) {
+        return new StepBuilder("columnarFlatItemReaderStep", jobRepository)
+                .<SystemFailureColumns, SystemFailureColumns>chunk(4, transactionManager)
+                .reader(columnarFlatItemReader)
+                .processor(criticalColumnsProcessor())
+                .writer(columnarFlatItemWriter)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public SystemFailureColumnsItemReader columnarFlatItemReader(@Value("#{jobParameters['filePath']}") String filePath,
+                                                                 @Value("#{jobParameters['blockSize']}") Integer blockSize) {
+        MappedLineItemReaderBuilder<SystemFailureColumns> rowReader = new MappedLineItemReaderBuilder<SystemFailureColumns>()
+                .name("columnarFlatItemReader")
+                .resource(new FileSystemResource(filePath))
+                .linesToSkip(1);
+
+        SystemFailureColumnsItemReader reader = new SystemFailureColumnsItemReader(rowReader, new DelimitedCursorTokenizer(',', 5), new ByteDictionary());
+        reader.setBlockSize(blockSize != null ? blockSize : SystemFailureColumnsItemReader.DEFAULT_BLOCK_SIZE);
+        return reader;
+    }
+
+    public ItemProcessor<SystemFailureColumns, SystemFailureColumns> criticalColumnsProcessor() {
+        return columns -> {
+            columns.retainSeverity("CRITICAL");
+            if(columns.isEmpty()) {
+                return null;
+            }
+            log.info("CRITICAL {}건 (processId 합계: {})", columns.size(), columns.sumProcessIds());
+            return columns;
+        };
+    }
+
+    @Bean
+    @StepScope
+    public FlatFileItemWriter<SystemFailureColumns> columnarFlatItemWriter(@Value("#{jobParameters['outputPath']}") String outputPath) {
+        return new FlatFileItemWriterBuilder<SystemFailureColumns>()
+                .name("columnarFlatItemWriter")
+                .resource(new FileSystemResource(outputPath))
+                .lineAggregator(new SystemFailureColumnsLineAggregator())
+                .headerCallback(writer -> writer.write("에러ID,발생시각,심각도,프로세스ID,에러메시지"))
+                .build();
+    }
+
+    /*
+    SWAR 블록 스캔 모드
+        SwarDelimitedItemReader가 파일을 블록 단위로 읽고, 블록마다 개행/구분자/따옴표 위치를 8바이트씩 찾아 토큰 오프셋 테이블을 한 번에 만든다.
+        레코드는 테이블에서 바로 FieldCursor로 만들어지므로 라인 String이나 라인 복사 없이 SystemFailureCursorMapper가 매핑한다.
+        따옴표로 감싼 에러메시지 안의 쉼표와 개행도 필드 내용으로 읽는다.
+    */
+    @Bean
+    public Job swarDelimiterFlatItemReaderJob(Step swarDelimiterFlatItemReaderStep) {
+        return new JobBuilder("swarDelimiterFlatItemReaderJob", jobRepository)
+                .start(swarDelimiterFlatItemReaderStep)
+                .build();
+    }
+
+    @Bean
+    public Step swarDelimiterFlatItemReaderStep(SwarDelimitedItemReader<SystemFailure> swarDelimiterFlatItemReader) {
+        return new StepBuilder("swarDelimiterFlatItemReaderStep", jobRepository)
+                .<SystemFailure, SystemFailure>chunk(10, transactionManager)
+                .reader(swarDelimiterFlatItemReader)
+                .writer(delimiterFlatItemReader())
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public SwarDelimitedItemReader<SystemFailure> swarDelimiterFlatItemReader(@Value("#{jobParameters['filePath']}") String filePath,
+                                                                             @Value("#{jobParameters['blockSize']}") Integer blockSize) {
+        SwarDelimitedItemReader<SystemFailure> reader = new SwarDelimitedItemReader<>();
+        reader.setName("swarDelimiterFlatItemReader");
+        reader.setResource(new FileSystemResource(filePath));
+        reader.setTokenizer(new DelimitedBlockTokenizer(',', 5));
+        reader.setFieldSetMapper(new SystemFailureCursorMapper());
+        reader.setDictionary(new ByteDictionary(), 2);
+        reader.setLinesToSkip(1);
+        reader.setBlockSize(blockSize != null ? blockSize : SwarDelimitedItemReader.DEFAULT_BLOCK_SIZE);
+        return reader;
+    }
+
+    /*
+    필터 푸시다운 모드
+        프로세서에서 severity가 CRITICAL이 아닌 아이템을 버리면 버려질 라인도 모두 매핑되고 객체가 만들어진다.
+        리더 빌더에 FieldPredicate를 지정하면 CursorLineMapper가 토큰화 직후 원본 필드 바이트로 조건을 검사하고, 걸린 라인은 매핑하지 않는다.
+        processIds를 지정하면 해당 processId인 라인만 남긴다.
+        걸러진 라인 수는 StepExecution의 filterCount에 더해지므로 프로세서에서 걸렀을 때와 같이 모니터링할 수 있다.
+    */
+    @Bean
+    public Job filteredFlatItemReaderJob(Step filteredFlatItemReaderStep) {
+        return new JobBuilder("filteredFlatItemReaderJob", jobRepository)
+                .start(filteredFlatItemReaderStep)
+                .build();
+    }
+
+    @Bean
+    public Step filteredFlatItemReaderStep(MappedLineItemReader<SystemFailure> filteredFlatItemReader) {
+        return new StepBuilder("filteredFlatItemReaderStep", jobRepository)
+                .<SystemFailure, SystemFailure>chunk(10, transactionManager)
+                .reader(filteredFlatItemReader)
+                .writer(delimiterFlatItemReader())
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public MappedLineItemReader<SystemFailure> filteredFlatItemReader(@Value("#{jobParameters['filePath']}") String filePath,
+                                                                     @Value("#{jobParameters['severity']}") String severity,
+                                                                     @Value("#{jobParameters['processIds']}") String processIds) {
+        FieldPredicate filter = FieldPredicate.equalTo(2, severity != null ? severity : "CRITICAL");
+        if(processIds != null) {
+            int[] ids = Arrays.stream(processIds.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+            filter = filter.and(FieldPredicate.intIn(3, ids));
+        }
+
+        return new MappedLineItemReaderBuilder<SystemFailure>()
+                .name("filteredFlatItemReader")
+                .resource(new FileSystemResource(filePath))
+                .lineMapper(delimiterLineMapper())
+                .filter(filter)
+                .linesToSkip(1)
+                .build();
+    }
+
+    /*
+    gzip 모드
+        GzipLineItemReader가 .gz 파일을 전용 inflater 스레드에서 blockSize 단위로 풀고, 스텝 스레드는 풀린 버퍼에서 바로 라인을 매핑한다.
+        디스크에 압축을 풀어 둘 필요가 없고, 재시작 시에는 커밋된 위치가 속한 gzip member부터 다시 푼다.
+    */
+    @Bean
+    public Job gzipFlatItemReaderJob(Step gzipFlatItemReaderStep) {
+        return new JobBuilder("gzipFlatItemReaderJob", jobRepository)
+                .start(gzipFlatItemReaderStep)
+                .build();
+    }
+
+    @Bean
+    public Step gzipFlatItemReaderStep(GzipLineItemReader<SystemFailure> gzipFlatItemReader) {
+        return new StepBuilder("gzipFlatItemReaderStep", jobRepository)
+                .<SystemFailure, SystemFailure>chunk(10, transactionManager)
+                .reader(gzipFlatItemReader)
+                .writer(delimiterFlatItemReader())
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public GzipLineItemReader<SystemFailure> gzipFlatItemReader(@Value("#{jobParameters['filePath']}") String filePath,
+                                                               @Value("#{jobParameters['blockSize']}") Integer blockSize) {
+        GzipLineItemReader<SystemFailure> reader = new GzipLineItemReader<>();
+        reader.setName("gzipFlatItemReader");
+        reader.setResource(new FileSystemResource(filePath));
+        reader.setLineMapper(delimiterLineMapper());
+        reader.setLinesToSkip(1);
+        reader.setBlockSize(blockSize != null ? blockSize : GzipLineItemReader.DEFAULT_BLOCK_SIZE);
+        return reader;
+    }
+
+    /*
+    CursorLineMapper
+        DelimitedLineTokenizer + BeanWrapperFieldSetMapper 조합은 라인마다 라인 String, 토큰 String[], DefaultFieldSet,
+        trim()된 토큰 복사본을 만들고 BeanWrapper로 프로퍼티를 하나씩 설정한다.
+        DelimitedCursorTokenizer는 라인 버퍼 위에 필드 오프셋만 기록하고, SystemFailureCursorMapper가 그 오프셋에서 바로 객체를 만든다.
+        processId는 String을 거치지 않고 바이트에서 바로 int로 파싱된다.
+        severity(CRITICAL, FATAL 등)는 값의 종류가 적으므로 ByteDictionary로 intern해서 모든 아이템이 정규 String 하나를 공유한다.
+    */
+    public CursorLineMapper<SystemFailure> delimiterLineMapper() {
+        CursorLineMapper<SystemFailure> lineMapper = new CursorLineMapper<>(new DelimitedCursorTokenizer(',', 5), new SystemFailureCursorMapper());
+        lineMapper.setDictionary(new ByteDictionary(), 2);
+        return lineMapper;
+    }
+
     public ItemWriter<SystemFailure> delimiterFlatItemReader() {
         return chunk -> chunk.forEach(item -> log.info("{}", item));
     }
 
+    public static class SystemFailureCursorMapper implements CursorFieldSetMapper<SystemFailure> {
+        @Override
+        public SystemFailure mapFieldSet(FieldCursor cursor) {
+            SystemFailure systemFailure = new SystemFailure();
+            systemFailure.setErrorId(cursor.readString(0));
+            systemFailure.setErrorDateTime(cursor.readString(1));
+            systemFailure.setSeverity(cursor.readString(2));
+            systemFailure.setProcessId(cursor.readInteger(3));
+            systemFailure.setErrorMessage(cursor.readString(4));
+            return systemFailure;
+        }
+    }
+
     @Getter
     @Setter
     @ToString
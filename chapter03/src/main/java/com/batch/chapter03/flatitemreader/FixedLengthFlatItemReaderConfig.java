@@ -1,5 +1,12 @@
 package com.batch.chapter03.flatitemreader;
 
+import com.batch.chapter03.flatitemreader.support.CursorFieldSetMapper;
+import com.batch.chapter03.flatitemreader.support.CursorLineMapper;
+import com.batch.chapter03.flatitemreader.support.FieldCursor;
+import com.batch.chapter03.flatitemreader.support.FixedLengthCursorTokenizer;
+import com.batch.chapter03.flatitemreader.support.FlatFileConversionService;
+import com.batch.chapter03.flatitemreader.support.MappedLineItemReader;
+import com.batch.chapter03.flatitemreader.support.MappedLineItemReaderBuilder;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
@@ -14,6 +21,7 @@ import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.file.FlatFileItemReader;
 import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
+import org.springframework.batch.item.file.mapping.BeanWrapperFieldSetMapper;
 import org.springframework.batch.item.file.transform.Range;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -21,12 +29,6 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.transaction.PlatformTransactionManager;
 
-import java.beans.PropertyEditor;
-import java.beans.PropertyEditorSupport;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Map;
-
 @Slf4j
 @Configuration
 @RequiredArgsConstructor
@@ -76,33 +78,89 @@ public class FixedLengthFlatItemReaderConfig {
                 .name("fixedLengthSystemFailureItemReader")
                 .resource(new FileSystemResource(filePath))
                 .fixedLength()
-                .columns(new Range[] {
-                        new Range(1, 8),    //errorId: ERR001 + 공백 2칸
-                        new Range(9, 29),   //errorDateTime: 날짜시간 + 공백 2칸
-                        new Range(30, 39),  //severity: CRITICAL/FATAL + 패딩
-                        new Range(40, 45),  //processId: 1234 + 공백 2칸
-                        new Range(46, 66)   //errorMessage: 메시지 + \n
-                })
+                .columns(columns())
                 .names("errorId", "errorDateTime", "severity", "processId", "errorMessage")
-                .targetType(SystemFailure.class)
-                .customEditors(Map.of(LocalDateTime.class, dateTimeEditor()))
+                .fieldSetMapper(fixedLengthFieldSetMapper())
                 .build();
     }
 
-    private PropertyEditor dateTimeEditor() {
-        return new PropertyEditorSupport() {
-            @Override
-            public void setAsText(String text) throws IllegalArgumentException {
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-                setValue(LocalDateTime.parse(text, formatter));
-            }
+    public Range[] columns() {
+        return new Range[] {
+                new Range(1, 8),    //errorId: ERR001 + 공백 2칸
+                new Range(9, 29),   //errorDateTime: 날짜시간 + 공백 2칸
+                new Range(30, 39),  //severity: CRITICAL/FATAL + 패딩
+                new Range(40, 45),  //processId: 1234 + 공백 2칸
+                new Range(46, 66)   //errorMessage: 메시지 + \n
         };
     }
 
+    /*
+    바이트 기반 고정 길이 리더
+        FixedLengthTokenizer는 라인 전체를 String으로 만든 뒤 컬럼마다 substring()하고 DefaultFieldSet에서 다시 trim()한다.
+        FixedLengthCursorTokenizer는 같은 Range[] 정의로 컬럼의 바이트 위치만 기록하고 패딩도 오프셋으로 걸러내기 때문에
+        SystemFailureCursorMapper가 읽는 컬럼만 디코딩된다.
+        strict 모드의 라인 길이 검증은 FixedLengthTokenizer와 동일하게 동작한다.
+    */
+    @Bean
+    public Job fixedLengthCursorFlatItemReaderJob(Step fixedLengthCursorFlatItemReaderStep) {
+        return new JobBuilder("fixedLengthCursorFlatItemReaderJob", jobRepository)
+                .start(fixedLengthCursorFlatItemReaderStep)
+                .build();
+    }
+
+    @Bean
+    public Step fixedLengthCursorFlatItemReaderStep(MappedLineItemReader<SystemFailure> fixedLengthCursorFlatItemReader) {
+        return new StepBuilder("fixedLengthCursorFlatItemReaderStep", jobRepository)
+                .<SystemFailure, SystemFailure>chunk(10, transactionManager)
+                .reader(fixedLengthCursorFlatItemReader)
+                .writer(fixedLengthFlatItemWriter())
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public MappedLineItemReader<SystemFailure> fixedLengthCursorFlatItemReader(@Value("#{jobParameters['filePath']}") String filePath) {
+        FixedLengthCursorTokenizer tokenizer = new FixedLengthCursorTokenizer(columns());
+        tokenizer.setStrict(true);
+
+        return new MappedLineItemReaderBuilder<SystemFailure>()
+                .name("fixedLengthCursorFlatItemReader")
+                .resource(new FileSystemResource(filePath))
+                .lineMapper(new CursorLineMapper<>(tokenizer, new SystemFailureCursorMapper()))
+                .build();
+    }
+
+    /*
+    customEditors(Map.of(LocalDateTime.class, editor)) 대신 ConversionService 사용
+        PropertyEditor는 상태를 가진 객체라서 값마다 setAsText()/getValue()를 거치고,
+        setAsText() 안에서 DateTimeFormatter.ofPattern()을 호출하면 값마다 포맷터까지 새로 만들어진다.
+        FlatFileConversionService는 스레드 간에 공유되는 Converter로 LocalDateTime, LocalDate, Integer, Enum을 변환한다.
+        FlatFileItemReaderBuilder에는 ConversionService 설정이 없으므로 BeanWrapperFieldSetMapper를 직접 구성해서 fieldSetMapper()로 전달한다.
+    */
+    public BeanWrapperFieldSetMapper<SystemFailure> fixedLengthFieldSetMapper() {
+        BeanWrapperFieldSetMapper<SystemFailure> fieldSetMapper = new BeanWrapperFieldSetMapper<>();
+        fieldSetMapper.setTargetType(SystemFailure.class);
+        fieldSetMapper.setConversionService(FlatFileConversionService.getSharedInstance());
+        return fieldSetMapper;
+    }
+
     public ItemWriter<SystemFailure> fixedLengthFlatItemWriter() {
         return chunk -> chunk.forEach(item -> log.info("{}", item));
     }
 
+    public static class SystemFailureCursorMapper implements CursorFieldSetMapper<SystemFailure> {
+        @Override
+        public SystemFailure mapFieldSet(FieldCursor cursor) {
+            SystemFailure systemFailure = new SystemFailure();
+            systemFailure.setErrorId(cursor.readString(0));
+            systemFailure.setErrorDateTime(cursor.readString(1));
+            systemFailure.setSeverity(cursor.readString(2));
+            systemFailure.setProcessId(cursor.readInteger(3));
+            systemFailure.setErrorMessage(cursor.readString(4));
+            return systemFailure;
+        }
+    }
+
     @Getter
     @Setter
     @ToString
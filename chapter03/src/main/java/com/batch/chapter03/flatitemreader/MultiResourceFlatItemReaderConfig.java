@@ -1,5 +1,7 @@
 package com.batch.chapter03.flatitemreader;
 
+import com.batch.chapter03.flatitemreader.support.LargestFirstPartitionHandler;
+import com.batch.chapter03.flatitemreader.support.ResourceGlobPartitioner;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
@@ -7,6 +9,7 @@ import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobScope;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.repository.JobRepository;
@@ -21,6 +24,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
 
 @Slf4j
@@ -61,6 +65,71 @@ public class MultiResourceFlatItemReaderConfig {
                 .build();
     }
 
+    /*
+    글로브 파티셔닝 모드
+        filePath 디렉터리에서 glob 패턴(기본값 *.csv)에 매칭되는 파일을 찾아 ResourceGlobPartitioner로 파티션을 나눈다.
+        큰 파일은 단독으로, 작은 파일은 묶어서 하나의 파티션이 되고 각 워커 스텝은 자기 파일 목록만 MultiResourceItemReader로 읽는다.
+        LargestFirstPartitionHandler가 큰 파티션부터 실행하고, 동시에 실행되는 워커 수는 concurrency 잡 파라미터(생략 시 CPU 코어 수)로 제한한다.
+        파티션마다 StepExecution이 따로 생성되므로 재시작 시 실패한 파일(묶음)만 다시 읽는다.
+        파티셔너를 매니저 스텝의 리스너로 등록해 첫 실행의 파티션 이름을 저장하므로, 그 사이 파일이 추가/삭제되어도 재시작은 첫 실행의 묶음을 이어간다.
+    */
+    @Bean
+    public Job globMultiResourceFlatItemReaderJob(Step globMultiResourceFlatItemReaderStep) {
+        return new JobBuilder("globMultiResourceFlatItemReaderJob", jobRepository)
+                .start(globMultiResourceFlatItemReaderStep)
+                .build();
+    }
+
+    @Bean
+    @JobScope
+    public Step globMultiResourceFlatItemReaderStep(@Value("#{jobParameters['concurrency']}") Integer concurrency,
+                                                    ResourceGlobPartitioner multiResourceGlobPartitioner,
+                                                    Step multiResourcePartitionWorkerStep) {
+        int workerCount = concurrency != null ? concurrency : Runtime.getRuntime().availableProcessors();
+
+        SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("multi-resource-partition-");
+        taskExecutor.setConcurrencyLimit(workerCount);
+
+        LargestFirstPartitionHandler partitionHandler = new LargestFirstPartitionHandler();
+        partitionHandler.setStep(multiResourcePartitionWorkerStep);
+        partitionHandler.setTaskExecutor(taskExecutor);
+        partitionHandler.setGridSize(workerCount);
+
+        return new StepBuilder("globMultiResourceFlatItemReaderStep", jobRepository)
+                .partitioner("multiResourcePartitionWorkerStep", multiResourceGlobPartitioner)
+                .partitionHandler(partitionHandler)
+                .listener(multiResourceGlobPartitioner)
+                .build();
+    }
+
+    @Bean
+    @JobScope
+    public ResourceGlobPartitioner multiResourceGlobPartitioner(@Value("#{jobParameters['filePath']}") String filePath,
+                                                                @Value("#{jobParameters['glob']}") String glob) {
+        String locationPattern = "file:" + filePath + "/" + (glob != null ? glob : "*.csv");
+        log.info("{}", locationPattern);
+        return new ResourceGlobPartitioner(locationPattern);
+    }
+
+    @Bean
+    public Step multiResourcePartitionWorkerStep(MultiResourceItemReader<SystemFailure> multiResourcePartitionItemReader) {
+        return new StepBuilder("multiResourcePartitionWorkerStep", jobRepository)
+                .<SystemFailure, SystemFailure>chunk(10, transactionManager)
+                .reader(multiResourcePartitionItemReader)
+                .writer(multiResourceFlatItemWriter())
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public MultiResourceItemReader<SystemFailure> multiResourcePartitionItemReader(@Value("#{stepExecutionContext['resources']}") String resources) {
+        return new MultiResourceItemReaderBuilder<SystemFailure>()
+                .name("multiResourcePartitionItemReader")
+                .resources(ResourceGlobPartitioner.resources(resources))
+                .delegate(delegateItemReader())
+                .build();
+    }
+
     public FlatFileItemReader<SystemFailure> delegateItemReader() {
         return new FlatFileItemReaderBuilder<SystemFailure>()
                 .name("delegateItemReader")
@@ -1,5 +1,8 @@
 package com.batch.chapter03.flatitemreader;
 
+import com.batch.chapter03.flatitemreader.support.ByteDictionary;
+import com.batch.chapter03.flatitemreader.support.DictionaryLineTokenizer;
+import com.batch.chapter03.flatitemreader.support.PrefixTrieCompositeLineMapper;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
@@ -65,20 +68,69 @@ public class PatternMatchingFlatItemReaderConfig {
     public PatternMatchingCompositeLineMapper<SystemLog> patternMatchingCompositeLineMapper() {
         //PatternMatchingCompositeLineMapper는 각 파일 라인의 유형에 맞는 LineTokenizer와 이를 적절한 객체로 매핑할 FieldSetMapper 구현체를 필요로 한다.
         PatternMatchingCompositeLineMapper<SystemLog> lineMapper = new PatternMatchingCompositeLineMapper<>();
+        lineMapper.setTokenizers(patternTokenizers());
+        lineMapper.setFieldSetMappers(patternFieldSetMappers());
+        return lineMapper;
+    }
+
+    @Bean
+    public Job prefixTriePatternMatchingFlatItemReaderJob(Step prefixTriePatternMatchingFlatItemReaderStep) {
+        return new JobBuilder("prefixTriePatternMatchingFlatItemReaderJob", jobRepository)
+                .start(prefixTriePatternMatchingFlatItemReaderStep)
+                .build();
+    }
+
+    @Bean
+    public Step prefixTriePatternMatchingFlatItemReaderStep(FlatFileItemReader<SystemLog> prefixTriePatternMatchingFlatItemReader) {
+        return new StepBuilder("prefixTriePatternMatchingFlatItemReaderStep", jobRepository)
+                .<SystemLog, SystemLog>chunk(10, transactionManager)
+                .reader(prefixTriePatternMatchingFlatItemReader)
+                .writer(patternMatchingFlatItemWriter())
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public FlatFileItemReader<SystemLog> prefixTriePatternMatchingFlatItemReader(@Value("#{jobParameters['filePath']}") String filePath) {
+        return new FlatFileItemReaderBuilder<SystemLog>()
+                .name("prefixTrieLogItemReader")
+                .resource(new FileSystemResource(filePath))
+                .lineMapper(prefixTrieCompositeLineMapper())
+                .build();
+    }
+
+    /*
+    같은 패턴 Map을 접두사 트라이로 컴파일해서 라인당 한 번의 탐색으로 LineTokenizer와 FieldSetMapper를 함께 찾는다.
+    type, errorType, status, dumpType은 값의 종류가 적으므로 토크나이저를 DictionaryLineTokenizer로 감싸 모든 아이템이 정규 String을 공유하게 한다.
+    */
+    public PrefixTrieCompositeLineMapper<SystemLog> prefixTrieCompositeLineMapper() {
+        PrefixTrieCompositeLineMapper<SystemLog> lineMapper = new PrefixTrieCompositeLineMapper<>();
+        lineMapper.setTokenizers(dictionaryPatternTokenizers(new ByteDictionary()));
+        lineMapper.setFieldSetMappers(patternFieldSetMappers());
+        return lineMapper;
+    }
+
+    public Map<String, LineTokenizer> dictionaryPatternTokenizers(ByteDictionary dictionary) {
+        Map<String, LineTokenizer> tokenizers = new HashMap<>();
+        patternTokenizers().forEach((pattern, tokenizer) ->
+                tokenizers.put(pattern, new DictionaryLineTokenizer(tokenizer, dictionary, "type", "errorType", "status", "dumpType")));
+        return tokenizers;
+    }
 
+    public Map<String, LineTokenizer> patternTokenizers() {
         Map<String, LineTokenizer> tokenizers = new HashMap<>();
         tokenizers.put("ERROR*", errorLineTokenizer());
         tokenizers.put("ABORT*", abortLineTokenizer());
         tokenizers.put("COLLECT*", collectLineTokenizer());
-        lineMapper.setTokenizers(tokenizers);
+        return tokenizers;
+    }
 
+    public Map<String, FieldSetMapper<SystemLog>> patternFieldSetMappers() {
         Map<String, FieldSetMapper<SystemLog>> mappers = new HashMap<>();
         mappers.put("ERROR*", new ErrorFieldSetMapper());
         mappers.put("ABORT*", new AbortFieldSetMapper());
         mappers.put("COLLECT*", new CollectFieldSetMapper());
-        lineMapper.setFieldSetMappers(mappers);
-
-        return lineMapper;
+        return mappers;
     }
 
     public DelimitedLineTokenizer errorLineTokenizer() {
@@ -1,5 +1,8 @@
 package com.batch.chapter03.flatitemreader;
 
+import com.batch.chapter03.flatitemreader.support.ByteDictionary;
+import com.batch.chapter03.flatitemreader.support.CompiledFieldSetMapperFactory;
+import com.batch.chapter03.flatitemreader.support.DictionaryLineTokenizer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.Job;
@@ -11,6 +14,7 @@ import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.file.FlatFileItemReader;
 import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -57,6 +61,43 @@ public class RecordFlatItemReaderConfig {
                 .build();
     }
 
+    /*
+    컴파일된 FieldSetMapper 모드
+        CompiledFieldSetMapperFactory.create()가 스텝 시작 시 System의 canonical constructor를 MethodHandle로 준비해 두므로
+        아이템마다 RecordFieldSetMapper처럼 리플렉션으로 생성자를 호출하지 않는다. cpu 변환은 FlatFileConversionService가 담당한다.
+        status(RUNNING 등)는 값의 종류가 적으므로 DictionaryLineTokenizer로 intern해서 모든 아이템이 정규 String 하나를 공유한다.
+    */
+    @Bean
+    public Job compiledRecordFlatItemReaderJob(Step compiledRecordFlatItemReaderStep) {
+        return new JobBuilder("compiledRecordFlatItemReaderJob", jobRepository)
+                .start(compiledRecordFlatItemReaderStep)
+                .build();
+    }
+
+    @Bean
+    public Step compiledRecordFlatItemReaderStep(FlatFileItemReader<System> compiledRecordFlatItemReader) {
+        return new StepBuilder("compiledRecordFlatItemReaderStep", jobRepository)
+                .<System, System>chunk(10, transactionManager)
+                .reader(compiledRecordFlatItemReader)
+                .writer(recordFlatItemWriter())
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public FlatFileItemReader<System> compiledRecordFlatItemReader(@Value("#{jobParameters['filePath']}") String filePath) {
+        DelimitedLineTokenizer tokenizer = new DelimitedLineTokenizer(",");
+        tokenizer.setNames("command", "cpu", "status");
+
+        return new FlatFileItemReaderBuilder<System>()
+                .name("compiledRecordItemReader")
+                .resource(new FileSystemResource(filePath))
+                .lineTokenizer(new DictionaryLineTokenizer(tokenizer, new ByteDictionary(), "status"))
+                .fieldSetMapper(CompiledFieldSetMapperFactory.create(System.class))
+                .linesToSkip(1)
+                .build();
+    }
+
     public ItemWriter<System> recordFlatItemWriter() {
         return chunk -> chunk.forEach(item -> log.info("{}", item));
     }
@@ -1,5 +1,7 @@
 package com.batch.chapter03.flatitemreader;
 
+import com.batch.chapter03.flatitemreader.support.ParallelLineMappingItemReader;
+import com.batch.chapter03.flatitemreader.support.PrefilteredRegexLineMapper;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.Job;
@@ -11,6 +13,7 @@ import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.file.FlatFileItemReader;
 import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
+import org.springframework.batch.item.file.mapping.PassThroughLineMapper;
 import org.springframework.batch.item.file.transform.RegexLineTokenizer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -22,6 +25,8 @@ import org.springframework.transaction.PlatformTransactionManager;
 @Configuration
 @RequiredArgsConstructor
 public class RegexFlatItemReaderConfig {
+    private static final String LOG_REGEX = "\\[\\w+\\]\\[Thread-(\\d+)\\]\\[CPU: \\d+%\\] (.+)";
+
     private final JobRepository jobRepository;
     private final PlatformTransactionManager transactionManager;
 
@@ -51,7 +56,7 @@ public class RegexFlatItemReaderConfig {
         (.+): 마지막으로 로그 메시지를 전부 가져오는 부분이다. 이게 두 번째 그룹으로 캡처된다.
         */
         RegexLineTokenizer tokenizer = new RegexLineTokenizer();
-        tokenizer.setRegex("\\[\\w+\\]\\[Thread-(\\d+)\\]\\[CPU: \\d+%\\] (.+)");
+        tokenizer.setRegex(LOG_REGEX);
 
         /*
         fieldSet.readString(0): FieldSet의 첫 번째 필드(캡처된 Thread 번호)를 읽어서 LogEntry 객체의 threadNum 필드에 매핑
@@ -67,6 +72,59 @@ public class RegexFlatItemReaderConfig {
                 .build();
     }
 
+    /*
+    병렬 정규식 모드
+        regexFlatItemReader는 스텝 스레드 하나에서 모든 라인에 정규식을 실행하기 때문에 대용량 로그에서는 정규식 매칭이 병목이 된다.
+
+        PrefilteredRegexLineMapper
+            정규식에 순서대로 반드시 등장하는 리터럴("][Thread-", "][CPU: ", "%] ")이 라인에 없으면 정규식을 실행하지 않고 걸러낸다.
+        ParallelLineMappingItemReader
+            스텝 스레드는 라인을 읽어서 배치로 나누기만 하고, 정규식 매칭과 그룹 추출은 parallelism개의 워커 스레드가 수행한다.
+            아이템은 파일의 라인 순서대로 반환된다.
+
+        regexFlatItemReader에서는 매칭되지 않는 라인이 파싱 오류가 되지만 이 모드에서는 건너뛰고 건수만 집계한다.
+        parallelism 잡 파라미터를 생략하면 CPU 코어 수만큼 워커를 만든다.
+    */
+    @Bean
+    public Job parallelRegexFlatItemReaderJob(Step parallelRegexFlatItemReaderStep) {
+        return new JobBuilder("parallelRegexFlatItemReaderJob", jobRepository)
+                .start(parallelRegexFlatItemReaderStep)
+                .build();
+    }
+
+    @Bean
+    public Step parallelRegexFlatItemReaderStep(ParallelLineMappingItemReader<LogEntry> parallelRegexFlatItemReader) {
+        return new StepBuilder("parallelRegexFlatItemReaderStep", jobRepository)
+                .<LogEntry, LogEntry>chunk(10, transactionManager)
+                .reader(parallelRegexFlatItemReader)
+                .writer(regexFlatItemWriter())
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public ParallelLineMappingItemReader<LogEntry> parallelRegexFlatItemReader(@Value("#{jobParameters['filePath']}") String filePath,
+                                                                              @Value("#{jobParameters['parallelism']}") Integer parallelism) {
+        //라인 위치는 ParallelLineMappingItemReader가 저장하므로 라인 리더는 상태를 저장하지 않는다.
+        FlatFileItemReader<String> lineReader = new FlatFileItemReaderBuilder<String>()
+                .name("logLineReader")
+                .resource(new FileSystemResource(filePath))
+                .lineMapper(new PassThroughLineMapper())
+                .saveState(false)
+                .build();
+
+        PrefilteredRegexLineMapper<LogEntry> lineMapper = new PrefilteredRegexLineMapper<>(LOG_REGEX,
+                fieldSet -> new LogEntry(fieldSet.readString(0), fieldSet.readString(1)));
+        lineMapper.setRequiredLiterals("][Thread-", "][CPU: ", "%] ");
+
+        ParallelLineMappingItemReader<LogEntry> reader = new ParallelLineMappingItemReader<>(lineReader, lineMapper);
+        reader.setName("parallelRegexFlatItemReader");
+        if(parallelism != null) {
+            reader.setParallelism(parallelism);
+        }
+        return reader;
+    }
+
     public ItemWriter<LogEntry> regexFlatItemWriter() {
         return chunk -> chunk.forEach(item -> log.info("THD-{}: {}", item.getThreadNum(), item.getMessage()));
     }
@@ -0,0 +1,239 @@
+package com.batch.chapter03.flatitemreader;
+
+import com.batch.chapter03.flatitemreader.support.CursorLineMapper;
+import com.batch.chapter03.flatitemreader.support.DelimitedCursorTokenizer;
+import com.batch.chapter03.flatitemreader.support.FixedLengthCursorTokenizer;
+import com.batch.chapter03.flatitemreader.support.MappedLineItemReader;
+import com.batch.chapter03.flatitemreader.support.MappedLineItemReaderBuilder;
+import com.batch.chapter03.flatitemreader.support.StagedItemReader;
+import com.batch.chapter03.flatitemreader.support.StagingCodec;
+import com.batch.chapter03.flatitemreader.support.StagingInput;
+import com.batch.chapter03.flatitemreader.support.StagingOutput;
+import com.batch.chapter03.flatitemwriter.support.StagedItemWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/*
+스테이징 모드
+    같은 CSV/고정 길이 파일을 하루에도 여러 잡이 다시 파싱하는 대신, 스테이징 잡이 한 번만 파싱해서 <파일명>.stg 바이너리 파일로 남긴다.
+    이후 잡은 StagedItemReader로 스테이징 파일을 메모리 매핑해서 라인 분리/토큰화/숫자 파싱 없이 레코드를 바로 객체로 만든다.
+
+    스테이징 파일 헤더에는 코덱의 스키마와 원본 파일 지문이 기록되므로
+    코덱의 필드가 바뀌었거나 스테이징 이후 원본 파일이 바뀌었으면 읽는 잡이 파일을 거부한다. (스테이징 잡을 다시 실행하면 된다)
+*/
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class StagingFlatItemReaderConfig {
+    //두 SystemFailure는 필드 구성이 같으므로 같은 스키마를 쓴다.
+    private static final String SYSTEM_FAILURE_SCHEMA =
+            "SystemFailure:1|errorId:string,errorDateTime:string,severity:string,processId:int?,errorMessage:string";
+
+    private final JobRepository jobRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final FixedLengthFlatItemReaderConfig fixedLengthFlatItemReaderConfig;
+
+    @Bean
+    public Job delimiterStagingJob(Step delimiterStagingStep) {
+        return new JobBuilder("delimiterStagingJob", jobRepository)
+                .start(delimiterStagingStep)
+                .build();
+    }
+
+    @Bean
+    public Step delimiterStagingStep(MappedLineItemReader<DelimiterFlatItemReaderConfig.SystemFailure> delimiterStagingItemReader,
+                                     StagedItemWriter<DelimiterFlatItemReaderConfig.SystemFailure> delimiterStagedItemWriter) {
+        return new StepBuilder("delimiterStagingStep", jobRepository)
+                .<DelimiterFlatItemReaderConfig.SystemFailure, DelimiterFlatItemReaderConfig.SystemFailure>chunk(1000, transactionManager)
+                .reader(delimiterStagingItemReader)
+                .writer(delimiterStagedItemWriter)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public MappedLineItemReader<DelimiterFlatItemReaderConfig.SystemFailure> delimiterStagingItemReader(@Value("#{jobParameters['filePath']}") String filePath) {
+        return new MappedLineItemReaderBuilder<DelimiterFlatItemReaderConfig.SystemFailure>()
+                .name("delimiterStagingItemReader")
+                .resource(new FileSystemResource(filePath))
+                .lineMapper(new CursorLineMapper<>(new DelimitedCursorTokenizer(',', 5), new DelimiterFlatItemReaderConfig.SystemFailureCursorMapper()))
+                .linesToSkip(1)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public StagedItemWriter<DelimiterFlatItemReaderConfig.SystemFailure> delimiterStagedItemWriter(@Value("#{jobParameters['filePath']}") String filePath) {
+        StagedItemWriter<DelimiterFlatItemReaderConfig.SystemFailure> writer = new StagedItemWriter<>();
+        writer.setName("delimiterStagedItemWriter");
+        writer.setResource(new FileSystemResource(filePath + ".stg"));
+        writer.setSourceResource(new FileSystemResource(filePath));
+        writer.setCodec(new DelimitedSystemFailureCodec());
+        return writer;
+    }
+
+    @Bean
+    public Job delimiterStagedReadJob(Step delimiterStagedReadStep) {
+        return new JobBuilder("delimiterStagedReadJob", jobRepository)
+                .start(delimiterStagedReadStep)
+                .build();
+    }
+
+    @Bean
+    public Step delimiterStagedReadStep(StagedItemReader<DelimiterFlatItemReaderConfig.SystemFailure> delimiterStagedItemReader) {
+        return new StepBuilder("delimiterStagedReadStep", jobRepository)
+                .<DelimiterFlatItemReaderConfig.SystemFailure, DelimiterFlatItemReaderConfig.SystemFailure>chunk(10, transactionManager)
+                .reader(delimiterStagedItemReader)
+                .writer(stagedItemWriter())
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public StagedItemReader<DelimiterFlatItemReaderConfig.SystemFailure> delimiterStagedItemReader(@Value("#{jobParameters['filePath']}") String filePath) {
+        StagedItemReader<DelimiterFlatItemReaderConfig.SystemFailure> reader = new StagedItemReader<>();
+        reader.setName("delimiterStagedItemReader");
+        reader.setResource(new FileSystemResource(filePath + ".stg"));
+        reader.setSourceResource(new FileSystemResource(filePath));
+        reader.setCodec(new DelimitedSystemFailureCodec());
+        return reader;
+    }
+
+    @Bean
+    public Job fixedLengthStagingJob(Step fixedLengthStagingStep) {
+        return new JobBuilder("fixedLengthStagingJob", jobRepository)
+                .start(fixedLengthStagingStep)
+                .build();
+    }
+
+    @Bean
+    public Step fixedLengthStagingStep(MappedLineItemReader<FixedLengthFlatItemReaderConfig.SystemFailure> fixedLengthStagingItemReader,
+                                       StagedItemWriter<FixedLengthFlatItemReaderConfig.SystemFailure> fixedLengthStagedItemWriter) {
+        return new StepBuilder("fixedLengthStagingStep", jobRepository)
+                .<FixedLengthFlatItemReaderConfig.SystemFailure, FixedLengthFlatItemReaderConfig.SystemFailure>chunk(1000, transactionManager)
+                .reader(fixedLengthStagingItemReader)
+                .writer(fixedLengthStagedItemWriter)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public MappedLineItemReader<FixedLengthFlatItemReaderConfig.SystemFailure> fixedLengthStagingItemReader(@Value("#{jobParameters['filePath']}") String filePath) {
+        FixedLengthCursorTokenizer tokenizer = new FixedLengthCursorTokenizer(fixedLengthFlatItemReaderConfig.columns());
+        tokenizer.setStrict(true);
+
+        return new MappedLineItemReaderBuilder<FixedLengthFlatItemReaderConfig.SystemFailure>()
+                .name("fixedLengthStagingItemReader")
+                .resource(new FileSystemResource(filePath))
+                .lineMapper(new CursorLineMapper<>(tokenizer, new FixedLengthFlatItemReaderConfig.SystemFailureCursorMapper()))
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public StagedItemWriter<FixedLengthFlatItemReaderConfig.SystemFailure> fixedLengthStagedItemWriter(@Value("#{jobParameters['filePath']}") String filePath) {
+        StagedItemWriter<FixedLengthFlatItemReaderConfig.SystemFailure> writer = new StagedItemWriter<>();
+        writer.setName("fixedLengthStagedItemWriter");
+        writer.setResource(new FileSystemResource(filePath + ".stg"));
+        writer.setSourceResource(new FileSystemResource(filePath));
+        writer.setCodec(new FixedLengthSystemFailureCodec());
+        return writer;
+    }
+
+    @Bean
+    public Job fixedLengthStagedReadJob(Step fixedLengthStagedReadStep) {
+        return new JobBuilder("fixedLengthStagedReadJob", jobRepository)
+                .start(fixedLengthStagedReadStep)
+                .build();
+    }
+
+    @Bean
+    public Step fixedLengthStagedReadStep(StagedItemReader<FixedLengthFlatItemReaderConfig.SystemFailure> fixedLengthStagedItemReader) {
+        return new StepBuilder("fixedLengthStagedReadStep", jobRepository)
+                .<FixedLengthFlatItemReaderConfig.SystemFailure, FixedLengthFlatItemReaderConfig.SystemFailure>chunk(10, transactionManager)
+                .reader(fixedLengthStagedItemReader)
+                .writer(stagedItemWriter())
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public StagedItemReader<FixedLengthFlatItemReaderConfig.SystemFailure> fixedLengthStagedItemReader(@Value("#{jobParameters['filePath']}") String filePath) {
+        StagedItemReader<FixedLengthFlatItemReaderConfig.SystemFailure> reader = new StagedItemReader<>();
+        reader.setName("fixedLengthStagedItemReader");
+        reader.setResource(new FileSystemResource(filePath + ".stg"));
+        reader.setSourceResource(new FileSystemResource(filePath));
+        reader.setCodec(new FixedLengthSystemFailureCodec());
+        return reader;
+    }
+
+    public <T> ItemWriter<T> stagedItemWriter() {
+        return chunk -> chunk.forEach(item -> log.info("{}", item));
+    }
+
+    public static class DelimitedSystemFailureCodec implements StagingCodec<DelimiterFlatItemReaderConfig.SystemFailure> {
+        @Override
+        public String schema() {
+            return SYSTEM_FAILURE_SCHEMA;
+        }
+
+        @Override
+        public void encode(DelimiterFlatItemReaderConfig.SystemFailure item, StagingOutput output) {
+            output.putString(item.getErrorId());
+            output.putString(item.getErrorDateTime());
+            output.putString(item.getSeverity());
+            output.putNullableInt(item.getProcessId());
+            output.putString(item.getErrorMessage());
+        }
+
+        @Override
+        public DelimiterFlatItemReaderConfig.SystemFailure decode(StagingInput input) {
+            DelimiterFlatItemReaderConfig.SystemFailure systemFailure = new DelimiterFlatItemReaderConfig.SystemFailure();
+            systemFailure.setErrorId(input.getString());
+            systemFailure.setErrorDateTime(input.getString());
+            systemFailure.setSeverity(input.getString());
+            systemFailure.setProcessId(input.getNullableInt());
+            systemFailure.setErrorMessage(input.getString());
+            return systemFailure;
+        }
+    }
+
+    public static class FixedLengthSystemFailureCodec implements StagingCodec<FixedLengthFlatItemReaderConfig.SystemFailure> {
+        @Override
+        public String schema() {
+            return SYSTEM_FAILURE_SCHEMA;
+        }
+
+        @Override
+        public void encode(FixedLengthFlatItemReaderConfig.SystemFailure item, StagingOutput output) {
+            output.putString(item.getErrorId());
+            output.putString(item.getErrorDateTime());
+            output.putString(item.getSeverity());
+            output.putNullableInt(item.getProcessId());
+            output.putString(item.getErrorMessage());
+        }
+
+        @Override
+        public FixedLengthFlatItemReaderConfig.SystemFailure decode(StagingInput input) {
+            FixedLengthFlatItemReaderConfig.SystemFailure systemFailure = new FixedLengthFlatItemReaderConfig.SystemFailure();
+            systemFailure.setErrorId(input.getString());
+            systemFailure.setErrorDateTime(input.getString());
+            systemFailure.setSeverity(input.getString());
+            systemFailure.setProcessId(input.getNullableInt());
+            systemFailure.setErrorMessage(input.getString());
+            return systemFailure;
+        }
+    }
+}
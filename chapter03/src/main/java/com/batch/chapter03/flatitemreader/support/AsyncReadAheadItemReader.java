@@ -0,0 +1,214 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.util.Assert;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/*
+delegate의 read()를 전용 I/O 스레드에서 미리 실행해 두는 ItemStreamReader 데코레이터
+    스텝 스레드는 청크 트랜잭션이 열린 상태로 read()를 호출하므로 디스크(특히 HDD, 네트워크 마운트)를 기다리는 시간이 그대로 청크 처리 시간이 된다.
+    이 리더는 I/O 스레드가 batchSize개씩 아이템을 읽어 크기가 bufferCount인 큐에 쌓아 두고(더블 버퍼),
+    스텝 스레드는 큐에서 꺼낸 배치의 아이템을 순서대로 반환만 하므로 디스크 읽기가 처리/쓰기/커밋과 겹쳐서 진행된다.
+
+    재시작
+        I/O 스레드는 배치를 읽기 시작하기 직전에 delegate.update()로 delegate의 상태를 스냅샷으로 떠서 배치에 함께 담는다.
+        update()는 delegate의 현재 상태(미리 읽은 위치)가 아니라 "스텝 스레드가 소비 중인 배치의 시작 스냅샷 + 그 배치에서 소비한 아이템 수"를 저장한다.
+        재시작 시 스냅샷으로 delegate를 열고 소비한 아이템 수만큼 건너뛰므로 커밋된 위치에서 정확히 이어서 읽는다.
+
+    delegate는 open()과 건너뛰기가 끝난 뒤부터 close() 전까지 I/O 스레드에서만 사용된다.
+    delegate.read()가 던진 예외는 해당 위치의 아이템 자리에 담겨 스텝 스레드의 read()에서 그대로 다시 던져지며, I/O 스레드는 계속 다음 아이템을 읽는다.
+    Error나 delegate.update() 실패처럼 I/O 스레드가 끝나는 오류는 마지막 자리에 담겨 이후의 모든 read()에서 다시 던져진다.
+*/
+@Slf4j
+public class AsyncReadAheadItemReader<T> extends ItemStreamSupport implements ItemStreamReader<T> {
+    private static final String CONSUMED = "read-ahead.consumed";
+
+    private final ItemStreamReader<T> delegate;
+    private int batchSize = 256;
+    private int bufferCount = 2;
+    private boolean saveState = true;
+
+    private BlockingQueue<Batch> queue;
+    private Thread ioThread;
+    private volatile boolean running;
+    private Batch current;
+    private int restoredConsumed;
+
+    public AsyncReadAheadItemReader(ItemStreamReader<T> delegate) {
+        this.delegate = delegate;
+    }
+
+    public void setBatchSize(int batchSize) {
+        Assert.isTrue(batchSize > 0, "batchSize는 0보다 커야 합니다.");
+        this.batchSize = batchSize;
+    }
+
+    public void setBufferCount(int bufferCount) {
+        Assert.isTrue(bufferCount > 0, "bufferCount는 0보다 커야 합니다.");
+        this.bufferCount = bufferCount;
+    }
+
+    public void setSaveState(boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        delegate.open(executionContext);
+
+        restoredConsumed = executionContext.getInt(getExecutionContextKey(CONSUMED), 0);
+        for(int i = 0; i < restoredConsumed; i++) {
+            try {
+                if(delegate.read() == null) {
+                    break;
+                }
+            } catch (Exception e) {
+                //처음 실행할 때도 이 위치의 read()는 예외로 끝나 스킵되었으므로 한 건으로 센다.
+                log.debug("재시작 위치로 이동하는 중 {}번째 아이템에서 발생한 예외를 건너뜁니다.", i + 1, e);
+            }
+        }
+
+        current = null;
+        queue = new ArrayBlockingQueue<>(bufferCount);
+        running = true;
+        ioThread = new Thread(this::fill, getClass().getSimpleName() + "-" + getExecutionContextKey("io"));
+        ioThread.setDaemon(true);
+        ioThread.start();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T read() throws Exception {
+        while(true) {
+            if(current == null || current.cursor == current.size) {
+                if(current != null && current.last) {
+                    return null;
+                }
+                current = queue.take();
+            }
+
+            if(current.cursor < current.size) {
+                Object item = current.items[current.cursor];
+                if(item instanceof Failure failure) {
+                    //I/O 스레드가 끝난 실패는 소비하지 않고 남겨 두어, 스킵되더라도 read()마다 다시 던진다. (입력의 끝으로 보지 않도록)
+                    if(!failure.terminal()) {
+                        current.cursor++;
+                    }
+                    if(failure.exception() instanceof Error error) {
+                        throw error;
+                    }
+                    throw (Exception) failure.exception();
+                }
+                current.cursor++;
+                return (T) item;
+            }
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if(!saveState) {
+            return;
+        }
+
+        if(current == null) {
+            //아직 첫 배치를 꺼내지 않았으면 open()에서 복원한 위치가 그대로 커밋된 위치다.
+            executionContext.putInt(getExecutionContextKey(CONSUMED), restoredConsumed);
+            return;
+        }
+
+        for(Map.Entry<String, Object> entry : current.snapshot.entrySet()) {
+            executionContext.put(entry.getKey(), entry.getValue());
+        }
+        executionContext.putInt(getExecutionContextKey(CONSUMED), current.cursor);
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        running = false;
+        if(ioThread != null) {
+            ioThread.interrupt();
+            try {
+                ioThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ioThread = null;
+        }
+        queue = null;
+        current = null;
+        delegate.close();
+    }
+
+    //I/O 스레드. 배치마다 delegate 상태를 스냅샷으로 남기고 batchSize개를 읽어 큐에 넣는다. 큐가 가득 차면 스텝 스레드가 꺼낼 때까지 기다린다.
+    private void fill() {
+        try {
+            boolean last = false;
+            while(running && !last) {
+                ExecutionContext snapshot = new ExecutionContext();
+                delegate.update(snapshot);
+
+                Object[] items = new Object[batchSize];
+                int size = 0;
+                while(size < batchSize) {
+                    Object item;
+                    try {
+                        item = delegate.read();
+                    } catch (Exception e) {
+                        item = new Failure(e, false);
+                    } catch (Throwable e) {
+                        //Error(OutOfMemoryError 등)는 delegate 상태를 믿을 수 없으므로 읽기를 끝낸다.
+                        item = new Failure(e, true);
+                    }
+                    if(item == null) {
+                        last = true;
+                        break;
+                    }
+                    items[size++] = item;
+                    if(item instanceof Failure failure && failure.terminal()) {
+                        last = true;
+                        break;
+                    }
+                }
+
+                queue.put(new Batch(snapshot, items, size, last));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            //delegate.update() 실패처럼 배치를 만들 수 없는 오류는 스텝 스레드에 전달하고 읽기를 끝낸다.
+            //Error도 여기서 전달하지 않으면 스텝 스레드가 queue.take()에서 영원히 기다린다.
+            try {
+                queue.put(new Batch(new ExecutionContext(), new Object[]{new Failure(e, true)}, 1, true));
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class Batch {
+        private final ExecutionContext snapshot;
+        private final Object[] items;
+        private final int size;
+        private final boolean last;
+        private int cursor;
+
+        private Batch(ExecutionContext snapshot, Object[] items, int size, boolean last) {
+            this.snapshot = snapshot;
+            this.items = items;
+            this.size = size;
+            this.last = last;
+        }
+    }
+
+    //terminal이면 I/O 스레드가 끝난 실패다.
+    private record Failure(Throwable exception, boolean terminal) {
+    }
+}
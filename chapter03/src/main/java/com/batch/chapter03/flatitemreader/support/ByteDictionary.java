@@ -0,0 +1,214 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import org.springframework.util.Assert;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+값의 종류가 적은 텍스트 필드(severity, status, type 등)를 위한 크기 제한 intern 테이블
+    같은 값이 수백만 라인에 반복되어도 필드마다 새 String을 만들지 않고, 라인 버퍼의 원본 바이트로 테이블을 찾아 정규(canonical) String을 반환한다.
+    테이블에 등록된 값은 0부터 시작하는 id를 가지므로 프로세서에서는 id나 ==로 값을 비교할 수 있다.
+
+    크기 제한
+        maxSize개까지만 등록하고, maxValueLength 바이트보다 긴 값은 등록하지 않는다.
+        테이블이 가득 찬 뒤에 들어온 새 값은 등록하지 않고 매번 새 String을 만든다. (getMissCount()로 확인)
+        따라서 메시지나 경로처럼 값의 종류가 많은 컬럼에 사용하면 이득이 없다.
+
+    스레드 안전
+        조회는 락 없이 하고, 등록만 synchronized로 한다. Entry는 불변이므로 다른 스레드가 등록 중인 테이블을 읽어도 안전하다.
+        ParallelLineMappingItemReader처럼 여러 스레드가 매핑하는 경우에도 하나의 사전을 공유할 수 있다.
+*/
+public class ByteDictionary {
+    public static final int NOT_FOUND = -1;
+    public static final int DEFAULT_MAX_SIZE = 256;
+    public static final int DEFAULT_MAX_VALUE_LENGTH = 64;
+
+    private final Charset charset;
+    private final int maxSize;
+    private final int maxValueLength;
+    private final int mask;
+    private final Entry[] byBytes;
+    private final Entry[] byValue;
+    private final Entry[] entries;
+    private final LongAdder missCount = new LongAdder();
+    private volatile int size;
+
+    public ByteDictionary() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public ByteDictionary(int maxSize) {
+        this(maxSize, DEFAULT_MAX_VALUE_LENGTH, StandardCharsets.UTF_8);
+    }
+
+    public ByteDictionary(int maxSize, int maxValueLength, Charset charset) {
+        Assert.isTrue(maxSize > 0, "maxSize는 0보다 커야 합니다.");
+        Assert.isTrue(maxValueLength > 0, "maxValueLength는 0보다 커야 합니다.");
+        this.charset = charset;
+        this.maxSize = maxSize;
+        this.maxValueLength = maxValueLength;
+
+        //빈 슬롯이 항상 남도록 테이블 크기를 maxSize의 2배 이상인 2의 거듭제곱으로 잡는다.
+        int capacity = Integer.highestOneBit(Math.max(2, maxSize * 2 - 1)) << 1;
+        this.mask = capacity - 1;
+        this.byBytes = new Entry[capacity];
+        this.byValue = new Entry[capacity];
+        this.entries = new Entry[maxSize];
+    }
+
+    //bytes[start, end)에 해당하는 값의 id. 등록할 수 없으면 NOT_FOUND를 반환한다.
+    public int idOf(byte[] bytes, int start, int end) {
+        Entry entry = lookupOrAdd(bytes, start, end);
+        return entry != null ? entry.id : NOT_FOUND;
+    }
+
+    public int idOf(String value) {
+        Entry entry = lookupOrAdd(value);
+        return entry != null ? entry.id : NOT_FOUND;
+    }
+
+    //bytes[start, end)를 디코딩한 값의 정규 String. 등록할 수 없으면 새 String을 만든다.
+    public String intern(byte[] bytes, int start, int end) {
+        Entry entry = lookupOrAdd(bytes, start, end);
+        if(entry != null) {
+            return entry.value;
+        }
+        missCount.increment();
+        return new String(bytes, start, end - start, charset);
+    }
+
+    public String intern(String value) {
+        if(value == null) {
+            return null;
+        }
+        Entry entry = lookupOrAdd(value);
+        if(entry != null) {
+            return entry.value;
+        }
+        missCount.increment();
+        return value;
+    }
+
+    public String valueOf(int id) {
+        if(id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("사전에 없는 id입니다: " + id + " (크기: " + size + ")");
+        }
+        return entries[id].value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    private Entry lookupOrAdd(byte[] bytes, int start, int end) {
+        int hash = hash(bytes, start, end);
+        Entry entry = findBytes(bytes, start, end, hash);
+        if(entry != null || end - start > maxValueLength || size >= maxSize) {
+            return entry;
+        }
+
+        synchronized(this) {
+            entry = findBytes(bytes, start, end, hash);
+            if(entry != null || size >= maxSize) {
+                return entry;
+            }
+            String value = new String(bytes, start, end - start, charset);
+            entry = findValue(value, value.hashCode());
+            if(entry != null) {
+                //디코딩 결과가 같은 다른 바이트 표현(잘못된 인코딩 등)은 별도로 등록하지 않는다.
+                return entry;
+            }
+            return add(Arrays.copyOfRange(bytes, start, end), hash, value);
+        }
+    }
+
+    private Entry lookupOrAdd(String value) {
+        Entry entry = findValue(value, value.hashCode());
+        if(entry != null || size >= maxSize) {
+            return entry;
+        }
+
+        byte[] bytes = value.getBytes(charset);
+        if(bytes.length > maxValueLength) {
+            return null;
+        }
+
+        synchronized(this) {
+            entry = findValue(value, value.hashCode());
+            if(entry != null || size >= maxSize) {
+                return entry;
+            }
+            int hash = hash(bytes, 0, bytes.length);
+            entry = findBytes(bytes, 0, bytes.length, hash);
+            if(entry != null) {
+                return entry;
+            }
+            return add(bytes, hash, value);
+        }
+    }
+
+    //synchronized 안에서만 호출한다. 두 테이블에 먼저 넣고 size를 마지막에 올려서 valueOf()가 항상 채워진 항목을 보도록 한다.
+    private Entry add(byte[] bytes, int hash, String value) {
+        Entry entry = new Entry(size, bytes, hash, value);
+        insert(byBytes, entry, hash);
+        insert(byValue, entry, value.hashCode());
+        entries[entry.id] = entry;
+        size = entry.id + 1;
+        return entry;
+    }
+
+    private void insert(Entry[] table, Entry entry, int hash) {
+        int slot = hash & mask;
+        while(table[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = entry;
+    }
+
+    private Entry findBytes(byte[] bytes, int start, int end, int hash) {
+        int slot = hash & mask;
+        Entry entry;
+        while((entry = byBytes[slot]) != null) {
+            if(entry.hash == hash && Arrays.equals(entry.bytes, 0, entry.bytes.length, bytes, start, end)) {
+                return entry;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private Entry findValue(String value, int hash) {
+        int slot = hash & mask;
+        Entry entry;
+        while((entry = byValue[slot]) != null) {
+            if(entry.value.hashCode() == hash && entry.value.equals(value)) {
+                return entry;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private static int hash(byte[] bytes, int start, int end) {
+        int hash = 1;
+        for(int i = start; i < end; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        //하위 비트만 슬롯 계산에 쓰이므로 상위 비트를 섞는다.
+        return hash ^ (hash >>> 16);
+    }
+
+    private record Entry(int id, byte[] bytes, int hash, String value) {
+    }
+}
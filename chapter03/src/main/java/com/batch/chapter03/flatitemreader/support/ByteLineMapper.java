@@ -0,0 +1,20 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import org.springframework.batch.item.file.LineMapper;
+
+import java.nio.charset.Charset;
+
+/*
+LineMapper가 String 라인을 받는 것과 달리 ByteLineMapper는 원본 바이트 배열을 그대로 전달받는다.
+line 배열은 리더가 재사용하는 버퍼이므로 mapLine() 호출이 끝난 뒤에는 참조를 보관하면 안 된다.
+null을 반환하면 MappedLineItemReader는 그 라인을 건너뛰고 filter.count로 집계한다.
+*/
+@FunctionalInterface
+public interface ByteLineMapper<T> {
+    T mapLine(byte[] line, int length, long lineNumber) throws Exception;
+
+    //기존 LineMapper(DefaultLineMapper 등)를 그대로 쓰고 싶을 때 라인을 String으로 디코딩해서 위임한다.
+    static <T> ByteLineMapper<T> decoding(LineMapper<T> delegate, Charset charset) {
+        return (line, length, lineNumber) -> delegate.mapLine(new String(line, 0, length, charset), (int) lineNumber);
+    }
+}
@@ -0,0 +1,88 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+파일을 gridSize개의 바이트 구간으로 나누는 Partitioner
+    단순히 파일 크기를 gridSize로 나누면 라인 중간이 잘리기 때문에
+    각 경계를 다음 개행 문자(\n) 바로 뒤로 밀어서 모든 구간이 라인의 시작에서 시작하도록 맞춘다.
+
+    각 파티션의 ExecutionContext에는 startOffset, endOffset이 담기고
+    워커 스텝의 MappedLineItemReader는 #{stepExecutionContext['startOffset']}로 이 값을 전달받는다.
+    파티션마다 별도의 StepExecution이 생성되므로 재시작 상태도 파티션별로 관리된다.
+*/
+@Slf4j
+public class ByteRangePartitioner implements Partitioner {
+    public static final String START_OFFSET = "startOffset";
+    public static final String END_OFFSET = "endOffset";
+
+    private static final int SCAN_BUFFER_SIZE = 8 * 1024;
+
+    private final Resource resource;
+
+    public ByteRangePartitioner(Resource resource) {
+        this.resource = resource;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        Map<String, ExecutionContext> partitions = new LinkedHashMap<>();
+
+        try(FileChannel channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long rangeSize = Math.max(1, fileSize / Math.max(1, gridSize));
+
+            long start = 0;
+            int index = 0;
+            while(start < fileSize) {
+                long end = index == gridSize - 1 ? fileSize : alignToNextLine(channel, start + rangeSize, fileSize);
+
+                ExecutionContext context = new ExecutionContext();
+                context.putLong(START_OFFSET, start);
+                context.putLong(END_OFFSET, end);
+                partitions.put("partition" + index, context);
+                log.info("partition{}: [{}, {})", index, start, end);
+
+                start = end;
+                index++;
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("파티션을 나누는 중 오류가 발생했습니다: " + resource.getDescription(), e);
+        }
+
+        return partitions;
+    }
+
+    //offset 이후 처음 나오는 개행 문자의 다음 위치를 반환한다. 개행이 없으면 파일 끝을 반환한다.
+    private long alignToNextLine(FileChannel channel, long offset, long fileSize) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = offset - 1;
+
+        while(position < fileSize) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if(read <= 0) {
+                break;
+            }
+            for(int i = 0; i < read; i++) {
+                if(buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+
+        return fileSize;
+    }
+}
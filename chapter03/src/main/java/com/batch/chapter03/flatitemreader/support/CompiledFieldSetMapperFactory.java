@@ -0,0 +1,225 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import org.springframework.batch.item.file.mapping.FieldSetMapper;
+import org.springframework.batch.item.file.transform.FieldSet;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.util.ClassUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/*
+대상 타입에 맞는 FieldSetMapper를 MethodHandle/LambdaMetafactory로 미리 컴파일해서 만드는 팩토리
+    BeanWrapperFieldSetMapper는 아이템마다 BeanWrapperImpl을 만들고 프로퍼티 이름으로 setter를 찾아 리플렉션으로 호출한다.
+    RecordFieldSetMapper는 아이템마다 SimpleTypeConverter를 거쳐 canonical constructor를 리플렉션으로 호출한다.
+    이 팩토리가 만든 매퍼는 처음 받은 FieldSet의 names로 한 번만 매핑 계획을 세우고, 이후에는
+        일반 클래스: LambdaMetafactory로 만든 생성자(Supplier)와 setter(BiConsumer)를 직접 호출
+        record: canonical constructor의 MethodHandle을 Object[] 인자를 받도록 펼쳐(asSpreader) 호출
+    하므로 아이템당 비용은 값 변환과 필드 대입뿐이다.
+
+    값 변환은 ConversionService(기본값 FlatFileConversionService)로 하며, 읽는 값은 기존 매퍼와 같다.
+        일반 클래스: BeanWrapperFieldSetMapper처럼 trim된 값(readString), null 토큰은 건너뜀
+        record: RecordFieldSetMapper처럼 원본 값(readRawString)
+    BeanWrapperFieldSetMapper의 유사 이름 매칭(distanceLimit)은 지원하지 않으므로 names는 프로퍼티 이름과 같아야 한다.
+
+    스텝 스코프 리더를 만들 때 create()를 호출하면 스텝 시작 시점에 컴파일된다. 만들어진 매퍼는 스레드 안전하다.
+*/
+public final class CompiledFieldSetMapperFactory {
+    private static final TypeDescriptor STRING_TYPE = TypeDescriptor.valueOf(String.class);
+
+    private CompiledFieldSetMapperFactory() {
+    }
+
+    public static <T> FieldSetMapper<T> create(Class<T> type) {
+        return create(type, FlatFileConversionService.getSharedInstance());
+    }
+
+    public static <T> FieldSetMapper<T> create(Class<T> type, ConversionService conversionService) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            return type.isRecord()
+                    ? new CompiledRecordFieldSetMapper<>(type, lookup, conversionService)
+                    : new CompiledBeanFieldSetMapper<>(type, lookup, conversionService);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("FieldSetMapper를 만들 수 없습니다: " + type.getName(), e);
+        }
+    }
+
+    private static Object convert(ConversionService conversionService, String value, TypeDescriptor targetType) {
+        return targetType == null ? value : conversionService.convert(value, STRING_TYPE, targetType);
+    }
+
+    //String 타입은 변환하지 않도록 null을 반환한다.
+    private static TypeDescriptor targetTypeOf(Class<?> type) {
+        return type == String.class ? null : TypeDescriptor.valueOf(type);
+    }
+
+    private static final class CompiledBeanFieldSetMapper<T> implements FieldSetMapper<T> {
+        private final Class<T> type;
+        private final MethodHandles.Lookup lookup;
+        private final ConversionService conversionService;
+        private final Supplier<Object> constructor;
+        private volatile BeanPlan plan;
+
+        private CompiledBeanFieldSetMapper(Class<T> type, MethodHandles.Lookup lookup, ConversionService conversionService) throws ReflectiveOperationException {
+            this.type = type;
+            this.lookup = lookup;
+            this.conversionService = conversionService;
+            this.constructor = constructor(lookup, type);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T mapFieldSet(FieldSet fieldSet) {
+            BeanPlan plan = planFor(fieldSet.getNames());
+            Object target = constructor.get();
+            for(int i = 0; i < plan.setters.length; i++) {
+                String value = fieldSet.readString(i);
+                if(value != null) {
+                    plan.setters[i].accept(target, convert(conversionService, value, plan.targetTypes[i]));
+                }
+            }
+            return (T) target;
+        }
+
+        private BeanPlan planFor(String[] names) {
+            BeanPlan plan = this.plan;
+            if(plan != null && (plan.names == names || Arrays.equals(plan.names, names))) {
+                return plan;
+            }
+
+            BiConsumer<Object, Object>[] setters = newSetterArray(names.length);
+            TypeDescriptor[] targetTypes = new TypeDescriptor[names.length];
+            for(int i = 0; i < names.length; i++) {
+                PropertyDescriptor property = BeanUtils.getPropertyDescriptor(type, names[i]);
+                if(property == null || property.getWriteMethod() == null) {
+                    throw new IllegalStateException(type.getName() + "에 쓰기 가능한 프로퍼티가 없습니다: " + names[i]);
+                }
+                setters[i] = setter(lookup, property.getWriteMethod());
+                targetTypes[i] = targetTypeOf(property.getPropertyType());
+            }
+
+            plan = new BeanPlan(names, setters, targetTypes);
+            this.plan = plan;
+            return plan;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static BiConsumer<Object, Object>[] newSetterArray(int length) {
+            return (BiConsumer<Object, Object>[]) new BiConsumer[length];
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Supplier<Object> constructor(MethodHandles.Lookup lookup, Class<?> type) throws ReflectiveOperationException {
+            MethodHandle handle = lookup.findConstructor(type, MethodType.methodType(void.class));
+            try {
+                CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                        MethodType.methodType(Supplier.class),
+                        MethodType.methodType(Object.class),
+                        handle,
+                        MethodType.methodType(type));
+                return (Supplier<Object>) site.getTarget().invokeExact();
+            } catch (Throwable e) {
+                throw new IllegalStateException("생성자를 컴파일할 수 없습니다: " + type.getName(), e);
+            }
+        }
+
+        //primitive 파라미터는 박싱 타입으로 받아 LambdaMetafactory가 언박싱하도록 한다.
+        @SuppressWarnings("unchecked")
+        private static BiConsumer<Object, Object> setter(MethodHandles.Lookup lookup, Method writeMethod) {
+            try {
+                MethodHandle handle = lookup.unreflect(writeMethod);
+                Class<?> valueType = ClassUtils.resolvePrimitiveIfNecessary(writeMethod.getParameterTypes()[0]);
+                CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+                        MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class, Object.class),
+                        handle,
+                        MethodType.methodType(void.class, writeMethod.getDeclaringClass(), valueType));
+                return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+            } catch (Throwable e) {
+                throw new IllegalStateException("setter를 컴파일할 수 없습니다: " + writeMethod, e);
+            }
+        }
+    }
+
+    private static final class CompiledRecordFieldSetMapper<T> implements FieldSetMapper<T> {
+        private final String[] componentNames;
+        private final TypeDescriptor[] targetTypes;
+        private final MethodHandle constructor;
+        private final ConversionService conversionService;
+        private volatile RecordPlan plan;
+
+        private CompiledRecordFieldSetMapper(Class<T> type, MethodHandles.Lookup lookup, ConversionService conversionService) throws ReflectiveOperationException {
+            RecordComponent[] components = type.getRecordComponents();
+            Class<?>[] parameterTypes = new Class<?>[components.length];
+            this.componentNames = new String[components.length];
+            this.targetTypes = new TypeDescriptor[components.length];
+            for(int i = 0; i < components.length; i++) {
+                parameterTypes[i] = components[i].getType();
+                componentNames[i] = components[i].getName();
+                targetTypes[i] = targetTypeOf(components[i].getType());
+            }
+
+            this.constructor = lookup.findConstructor(type, MethodType.methodType(void.class, parameterTypes))
+                    .asSpreader(Object[].class, components.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+            this.conversionService = conversionService;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T mapFieldSet(FieldSet fieldSet) {
+            int[] indexes = planFor(fieldSet.getNames()).indexes;
+            Object[] args = new Object[indexes.length];
+            for(int i = 0; i < indexes.length; i++) {
+                args[i] = convert(conversionService, fieldSet.readRawString(indexes[i]), targetTypes[i]);
+            }
+
+            try {
+                Object record = constructor.invokeExact(args);
+                return (T) record;
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("record를 생성할 수 없습니다.", e);
+            }
+        }
+
+        //record 컴포넌트마다 같은 이름을 가진 FieldSet 토큰의 위치를 찾아 둔다.
+        private RecordPlan planFor(String[] names) {
+            RecordPlan plan = this.plan;
+            if(plan != null && (plan.names == names || Arrays.equals(plan.names, names))) {
+                return plan;
+            }
+
+            int[] indexes = new int[componentNames.length];
+            for(int i = 0; i < componentNames.length; i++) {
+                indexes[i] = Arrays.asList(names).indexOf(componentNames[i]);
+                if(indexes[i] < 0) {
+                    throw new IllegalArgumentException("Cannot access field '" + componentNames[i] + "' from " + Arrays.toString(names));
+                }
+            }
+
+            plan = new RecordPlan(names, indexes);
+            this.plan = plan;
+            return plan;
+        }
+    }
+
+    private record BeanPlan(String[] names, BiConsumer<Object, Object>[] setters, TypeDescriptor[] targetTypes) {
+    }
+
+    private record RecordPlan(String[] names, int[] indexes) {
+    }
+}
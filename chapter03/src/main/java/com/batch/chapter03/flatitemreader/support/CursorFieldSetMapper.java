@@ -0,0 +1,10 @@
+package com.batch.chapter03.flatitemreader.support;
+
+/*
+FieldSetMapper의 FieldCursor 버전
+    cursor는 다음 라인에서 재사용되므로 매핑 결과 객체에 cursor 자체를 보관하면 안 된다.
+*/
+@FunctionalInterface
+public interface CursorFieldSetMapper<T> {
+    T mapFieldSet(FieldCursor cursor) throws Exception;
+}
@@ -0,0 +1,48 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/*
+DefaultLineMapper의 바이트 버전
+    CursorTokenizer로 라인 버퍼 위에 필드 위치를 기록하고 CursorFieldSetMapper가 그 위치에서 바로 객체를 만든다.
+    라인 String, 토큰 String[], DefaultFieldSet, trim() 복사본이 생성되지 않는다.
+    setDictionary()로 지정한 컬럼은 readString()이 ByteDictionary의 정규 String을 반환하므로 반복되는 값마다 String이 생성되지 않는다.
+    setFilter()로 FieldPredicate를 지정하면 토큰화 직후 원본 필드 바이트로 조건을 검사하고, false인 라인은 매핑하지 않고 null을 반환한다.
+*/
+public class CursorLineMapper<T> implements ByteLineMapper<T> {
+    private final CursorTokenizer tokenizer;
+    private final CursorFieldSetMapper<T> fieldSetMapper;
+    private final FieldCursor cursor;
+    private FieldPredicate filter;
+
+    public CursorLineMapper(CursorTokenizer tokenizer, CursorFieldSetMapper<T> fieldSetMapper) {
+        this(tokenizer, fieldSetMapper, StandardCharsets.UTF_8);
+    }
+
+    public CursorLineMapper(CursorTokenizer tokenizer, CursorFieldSetMapper<T> fieldSetMapper, Charset charset) {
+        this.tokenizer = tokenizer;
+        this.fieldSetMapper = fieldSetMapper;
+        this.cursor = new FieldCursor(charset);
+    }
+
+    public void setDictionary(ByteDictionary dictionary, int... columns) {
+        for(int column : columns) {
+            cursor.setDictionary(column, dictionary);
+        }
+    }
+
+    public void setFilter(FieldPredicate filter) {
+        this.filter = filter;
+    }
+
+    @Override
+    public T mapLine(byte[] line, int length, long lineNumber) throws Exception {
+        cursor.reset(line, length);
+        tokenizer.tokenize(line, length, cursor);
+        if(filter != null && !filter.test(cursor)) {
+            return null;
+        }
+        return fieldSetMapper.mapFieldSet(cursor);
+    }
+}
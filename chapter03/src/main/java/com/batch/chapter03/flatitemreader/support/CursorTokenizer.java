@@ -0,0 +1,10 @@
+package com.batch.chapter03.flatitemreader.support;
+
+/*
+LineTokenizer의 바이트 버전
+    FieldSet을 새로 만들어 반환하는 대신 전달받은 FieldCursor에 필드 위치만 기록한다.
+*/
+@FunctionalInterface
+public interface CursorTokenizer {
+    void tokenize(byte[] line, int length, FieldCursor cursor);
+}
@@ -0,0 +1,177 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import org.springframework.batch.item.file.transform.IncorrectTokenCountException;
+
+import java.util.Arrays;
+
+/*
+버퍼 전체의 토큰 오프셋 테이블을 한 번에 만들고, 그 테이블을 따라가며 레코드 단위로 FieldCursor를 채우는 토크나이저
+    DelimitedCursorTokenizer는 라인을 한 바이트씩 비교하고, 그 앞에서 리더가 개행 문자를 찾느라 같은 바이트를 한 번 더 훑는다.
+    scan()은 SwarScanner로 8바이트씩 읽어서 개행(\n), 구분자, 따옴표(")의 위치를 구간 전체에 대해 오프셋 테이블에 기록하고,
+    nextRecord()는 바이트를 다시 보지 않고 테이블의 위치만 따라가며 필드 오프셋을 만든다.
+
+    따옴표 규칙은 DelimitedCursorTokenizer와 같다.
+        공백 뒤 따옴표로 시작하는 필드만 따옴표 필드이고, 안쪽의 구분자는 무시하며 ""는 읽을 때 "로 바뀐다.
+        닫는 따옴표 뒤 다음 구분자까지의 내용은 버린다.
+    다만 라인이 아니라 버퍼 위에서 레코드를 나누므로, FlatFileItemReader의 SimpleRecordSeparatorPolicy처럼 따옴표 안의 개행은 필드 내용으로 본다.
+
+    필드 오프셋은 scan()에 넘긴 버퍼 기준의 절대 위치이므로 cursor는 같은 버퍼로 reset()되어 있어야 한다.
+*/
+public class DelimitedBlockTokenizer {
+    private static final byte QUOTE = '"';
+    private static final byte NEWLINE = '\n';
+    private static final int INCOMPLETE = -1;
+
+    private final byte delimiter;
+    private final long delimiterPattern;
+    private final long quotePattern = SwarScanner.broadcast(QUOTE);
+    private final long newlinePattern = SwarScanner.broadcast(NEWLINE);
+    private final int expectedFieldCount;
+    private boolean strict = true;
+
+    private byte[] buffer;
+    private int scanEnd;
+    private int[] offsets = new int[1024];
+    private int count;
+    private int next;
+
+    public DelimitedBlockTokenizer(char delimiter, int expectedFieldCount) {
+        if(delimiter > 0x7f || delimiter == QUOTE || delimiter == NEWLINE) {
+            throw new IllegalArgumentException("구분자는 따옴표/개행이 아닌 ASCII 문자여야 합니다: " + delimiter);
+        }
+        this.delimiter = (byte) delimiter;
+        this.delimiterPattern = SwarScanner.broadcast(this.delimiter);
+        this.expectedFieldCount = expectedFieldCount;
+    }
+
+    public void setStrict(boolean strict) {
+        this.strict = strict;
+    }
+
+    //[from, to) 구간의 개행/구분자/따옴표 위치를 모두 오프셋 테이블에 기록한다. 이전 테이블은 버려진다.
+    public void scan(byte[] buffer, int from, int to) {
+        this.buffer = buffer;
+        this.scanEnd = to;
+        this.count = 0;
+        this.next = 0;
+
+        int i = from;
+        for(; i + Long.BYTES <= to; i += Long.BYTES) {
+            long word = SwarScanner.readLong(buffer, i);
+            long mask = SwarScanner.matches(word, newlinePattern)
+                    | SwarScanner.matches(word, delimiterPattern)
+                    | SwarScanner.matches(word, quotePattern);
+            while(mask != 0) {
+                add(i + SwarScanner.firstIndex(mask));
+                mask &= mask - 1;
+            }
+        }
+        for(; i < to; i++) {
+            byte b = buffer[i];
+            if(b == NEWLINE || b == delimiter || b == QUOTE) {
+                add(i);
+            }
+        }
+    }
+
+    private void add(int offset) {
+        if(count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count++] = offset;
+    }
+
+    /*
+    from에서 시작하는 레코드의 필드를 cursor에 기록하고 다음 레코드의 시작 위치를 반환한다.
+        레코드가 scan()한 구간 안에서 끝나지 않으면 -1을 반환한다. 리더는 버퍼를 더 채운 뒤 다시 scan()해야 한다.
+        last가 true면(파일 끝) 구간 끝을 레코드 끝으로 본다.
+    레코드는 앞에서부터 차례로 읽어야 한다. (테이블 위치를 되돌리지 않는다)
+    */
+    public int nextRecord(int from, FieldCursor cursor, boolean last) {
+        int fieldStart = from;
+        while(true) {
+            int quoteStart = skipBlank(fieldStart);
+            int end;
+            if(quoteStart < scanEnd && buffer[quoteStart] == QUOTE) {
+                end = quotedField(quoteStart, cursor, last);
+                if(end == INCOMPLETE) {
+                    return INCOMPLETE;
+                }
+            } else {
+                end = nextSeparator(fieldStart);
+                cursor.addField(fieldStart, end);
+            }
+
+            if(end == scanEnd) {
+                return last ? scanEnd : INCOMPLETE;
+            }
+            if(buffer[end] == NEWLINE) {
+                return end + 1;
+            }
+            fieldStart = end + 1;
+        }
+    }
+
+    //strict일 때 nextRecord()로 읽은 필드 수를 확인한다. 리더가 다음 레코드 위치로 이동한 뒤 호출한다.
+    public void checkFieldCount(FieldCursor cursor) {
+        int actual = cursor.getFieldCount();
+        if(strict && expectedFieldCount > 0 && actual != expectedFieldCount) {
+            throw new IncorrectTokenCountException("Incorrect number of tokens found in record", expectedFieldCount, actual);
+        }
+    }
+
+    //닫는 따옴표 다음 구분자(또는 개행, 구간 끝)의 위치를 반환한다.
+    private int quotedField(int quoteStart, FieldCursor cursor, boolean last) {
+        seek(quoteStart + 1);
+        boolean escaped = false;
+        while(next < count) {
+            int offset = offsets[next++];
+            if(buffer[offset] != QUOTE) {
+                continue;
+            }
+            if(offset + 1 == scanEnd && !last) {
+                //다음 바이트가 이스케이프 따옴표인지 알 수 없다.
+                return INCOMPLETE;
+            }
+            if(offset + 1 < scanEnd && buffer[offset + 1] == QUOTE) {
+                escaped = true;
+                next++;
+                continue;
+            }
+            cursor.addQuotedField(quoteStart + 1, offset, escaped);
+            return nextSeparator(offset + 1);
+        }
+
+        if(!last) {
+            return INCOMPLETE;
+        }
+        cursor.addQuotedField(quoteStart + 1, scanEnd, escaped);
+        return scanEnd;
+    }
+
+    //from 이후 첫 구분자 또는 개행의 위치, 없으면 scanEnd
+    private int nextSeparator(int from) {
+        seek(from);
+        while(next < count) {
+            int offset = offsets[next];
+            if(buffer[offset] != QUOTE) {
+                return offset;
+            }
+            next++;
+        }
+        return scanEnd;
+    }
+
+    private void seek(int from) {
+        while(next < count && offsets[next] < from) {
+            next++;
+        }
+    }
+
+    private int skipBlank(int from) {
+        while(from < scanEnd && buffer[from] == ' ') {
+            from++;
+        }
+        return from;
+    }
+}
@@ -0,0 +1,86 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import org.springframework.batch.item.file.transform.IncorrectTokenCountException;
+
+/*
+DelimitedLineTokenizer의 바이트 버전
+    구분자 위치를 한 번 훑으면서 FieldCursor에 필드 오프셋만 기록한다.
+    따옴표(")로 감싼 필드 안의 구분자는 무시하고, 필드 안의 ""는 읽을 때 "로 바뀐다.
+
+    strict가 true면 DelimitedLineTokenizer와 마찬가지로 토큰 수가 expectedFieldCount와 다를 때 예외를 던진다.
+    구분자는 ASCII 한 글자만 지원한다. (UTF-8 멀티바이트 문자의 어떤 바이트도 ASCII 값과 겹치지 않는다.)
+*/
+public class DelimitedCursorTokenizer implements CursorTokenizer {
+    private static final byte QUOTE = '"';
+
+    private final byte delimiter;
+    private final int expectedFieldCount;
+    private boolean strict = true;
+
+    public DelimitedCursorTokenizer(char delimiter, int expectedFieldCount) {
+        if(delimiter > 0x7f || delimiter == QUOTE) {
+            throw new IllegalArgumentException("구분자는 따옴표가 아닌 ASCII 문자여야 합니다: " + delimiter);
+        }
+        this.delimiter = (byte) delimiter;
+        this.expectedFieldCount = expectedFieldCount;
+    }
+
+    public void setStrict(boolean strict) {
+        this.strict = strict;
+    }
+
+    @Override
+    public void tokenize(byte[] line, int length, FieldCursor cursor) {
+        int fieldStart = 0;
+        int i = 0;
+
+        while(i <= length) {
+            int quoteStart = skipBlank(line, fieldStart, length);
+            if(quoteStart < length && line[quoteStart] == QUOTE) {
+                i = tokenizeQuoted(line, length, quoteStart, cursor);
+            } else {
+                i = fieldStart;
+                while(i < length && line[i] != delimiter) {
+                    i++;
+                }
+                cursor.addField(fieldStart, i);
+            }
+            fieldStart = ++i;
+        }
+
+        int actual = cursor.getFieldCount();
+        if(strict && expectedFieldCount > 0 && actual != expectedFieldCount) {
+            throw new IncorrectTokenCountException("Incorrect number of tokens found in record", expectedFieldCount, actual);
+        }
+    }
+
+    //닫는 따옴표 다음 구분자(또는 라인 끝)의 위치를 반환한다.
+    private int tokenizeQuoted(byte[] line, int length, int quoteStart, FieldCursor cursor) {
+        boolean escaped = false;
+        int i = quoteStart + 1;
+        while(i < length) {
+            if(line[i] == QUOTE) {
+                if(i + 1 < length && line[i + 1] == QUOTE) {
+                    escaped = true;
+                    i += 2;
+                    continue;
+                }
+                break;
+            }
+            i++;
+        }
+        cursor.addQuotedField(quoteStart + 1, Math.min(i, length), escaped);
+
+        while(i < length && line[i] != delimiter) {
+            i++;
+        }
+        return i;
+    }
+
+    private int skipBlank(byte[] line, int from, int length) {
+        while(from < length && line[from] == ' ') {
+            from++;
+        }
+        return from;
+    }
+}
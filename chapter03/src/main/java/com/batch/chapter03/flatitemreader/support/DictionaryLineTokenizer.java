@@ -0,0 +1,53 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import org.springframework.batch.item.file.transform.DefaultFieldSetFactory;
+import org.springframework.batch.item.file.transform.FieldSet;
+import org.springframework.batch.item.file.transform.FieldSetFactory;
+import org.springframework.batch.item.file.transform.LineTokenizer;
+
+import java.util.Set;
+
+/*
+LineTokenizer가 만든 토큰 중 지정한 이름의 컬럼을 ByteDictionary로 intern하는 데코레이터
+    FlatFileItemReader처럼 라인을 String으로 읽는 경로에서 사용한다.
+    토큰 String은 이미 만들어진 뒤이므로 파싱 할당은 줄지 않지만, 아이템이 들고 있는 값은 정규 String 하나를 공유하게 되어
+    큰 청크나 메모리 집계에서 힙 사용량이 줄고 프로세서에서 ==로 비교할 수 있다.
+
+    FieldSet에 없는 이름은 무시하므로 PatternMatchingCompositeLineMapper처럼 라인 유형마다 컬럼이 다른 토크나이저에도 같은 이름 목록을 쓸 수 있다.
+    이름이 없는 FieldSet은 그대로 반환한다.
+*/
+public class DictionaryLineTokenizer implements LineTokenizer {
+    private final LineTokenizer delegate;
+    private final ByteDictionary dictionary;
+    private final Set<String> names;
+    private FieldSetFactory fieldSetFactory = new DefaultFieldSetFactory();
+
+    public DictionaryLineTokenizer(LineTokenizer delegate, ByteDictionary dictionary, String... names) {
+        this.delegate = delegate;
+        this.dictionary = dictionary;
+        this.names = Set.of(names);
+    }
+
+    public void setFieldSetFactory(FieldSetFactory fieldSetFactory) {
+        this.fieldSetFactory = fieldSetFactory;
+    }
+
+    @Override
+    public FieldSet tokenize(String line) {
+        FieldSet fieldSet = delegate.tokenize(line);
+        if(!fieldSet.hasNames()) {
+            return fieldSet;
+        }
+
+        String[] fieldNames = fieldSet.getNames();
+        String[] values = fieldSet.getValues();
+        boolean interned = false;
+        for(int i = 0; i < fieldNames.length; i++) {
+            if(names.contains(fieldNames[i])) {
+                values[i] = dictionary.intern(values[i]);
+                interned = true;
+            }
+        }
+        return interned ? fieldSetFactory.create(values, fieldNames) : fieldSet;
+    }
+}
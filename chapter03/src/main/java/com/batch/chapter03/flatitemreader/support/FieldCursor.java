@@ -0,0 +1,219 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/*
+라인 버퍼 위의 필드 위치(start, end)만 기록하는 재사용 커서
+    DefaultFieldSet은 토큰마다 String을 만들고 읽을 때마다 trim()한 복사본을 다시 만든다.
+    FieldCursor는 토크나이저가 기록한 오프셋만 들고 있다가 매퍼가 실제로 읽는 필드만 변환한다.
+    readInt()처럼 숫자 필드는 String을 거치지 않고 바이트에서 바로 파싱한다.
+    setDictionary()로 사전 컬럼을 지정하면 readString()이 그 컬럼은 ByteDictionary의 정규 String을 반환한다.
+
+    커서는 라인마다 reset()되어 재사용되므로 한 스레드(하나의 리더)에서만 사용해야 한다.
+*/
+public class FieldCursor {
+    private final Charset charset;
+
+    private byte[] line;
+    private int length;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private boolean[] escaped = new boolean[16];
+    private int count;
+    private ByteDictionary[] dictionaries = new ByteDictionary[0];
+
+    public FieldCursor() {
+        this(StandardCharsets.UTF_8);
+    }
+
+    public FieldCursor(Charset charset) {
+        this.charset = charset;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    //index 컬럼의 값을 dictionary로 intern한다. null을 전달하면 해제한다.
+    public void setDictionary(int index, ByteDictionary dictionary) {
+        if(index >= dictionaries.length) {
+            dictionaries = Arrays.copyOf(dictionaries, index + 1);
+        }
+        dictionaries[index] = dictionary;
+    }
+
+    public void reset(byte[] line, int length) {
+        this.line = line;
+        this.length = length;
+        this.count = 0;
+    }
+
+    //토크나이저가 호출한다. String.trim()과 같이 앞뒤 공백/제어 문자는 오프셋만 옮겨서 제거한다.
+    public void addField(int start, int end) {
+        while(start < end && (line[start] & 0xff) <= ' ') {
+            start++;
+        }
+        while(end > start && (line[end - 1] & 0xff) <= ' ') {
+            end--;
+        }
+        add(start, end, false);
+    }
+
+    //따옴표로 감싼 필드는 따옴표 안쪽 내용을 그대로 쓴다. escaped가 true면 안에 이스케이프된 따옴표("")가 있다는 뜻이다.
+    public void addQuotedField(int start, int end, boolean escaped) {
+        add(start, end, escaped);
+    }
+
+    private void add(int start, int end, boolean escaped) {
+        if(count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+            this.escaped = Arrays.copyOf(this.escaped, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        this.escaped[count] = escaped;
+        count++;
+    }
+
+    public int getFieldCount() {
+        return count;
+    }
+
+    public byte[] getLine() {
+        return line;
+    }
+
+    public int getLineLength() {
+        return length;
+    }
+
+    public int start(int index) {
+        checkIndex(index);
+        return starts[index];
+    }
+
+    public int end(int index) {
+        checkIndex(index);
+        return ends[index];
+    }
+
+    public int length(int index) {
+        return end(index) - start(index);
+    }
+
+    public boolean isEmpty(int index) {
+        return length(index) == 0;
+    }
+
+    //true이면 원본 바이트에 이스케이프된 따옴표("")가 있으므로 readString()으로 읽어야 한다.
+    public boolean isEscaped(int index) {
+        checkIndex(index);
+        return escaped[index];
+    }
+
+    public String readString(int index) {
+        int start = start(index);
+        int end = ends[index];
+        ByteDictionary dictionary = index < dictionaries.length ? dictionaries[index] : null;
+        if(escaped[index]) {
+            return dictionary != null ? dictionary.intern(unescape(start, end)) : unescape(start, end);
+        }
+        if(dictionary != null) {
+            return dictionary.intern(line, start, end);
+        }
+        return new String(line, start, end - start, charset);
+    }
+
+    //필드 값의 사전 id. String을 만들지 않으므로 프로세서에서 id로 비교하거나 집계할 때 사용한다.
+    public int readDictionaryId(int index, ByteDictionary dictionary) {
+        int start = start(index);
+        if(escaped[index]) {
+            return dictionary.idOf(unescape(start, ends[index]));
+        }
+        return dictionary.idOf(line, start, ends[index]);
+    }
+
+    public int readInt(int index) {
+        int start = start(index);
+        int end = ends[index];
+        if(start == end) {
+            throw new NumberFormatException("빈 필드는 int로 변환할 수 없습니다. (index: " + index + ")");
+        }
+
+        boolean negative = false;
+        int i = start;
+        if(line[i] == '-' || line[i] == '+') {
+            negative = line[i] == '-';
+            i++;
+            if(i == end) {
+                throw numberFormatException(index);
+            }
+        }
+
+        //음수 범위가 한 칸 더 넓으므로 음수로 누적한 뒤 부호를 뒤집는다.
+        int result = 0;
+        for(; i < end; i++) {
+            int digit = line[i] - '0';
+            if(digit < 0 || digit > 9 || result < (Integer.MIN_VALUE + digit) / 10) {
+                throw numberFormatException(index);
+            }
+            result = result * 10 - digit;
+        }
+
+        if(!negative) {
+            if(result == Integer.MIN_VALUE) {
+                throw numberFormatException(index);
+            }
+            return -result;
+        }
+        return result;
+    }
+
+    //BeanWrapperFieldSetMapper와 동일하게 빈 필드는 null로 매핑한다.
+    public Integer readInteger(int index) {
+        return isEmpty(index) ? null : readInt(index);
+    }
+
+    //"yyyy-MM-dd HH:mm:ss" 형식의 필드를 String을 거치지 않고 파싱한다.
+    public LocalDateTime readLocalDateTime(int index) {
+        return isEmpty(index) ? null : FixedPatternDateTimeParser.shared().parseDateTime(line, starts[index], ends[index]);
+    }
+
+    //"yyyy-MM-dd" 형식의 필드를 String을 거치지 않고 파싱한다.
+    public LocalDate readLocalDate(int index) {
+        return isEmpty(index) ? null : FixedPatternDateTimeParser.shared().parseDate(line, starts[index], ends[index]);
+    }
+
+    //필드가 주어진 바이트 값과 같은지 String 생성 없이 비교한다.
+    public boolean fieldEquals(int index, byte[] value) {
+        int start = start(index);
+        return Arrays.equals(line, start, ends[index], value, 0, value.length);
+    }
+
+    private String unescape(int start, int end) {
+        byte[] unescaped = new byte[end - start];
+        int length = 0;
+        for(int i = start; i < end; i++) {
+            unescaped[length++] = line[i];
+            if(line[i] == '"' && i + 1 < end && line[i + 1] == '"') {
+                i++;
+            }
+        }
+        return new String(unescaped, 0, length, charset);
+    }
+
+    private NumberFormatException numberFormatException(int index) {
+        return new NumberFormatException("숫자 형식이 아닙니다: \"" + new String(line, starts[index], ends[index] - starts[index], charset) + "\" (index: " + index + ")");
+    }
+
+    private void checkIndex(int index) {
+        if(index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("필드 인덱스 범위를 벗어났습니다: " + index + " (필드 수: " + count + ")");
+        }
+    }
+}
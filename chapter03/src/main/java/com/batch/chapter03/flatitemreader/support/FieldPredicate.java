@@ -0,0 +1,66 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+토큰화된 라인의 원본 필드 바이트를 보고 매핑 전에 라인을 거를지 정하는 조건
+    프로세서에서 null을 반환해 버리는 아이템도 리더가 이미 매핑하고 객체를 만든 뒤다.
+    리더(CursorLineMapper, SwarDelimitedItemReader)에 FieldPredicate를 지정하면 false인 라인은 매핑하지 않고 건너뛰고,
+    건너뛴 라인 수는 StepExecution의 filterCount에 더해진다.
+
+    equalTo()/in()은 비교할 값을 미리 바이트로 인코딩해 두고 String 생성 없이 비교한다.
+    intIn()은 readInt()로 바이트에서 바로 파싱하므로 숫자가 아닌 값이면 매핑할 때와 같이 예외가 발생한다.
+*/
+@FunctionalInterface
+public interface FieldPredicate {
+    boolean test(FieldCursor cursor);
+
+    default FieldPredicate and(FieldPredicate other) {
+        return cursor -> test(cursor) && other.test(cursor);
+    }
+
+    default FieldPredicate or(FieldPredicate other) {
+        return cursor -> test(cursor) || other.test(cursor);
+    }
+
+    default FieldPredicate negate() {
+        return cursor -> !test(cursor);
+    }
+
+    static FieldPredicate equalTo(int column, String value) {
+        return in(column, StandardCharsets.UTF_8, value);
+    }
+
+    static FieldPredicate in(int column, String... values) {
+        return in(column, StandardCharsets.UTF_8, values);
+    }
+
+    //charset은 파일의 인코딩이다.
+    static FieldPredicate in(int column, Charset charset, String... values) {
+        byte[][] encoded = new byte[values.length][];
+        for(int i = 0; i < values.length; i++) {
+            encoded[i] = values[i].getBytes(charset);
+        }
+        return cursor -> {
+            //이스케이프된 따옴표가 있는 필드는 원본 바이트와 값이 다르므로 디코딩해서 비교한다.
+            if(cursor.isEscaped(column)) {
+                return Arrays.asList(values).contains(cursor.readString(column));
+            }
+            for(byte[] value : encoded) {
+                if(cursor.fieldEquals(column, value)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    //빈 필드는 어떤 값과도 같지 않다.
+    static FieldPredicate intIn(int column, int... values) {
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return cursor -> !cursor.isEmpty(column) && Arrays.binarySearch(sorted, cursor.readInt(column)) >= 0;
+    }
+}
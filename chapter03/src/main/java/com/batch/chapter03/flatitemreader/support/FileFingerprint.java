@@ -0,0 +1,53 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/*
+파일의 앞부분 [0, length)가 이전과 같은지 확인하기 위한 지문
+    size, lastModified는 파일 전체의 크기와 수정 시각이고,
+    headCrc는 [0, length) 중 앞쪽 SAMPLE_SIZE 바이트, tailCrc는 length 바로 앞쪽 SAMPLE_SIZE 바이트의 CRC32다.
+
+    파일 끝에 데이터가 추가(append)되면 size와 lastModified는 바뀌지만 [0, length) 구간은 그대로이므로
+    samePrefix()로 저장해 둔 바이트 위치가 여전히 같은 라인 경계를 가리키는지 확인할 수 있다.
+    파일 전체를 비교하려면 length를 파일 크기로 지정해서 만든 지문끼리 equals()로 비교한다.
+*/
+public record FileFingerprint(long size, long lastModified, long length, long headCrc, long tailCrc) {
+    public static final int SAMPLE_SIZE = 4096;
+
+    public static FileFingerprint of(FileChannel channel, long lastModified, long length) throws IOException {
+        long size = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate(SAMPLE_SIZE);
+        long headCrc = crc(channel, 0, Math.min(SAMPLE_SIZE, length), buffer);
+        long tailCrc = crc(channel, Math.max(0, length - SAMPLE_SIZE), length, buffer);
+        return new FileFingerprint(size, lastModified, length, headCrc, tailCrc);
+    }
+
+    //두 지문이 같은 length에 대해 같은 내용을 가리키는지 비교한다. size, lastModified는 비교하지 않는다.
+    public boolean samePrefix(FileFingerprint other) {
+        return length == other.length && headCrc == other.headCrc && tailCrc == other.tailCrc;
+    }
+
+    public boolean sameFileState(FileFingerprint other) {
+        return size == other.size && lastModified == other.lastModified;
+    }
+
+    private static long crc(FileChannel channel, long from, long to, ByteBuffer buffer) throws IOException {
+        CRC32 crc = new CRC32();
+        long position = from;
+        while(position < to) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), to - position));
+            int read = channel.read(buffer, position);
+            if(read <= 0) {
+                break;
+            }
+            buffer.flip();
+            crc.update(buffer);
+            position += read;
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,31 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import org.springframework.batch.core.StepExecution;
+
+/*
+리더가 매핑하지 않고 건너뛴 라인 수를 StepExecution의 filterCount에 더한다.
+    프로세서가 null을 반환한 아이템은 청크 처리 과정에서 filterCount로 집계되지만, 리더가 걸러낸 라인은 스텝이 알 수 없다.
+    리더의 update()마다 지난 보고 이후 늘어난 만큼만 더하므로, 청크 커밋과 함께 JobRepository에 저장되어 실행 중에도 모니터링할 수 있다.
+
+    재시작 시 ExecutionContext에서 복원한 값은 이전 실행의 StepExecution에 이미 더해졌으므로 기준값으로만 쓴다.
+    beforeStep()은 open()보다 먼저 호출된다.
+*/
+class FilterCountReporter {
+    private StepExecution stepExecution;
+    private long reported;
+
+    void beforeStep(StepExecution stepExecution) {
+        this.stepExecution = stepExecution;
+    }
+
+    void restored(long filteredCount) {
+        this.reported = filteredCount;
+    }
+
+    void report(long filteredCount) {
+        if(stepExecution != null && filteredCount > reported) {
+            stepExecution.setFilterCount(stepExecution.getFilterCount() + filteredCount - reported);
+            reported = filteredCount;
+        }
+    }
+}
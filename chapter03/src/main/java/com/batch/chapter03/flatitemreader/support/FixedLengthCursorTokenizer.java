@@ -0,0 +1,181 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import org.springframework.batch.item.file.transform.IncorrectLineLengthException;
+import org.springframework.batch.item.file.transform.Range;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+FixedLengthTokenizer의 바이트 버전
+    FixedLengthTokenizer는 라인 전체를 String으로 디코딩하고 Range마다 substring()을 호출한 뒤 DefaultFieldSet에서 다시 trim()한다.
+    FixedLengthCursorTokenizer는 Range[]에서 계산한 컬럼 위치를 FieldCursor에 기록만 하고,
+    패딩 공백도 오프셋을 옮겨서 제거하기 때문에 매퍼가 읽지 않는 컬럼은 디코딩되지 않는다.
+
+    Range의 위치는 FixedLengthTokenizer와 같은 문자 단위(1부터 시작, 양 끝 포함)다.
+    라인이 ASCII로만 이루어져 있으면 문자 위치가 곧 바이트 위치이므로 그대로 사용하고,
+    멀티바이트 문자가 섞인 라인은 바이트를 한 번 훑어서 문자 위치를 바이트 위치로 변환한다.
+        문자셋은 FieldCursor(CursorLineMapper에 전달한 Charset)의 것을 따른다.
+        UTF-8은 첫 바이트로 문자 길이를 바로 계산하고, MS949/EUC-KR 같은 다른 문자셋은 CharsetDecoder로 한 문자씩 디코딩해서 위치를 찾는다.
+        FieldCursor는 ASCII 바이트로 공백과 숫자를 판단하므로 ASCII와 호환되지 않는 문자셋(UTF-16 등)은 거부한다.
+
+    strict가 true면 FixedLengthTokenizer와 동일하게 라인 길이가 마지막 Range의 끝 위치와 다를 때 IncorrectLineLengthException을 던진다.
+*/
+public class FixedLengthCursorTokenizer implements CursorTokenizer {
+    private final int[] mins;
+    private final int[] maxs;
+    private final int maxRange;
+    private final boolean open;
+    private boolean strict = true;
+
+    private int[] charOffsets = new int[256];
+    private Charset charset = StandardCharsets.UTF_8;
+    private CharsetDecoder decoder;
+    private final CharBuffer decoded = CharBuffer.allocate(2);
+
+    public FixedLengthCursorTokenizer(Range... ranges) {
+        this.mins = new int[ranges.length];
+        this.maxs = new int[ranges.length];
+
+        int max = 0;
+        boolean open = false;
+        for(int i = 0; i < ranges.length; i++) {
+            mins[i] = ranges[i].getMin() - 1;
+            maxs[i] = ranges[i].hasMaxValue() ? ranges[i].getMax() : -1;
+            if(ranges[i].hasMaxValue()) {
+                max = Math.max(max, ranges[i].getMax());
+            } else {
+                max = Math.max(max, ranges[i].getMin());
+                open = true;
+            }
+        }
+        this.maxRange = max;
+        this.open = open;
+    }
+
+    public void setStrict(boolean strict) {
+        this.strict = strict;
+    }
+
+    @Override
+    public void tokenize(byte[] line, int length, FieldCursor cursor) {
+        if(!charset.equals(cursor.getCharset())) {
+            useCharset(cursor.getCharset());
+        }
+        boolean ascii = isAscii(line, length);
+        int lineLength = ascii ? length : decoder == null ? indexChars(line, length) : indexChars(line, length, decoder);
+
+        if(strict) {
+            if(lineLength < maxRange) {
+                throw new IncorrectLineLengthException("Line is shorter than max range " + maxRange, maxRange, lineLength, decode(line, length));
+            }
+            if(!open && lineLength > maxRange) {
+                throw new IncorrectLineLengthException("Line is longer than max range " + maxRange, maxRange, lineLength, decode(line, length));
+            }
+        }
+
+        for(int i = 0; i < mins.length; i++) {
+            int start = Math.min(mins[i], lineLength);
+            int end = maxs[i] < 0 ? lineLength : Math.min(maxs[i], lineLength);
+            if(ascii) {
+                cursor.addField(start, end);
+            } else {
+                cursor.addField(charOffsets[start], charOffsets[end]);
+            }
+        }
+    }
+
+    private void useCharset(Charset charset) {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        byte[] ascii = new byte[128];
+        for(int i = 0; i < ascii.length; i++) {
+            ascii[i] = (byte) i;
+        }
+        if(!new String(ascii, charset).equals(new String(ascii, StandardCharsets.US_ASCII))) {
+            throw new IllegalArgumentException("ASCII와 호환되는 문자셋만 사용할 수 있습니다: " + charset);
+        }
+        this.charset = charset;
+        this.decoder = StandardCharsets.UTF_8.equals(charset) ? null : decoder;
+    }
+
+    private boolean isAscii(byte[] line, int length) {
+        for(int i = 0; i < length; i++) {
+            if(line[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+    charOffsets[n]에 n번째 문자(String 기준 char 인덱스)가 시작하는 바이트 위치를 기록하고 문자 수를 반환한다.
+    4바이트 UTF-8 문자는 String에서 char 두 개(서로게이트 쌍)를 차지하므로 두 칸을 채운다.
+    */
+    private int indexChars(byte[] line, int length) {
+        if(charOffsets.length < length + 2) {
+            charOffsets = Arrays.copyOf(charOffsets, length + 2);
+        }
+
+        int chars = 0;
+        int i = 0;
+        while(i < length) {
+            charOffsets[chars++] = i;
+            int b = line[i] & 0xff;
+            if(b < 0x80) {
+                i += 1;
+            } else if(b < 0xe0) {
+                i += 2;
+            } else if(b < 0xf0) {
+                i += 3;
+            } else {
+                charOffsets[chars++] = i;
+                i += 4;
+            }
+        }
+        charOffsets[chars] = Math.min(i, length);
+        return chars;
+    }
+
+    /*
+    UTF-8이 아닌 문자셋용 indexChars(). 출력 버퍼를 한 칸으로 제한해서 한 문자씩 디코딩하고, 문자마다 입력이 어디까지 소비되었는지로 바이트 위치를 얻는다.
+    보조 문자(서로게이트 쌍)는 한 칸에 들어가지 않으므로 두 칸으로 다시 디코딩하고 두 칸을 같은 위치로 채운다.
+    */
+    private int indexChars(byte[] line, int length, CharsetDecoder decoder) {
+        if(charOffsets.length < length + 2) {
+            charOffsets = Arrays.copyOf(charOffsets, length + 2);
+        }
+
+        decoder.reset();
+        ByteBuffer in = ByteBuffer.wrap(line, 0, length);
+        int chars = 0;
+        while(in.hasRemaining()) {
+            int start = in.position();
+            decoded.clear().limit(1);
+            CoderResult result = decoder.decode(in, decoded, true);
+            if(result.isOverflow() && decoded.position() == 0) {
+                decoded.limit(2);
+                decoder.decode(in, decoded, true);
+            }
+            if(decoded.position() == 0 && in.position() == start) {
+                break;
+            }
+            for(int i = 0; i < decoded.position(); i++) {
+                charOffsets[chars++] = start;
+            }
+        }
+        charOffsets[chars] = in.position();
+        return chars;
+    }
+
+    private String decode(byte[] line, int length) {
+        return new String(line, 0, length, charset);
+    }
+}
@@ -0,0 +1,163 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+
+/*
+"yyyy-MM-dd HH:mm:ss", "yyyy-MM-dd" 고정 패턴 전용 파서
+    DateTimeFormatter.ofPattern()으로 매번 포맷터를 만들어 파싱하면 포맷터 생성과 Parsed 객체 생성이 아이템마다 반복된다.
+    이 파서는 고정 위치의 숫자를 직접 읽고, 같은 초(second)까지의 값은 작은 캐시에서 같은 LocalDateTime 인스턴스를 돌려준다.
+    같은 날짜의 LocalDate도 캐시하므로 캐시 미스여도 LocalTime, LocalDateTime만 새로 만든다.
+
+    빠른 경로에서 처리할 수 없는 값(형식이 다르거나 2월 30일처럼 보정이 필요한 값)은
+    DateTimeFormatter로 위임하므로 결과와 예외는 DateTimeFormatter.ofPattern()과 동일하다.
+
+    캐시 슬롯에는 불변 엔트리만 저장하기 때문에 여러 스레드가 동시에 사용해도 안전하다.
+*/
+public final class FixedPatternDateTimeParser {
+    public static final String DATE_TIME_PATTERN = "yyyy-MM-dd HH:mm:ss";
+    public static final String DATE_PATTERN = "yyyy-MM-dd";
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern(DATE_TIME_PATTERN);
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(DATE_PATTERN);
+    private static final int CACHE_SIZE = 256;
+    private static final FixedPatternDateTimeParser SHARED = new FixedPatternDateTimeParser();
+
+    private final DateTimeEntry[] dateTimeCache = new DateTimeEntry[CACHE_SIZE];
+    private final DateEntry[] dateCache = new DateEntry[CACHE_SIZE];
+
+    public static FixedPatternDateTimeParser shared() {
+        return SHARED;
+    }
+
+    public LocalDateTime parseDateTime(CharSequence text) {
+        if(text.length() == 19 && isDateTimeLayout(text.charAt(4), text.charAt(7), text.charAt(10), text.charAt(13), text.charAt(16))) {
+            LocalDateTime value = resolveDateTime(digits(text, 0, 4), digits(text, 5, 2), digits(text, 8, 2),
+                    digits(text, 11, 2), digits(text, 14, 2), digits(text, 17, 2));
+            if(value != null) {
+                return value;
+            }
+        }
+        return LocalDateTime.parse(text, DATE_TIME_FORMATTER);
+    }
+
+    public LocalDateTime parseDateTime(byte[] bytes, int start, int end) {
+        if(end - start == 19 && isDateTimeLayout(bytes[start + 4], bytes[start + 7], bytes[start + 10], bytes[start + 13], bytes[start + 16])) {
+            LocalDateTime value = resolveDateTime(digits(bytes, start, 4), digits(bytes, start + 5, 2), digits(bytes, start + 8, 2),
+                    digits(bytes, start + 11, 2), digits(bytes, start + 14, 2), digits(bytes, start + 17, 2));
+            if(value != null) {
+                return value;
+            }
+        }
+        return LocalDateTime.parse(new String(bytes, start, end - start, StandardCharsets.UTF_8), DATE_TIME_FORMATTER);
+    }
+
+    public LocalDate parseDate(CharSequence text) {
+        if(text.length() == 10 && text.charAt(4) == '-' && text.charAt(7) == '-') {
+            LocalDate value = resolveDate(digits(text, 0, 4), digits(text, 5, 2), digits(text, 8, 2));
+            if(value != null) {
+                return value;
+            }
+        }
+        return LocalDate.parse(text, DATE_FORMATTER);
+    }
+
+    public LocalDate parseDate(byte[] bytes, int start, int end) {
+        if(end - start == 10 && bytes[start + 4] == '-' && bytes[start + 7] == '-') {
+            LocalDate value = resolveDate(digits(bytes, start, 4), digits(bytes, start + 5, 2), digits(bytes, start + 8, 2));
+            if(value != null) {
+                return value;
+            }
+        }
+        return LocalDate.parse(new String(bytes, start, end - start, StandardCharsets.UTF_8), DATE_FORMATTER);
+    }
+
+    private LocalDateTime resolveDateTime(int year, int month, int day, int hour, int minute, int second) {
+        if(hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+        LocalDate date = resolveDate(year, month, day);
+        if(date == null) {
+            return null;
+        }
+
+        long key = (((((long) year * 100 + month) * 100 + day) * 100 + hour) * 100 + minute) * 100 + second;
+        int slot = slot(key);
+        DateTimeEntry entry = dateTimeCache[slot];
+        if(entry != null && entry.key == key) {
+            return entry.value;
+        }
+
+        LocalDateTime value = LocalDateTime.of(date, LocalTime.of(hour, minute, second));
+        dateTimeCache[slot] = new DateTimeEntry(key, value);
+        return value;
+    }
+
+    private LocalDate resolveDate(int year, int month, int day) {
+        if(year < 1 || month < 1 || month > 12 || day < 1 || day > 28 && day > lengthOfMonth(year, month)) {
+            return null;
+        }
+
+        int key = (year * 100 + month) * 100 + day;
+        int slot = slot(key);
+        DateEntry entry = dateCache[slot];
+        if(entry != null && entry.key == key) {
+            return entry.value;
+        }
+
+        LocalDate value = LocalDate.of(year, month, day);
+        dateCache[slot] = new DateEntry(key, value);
+        return value;
+    }
+
+    private static boolean isDateTimeLayout(int dash1, int dash2, int space, int colon1, int colon2) {
+        return dash1 == '-' && dash2 == '-' && space == ' ' && colon1 == ':' && colon2 == ':';
+    }
+
+    //숫자가 아닌 문자가 있으면 -1을 반환한다.
+    private static int digits(CharSequence text, int from, int count) {
+        int value = 0;
+        for(int i = from; i < from + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if(digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int digits(byte[] bytes, int from, int count) {
+        int value = 0;
+        for(int i = from; i < from + count; i++) {
+            int digit = bytes[i] - '0';
+            if(digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch(month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    private static int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 56) & (CACHE_SIZE - 1);
+    }
+
+    private record DateTimeEntry(long key, LocalDateTime value) {
+    }
+
+    private record DateEntry(int key, LocalDate value) {
+    }
+}
@@ -0,0 +1,90 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.core.convert.converter.ConverterFactory;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.util.NumberUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/*
+플랫 파일 매핑용 ConversionService
+    customEditors(Map.of(LocalDateTime.class, editor))로 등록한 PropertyEditor는 상태를 가진 객체라서
+    BeanWrapper가 값마다 setAsText()/getValue()를 호출하며, 예제처럼 setAsText() 안에서 포맷터를 만들면 비용이 더 커진다.
+    ConversionService의 Converter는 상태가 없어 스레드 간에 공유할 수 있으므로 리더마다 한 번만 구성하면 된다.
+
+    BeanWrapperFieldSetMapper.setConversionService()에 전달해서 사용한다.
+        String -> LocalDateTime: "yyyy-MM-dd HH:mm:ss" (FixedPatternDateTimeParser, 초 단위 캐시)
+        String -> LocalDate: "yyyy-MM-dd"
+        String -> Integer: 10진수는 직접 파싱하고 그 외 형식(16진수 등)은 NumberUtils로 위임
+        String -> Enum: 타입별로 만든 Converter를 재사용
+    빈 문자열은 DefaultConversionService와 동일하게 null로 변환된다.
+*/
+public class FlatFileConversionService extends DefaultConversionService {
+    private static volatile FlatFileConversionService sharedInstance;
+
+    public FlatFileConversionService() {
+        FixedPatternDateTimeParser parser = FixedPatternDateTimeParser.shared();
+        addConverter(String.class, LocalDateTime.class, text -> text.isEmpty() ? null : parser.parseDateTime(text));
+        addConverter(String.class, LocalDate.class, text -> text.isEmpty() ? null : parser.parseDate(text));
+        addConverter(String.class, Integer.class, FlatFileConversionService::parseInteger);
+        addConverterFactory(new StringToEnumConverterFactory());
+    }
+
+    public static FlatFileConversionService getSharedInstance() {
+        FlatFileConversionService instance = sharedInstance;
+        if(instance == null) {
+            synchronized(FlatFileConversionService.class) {
+                instance = sharedInstance;
+                if(instance == null) {
+                    instance = new FlatFileConversionService();
+                    sharedInstance = instance;
+                }
+            }
+        }
+        return instance;
+    }
+
+    private static Integer parseInteger(String text) {
+        int length = text.length();
+        if(length == 0) {
+            return null;
+        }
+
+        int i = text.charAt(0) == '-' ? 1 : 0;
+        if(i == length || length - i > 9) {
+            return NumberUtils.parseNumber(text, Integer.class);
+        }
+
+        int value = 0;
+        for(; i < length; i++) {
+            int digit = text.charAt(i) - '0';
+            if(digit < 0 || digit > 9) {
+                return NumberUtils.parseNumber(text, Integer.class);
+            }
+            value = value * 10 + digit;
+        }
+        return text.charAt(0) == '-' ? -value : value;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static class StringToEnumConverterFactory implements ConverterFactory<String, Enum> {
+        private final ClassValue<Converter<String, ? extends Enum>> converters = new ClassValue<>() {
+            @Override
+            protected Converter<String, ? extends Enum> computeValue(Class<?> type) {
+                Class enumType = type;
+                while(enumType != null && !enumType.isEnum()) {
+                    enumType = enumType.getSuperclass();
+                }
+                Class<? extends Enum> resolved = enumType;
+                return text -> text.isEmpty() ? null : Enum.valueOf(resolved, text.trim());
+            }
+        };
+
+        @Override
+        public <T extends Enum> Converter<String, T> getConverter(Class<T> targetType) {
+            return (Converter<String, T>) converters.get(targetType);
+        }
+    }
+}
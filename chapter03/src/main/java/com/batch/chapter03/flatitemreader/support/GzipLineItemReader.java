@@ -0,0 +1,338 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/*
+gzip으로 압축된 파일(.gz)을 디스크에 풀지 않고 바로 라인 단위로 읽는 ItemReader
+    압축 해제는 전용 inflater 스레드에서 하고, blockSize 크기의 버퍼에 풀어 큐로 넘긴다. (버퍼는 bufferCount + 1개를 돌려쓴다)
+    스텝 스레드는 큐에서 받은 버퍼에서 개행을 찾아 ByteLineMapper로 매핑만 하므로 압축 해제와 파싱이 겹쳐서 진행된다.
+
+    재시작
+        FlatFileItemReader에 GZIPInputStream을 씌우면 재시작 시 파일 처음부터 다시 풀면서 read.count만큼 라인을 매핑해서 버려야 한다.
+        이 리더는 커밋 시점의 위치를 (member 시작의 압축 파일 오프셋, 그 member 안에서 풀린 바이트 수)로 저장하고,
+        재시작 시 그 member부터 풀어서 저장된 바이트 수만큼만 버린다. (라인 매핑 없이 압축 해제만 한다)
+        GzipFlatFileItemWriter처럼 블록마다 member를 나눠 쓴 파일은 재시작 위치 바로 앞 member부터 풀게 되고,
+        일반 gzip처럼 member가 하나인 파일은 처음부터 풀지만 매핑 없이 건너뛴다.
+
+    lineMapper가 null을 반환한 라인은 MappedLineItemReader와 같이 건너뛰고 filter.count로 집계한다.
+*/
+@Slf4j
+public class GzipLineItemReader<T> extends ItemStreamSupport implements ItemStreamReader<T>, StepExecutionListener {
+    private static final String MEMBER_OFFSET = "member.offset";
+    private static final String MEMBER_POSITION = "member.position";
+    private static final String LINE_NUMBER = "line.number";
+    private static final String READ_COUNT = "read.count";
+    private static final String FILTER_COUNT = "filter.count";
+
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    //큐에서 입력의 끝을 나타낸다.
+    private static final Block END = new Block(null, -1, 0, 0, null);
+
+    private Resource resource;
+    private ByteLineMapper<T> lineMapper;
+    private Charset charset = StandardCharsets.UTF_8;
+    private int linesToSkip = 0;
+    private String[] comments = new String[] {"#"};
+    private boolean strict = true;
+    private boolean saveState = true;
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+    private int bufferCount = 4;
+
+    private byte[][] commentBytes;
+    private BlockingQueue<Block> queue;
+    private BlockingQueue<byte[]> freeBuffers;
+    private Thread inflaterThread;
+    private volatile boolean running;
+    private Block current;
+    private int blockPosition;
+    private boolean noInput;
+    //inflater 스레드가 실패하면 스킵된 뒤에도 입력의 끝으로 보지 않도록 read()마다 다시 던진다.
+    private ItemStreamException failure;
+
+    private long memberOffset;
+    private long memberPosition;
+    private long lineNumber;
+    private long readCount;
+    private long filteredCount;
+    private final FilterCountReporter filterCountReporter = new FilterCountReporter();
+    private byte[] lineBuffer = new byte[1024];
+
+    public void setResource(Resource resource) {
+        this.resource = resource;
+    }
+
+    public void setLineMapper(ByteLineMapper<T> lineMapper) {
+        this.lineMapper = lineMapper;
+    }
+
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+
+    public void setLinesToSkip(int linesToSkip) {
+        this.linesToSkip = linesToSkip;
+    }
+
+    public void setComments(String... comments) {
+        this.comments = comments;
+    }
+
+    public void setStrict(boolean strict) {
+        this.strict = strict;
+    }
+
+    public void setSaveState(boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    //inflater 스레드가 한 번에 풀어서 넘기는 바이트 수
+    public void setBlockSize(int blockSize) {
+        Assert.isTrue(blockSize > 0, "blockSize는 0보다 커야 합니다.");
+        this.blockSize = blockSize;
+    }
+
+    //스텝 스레드보다 앞서 풀어 둘 수 있는 블록 수
+    public void setBufferCount(int bufferCount) {
+        Assert.isTrue(bufferCount > 0, "bufferCount는 0보다 커야 합니다.");
+        this.bufferCount = bufferCount;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        Assert.notNull(resource, "resource가 필요합니다.");
+        Assert.notNull(lineMapper, "lineMapper가 필요합니다.");
+
+        commentBytes = new byte[comments.length][];
+        for(int i = 0; i < comments.length; i++) {
+            commentBytes[i] = comments[i].getBytes(charset);
+        }
+
+        if(!resource.exists()) {
+            if(strict) {
+                throw new ItemStreamException("입력 리소스가 존재하지 않습니다: " + resource.getDescription());
+            }
+            log.warn("입력 리소스가 존재하지 않습니다: {}", resource.getDescription());
+            noInput = true;
+            return;
+        }
+
+        memberOffset = 0;
+        memberPosition = 0;
+        lineNumber = 0;
+        readCount = 0;
+        filteredCount = 0;
+        if(executionContext.containsKey(getExecutionContextKey(MEMBER_OFFSET))) {
+            memberOffset = executionContext.getLong(getExecutionContextKey(MEMBER_OFFSET));
+            memberPosition = executionContext.getLong(getExecutionContextKey(MEMBER_POSITION));
+            lineNumber = executionContext.getLong(getExecutionContextKey(LINE_NUMBER));
+            readCount = executionContext.getLong(getExecutionContextKey(READ_COUNT));
+            filteredCount = executionContext.getLong(getExecutionContextKey(FILTER_COUNT), 0L);
+            filterCountReporter.restored(filteredCount);
+            log.info("압축 파일 {} 바이트 위치의 member에서 {} 바이트를 건너뛰고 재시작합니다. (line={}, read={})", memberOffset, memberPosition, lineNumber, readCount);
+        }
+
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new ItemStreamException("파일 채널을 열 수 없습니다: " + resource.getDescription(), e);
+        }
+
+        queue = new LinkedBlockingQueue<>();
+        freeBuffers = new ArrayBlockingQueue<>(bufferCount + 1);
+        for(int i = 0; i <= bufferCount; i++) {
+            freeBuffers.add(new byte[blockSize]);
+        }
+        current = null;
+        blockPosition = 0;
+        failure = null;
+        running = true;
+        long startOffset = memberOffset;
+        long skip = memberPosition;
+        inflaterThread = new Thread(() -> inflate(channel, startOffset, skip), getClass().getSimpleName() + "-" + getExecutionContextKey("inflater"));
+        inflaterThread.setDaemon(true);
+        inflaterThread.start();
+    }
+
+    @Override
+    public T read() throws Exception {
+        if(noInput) {
+            return null;
+        }
+        if(failure != null) {
+            throw failure;
+        }
+
+        int length;
+        while((length = nextLine()) >= 0) {
+            lineNumber++;
+
+            if(lineNumber <= linesToSkip) {
+                continue;
+            }
+            if(isComment(length)) {
+                continue;
+            }
+
+            try {
+                T item = lineMapper.mapLine(lineBuffer, length, lineNumber);
+                if(item == null) {
+                    filteredCount++;
+                    continue;
+                }
+                readCount++;
+                return item;
+            } catch (Exception e) {
+                String input = new String(lineBuffer, 0, length, charset);
+                throw new FlatFileParseException("Parsing error at line: " + lineNumber + " in resource=[" + resource.getDescription()
+                        + "], input=[" + input + "]", e, input, (int) lineNumber);
+            }
+        }
+        return null;
+    }
+
+    //다음 라인을 lineBuffer에 모아 길이를 반환한다. 입력이 끝났으면 -1
+    private int nextLine() throws Exception {
+        int length = 0;
+        boolean pending = false;
+        long pendingOffset = 0;
+        long pendingPosition = 0;
+        while(true) {
+            if(current == END || current == null || blockPosition == current.length()) {
+                if(current == END) {
+                    if(!pending) {
+                        return -1;
+                    }
+                    //개행 없이 끝난 마지막 라인은 마지막 블록의 끝이 커밋 위치다.
+                    memberOffset = pendingOffset;
+                    memberPosition = pendingPosition;
+                    return length;
+                }
+                if(current != null) {
+                    freeBuffers.add(current.data());
+                }
+                current = queue.take();
+                blockPosition = 0;
+                if(current.failure() != null) {
+                    failure = new ItemStreamException("gzip 파일을 읽을 수 없습니다: " + resource.getDescription(), current.failure());
+                    current = END;
+                    throw failure;
+                }
+                continue;
+            }
+
+            int newline = SwarScanner.indexOf(current.data(), blockPosition, current.length(), (byte) '\n');
+            int end = newline < 0 ? current.length() : newline;
+            length = append(length, current.data(), blockPosition, end - blockPosition);
+            blockPosition = newline < 0 ? end : newline + 1;
+            pending = true;
+            pendingOffset = current.memberOffset();
+            pendingPosition = current.memberPosition() + blockPosition;
+
+            //개행 바로 뒤를 커밋 위치로 삼는다.
+            if(newline >= 0) {
+                memberOffset = pendingOffset;
+                memberPosition = pendingPosition;
+                return length > 0 && lineBuffer[length - 1] == '\r' ? length - 1 : length;
+            }
+        }
+    }
+
+    private int append(int length, byte[] bytes, int from, int count) {
+        if(lineBuffer.length < length + count) {
+            lineBuffer = Arrays.copyOf(lineBuffer, Math.max(length + count, lineBuffer.length * 2));
+        }
+        System.arraycopy(bytes, from, lineBuffer, length, count);
+        return length + count;
+    }
+
+    private boolean isComment(int length) {
+        for(byte[] prefix : commentBytes) {
+            if(prefix.length > 0 && length >= prefix.length && Arrays.equals(lineBuffer, 0, prefix.length, prefix, 0, prefix.length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        filterCountReporter.beforeStep(stepExecution);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        filterCountReporter.report(filteredCount);
+        if(saveState) {
+            executionContext.putLong(getExecutionContextKey(MEMBER_OFFSET), memberOffset);
+            executionContext.putLong(getExecutionContextKey(MEMBER_POSITION), memberPosition);
+            executionContext.putLong(getExecutionContextKey(LINE_NUMBER), lineNumber);
+            executionContext.putLong(getExecutionContextKey(READ_COUNT), readCount);
+            executionContext.putLong(getExecutionContextKey(FILTER_COUNT), filteredCount);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        running = false;
+        if(inflaterThread != null) {
+            inflaterThread.interrupt();
+            try {
+                inflaterThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inflaterThread = null;
+        }
+        queue = null;
+        freeBuffers = null;
+        current = null;
+        failure = null;
+        noInput = false;
+    }
+
+    //inflater 스레드. 빈 버퍼를 받아 압축을 풀고 큐에 넣는다. 빈 버퍼가 없으면 스텝 스레드가 돌려줄 때까지 기다린다.
+    private void inflate(FileChannel channel, long startOffset, long skip) {
+        try(channel; GzipMemberInflater inflater = new GzipMemberInflater(channel, startOffset)) {
+            inflater.skip(skip);
+            while(running) {
+                byte[] buffer = freeBuffers.take();
+                int count = inflater.read(buffer, 0, buffer.length);
+                if(count < 0) {
+                    queue.put(END);
+                    return;
+                }
+                queue.put(new Block(buffer, count, inflater.lastMemberOffset(), inflater.lastMemberPosition(), null));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            //Error로 끝나도 스텝 스레드가 queue.take()에서 영원히 기다리지 않도록 실패 블록을 넣는다.
+            queue.add(new Block(null, 0, 0, 0, e));
+        }
+    }
+
+    //memberOffset/memberPosition은 data[0]의 위치다.
+    private record Block(byte[] data, int length, long memberOffset, long memberPosition, Throwable failure) {
+    }
+}
@@ -0,0 +1,197 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/*
+gzip 파일을 member 단위로 압축 해제하면서 각 출력 바이트가 어느 member의 몇 번째 바이트인지 알려주는 inflater
+    gzip 파일은 여러 member(헤더 + deflate 스트림 + CRC/길이 트레일러)를 이어붙인 것이고 GZIPInputStream은 이 경계를 감춘다.
+    재시작 위치를 (member 시작의 압축 파일 오프셋, member 안에서 압축 해제된 바이트 수)로 저장하려면 경계가 필요하므로
+    헤더/트레일러는 직접 읽고 deflate 스트림만 Inflater(nowrap)에 맡긴다.
+
+    read()가 한 번에 반환하는 바이트는 항상 한 member 안에 있고, 그 시작 위치는 lastMemberOffset()/lastMemberPosition()이다.
+    member가 끝날 때마다 트레일러의 CRC32와 길이를 검사한다.
+*/
+class GzipMemberInflater implements AutoCloseable {
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final FileChannel channel;
+    private final byte[] input = new byte[64 * 1024];
+    private final Inflater inflater = new Inflater(true);
+    private final CRC32 crc = new CRC32();
+    private final byte[] scratch = new byte[8 * 1024];
+
+    //input[0]에 해당하는 파일 오프셋
+    private long inputBase;
+    private int inputPosition;
+    private int inputLength;
+
+    private boolean inMember;
+    private long memberOffset;
+    private long memberPosition;
+    private long lastMemberOffset;
+    private long lastMemberPosition;
+
+    GzipMemberInflater(FileChannel channel, long memberOffset) {
+        this.channel = channel;
+        this.inputBase = memberOffset;
+        this.memberOffset = memberOffset;
+    }
+
+    long lastMemberOffset() {
+        return lastMemberOffset;
+    }
+
+    long lastMemberPosition() {
+        return lastMemberPosition;
+    }
+
+    //압축 해제한 바이트 수, 파일 끝이면 -1
+    int read(byte[] out, int offset, int length) throws IOException {
+        while(true) {
+            if(!inMember && !beginMember()) {
+                return -1;
+            }
+
+            inflater.setInput(input, inputPosition, inputLength - inputPosition);
+            int count;
+            try {
+                count = inflater.inflate(out, offset, length);
+            } catch (DataFormatException e) {
+                throw new ZipException("deflate 데이터가 손상되었습니다. (member offset: " + memberOffset + "): " + e.getMessage());
+            }
+            inputPosition = inputLength - inflater.getRemaining();
+
+            if(count > 0) {
+                lastMemberOffset = memberOffset;
+                lastMemberPosition = memberPosition;
+                crc.update(out, offset, count);
+                memberPosition += count;
+            }
+            if(inflater.finished()) {
+                finishMember();
+            }
+            if(count > 0) {
+                return count;
+            }
+            if(!inMember) {
+                continue;
+            }
+            if(inflater.needsDictionary()) {
+                throw new ZipException("preset dictionary를 사용하는 deflate 스트림은 지원하지 않습니다.");
+            }
+            if(inflater.needsInput() && fill() < 0) {
+                throw new ZipException("gzip member가 중간에 끝났습니다. (member offset: " + memberOffset + ")");
+            }
+        }
+    }
+
+    //재시작 시 member 시작에서 열고 저장된 위치까지 압축 해제한 바이트를 버린다.
+    void skip(long bytes) throws IOException {
+        long remaining = bytes;
+        long startOffset = -1;
+        while(remaining > 0) {
+            int count = read(scratch, 0, (int) Math.min(scratch.length, remaining));
+            if(count > 0 && startOffset < 0) {
+                startOffset = lastMemberOffset;
+            }
+            if(count < 0 || lastMemberOffset != startOffset) {
+                throw new ZipException("재시작 위치가 gzip member 범위를 벗어났습니다. (member offset: " + startOffset + ", position: " + bytes + ")");
+            }
+            remaining -= count;
+        }
+    }
+
+    private boolean beginMember() throws IOException {
+        if(inputPosition == inputLength && fill() < 0) {
+            return false;
+        }
+
+        memberOffset = inputBase + inputPosition;
+        if(readByte() != 0x1f || readByte() != 0x8b) {
+            throw new ZipException("gzip 형식이 아닙니다. (offset: " + memberOffset + ")");
+        }
+        if(readByte() != 8) {
+            throw new ZipException("deflate가 아닌 압축 방식은 지원하지 않습니다. (offset: " + memberOffset + ")");
+        }
+        int flags = readByte();
+        //MTIME(4), XFL, OS
+        for(int i = 0; i < 6; i++) {
+            readByte();
+        }
+        if((flags & FEXTRA) != 0) {
+            int extraLength = readByte() | readByte() << 8;
+            for(int i = 0; i < extraLength; i++) {
+                readByte();
+            }
+        }
+        if((flags & FNAME) != 0) {
+            while(readByte() != 0) {
+            }
+        }
+        if((flags & FCOMMENT) != 0) {
+            while(readByte() != 0) {
+            }
+        }
+        if((flags & FHCRC) != 0) {
+            readByte();
+            readByte();
+        }
+
+        inflater.reset();
+        crc.reset();
+        memberPosition = 0;
+        inMember = true;
+        return true;
+    }
+
+    private void finishMember() throws IOException {
+        long expectedCrc = readInt();
+        long expectedSize = readInt();
+        if(expectedCrc != crc.getValue()) {
+            throw new ZipException("gzip member의 CRC가 맞지 않습니다. (member offset: " + memberOffset + ")");
+        }
+        if(expectedSize != (memberPosition & 0xffffffffL)) {
+            throw new ZipException("gzip member의 길이가 맞지 않습니다. (member offset: " + memberOffset + ")");
+        }
+        inMember = false;
+    }
+
+    private long readInt() throws IOException {
+        return (readByte() | readByte() << 8 | readByte() << 16 | (long) readByte() << 24) & 0xffffffffL;
+    }
+
+    private int readByte() throws IOException {
+        if(inputPosition == inputLength && fill() < 0) {
+            throw new ZipException("gzip 헤더/트레일러가 중간에 끝났습니다. (offset: " + (inputBase + inputPosition) + ")");
+        }
+        return input[inputPosition++] & 0xff;
+    }
+
+    //소비한 입력을 버리고 채널에서 이어서 읽는다. 파일 끝이면 -1
+    private int fill() throws IOException {
+        inputBase += inputPosition;
+        System.arraycopy(input, inputPosition, input, 0, inputLength - inputPosition);
+        inputLength -= inputPosition;
+        inputPosition = 0;
+
+        int count = channel.read(ByteBuffer.wrap(input, inputLength, input.length - inputLength), inputBase + inputLength);
+        if(count > 0) {
+            inputLength += count;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() {
+        inflater.end();
+    }
+}
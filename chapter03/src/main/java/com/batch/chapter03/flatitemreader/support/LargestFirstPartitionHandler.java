@@ -0,0 +1,31 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.partition.support.TaskExecutorPartitionHandler;
+
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/*
+파티션 StepExecution을 ResourceGlobPartitioner가 기록한 totalSize가 큰 순서로 실행하는 PartitionHandler
+    StepExecutionSplitter가 돌려주는 파티션 목록은 HashSet이라 실행 순서가 정해져 있지 않다.
+    가장 큰 파일이 마지막에 시작되면 나머지 스레드가 모두 놀고 있는 동안 그 파일 하나만 처리하게 되므로
+    큰 파티션부터 TaskExecutor에 넘겨서 전체 처리 시간을 줄인다.
+
+    동시 실행 수가 제한된 TaskExecutor(SimpleAsyncTaskExecutor.setConcurrencyLimit 등)와 함께 사용해야 순서가 의미를 갖는다.
+*/
+public class LargestFirstPartitionHandler extends TaskExecutorPartitionHandler {
+    @Override
+    protected Set<StepExecution> doHandle(StepExecution managerStepExecution, Set<StepExecution> partitionStepExecutions) throws Exception {
+        Set<StepExecution> ordered = new LinkedHashSet<>();
+        partitionStepExecutions.stream()
+                .sorted(Comparator.comparingLong(LargestFirstPartitionHandler::totalSize).reversed())
+                .forEach(ordered::add);
+        return super.doHandle(managerStepExecution, ordered);
+    }
+
+    private static long totalSize(StepExecution stepExecution) {
+        return stepExecution.getExecutionContext().getLong(ResourceGlobPartitioner.TOTAL_SIZE, 0L);
+    }
+}
@@ -0,0 +1,217 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+대용량 플랫 파일 옆에 두는 라인 인덱스(<파일명>.idx)
+    원본 파일을 한 번 훑어서 interval번째 라인마다 라인이 시작하는 바이트 위치를 기록해 둔다.
+    인덱스 파일은 메모리 매핑해서 LongBuffer(long[])로 바로 읽으므로
+    임의의 라인 번호에 대해 가장 가까운 앞쪽 기록 위치를 O(1)로 찾고, 그 뒤로는 최대 interval - 1개의 라인만 읽으면 된다.
+
+    파일 형식 (빅 엔디언)
+        헤더 64바이트: magic(int), version(int), interval(int), 예약(int), lineCount(long),
+                      원본 지문(size, lastModified, headCrc, tailCrc: long x 4), entryCount(long)
+        본문: entryCount개의 long. k번째 값은 (k * interval)번째 라인(0부터 시작)의 시작 바이트 위치다.
+
+    라인 구분은 MappedLineItemReader와 같다. (\n 기준, 마지막 라인은 \n이 없어도 라인으로 센다.)
+    인덱스는 만들 때의 원본 지문을 담고 있으므로 matches()로 원본이 바뀌었는지 확인한 뒤 사용해야 한다.
+    open()의 매핑은 GC될 때까지 풀리지 않고, 매핑된 파일은 Windows에서 교체(build())하거나 지울 수 없다.
+    그래서 matches()는 헤더만 읽어 비교하고, 일치할 때만 open()한다.
+*/
+public final class LineIndex {
+    public static final String SUFFIX = ".idx";
+
+    private static final int MAGIC = 0x4C494458;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int SCAN_BUFFER_SIZE = 1024 * 1024;
+
+    private final int interval;
+    private final long lineCount;
+    private final LongBuffer offsets;
+
+    private LineIndex(int interval, long lineCount, LongBuffer offsets) {
+        this.interval = interval;
+        this.lineCount = lineCount;
+        this.offsets = offsets;
+    }
+
+    public static Path indexPathOf(Path source) {
+        return source.resolveSibling(source.getFileName() + SUFFIX);
+    }
+
+    //원본 파일을 한 번 읽어 인덱스를 만들고 임시 파일에 쓴 뒤 index 경로로 원자적으로 교체한다.
+    public static LineIndex build(Path source, Path index, int interval) throws IOException {
+        if(interval <= 0) {
+            throw new IllegalArgumentException("interval은 0보다 커야 합니다: " + interval);
+        }
+
+        FileFingerprint fingerprint;
+        long lineCount = 0;
+        long[] entries = new long[1024];
+        int entryCount = 0;
+
+        try(FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = channel.size();
+            fingerprint = FileFingerprint.of(channel, Files.getLastModifiedTime(source).toMillis(), size);
+
+            if(size > 0) {
+                entries[entryCount++] = 0;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(SCAN_BUFFER_SIZE);
+            long position = 0;
+            while(position < size) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), size - position));
+                int read = channel.read(buffer, position);
+                if(read <= 0) {
+                    break;
+                }
+
+                for(int i = 0; i < read; i++) {
+                    if(buffer.get(i) != '\n') {
+                        continue;
+                    }
+                    lineCount++;
+                    long next = position + i + 1;
+                    if(lineCount % interval == 0 && next < size) {
+                        if(entryCount == entries.length) {
+                            entries = Arrays.copyOf(entries, entryCount * 2);
+                        }
+                        entries[entryCount++] = next;
+                    }
+                }
+                position += read;
+            }
+
+            if(size > 0 && lastByte(channel, size) != '\n') {
+                lineCount++;
+            }
+        }
+
+        if((long) entryCount * Long.BYTES > Integer.MAX_VALUE - HEADER_SIZE) {
+            throw new IllegalArgumentException("인덱스 항목이 너무 많습니다. interval을 늘려야 합니다: " + interval);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(interval).putInt(0)
+                .putLong(lineCount)
+                .putLong(fingerprint.size()).putLong(fingerprint.lastModified()).putLong(fingerprint.headCrc()).putLong(fingerprint.tailCrc())
+                .putLong(entryCount)
+                .flip();
+
+        ByteBuffer body = ByteBuffer.allocate(entryCount * Long.BYTES);
+        body.asLongBuffer().put(entries, 0, entryCount);
+
+        Path temp = index.resolveSibling(index.getFileName() + ".tmp");
+        try(FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer[] buffers = {header, body};
+            while(header.hasRemaining() || body.hasRemaining()) {
+                out.write(buffers);
+            }
+            out.force(true);
+        }
+        Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        return open(index);
+    }
+
+    public static LineIndex open(Path index) throws IOException {
+        try(FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel, index);
+            int interval = header.getInt();
+            header.getInt();
+            long lineCount = header.getLong();
+            //원본 지문은 matches()에서만 쓴다.
+            header.position(header.position() + Long.BYTES * 4);
+            long entryCount = header.getLong();
+            if(channel.size() < HEADER_SIZE + entryCount * Long.BYTES) {
+                throw new IOException("라인 인덱스 파일이 잘렸습니다: " + index);
+            }
+
+            //매핑은 채널을 닫아도 유지된다.
+            LongBuffer offsets = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, entryCount * Long.BYTES).asLongBuffer();
+            return new LineIndex(interval, lineCount, offsets);
+        }
+    }
+
+    //인덱스를 만들 때의 원본 지문. 헤더 64바이트만 채널로 읽고 본문은 매핑하지 않는다.
+    public static FileFingerprint readFingerprint(Path index) throws IOException {
+        try(FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel, index);
+            header.position(header.position() + Integer.BYTES * 2 + Long.BYTES);
+            return readFingerprint(header);
+        }
+    }
+
+    //인덱스를 만든 뒤 원본 파일이 바뀌지 않았는지 크기, 수정 시각, 앞/뒤 CRC로 확인한다. 헤더만 읽으므로 뒤이어 build()로 교체할 수 있다.
+    public static boolean matches(Path index, FileChannel channel, long lastModified) throws IOException {
+        return readFingerprint(index).equals(FileFingerprint.of(channel, lastModified, channel.size()));
+    }
+
+    //헤더를 읽어 magic, version을 확인하고 interval 위치에 둔 버퍼를 반환한다.
+    private static ByteBuffer readHeader(FileChannel channel, Path index) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while(header.hasRemaining()) {
+            if(channel.read(header, header.position()) < 0) {
+                break;
+            }
+        }
+        header.flip();
+        if(header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("라인 인덱스 파일 형식이 아닙니다: " + index);
+        }
+        return header;
+    }
+
+    private static FileFingerprint readFingerprint(ByteBuffer header) {
+        long size = header.getLong();
+        long lastModified = header.getLong();
+        long headCrc = header.getLong();
+        long tailCrc = header.getLong();
+        return new FileFingerprint(size, lastModified, size, headCrc, tailCrc);
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    public int getEntryCount() {
+        return offsets.limit();
+    }
+
+    //line(0부터 시작) 이하에서 인덱스에 기록된 가장 가까운 라인 번호
+    public long floorLine(long line) {
+        if(offsets.limit() == 0) {
+            return 0;
+        }
+        return Math.min(line / interval, offsets.limit() - 1) * interval;
+    }
+
+    //floorLine(line)이 시작하는 바이트 위치
+    public long floorOffset(long line) {
+        if(offsets.limit() == 0) {
+            return 0;
+        }
+        return offsets.get((int) Math.min(line / interval, offsets.limit() - 1));
+    }
+
+    private static byte lastByte(FileChannel channel, long size) throws IOException {
+        ByteBuffer last = ByteBuffer.allocate(1);
+        channel.read(last, size - 1);
+        return last.get(0);
+    }
+}
@@ -0,0 +1,49 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+원본 파일 옆에 라인 인덱스(<파일명>.idx)를 만드는 Tasklet
+    이미 인덱스가 있고 원본 지문이 같으면 다시 만들지 않는다.
+    인덱스를 사용할 스텝(MappedLineItemReader, LineRangePartitioner) 앞에 선택적으로 추가하면 된다.
+*/
+@Slf4j
+public record LineIndexTasklet(Resource resource, int interval) implements Tasklet {
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        Path source = resource.getFile().toPath();
+        Path index = LineIndex.indexPathOf(source);
+
+        if(Files.exists(index) && isUpToDate(source, index)) {
+            log.info("라인 인덱스가 최신입니다: {}", index);
+            return RepeatStatus.FINISHED;
+        }
+
+        long start = System.currentTimeMillis();
+        LineIndex lineIndex = LineIndex.build(source, index, interval);
+        log.info("라인 인덱스 생성: {} (라인 {}개, 항목 {}개, {}ms)", index, lineIndex.getLineCount(), lineIndex.getEntryCount(), System.currentTimeMillis() - start);
+
+        return RepeatStatus.FINISHED;
+    }
+
+    private boolean isUpToDate(Path source, Path index) {
+        try(FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            //open()으로 매핑하면 GC 전까지 풀리지 않아 Windows에서는 build()가 이 파일을 교체하지 못하므로 헤더만 읽어 비교한다.
+            return LineIndex.matches(index, channel, Files.getLastModifiedTime(source).toMillis());
+        } catch (IOException e) {
+            log.warn("기존 라인 인덱스를 사용할 수 없어 다시 만듭니다: {}", index, e);
+            return false;
+        }
+    }
+}
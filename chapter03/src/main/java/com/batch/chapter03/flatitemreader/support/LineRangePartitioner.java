@@ -0,0 +1,82 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+라인 인덱스로 파일을 gridSize개의 라인 구간으로 나누는 Partitioner
+    ByteRangePartitioner는 바이트 크기로 나눈 뒤 경계를 개행에 맞추기 위해 파일을 읽어야 하고, 파티션마다 라인 수가 다르다.
+    이 파티셔너는 라인 인덱스에 기록된 라인(interval의 배수)에서만 구간을 나누므로 파일을 읽지 않고도 각 구간의 시작 바이트 위치를 바로 알 수 있다.
+
+    각 파티션의 ExecutionContext에는 startLine, endLine과 ByteRangePartitioner와 같은 키의 startOffset, endOffset이 담긴다.
+    워커의 MappedLineItemReader에 startLine과 useLineIndex(true), endOffset을 전달하면 인덱스로 구간의 시작 위치로 바로 이동하고
+    line.number도 파일 처음부터 센 값으로 유지된다.
+
+    라인 인덱스가 없거나 원본과 일치하지 않으면 예외를 던지므로 LineIndexTasklet 스텝을 먼저 실행해야 한다.
+*/
+@Slf4j
+public class LineRangePartitioner implements Partitioner {
+    public static final String START_LINE = "startLine";
+    public static final String END_LINE = "endLine";
+
+    private final Resource resource;
+
+    public LineRangePartitioner(Resource resource) {
+        this.resource = resource;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        Map<String, ExecutionContext> partitions = new LinkedHashMap<>();
+
+        try {
+            Path source = resource.getFile().toPath();
+            Path indexPath = LineIndex.indexPathOf(source);
+
+            try(FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+                if(!Files.exists(indexPath) || !LineIndex.matches(indexPath, channel, Files.getLastModifiedTime(source).toMillis())) {
+                    throw new ItemStreamException("원본과 일치하는 라인 인덱스가 없습니다. LineIndexTasklet을 먼저 실행해야 합니다: " + indexPath);
+                }
+                LineIndex lineIndex = LineIndex.open(indexPath);
+
+                long lineCount = lineIndex.getLineCount();
+                long fileSize = channel.size();
+                int interval = lineIndex.getInterval();
+
+                //구간 크기를 interval의 배수로 올려서 모든 구간의 시작 라인이 인덱스에 기록된 라인이 되도록 한다.
+                long linesPerRange = Math.max(1, (lineCount + Math.max(1, gridSize) - 1) / Math.max(1, gridSize));
+                linesPerRange = (linesPerRange + interval - 1) / interval * interval;
+
+                int index = 0;
+                for(long start = 0; start < lineCount; start += linesPerRange) {
+                    long end = Math.min(start + linesPerRange, lineCount);
+
+                    ExecutionContext context = new ExecutionContext();
+                    context.putLong(START_LINE, start);
+                    context.putLong(END_LINE, end);
+                    context.putLong(ByteRangePartitioner.START_OFFSET, lineIndex.floorOffset(start));
+                    context.putLong(ByteRangePartitioner.END_OFFSET, end < lineCount ? lineIndex.floorOffset(end) : fileSize);
+                    partitions.put("partition" + index, context);
+                    log.info("partition{}: lines [{}, {}), bytes [{}, {})", index, start, end,
+                            context.getLong(ByteRangePartitioner.START_OFFSET), context.getLong(ByteRangePartitioner.END_OFFSET));
+                    index++;
+                }
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("라인 구간을 나누는 중 오류가 발생했습니다: " + resource.getDescription(), e);
+        }
+
+        return partitions;
+    }
+}
@@ -0,0 +1,402 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+FileChannel을 메모리 매핑해서 [startOffset, endOffset) 바이트 구간에 "시작하는" 라인만 읽는 ItemReader
+    FlatFileItemReader는 BufferedReader로 파일 처음부터 끝까지 한 스레드에서 읽기 때문에 파일을 나눠서 읽을 수 없다.
+    이 리더는 읽을 바이트 구간을 직접 지정받기 때문에 ByteRangePartitioner가 나눈 구간마다 하나씩 생성해서
+    여러 스레드가 한 파일을 동시에 파싱할 수 있다.
+
+    MappedByteBuffer는 한 번에 2GB까지만 매핑할 수 있으므로 windowSize 단위로 매핑 구간을 옮겨가며 읽는다.
+    라인이 윈도우 경계에 걸리면 해당 라인의 시작 위치부터 다시 매핑한다.
+
+    재시작 시에는 read.count만큼 라인을 다시 읽어 버리는 FlatFileItemReader와 달리
+    커밋된 바이트 위치(position)를 ExecutionContext에 저장해두고 그 위치부터 바로 읽는다.
+    이때 position과 함께 FileFingerprint(파일 크기, 수정 시각, position까지의 앞/뒤 4KB CRC)를 저장해 두고,
+    재시작 시 파일의 [0, position) 구간이 달라졌으면 바이트 위치를 신뢰하지 않고 FlatFileItemReader처럼 line.number만큼 라인을 건너뛴다.
+    파일 끝에 데이터가 추가된 경우는 [0, position) 구간이 그대로이므로 바이트 위치로 바로 이동한다.
+
+    startLine을 지정하면 그 라인(0부터 시작)부터 읽는다. useLineIndex가 true이고 원본과 일치하는 라인 인덱스(<파일명>.idx)가 있으면
+    인덱스에서 가장 가까운 앞쪽 라인의 바이트 위치로 바로 이동한 뒤 남은 라인만 건너뛴다. 이때 line.number는 파일 처음부터 센 값이다.
+    startLine은 파일 처음부터 읽는 리더(startOffset == 0)에서만 사용할 수 있다.
+
+    lineMapper가 null을 반환한 라인(CursorLineMapper의 filter에 걸린 라인 등)은 건너뛰고 filter.count로 집계한다.
+    스텝 빌더는 리더가 StepExecutionListener를 구현하면 리스너로 등록하므로, 건너뛴 라인 수는 StepExecution의 filterCount에도 더해진다.
+*/
+@Slf4j
+public class MappedLineItemReader<T> extends ItemStreamSupport implements ItemStreamReader<T>, StepExecutionListener {
+    private static final String POSITION = "position";
+    private static final String LINE_NUMBER = "line.number";
+    private static final String READ_COUNT = "read.count";
+    private static final String FILTER_COUNT = "filter.count";
+    private static final String FILE_SIZE = "file.size";
+    private static final String LAST_MODIFIED = "file.last.modified";
+    private static final String HEAD_CRC = "position.head.crc";
+    private static final String TAIL_CRC = "position.tail.crc";
+
+    public static final long DEFAULT_WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private Resource resource;
+    private ByteLineMapper<T> lineMapper;
+    private Charset charset = StandardCharsets.UTF_8;
+    private long startOffset = 0;
+    private long endOffset = -1;
+    private int linesToSkip = 0;
+    private String[] comments = new String[] {"#"};
+    private boolean strict = true;
+    private boolean saveState = true;
+    private long windowSize = DEFAULT_WINDOW_SIZE;
+    private long startLine = 0;
+    private boolean useLineIndex = false;
+
+    private byte[][] commentBytes;
+    private FileChannel channel;
+    private Path path;
+    private long lastModified;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long fileSize;
+    private long limit;
+    private long position;
+    private long lineNumber;
+    private long readCount;
+    private long filteredCount;
+    private final FilterCountReporter filterCountReporter = new FilterCountReporter();
+    private byte[] lineBuffer = new byte[1024];
+    private boolean noInput;
+
+    public void setResource(Resource resource) {
+        this.resource = resource;
+    }
+
+    public void setLineMapper(ByteLineMapper<T> lineMapper) {
+        this.lineMapper = lineMapper;
+    }
+
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+
+    public void setStartOffset(long startOffset) {
+        this.startOffset = startOffset;
+    }
+
+    //-1이면 파일 끝까지 읽는다.
+    public void setEndOffset(long endOffset) {
+        this.endOffset = endOffset;
+    }
+
+    //헤더는 파일의 첫 구간(startOffset == 0)에만 존재하므로 나머지 구간에서는 무시된다.
+    public void setLinesToSkip(int linesToSkip) {
+        this.linesToSkip = linesToSkip;
+    }
+
+    public void setComments(String... comments) {
+        this.comments = comments;
+    }
+
+    public void setStrict(boolean strict) {
+        this.strict = strict;
+    }
+
+    public void setSaveState(boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    public void setWindowSize(long windowSize) {
+        Assert.isTrue(windowSize > 0 && windowSize <= Integer.MAX_VALUE, "windowSize는 1 ~ Integer.MAX_VALUE 사이여야 합니다.");
+        this.windowSize = windowSize;
+    }
+
+    //이 라인(0부터 시작) 앞의 라인은 읽지 않는다. 재시작 시에는 저장된 위치가 우선한다.
+    public void setStartLine(long startLine) {
+        Assert.isTrue(startLine >= 0, "startLine은 0 이상이어야 합니다.");
+        this.startLine = startLine;
+    }
+
+    public void setUseLineIndex(boolean useLineIndex) {
+        this.useLineIndex = useLineIndex;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        Assert.state(startLine == 0 || startOffset == 0, "startLine은 startOffset과 함께 사용할 수 없습니다.");
+        Assert.notNull(resource, "resource가 필요합니다.");
+        Assert.notNull(lineMapper, "lineMapper가 필요합니다.");
+
+        commentBytes = new byte[comments.length][];
+        for(int i = 0; i < comments.length; i++) {
+            commentBytes[i] = comments[i].getBytes(charset);
+        }
+
+        if(!resource.exists()) {
+            if(strict) {
+                throw new ItemStreamException("입력 리소스가 존재하지 않습니다: " + resource.getDescription());
+            }
+            log.warn("입력 리소스가 존재하지 않습니다: {}", resource.getDescription());
+            noInput = true;
+            return;
+        }
+
+        try {
+            path = resource.getFile().toPath();
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            fileSize = channel.size();
+            lastModified = Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            throw new ItemStreamException("파일 채널을 열 수 없습니다: " + resource.getDescription(), e);
+        }
+
+        limit = endOffset < 0 ? fileSize : Math.min(endOffset, fileSize);
+        position = startOffset;
+        lineNumber = 0;
+        readCount = 0;
+        filteredCount = 0;
+
+        if(executionContext.containsKey(getExecutionContextKey(POSITION))) {
+            long savedPosition = executionContext.getLong(getExecutionContextKey(POSITION));
+            long savedLineNumber = executionContext.getLong(getExecutionContextKey(LINE_NUMBER));
+            readCount = executionContext.getLong(getExecutionContextKey(READ_COUNT));
+            filteredCount = executionContext.getLong(getExecutionContextKey(FILTER_COUNT), 0L);
+            filterCountReporter.restored(filteredCount);
+
+            if(isCheckpointValid(executionContext, savedPosition)) {
+                position = savedPosition;
+                lineNumber = savedLineNumber;
+                log.info("{} 바이트 위치부터 재시작합니다. (line={}, read={})", position, lineNumber, readCount);
+            } else {
+                log.warn("{} 바이트 위치까지의 파일 내용이 체크포인트와 다릅니다. {}번째 라인까지 다시 읽어서 건너뜁니다.", savedPosition, savedLineNumber);
+                skipLines(savedLineNumber);
+            }
+        } else if(startLine > 0) {
+            seekToLine(startLine);
+        }
+    }
+
+    @Override
+    public T read() throws Exception {
+        if(noInput) {
+            return null;
+        }
+
+        while(position < limit) {
+            long lineStart = position;
+            int length = nextLine();
+            lineNumber++;
+
+            if(startOffset == 0 && lineNumber <= linesToSkip) {
+                continue;
+            }
+            if(isComment(length)) {
+                continue;
+            }
+
+            try {
+                T item = lineMapper.mapLine(lineBuffer, length, lineNumber);
+                if(item == null) {
+                    filteredCount++;
+                    continue;
+                }
+                readCount++;
+                return item;
+            } catch (Exception e) {
+                String input = new String(lineBuffer, 0, length, charset);
+                throw new FlatFileParseException("Parsing error at line: " + lineNumber + " (byte offset: " + lineStart
+                        + ") in resource=[" + resource.getDescription() + "], input=[" + input + "]", e, input, (int) lineNumber);
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        filterCountReporter.beforeStep(stepExecution);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        filterCountReporter.report(filteredCount);
+        if(saveState) {
+            executionContext.putLong(getExecutionContextKey(POSITION), position);
+            executionContext.putLong(getExecutionContextKey(LINE_NUMBER), lineNumber);
+            executionContext.putLong(getExecutionContextKey(READ_COUNT), readCount);
+            executionContext.putLong(getExecutionContextKey(FILTER_COUNT), filteredCount);
+
+            if(channel != null) {
+                FileFingerprint fingerprint = fingerprint(position);
+                executionContext.putLong(getExecutionContextKey(FILE_SIZE), fingerprint.size());
+                executionContext.putLong(getExecutionContextKey(LAST_MODIFIED), fingerprint.lastModified());
+                executionContext.putLong(getExecutionContextKey(HEAD_CRC), fingerprint.headCrc());
+                executionContext.putLong(getExecutionContextKey(TAIL_CRC), fingerprint.tailCrc());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        window = null;
+        if(channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new ItemStreamException("파일 채널을 닫는 중 오류가 발생했습니다.", e);
+            } finally {
+                channel = null;
+            }
+        }
+    }
+
+    //지문 없이 저장된 체크포인트는 이전과 같이 바이트 위치를 그대로 사용한다.
+    private boolean isCheckpointValid(ExecutionContext executionContext, long savedPosition) {
+        if(!executionContext.containsKey(getExecutionContextKey(HEAD_CRC))) {
+            return true;
+        }
+        if(savedPosition < startOffset || savedPosition > limit) {
+            return false;
+        }
+
+        FileFingerprint saved = new FileFingerprint(
+                executionContext.getLong(getExecutionContextKey(FILE_SIZE)),
+                executionContext.getLong(getExecutionContextKey(LAST_MODIFIED)),
+                savedPosition,
+                executionContext.getLong(getExecutionContextKey(HEAD_CRC)),
+                executionContext.getLong(getExecutionContextKey(TAIL_CRC)));
+        FileFingerprint current = fingerprint(savedPosition);
+
+        if(!current.samePrefix(saved)) {
+            return false;
+        }
+        if(!current.sameFileState(saved)) {
+            log.info("파일 크기 또는 수정 시각이 바뀌었지만 {} 바이트 위치까지의 내용은 같습니다.", savedPosition);
+        }
+        return true;
+    }
+
+    private FileFingerprint fingerprint(long length) {
+        try {
+            return FileFingerprint.of(channel, lastModified, length);
+        } catch (IOException e) {
+            throw new ItemStreamException("파일 지문을 계산하는 중 오류가 발생했습니다: " + resource.getDescription(), e);
+        }
+    }
+
+    //인덱스가 있으면 target 이하의 가장 가까운 기록 위치로 이동한 뒤 나머지 라인을 건너뛴다.
+    private void seekToLine(long target) {
+        LineIndex lineIndex = useLineIndex ? loadLineIndex() : null;
+        if(lineIndex != null) {
+            position = lineIndex.floorOffset(target);
+            lineNumber = lineIndex.floorLine(target);
+        }
+        skipLines(target);
+        log.info("{}번째 라인({} 바이트 위치)부터 읽습니다.", lineNumber, position);
+    }
+
+    private LineIndex loadLineIndex() {
+        Path indexPath = LineIndex.indexPathOf(path);
+        if(!Files.exists(indexPath)) {
+            log.warn("라인 인덱스가 없어 처음부터 라인을 건너뜁니다: {}", indexPath);
+            return null;
+        }
+        try {
+            if(LineIndex.matches(indexPath, channel, lastModified)) {
+                return LineIndex.open(indexPath);
+            }
+            log.warn("라인 인덱스가 원본 파일과 일치하지 않아 사용하지 않습니다: {}", indexPath);
+        } catch (IOException e) {
+            log.warn("라인 인덱스를 읽을 수 없어 사용하지 않습니다: {}", indexPath, e);
+        }
+        return null;
+    }
+
+    //현재 위치부터 lineNumber가 target이 될 때까지 라인을 읽어 버린다.
+    private void skipLines(long target) {
+        try {
+            while(lineNumber < target && position < limit) {
+                nextLine();
+                lineNumber++;
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("재시작 위치(" + target + " 라인)로 이동하는 중 오류가 발생했습니다.", e);
+        }
+    }
+
+    /*
+    position부터 다음 개행 문자(\n)까지를 lineBuffer로 복사하고 position을 다음 라인의 시작으로 옮긴다.
+    라인 끝의 \r은 제거한다. 반환값은 lineBuffer에 담긴 라인의 길이다.
+    개행 문자는 SwarScanner로 8바이트씩 찾는다.
+    */
+    private int nextLine() throws IOException {
+        while(true) {
+            ensureMapped(position);
+
+            int from = (int) (position - windowStart);
+            int to = window.limit();
+            int newline = SwarScanner.indexOf(window, from, to, (byte) '\n');
+
+            long windowEnd = windowStart + to;
+            if(newline < 0 && windowEnd < fileSize) {
+                if(position == windowStart) {
+                    throw new FlatFileParseException("windowSize(" + windowSize + ")보다 긴 라인은 읽을 수 없습니다. (byte offset: " + position + ")", "", (int) lineNumber + 1);
+                }
+                //라인이 윈도우 경계에 걸렸으므로 라인 시작 위치부터 다시 매핑한다.
+                remap(position);
+                continue;
+            }
+
+            int end = newline < 0 ? to : newline;
+            int length = end - from;
+            position = windowStart + (newline < 0 ? to : newline + 1);
+
+            if(length > 0 && window.get(end - 1) == '\r') {
+                length--;
+            }
+            if(lineBuffer.length < length) {
+                lineBuffer = Arrays.copyOf(lineBuffer, Math.max(length, lineBuffer.length * 2));
+            }
+            window.get(from, lineBuffer, 0, length);
+            return length;
+        }
+    }
+
+    private void ensureMapped(long offset) throws IOException {
+        if(window == null || offset < windowStart || offset >= windowStart + window.limit()) {
+            remap(offset);
+        }
+    }
+
+    private void remap(long offset) throws IOException {
+        long size = Math.min(windowSize, fileSize - offset);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        windowStart = offset;
+    }
+
+    private boolean isComment(int length) {
+        for(byte[] prefix : commentBytes) {
+            if(prefix.length > 0 && length >= prefix.length && Arrays.equals(lineBuffer, 0, prefix.length, prefix, 0, prefix.length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
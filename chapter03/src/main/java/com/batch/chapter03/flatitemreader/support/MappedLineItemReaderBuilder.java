@@ -0,0 +1,139 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import org.springframework.batch.item.file.LineMapper;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/*
+FlatFileItemReaderBuilder와 같은 방식으로 MappedLineItemReader를 구성하는 빌더
+    startOffset()/endOffset(): 읽을 바이트 구간. 파티션 스텝에서는 stepExecutionContext의 값을 그대로 전달한다.
+    lineMapper(): 바이트 라인을 직접 매핑하는 ByteLineMapper 또는 기존 LineMapper를 전달한다.
+    startLine()/useLineIndex(): 지정한 라인부터 읽는다. 라인 인덱스(<파일명>.idx)가 있으면 그 위치로 바로 이동한다.
+    filter(): 매핑 전에 원본 필드 바이트로 검사할 FieldPredicate. lineMapper가 CursorLineMapper여야 한다.
+*/
+public class MappedLineItemReaderBuilder<T> {
+    private String name;
+    private Resource resource;
+    private ByteLineMapper<T> lineMapper;
+    private LineMapper<T> stringLineMapper;
+    private Charset charset = StandardCharsets.UTF_8;
+    private long startOffset = 0;
+    private long endOffset = -1;
+    private int linesToSkip = 0;
+    private String[] comments = new String[] {"#"};
+    private boolean strict = true;
+    private boolean saveState = true;
+    private long windowSize = MappedLineItemReader.DEFAULT_WINDOW_SIZE;
+    private long startLine = 0;
+    private boolean useLineIndex = false;
+    private FieldPredicate filter;
+
+    public MappedLineItemReaderBuilder<T> name(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public MappedLineItemReaderBuilder<T> resource(Resource resource) {
+        this.resource = resource;
+        return this;
+    }
+
+    public MappedLineItemReaderBuilder<T> lineMapper(ByteLineMapper<T> lineMapper) {
+        this.lineMapper = lineMapper;
+        return this;
+    }
+
+    public MappedLineItemReaderBuilder<T> lineMapper(LineMapper<T> lineMapper) {
+        this.stringLineMapper = lineMapper;
+        return this;
+    }
+
+    public MappedLineItemReaderBuilder<T> encoding(String encoding) {
+        this.charset = Charset.forName(encoding);
+        return this;
+    }
+
+    public MappedLineItemReaderBuilder<T> startOffset(long startOffset) {
+        this.startOffset = startOffset;
+        return this;
+    }
+
+    public MappedLineItemReaderBuilder<T> endOffset(long endOffset) {
+        this.endOffset = endOffset;
+        return this;
+    }
+
+    public MappedLineItemReaderBuilder<T> linesToSkip(int linesToSkip) {
+        this.linesToSkip = linesToSkip;
+        return this;
+    }
+
+    public MappedLineItemReaderBuilder<T> comments(String... comments) {
+        this.comments = comments;
+        return this;
+    }
+
+    public MappedLineItemReaderBuilder<T> strict(boolean strict) {
+        this.strict = strict;
+        return this;
+    }
+
+    public MappedLineItemReaderBuilder<T> saveState(boolean saveState) {
+        this.saveState = saveState;
+        return this;
+    }
+
+    public MappedLineItemReaderBuilder<T> windowSize(long windowSize) {
+        this.windowSize = windowSize;
+        return this;
+    }
+
+    public MappedLineItemReaderBuilder<T> startLine(long startLine) {
+        this.startLine = startLine;
+        return this;
+    }
+
+    public MappedLineItemReaderBuilder<T> useLineIndex(boolean useLineIndex) {
+        this.useLineIndex = useLineIndex;
+        return this;
+    }
+
+    public MappedLineItemReaderBuilder<T> filter(FieldPredicate filter) {
+        this.filter = filter;
+        return this;
+    }
+
+    public MappedLineItemReader<T> build() {
+        if(saveState) {
+            Assert.state(StringUtils.hasText(name), "saveState가 true이면 name이 필요합니다.");
+        }
+        Assert.notNull(resource, "resource가 필요합니다.");
+        Assert.state(lineMapper != null || stringLineMapper != null, "lineMapper가 필요합니다.");
+        Assert.isTrue(endOffset < 0 || startOffset <= endOffset, "startOffset은 endOffset보다 클 수 없습니다.");
+        Assert.isTrue(startLine == 0 || startOffset == 0, "startLine은 startOffset과 함께 사용할 수 없습니다.");
+        if(filter != null) {
+            Assert.state(lineMapper instanceof CursorLineMapper, "filter는 CursorLineMapper와 함께 사용해야 합니다.");
+            ((CursorLineMapper<T>) lineMapper).setFilter(filter);
+        }
+
+        MappedLineItemReader<T> reader = new MappedLineItemReader<>();
+        reader.setName(name);
+        reader.setResource(resource);
+        reader.setLineMapper(lineMapper != null ? lineMapper : ByteLineMapper.decoding(stringLineMapper, charset));
+        reader.setCharset(charset);
+        reader.setStartOffset(startOffset);
+        reader.setEndOffset(endOffset);
+        reader.setLinesToSkip(linesToSkip);
+        reader.setComments(comments);
+        reader.setStrict(strict);
+        reader.setSaveState(saveState);
+        reader.setWindowSize(windowSize);
+        reader.setStartLine(startLine);
+        reader.setUseLineIndex(useLineIndex);
+        return reader;
+    }
+}
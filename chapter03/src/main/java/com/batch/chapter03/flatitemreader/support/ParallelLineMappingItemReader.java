@@ -0,0 +1,236 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.item.file.LineMapper;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+라인 읽기와 라인 매핑을 분리해서 매핑(정규식 매칭, 그룹 추출, 객체 생성)을 워커 스레드 풀에서 병렬로 수행하는 ItemReader
+    스텝 스레드는 lineReader에서 batchSize개의 라인을 읽어 parallelism개의 조각으로 나눠 워커에 넘기기만 한다.
+    워커가 다음 배치를 매핑하는 동안 스텝 스레드는 이미 매핑이 끝난 이전 배치의 아이템을 순서대로 반환하므로
+    청크 안의 아이템 순서는 파일의 라인 순서와 같다.
+
+    lineMapper가 null을 반환한 라인(매칭되지 않은 라인)은 건너뛰고 filter.count로 집계한다. StepExecution의 filterCount에도 더해진다.
+    lineMapper는 여러 워커 스레드에서 동시에 호출되므로 스레드 안전해야 한다.
+
+    재시작
+        lineReader는 saveState(false)로 구성하고 이 리더가 "반환이 끝난 라인 수(line.count)"를 직접 저장한다.
+        워커에 미리 넘긴 라인은 커밋된 위치에 포함되지 않으므로 재시작 시 line.count만큼만 건너뛰고 다시 읽는다.
+*/
+@Slf4j
+public class ParallelLineMappingItemReader<T> extends ItemStreamSupport implements ItemStreamReader<T>, StepExecutionListener {
+    private static final String LINE_COUNT = "line.count";
+    private static final String FILTER_COUNT = "filter.count";
+
+    private final ItemStreamReader<String> lineReader;
+    private final LineMapper<T> lineMapper;
+    private int batchSize = 1024;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private boolean saveState = true;
+
+    private ExecutorService executor;
+    private Batch current;
+    private Batch next;
+    private boolean exhausted;
+    private long linesConsumed;
+    private long linesRead;
+    private long filteredCount;
+    private final FilterCountReporter filterCountReporter = new FilterCountReporter();
+
+    public ParallelLineMappingItemReader(ItemStreamReader<String> lineReader, LineMapper<T> lineMapper) {
+        this.lineReader = lineReader;
+        this.lineMapper = lineMapper;
+    }
+
+    public void setBatchSize(int batchSize) {
+        Assert.isTrue(batchSize > 0, "batchSize는 0보다 커야 합니다.");
+        this.batchSize = batchSize;
+    }
+
+    public void setParallelism(int parallelism) {
+        Assert.isTrue(parallelism > 0, "parallelism은 0보다 커야 합니다.");
+        this.parallelism = parallelism;
+    }
+
+    public void setSaveState(boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        lineReader.open(new ExecutionContext());
+
+        linesConsumed = executionContext.getLong(getExecutionContextKey(LINE_COUNT), 0L);
+        filteredCount = executionContext.getLong(getExecutionContextKey(FILTER_COUNT), 0L);
+        filterCountReporter.restored(filteredCount);
+        linesRead = 0;
+        exhausted = false;
+
+        try {
+            while(linesRead < linesConsumed && lineReader.read() != null) {
+                linesRead++;
+            }
+        } catch (Exception e) {
+            throw new ItemStreamException("재시작 위치(" + linesConsumed + " 라인)로 이동하는 중 오류가 발생했습니다.", e);
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, getClass().getSimpleName() + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T read() throws Exception {
+        while(true) {
+            if(current == null) {
+                current = nextBatch();
+                if(current == null) {
+                    return null;
+                }
+            }
+
+            while(current.cursor < current.size) {
+                int index = current.cursor++;
+                Object result = current.results[index];
+                linesConsumed = current.firstLine + index + 1;
+
+                if(result instanceof Failure failure) {
+                    throw new FlatFileParseException("Parsing error at line: " + linesConsumed + ", input=[" + current.lines[index] + "]",
+                            failure.exception(), current.lines[index], (int) linesConsumed);
+                }
+                if(result != null) {
+                    return (T) result;
+                }
+                filteredCount++;
+            }
+            current = null;
+        }
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        filterCountReporter.beforeStep(stepExecution);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        filterCountReporter.report(filteredCount);
+        if(saveState) {
+            executionContext.putLong(getExecutionContextKey(LINE_COUNT), linesConsumed);
+            executionContext.putLong(getExecutionContextKey(FILTER_COUNT), filteredCount);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        log.info("매핑되지 않아 건너뛴 라인 수: {}", filteredCount);
+        if(executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        current = null;
+        next = null;
+        lineReader.close();
+    }
+
+    //다음 배치를 매핑 결과가 준비될 때까지 기다려 반환하고, 그 다음 배치를 미리 워커에 넘긴다.
+    private Batch nextBatch() throws Exception {
+        if(next == null) {
+            next = submitBatch();
+        }
+
+        Batch batch = next;
+        if(batch == null) {
+            return null;
+        }
+        batch.await();
+        next = submitBatch();
+        return batch;
+    }
+
+    private Batch submitBatch() throws Exception {
+        if(exhausted) {
+            return null;
+        }
+
+        String[] lines = new String[batchSize];
+        int size = 0;
+        while(size < batchSize) {
+            String line = lineReader.read();
+            if(line == null) {
+                exhausted = true;
+                break;
+            }
+            lines[size++] = line;
+        }
+        if(size == 0) {
+            return null;
+        }
+
+        Batch batch = new Batch(lines, size, linesRead);
+        linesRead += size;
+
+        int sliceSize = (size + parallelism - 1) / parallelism;
+        for(int start = 0; start < size; start += sliceSize) {
+            int from = start;
+            int to = Math.min(size, start + sliceSize);
+            batch.futures.add(executor.submit(() -> batch.map(from, to)));
+        }
+        return batch;
+    }
+
+    private class Batch {
+        private final String[] lines;
+        private final Object[] results;
+        private final int size;
+        private final long firstLine;
+        private final List<Future<?>> futures = new ArrayList<>();
+        private int cursor;
+
+        private Batch(String[] lines, int size, long firstLine) {
+            this.lines = lines;
+            this.results = new Object[size];
+            this.size = size;
+            this.firstLine = firstLine;
+        }
+
+        private void map(int from, int to) {
+            for(int i = from; i < to; i++) {
+                try {
+                    results[i] = lineMapper.mapLine(lines[i], (int) (firstLine + i + 1));
+                } catch (Exception e) {
+                    results[i] = new Failure(e);
+                }
+            }
+        }
+
+        //Future.get()이 워커가 results에 쓴 값의 가시성을 보장한다.
+        private void await() throws InterruptedException, ExecutionException {
+            for(Future<?> future : futures) {
+                future.get();
+            }
+        }
+    }
+
+    private record Failure(Exception exception) {
+    }
+}
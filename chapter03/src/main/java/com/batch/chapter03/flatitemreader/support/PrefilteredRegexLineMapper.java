@@ -0,0 +1,65 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import org.springframework.batch.item.file.LineMapper;
+import org.springframework.batch.item.file.mapping.FieldSetMapper;
+import org.springframework.batch.item.file.transform.DefaultFieldSet;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+정규식 엔진을 돌리기 전에 리터럴 검사로 매칭될 수 없는 라인을 걸러내는 LineMapper
+    RegexLineTokenizer는 모든 라인에 대해 Matcher를 만들고 find()를 수행한다.
+    requiredLiterals()에는 정규식 안에 순서대로 반드시 등장하는 리터럴을 지정한다.
+    라인에 이 리터럴들이 순서대로 들어있지 않으면 정규식을 실행하지 않고 바로 걸러낸다.
+
+    RegexLineTokenizer와 같이 find()로 매칭하고 캡처 그룹을 순서대로 FieldSet의 토큰으로 만든다.
+    매칭되지 않는 라인은 null을 반환하고, ParallelLineMappingItemReader는 null을 받은 라인을 건너뛴다.
+
+    Pattern은 스레드 간에 공유할 수 있고 Matcher는 호출마다 만들기 때문에 여러 스레드에서 동시에 사용해도 안전하다.
+*/
+public class PrefilteredRegexLineMapper<T> implements LineMapper<T> {
+    private final Pattern pattern;
+    private final FieldSetMapper<T> fieldSetMapper;
+    private String[] requiredLiterals = new String[0];
+
+    public PrefilteredRegexLineMapper(String regex, FieldSetMapper<T> fieldSetMapper) {
+        this.pattern = Pattern.compile(regex);
+        this.fieldSetMapper = fieldSetMapper;
+    }
+
+    public void setRequiredLiterals(String... requiredLiterals) {
+        this.requiredLiterals = requiredLiterals;
+    }
+
+    //리터럴이 순서대로 등장하는지만 검사한다. false면 정규식도 절대 매칭되지 않는다.
+    public boolean accept(String line) {
+        int from = 0;
+        for(String literal : requiredLiterals) {
+            int index = line.indexOf(literal, from);
+            if(index < 0) {
+                return false;
+            }
+            from = index + literal.length();
+        }
+        return true;
+    }
+
+    @Override
+    public T mapLine(String line, int lineNumber) throws Exception {
+        if(!accept(line)) {
+            return null;
+        }
+
+        Matcher matcher = pattern.matcher(line);
+        if(!matcher.find()) {
+            return null;
+        }
+
+        String[] tokens = new String[matcher.groupCount()];
+        for(int i = 0; i < tokens.length; i++) {
+            tokens[i] = matcher.group(i + 1);
+        }
+        return fieldSetMapper.mapFieldSet(new DefaultFieldSet(tokens));
+    }
+}
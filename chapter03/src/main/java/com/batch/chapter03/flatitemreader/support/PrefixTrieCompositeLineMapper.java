@@ -0,0 +1,191 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import org.springframework.batch.item.file.LineMapper;
+import org.springframework.batch.item.file.mapping.FieldSetMapper;
+import org.springframework.batch.item.file.transform.LineTokenizer;
+import org.springframework.batch.support.PatternMatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/*
+PatternMatchingCompositeLineMapper와 같은 규칙으로 동작하지만 패턴 목록을 접두사 트라이로 컴파일해 두는 LineMapper
+    PatternMatchingCompositeLineMapper는 라인마다 LineTokenizer용 패턴 목록과 FieldSetMapper용 패턴 목록을 각각 순회하며
+    와일드카드 매칭을 수행한다. 레코드 유형이 수십 개가 되면 이 탐색이 핫 패스에 드러난다.
+
+    각 패턴의 첫 와일드카드(* 또는 ?) 앞까지의 리터럴 접두사로 트라이를 만들어 두면
+    라인의 문자를 따라 트라이를 한 번 내려가는 것만으로 후보 패턴이 모두 모인다.
+    "ERROR*"처럼 리터럴 뒤에 *만 붙은 패턴은 해당 노드에 도달한 것만으로 매칭이 확정되고,
+    그 밖의 와일드카드가 섞인 패턴만 PatternMatcher.match()로 나머지를 확인한다.
+
+    우선순위는 PatternMatcher와 동일하게 패턴 문자열의 역순 정렬 순서(더 구체적인 패턴 우선)를 따르며,
+    LineTokenizer와 FieldSetMapper를 한 번의 탐색으로 함께 결정한다.
+*/
+public class PrefixTrieCompositeLineMapper<T> implements LineMapper<T> {
+    private Map<String, LineTokenizer> tokenizers = Map.of();
+    private Map<String, FieldSetMapper<T>> fieldSetMappers = Map.of();
+
+    private Node root = new Node();
+    private String[] patterns = new String[0];
+    private LineTokenizer[] tokenizerByRank = new LineTokenizer[0];
+    private List<FieldSetMapper<T>> mapperByRank = List.of();
+
+    public void setTokenizers(Map<String, LineTokenizer> tokenizers) {
+        this.tokenizers = tokenizers;
+        compile();
+    }
+
+    public void setFieldSetMappers(Map<String, FieldSetMapper<T>> fieldSetMappers) {
+        this.fieldSetMappers = fieldSetMappers;
+        compile();
+    }
+
+    @Override
+    public T mapLine(String line, int lineNumber) throws Exception {
+        int tokenizerRank = Integer.MAX_VALUE;
+        int mapperRank = Integer.MAX_VALUE;
+
+        Node node = root;
+        int depth = 0;
+        int length = line.length();
+        while(node != null) {
+            for(int i = 0; i < node.patternRanks.length; i++) {
+                int rank = node.patternRanks[i];
+                if(rank >= tokenizerRank && rank >= mapperRank) {
+                    break;
+                }
+                if(matches(node.patternKinds[i], rank, depth, length, line)) {
+                    if(tokenizerByRank[rank] != null && rank < tokenizerRank) {
+                        tokenizerRank = rank;
+                    }
+                    if(mapperByRank.get(rank) != null && rank < mapperRank) {
+                        mapperRank = rank;
+                    }
+                }
+            }
+
+            if(depth == length) {
+                break;
+            }
+            node = node.child(line.charAt(depth++));
+        }
+
+        if(tokenizerRank == Integer.MAX_VALUE || mapperRank == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Could not find a matching pattern for key=[" + line + "]");
+        }
+        return mapperByRank.get(mapperRank).mapFieldSet(tokenizerByRank[tokenizerRank].tokenize(line));
+    }
+
+    private boolean matches(byte kind, int rank, int depth, int length, String line) {
+        return switch(kind) {
+            case Node.PREFIX -> true;
+            case Node.EXACT -> depth == length;
+            default -> PatternMatcher.match(patterns[rank], line);
+        };
+    }
+
+    //두 Map의 키를 합쳐 PatternMatcher와 같은 역순으로 정렬한 순서를 rank로 사용한다.
+    private void compile() {
+        TreeSet<String> keys = new TreeSet<>(Comparator.reverseOrder());
+        keys.addAll(tokenizers.keySet());
+        keys.addAll(fieldSetMappers.keySet());
+
+        String[] patterns = keys.toArray(new String[0]);
+        LineTokenizer[] tokenizerByRank = new LineTokenizer[patterns.length];
+        List<FieldSetMapper<T>> mapperByRank = new ArrayList<>(patterns.length);
+        Node root = new Node();
+
+        for(int rank = 0; rank < patterns.length; rank++) {
+            String pattern = patterns[rank];
+            tokenizerByRank[rank] = tokenizers.get(pattern);
+            mapperByRank.add(fieldSetMappers.get(pattern));
+
+            int wildcard = firstWildcard(pattern);
+            String prefix = wildcard < 0 ? pattern : pattern.substring(0, wildcard);
+            byte kind;
+            if(wildcard < 0) {
+                kind = Node.EXACT;
+            } else if(wildcard == pattern.length() - 1 && pattern.charAt(wildcard) == '*') {
+                kind = Node.PREFIX;
+            } else {
+                kind = Node.WILDCARD;
+            }
+
+            Node node = root;
+            for(int i = 0; i < prefix.length(); i++) {
+                node = node.getOrAddChild(prefix.charAt(i));
+            }
+            node.addPattern(rank, kind);
+        }
+
+        this.patterns = patterns;
+        this.tokenizerByRank = tokenizerByRank;
+        this.mapperByRank = mapperByRank;
+        this.root = root;
+    }
+
+    private static int firstWildcard(String pattern) {
+        for(int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if(c == '*' || c == '?') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /*
+    트라이 노드
+        자식은 정렬된 char 배열과 Node 배열로 보관하고 이진 탐색으로 찾는다.
+        patternRanks에는 리터럴 접두사가 이 노드에서 끝나는 패턴의 rank가 오름차순으로 들어있다.
+    */
+    private static class Node {
+        private static final byte PREFIX = 0;
+        private static final byte EXACT = 1;
+        private static final byte WILDCARD = 2;
+
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private int[] patternRanks = new int[0];
+        private byte[] patternKinds = new byte[0];
+
+        private Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node getOrAddChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if(index >= 0) {
+                return children[index];
+            }
+
+            int insertAt = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+
+            Node child = new Node();
+            newKeys[insertAt] = c;
+            newChildren[insertAt] = child;
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        //rank는 오름차순으로 추가되므로 배열 끝에 붙이면 정렬이 유지된다.
+        private void addPattern(int rank, byte kind) {
+            patternRanks = Arrays.copyOf(patternRanks, patternRanks.length + 1);
+            patternKinds = Arrays.copyOf(patternKinds, patternKinds.length + 1);
+            patternRanks[patternRanks.length - 1] = rank;
+            patternKinds[patternKinds.length - 1] = kind;
+        }
+    }
+}
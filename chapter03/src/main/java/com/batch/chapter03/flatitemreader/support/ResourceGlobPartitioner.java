@@ -0,0 +1,178 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.partition.support.PartitionNameProvider;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/*
+글로브 패턴으로 찾은 파일들을 파일 단위(작은 파일은 묶음 단위)로 나누는 Partitioner
+    MultiResourceItemReader는 리소스를 하나씩 차례대로 읽기 때문에 파일이 수백 개면 한 스레드가 모두 처리해야 한다.
+    이 파티셔너는 locationPattern에 매칭되는 파일을 크기가 큰 순서로 정렬한 뒤
+    smallFileThreshold 이상인 파일은 단독 파티션으로, 그보다 작은 파일은 합계가 smallFileThreshold를 넘지 않도록 묶어서 파티션으로 만든다.
+    (큰 파일부터 채우는 First-Fit Decreasing 방식이라 묶음 크기가 고르게 맞춰진다.)
+
+    각 파티션의 ExecutionContext에는 리소스 URI 목록(resources)과 합계 크기(totalSize)가 담기고
+    워커 스텝의 MultiResourceItemReader는 #{stepExecutionContext['resources']}로 목록을 전달받는다.
+
+    재시작
+        SimpleStepExecutionSplitter는 재시작할 때 Partitioner가 PartitionNameProvider면 partition() 대신 getPartitionNames()로 이전 실행의 파티션 이름만 받고,
+        이름이 같은 이전 StepExecution이 COMPLETED면 건너뛰고, 실패했으면 그 ExecutionContext(이전 실행의 파일 목록)로 재시작한다.
+        파티션 이름에는 파일 목록의 해시가 들어가므로 재시작 때 디렉터리를 다시 훑어 묶으면 파일이 추가/삭제된 경우 이름이 바뀌어
+        COMPLETED 파티션을 다시 읽고(중복 출력) 실패한 파티션의 저장 위치는 버려진다.
+        그래서 첫 실행의 partition()에서 파티션 이름을 매니저 스텝의 ExecutionContext에 저장하고, 재시작 시 getPartitionNames()가 그 이름을 그대로 돌려준다.
+        매니저 스텝의 StepExecution은 beforeStep()에서 받으므로 이 파티셔너를 매니저 스텝의 리스너로 등록해야 한다. (.listener(partitioner))
+        재시작은 첫 실행의 파일 묶음을 그대로 이어가며, 그 뒤에 추가된 파일은 새 JobInstance로 실행해야 읽는다.
+*/
+@Slf4j
+public class ResourceGlobPartitioner implements Partitioner, PartitionNameProvider, StepExecutionListener {
+    public static final String RESOURCES = "resources";
+    public static final String TOTAL_SIZE = "totalSize";
+
+    private static final String PARTITION_NAMES = ResourceGlobPartitioner.class.getSimpleName() + ".PARTITION_NAMES";
+    private static final String RESOURCE_SEPARATOR = "\n";
+    private static final int MAX_NAME_LENGTH = 40;
+    private static final ResourceLoader RESOURCE_LOADER = new DefaultResourceLoader();
+
+    private final String locationPattern;
+    private final ResourcePatternResolver resolver;
+    private long smallFileThreshold = 16 * 1024 * 1024;
+    private StepExecution managerStepExecution;
+
+    public ResourceGlobPartitioner(String locationPattern) {
+        this(locationPattern, new PathMatchingResourcePatternResolver());
+    }
+
+    public ResourceGlobPartitioner(String locationPattern, ResourcePatternResolver resolver) {
+        this.locationPattern = locationPattern;
+        this.resolver = resolver;
+    }
+
+    public void setSmallFileThreshold(long smallFileThreshold) {
+        Assert.isTrue(smallFileThreshold >= 0, "smallFileThreshold는 0 이상이어야 합니다.");
+        this.smallFileThreshold = smallFileThreshold;
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        this.managerStepExecution = stepExecution;
+    }
+
+    //파티션 수는 파일 목록으로 결정되므로 gridSize는 사용하지 않는다.
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        List<SizedResource> files = resolve();
+        files.sort(Comparator.comparingLong(SizedResource::size).reversed().thenComparing(SizedResource::uri));
+
+        List<List<SizedResource>> groups = new ArrayList<>();
+        List<Long> groupSizes = new ArrayList<>();
+        for(SizedResource file : files) {
+            int target = -1;
+            if(file.size() < smallFileThreshold) {
+                for(int i = 0; i < groups.size(); i++) {
+                    if(groupSizes.get(i) < smallFileThreshold && groupSizes.get(i) + file.size() <= smallFileThreshold) {
+                        target = i;
+                        break;
+                    }
+                }
+            }
+            if(target < 0) {
+                groups.add(new ArrayList<>());
+                groupSizes.add(0L);
+                target = groups.size() - 1;
+            }
+            groups.get(target).add(file);
+            groupSizes.set(target, groupSizes.get(target) + file.size());
+        }
+
+        Map<String, ExecutionContext> partitions = new LinkedHashMap<>();
+        for(int i = 0; i < groups.size(); i++) {
+            List<SizedResource> group = groups.get(i);
+            String resources = String.join(RESOURCE_SEPARATOR, group.stream().map(SizedResource::uri).toList());
+
+            ExecutionContext context = new ExecutionContext();
+            context.putString(RESOURCES, resources);
+            context.putLong(TOTAL_SIZE, groupSizes.get(i));
+
+            String name = partitionName(group, resources);
+            partitions.put(name, context);
+            log.info("{}: 파일 {}개, {} bytes", name, group.size(), groupSizes.get(i));
+        }
+
+        //매니저 스텝이 끝날 때(실패해도) ExecutionContext와 함께 저장된다.
+        if(managerStepExecution != null) {
+            managerStepExecution.getExecutionContext().putString(PARTITION_NAMES, String.join(RESOURCE_SEPARATOR, partitions.keySet()));
+        }
+        return partitions;
+    }
+
+    //재시작 시 첫 실행의 파티션 이름. 저장된 이름이 없으면(리스너로 등록하지 않은 경우 등) 파일 목록을 다시 묶는다.
+    @Override
+    public Collection<String> getPartitionNames(int gridSize) {
+        String names = managerStepExecution != null ? managerStepExecution.getExecutionContext().getString(PARTITION_NAMES, null) : null;
+        if(names == null) {
+            log.warn("저장된 파티션 이름이 없어 파일 목록을 다시 묶습니다. 파일이 바뀌었다면 파티션 이름이 달라질 수 있습니다: {}", locationPattern);
+            return partition(gridSize).keySet();
+        }
+        return names.isEmpty() ? List.of() : List.of(names.split(RESOURCE_SEPARATOR));
+    }
+
+    //ExecutionContext에 저장된 resources 값을 워커의 MultiResourceItemReader에 전달할 Resource 배열로 되돌린다.
+    public static Resource[] resources(String value) {
+        if(value == null || value.isEmpty()) {
+            return new Resource[0];
+        }
+        return Arrays.stream(value.split(RESOURCE_SEPARATOR))
+                .map(RESOURCE_LOADER::getResource)
+                .toArray(Resource[]::new);
+    }
+
+    private List<SizedResource> resolve() {
+        try {
+            List<SizedResource> files = new ArrayList<>();
+            for(Resource resource : resolver.getResources(locationPattern)) {
+                if(resource.isReadable()) {
+                    files.add(new SizedResource(resource.getURI().toString(), resource.getFilename(), resource.contentLength()));
+                }
+            }
+            return files;
+        } catch (IOException e) {
+            throw new ItemStreamException("리소스 목록을 조회하는 중 오류가 발생했습니다: " + locationPattern, e);
+        }
+    }
+
+    //단독 파일은 "file-파일명-해시", 묶음은 "group-가장큰파일명-해시" 형식이다. 해시는 파일 목록 전체로 계산해 묶음 구성이 바뀌면 이름도 바뀐다.
+    private static String partitionName(List<SizedResource> group, String resources) {
+        CRC32 crc = new CRC32();
+        crc.update(resources.getBytes(StandardCharsets.UTF_8));
+
+        String filename = group.get(0).filename() != null ? group.get(0).filename() : "resource";
+        if(filename.length() > MAX_NAME_LENGTH) {
+            filename = filename.substring(0, MAX_NAME_LENGTH);
+        }
+        return (group.size() == 1 ? "file-" : "group-") + filename + "-" + String.format("%08x", crc.getValue());
+    }
+
+    private record SizedResource(String uri, String filename, long size) {
+    }
+}
@@ -0,0 +1,184 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+StagedItemWriter가 만든 스테이징 파일을 메모리 매핑해서 읽는 ItemReader
+    레코드는 길이가 앞에 붙은 바이너리이므로 라인 분리, 토큰화, 숫자 파싱 없이 StagingCodec.decode()로 바로 객체를 만든다.
+
+    open() 시 다음 경우 파일을 거부한다.
+        헤더 형식/버전이 다르거나 COMPLETE 플래그가 없는 경우 (스테이징 스텝이 끝나지 않은 파일)
+        헤더의 스키마가 코덱의 schema()와 다른 경우
+        sourceResource를 지정했고 원본 파일이 스테이징 이후 바뀐 경우 (크기, 수정 시각, 앞/뒤 CRC 비교)
+
+    MappedLineItemReader와 같이 windowSize 단위로 매핑하고, 레코드가 윈도우 경계에 걸리면 레코드 시작 위치부터 다시 매핑한다.
+    재시작 시에는 커밋된 바이트 위치(position)와 읽은 레코드 수(read.count)로 바로 이동한다.
+*/
+@Slf4j
+public class StagedItemReader<T> extends ItemStreamSupport implements ItemStreamReader<T> {
+    private static final String POSITION = "position";
+    private static final String READ_COUNT = "read.count";
+
+    private Resource resource;
+    private Resource sourceResource;
+    private StagingCodec<T> codec;
+    private boolean saveState = true;
+    private long windowSize = MappedLineItemReader.DEFAULT_WINDOW_SIZE;
+
+    private final StagingInput input = new StagingInput();
+    private FileChannel channel;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long fileSize;
+    private long recordCount;
+    private long position;
+    private long readCount;
+
+    public void setResource(Resource resource) {
+        this.resource = resource;
+    }
+
+    //지정하면 스테이징 이후 원본 파일이 바뀌었는지 확인한다.
+    public void setSourceResource(Resource sourceResource) {
+        this.sourceResource = sourceResource;
+    }
+
+    public void setCodec(StagingCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    public void setSaveState(boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    public void setWindowSize(long windowSize) {
+        Assert.isTrue(windowSize > 0 && windowSize <= Integer.MAX_VALUE, "windowSize는 0보다 크고 2GB보다 작아야 합니다.");
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        Assert.notNull(resource, "resource가 필요합니다.");
+        Assert.notNull(codec, "codec이 필요합니다.");
+
+        try {
+            channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ);
+            StagingFileHeader header;
+            try {
+                header = StagingFileHeader.read(channel);
+                validate(header);
+            } catch (IOException | RuntimeException e) {
+                close();
+                throw e;
+            }
+
+            fileSize = channel.size();
+            recordCount = header.recordCount();
+            position = header.dataStart();
+            readCount = 0;
+            window = null;
+
+            if(saveState && executionContext.containsKey(getExecutionContextKey(POSITION))) {
+                position = executionContext.getLong(getExecutionContextKey(POSITION));
+                readCount = executionContext.getLong(getExecutionContextKey(READ_COUNT));
+                log.info("스테이징 파일 재시작: position={}, read.count={}", position, readCount);
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("스테이징 파일을 열 수 없습니다: " + resource.getDescription(), e);
+        }
+    }
+
+    private void validate(StagingFileHeader header) throws IOException {
+        if(!header.isComplete()) {
+            throw new ItemStreamException("완료되지 않은 스테이징 파일입니다: " + resource.getDescription());
+        }
+        if(!header.schema().equals(codec.schema())) {
+            throw new ItemStreamException("스테이징 파일의 스키마가 다릅니다. 파일: [" + header.schema() + "], 코덱: [" + codec.schema() + "]");
+        }
+
+        FileFingerprint staged = header.source();
+        if(sourceResource != null && staged.size() > 0) {
+            Path source = sourceResource.getFile().toPath();
+            try(FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ)) {
+                FileFingerprint current = FileFingerprint.of(sourceChannel, Files.getLastModifiedTime(source).toMillis(), sourceChannel.size());
+                if(!current.equals(staged)) {
+                    throw new ItemStreamException("스테이징 이후 원본 파일이 바뀌었습니다. 다시 스테이징해야 합니다: " + sourceResource.getDescription());
+                }
+            }
+        }
+    }
+
+    @Override
+    public T read() throws Exception {
+        if(readCount >= recordCount) {
+            return null;
+        }
+
+        int length = record(position);
+        ByteBuffer record = window.duplicate();
+        record.position((int) (position - windowStart) + Integer.BYTES);
+        record.limit(record.position() + length);
+        input.reset(record);
+
+        T item = codec.decode(input);
+        position += Integer.BYTES + length;
+        readCount++;
+        return item;
+    }
+
+    //position의 레코드 전체가 윈도우 안에 들어오도록 매핑하고 레코드 길이를 반환한다.
+    private int record(long position) throws IOException {
+        ensureMapped(position, Integer.BYTES);
+        int length = window.getInt((int) (position - windowStart));
+        if(length < 0 || position + Integer.BYTES + length > fileSize) {
+            throw new ItemStreamException("스테이징 레코드가 손상되었습니다. (position: " + position + ", length: " + length + ")");
+        }
+        ensureMapped(position, Integer.BYTES + length);
+        return length;
+    }
+
+    private void ensureMapped(long position, int length) throws IOException {
+        if(window != null && position >= windowStart && position + length <= windowStart + window.limit()) {
+            return;
+        }
+        long size = Math.min(Math.max(windowSize, length), fileSize - position);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        windowStart = position;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if(saveState) {
+            executionContext.putLong(getExecutionContextKey(POSITION), position);
+            executionContext.putLong(getExecutionContextKey(READ_COUNT), readCount);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        window = null;
+        if(channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new ItemStreamException("스테이징 파일을 닫을 수 없습니다.", e);
+            } finally {
+                channel = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.batch.chapter03.flatitemreader.support;
+
+/*
+스테이징 파일의 레코드 하나를 객체로, 객체를 레코드로 바꾸는 코덱
+    schema()는 필드 이름과 타입, 순서를 나타내는 문자열로 스테이징 파일 헤더에 그대로 기록된다.
+    StagedItemReader는 파일의 스키마가 코덱의 schema()와 다르면 파일을 거부하므로 필드를 바꾸면 schema()도 함께 바꿔야 한다.
+
+    encode()와 decode()는 같은 순서로 같은 타입의 값을 쓰고 읽어야 한다.
+*/
+public interface StagingCodec<T> {
+    String schema();
+
+    void encode(T item, StagingOutput output);
+
+    T decode(StagingInput input);
+}
@@ -0,0 +1,93 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/*
+스테이징 파일 헤더
+    고정 부분 64바이트 (빅 엔디언)
+        magic(int), version(int), flags(int), 스키마 길이(int), recordCount(long), dataStart(long),
+        원본 지문(size, lastModified, headCrc, tailCrc: long x 4)
+    이어서 스키마 문자열(UTF-8)이 오고, dataStart부터 레코드가 시작한다.
+    레코드: 길이(int) + StagingCodec이 쓴 내용
+
+    flags의 COMPLETE 비트는 스테이징 스텝이 COMPLETED로 끝났을 때만 켜지므로, 중간에 실패한 파일은 읽을 수 없다.
+    원본 지문은 스테이징할 때의 원본 파일 상태이며, 원본이 바뀌었으면 StagedItemReader가 오래된 파일로 보고 거부한다.
+*/
+public record StagingFileHeader(int flags, String schema, long recordCount, long dataStart, FileFingerprint source) {
+    public static final int MAGIC = 0x53544731;
+    public static final int VERSION = 1;
+    public static final int COMPLETE = 1;
+
+    private static final int FIXED_SIZE = 64;
+    private static final long FLAGS_OFFSET = 8;
+    private static final long RECORD_COUNT_OFFSET = 16;
+
+    public static StagingFileHeader create(String schema, FileFingerprint source) {
+        int schemaLength = schema.getBytes(StandardCharsets.UTF_8).length;
+        return new StagingFileHeader(0, schema, 0, FIXED_SIZE + schemaLength, source);
+    }
+
+    public boolean isComplete() {
+        return (flags & COMPLETE) != 0;
+    }
+
+    public void write(FileChannel channel) throws IOException {
+        byte[] schemaBytes = schema.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_SIZE + schemaBytes.length);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(flags).putInt(schemaBytes.length)
+                .putLong(recordCount).putLong(dataStart)
+                .putLong(source.size()).putLong(source.lastModified()).putLong(source.headCrc()).putLong(source.tailCrc())
+                .put(schemaBytes)
+                .flip();
+        writeFully(channel, buffer, 0);
+    }
+
+    //레코드를 모두 쓴 뒤 recordCount와 flags만 덮어쓴다.
+    public static void finish(FileChannel channel, long recordCount, boolean complete) throws IOException {
+        writeFully(channel, ByteBuffer.allocate(Long.BYTES).putLong(0, recordCount), RECORD_COUNT_OFFSET);
+        writeFully(channel, ByteBuffer.allocate(Integer.BYTES).putInt(0, complete ? COMPLETE : 0), FLAGS_OFFSET);
+    }
+
+    public static StagingFileHeader read(FileChannel channel) throws IOException {
+        ByteBuffer fixed = ByteBuffer.allocate(FIXED_SIZE);
+        readFully(channel, fixed, 0);
+        if(fixed.getInt() != MAGIC || fixed.getInt() != VERSION) {
+            throw new IOException("스테이징 파일 형식이 아닙니다.");
+        }
+
+        int flags = fixed.getInt();
+        int schemaLength = fixed.getInt();
+        long recordCount = fixed.getLong();
+        long dataStart = fixed.getLong();
+        long size = fixed.getLong();
+        long lastModified = fixed.getLong();
+        FileFingerprint source = new FileFingerprint(size, lastModified, size, fixed.getLong(), fixed.getLong());
+        if(schemaLength < 0 || dataStart != FIXED_SIZE + schemaLength) {
+            throw new IOException("스테이징 파일 헤더가 손상되었습니다.");
+        }
+
+        ByteBuffer schema = ByteBuffer.allocate(schemaLength);
+        readFully(channel, schema, FIXED_SIZE);
+        return new StagingFileHeader(flags, new String(schema.array(), StandardCharsets.UTF_8), recordCount, dataStart, source);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if(read < 0) {
+                throw new IOException("스테이징 파일 헤더가 잘렸습니다.");
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+}
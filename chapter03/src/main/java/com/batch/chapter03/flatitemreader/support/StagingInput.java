@@ -0,0 +1,54 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+StagingCodec.decode()가 레코드 하나의 필드를 읽는 입력 (StagingOutput과 같은 형식)
+    StagedItemReader가 매핑한 버퍼에서 레코드 위치로 옮겨 두고 넘겨준다.
+    문자열은 재사용하는 바이트 배열로 복사한 뒤 String으로 만든다.
+*/
+public class StagingInput {
+    private ByteBuffer buffer;
+    private byte[] scratch = new byte[256];
+
+    void reset(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public int getInt() {
+        return buffer.getInt();
+    }
+
+    public long getLong() {
+        return buffer.getLong();
+    }
+
+    public Integer getNullableInt() {
+        return buffer.get() == 0 ? null : buffer.getInt();
+    }
+
+    public String getString() {
+        int length = getVarint() - 1;
+        if(length < 0) {
+            return null;
+        }
+        if(length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private int getVarint() {
+        int value = 0;
+        for(int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if(b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("varint 형식이 잘못되었습니다.");
+    }
+}
@@ -0,0 +1,91 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+StagingCodec.encode()가 레코드 하나의 필드를 쓰는 버퍼 (빅 엔디언)
+    putString(): 길이 + 1을 varint로 쓰고 UTF-8 바이트를 이어 쓴다. null은 0 하나로 기록된다.
+    putInt()/putLong(): 고정 4/8바이트
+    putNullableInt(): null 여부 1바이트 + int
+
+    버퍼는 레코드마다 reset()해서 재사용하고, 모자라면 두 배로 늘린다.
+*/
+public class StagingOutput {
+    private ByteBuffer buffer = ByteBuffer.allocate(256);
+
+    public void reset() {
+        buffer.clear();
+    }
+
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    public void putInt(int value) {
+        ensureRemaining(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    public void putLong(long value) {
+        ensureRemaining(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    public void putNullableInt(Integer value) {
+        ensureRemaining(1 + Integer.BYTES);
+        if(value == null) {
+            buffer.put((byte) 0);
+        } else {
+            buffer.put((byte) 1).putInt(value);
+        }
+    }
+
+    public void putString(String value) {
+        if(value == null) {
+            putVarint(0);
+            return;
+        }
+
+        //ASCII만 있으면 getBytes() 없이 바로 쓴다.
+        int length = value.length();
+        boolean ascii = true;
+        for(int i = 0; i < length; i++) {
+            if(value.charAt(i) >= 0x80) {
+                ascii = false;
+                break;
+            }
+        }
+
+        if(ascii) {
+            putVarint(length + 1);
+            ensureRemaining(length);
+            for(int i = 0; i < length; i++) {
+                buffer.put((byte) value.charAt(i));
+            }
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putVarint(bytes.length + 1);
+            ensureRemaining(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private void putVarint(int value) {
+        ensureRemaining(5);
+        while((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void ensureRemaining(int length) {
+        if(buffer.remaining() < length) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+}
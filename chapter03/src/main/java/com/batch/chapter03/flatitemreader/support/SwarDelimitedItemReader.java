@@ -0,0 +1,294 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+구분자 파일을 blockSize 단위의 바이트 블록으로 읽고, 블록마다 DelimitedBlockTokenizer로 토큰 오프셋 테이블을 한 번에 만드는 ItemReader
+    FlatFileItemReader는 BufferedReader.readLine()으로 개행을 한 글자씩 찾고 DelimitedLineTokenizer가 같은 라인을 다시 한 글자씩 훑는다.
+    이 리더는 블록 하나에 대해 개행/구분자/따옴표 위치를 8바이트씩 한 번만 찾고, 레코드는 그 테이블에서 바로 FieldCursor로 만든다.
+    FieldCursor는 블록 배열을 그대로 가리키므로 라인 복사도 일어나지 않는다.
+
+    따옴표 안의 개행은 레코드를 나누지 않는다. (DelimitedBlockTokenizer 참고)
+    블록 끝에 걸린 레코드는 블록 앞으로 옮기고 뒤를 채운 뒤 다시 스캔하며, blockSize보다 긴 레코드를 만나면 블록을 두 배로 늘린다.
+
+    재시작 시에는 MappedLineItemReader와 같이 커밋된 다음 레코드의 바이트 위치(position)부터 바로 읽는다.
+
+    setFilter()로 FieldPredicate를 지정하면 필드 수 검사 직후 오프셋 테이블 위에서 조건을 검사하고, false인 레코드는 매핑하지 않는다.
+    건너뛴 레코드 수는 filter.count로 저장되고 StepExecution의 filterCount에도 더해진다.
+*/
+@Slf4j
+public class SwarDelimitedItemReader<T> extends ItemStreamSupport implements ItemStreamReader<T>, StepExecutionListener {
+    private static final String POSITION = "position";
+    private static final String RECORD_NUMBER = "record.number";
+    private static final String READ_COUNT = "read.count";
+    private static final String FILTER_COUNT = "filter.count";
+
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    private Resource resource;
+    private DelimitedBlockTokenizer tokenizer;
+    private CursorFieldSetMapper<T> fieldSetMapper;
+    private FieldPredicate filter;
+    private Charset charset = StandardCharsets.UTF_8;
+    private int linesToSkip = 0;
+    private String[] comments = new String[] {"#"};
+    private boolean strict = true;
+    private boolean saveState = true;
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+    private final Map<Integer, ByteDictionary> dictionaries = new LinkedHashMap<>();
+
+    private byte[][] commentBytes;
+    private FieldCursor cursor;
+    private FileChannel channel;
+    private long fileSize;
+    private byte[] block;
+    private long blockStart;
+    private int blockLength;
+    private boolean lastBlock;
+    private long position;
+    private long recordNumber;
+    private long readCount;
+    private long filteredCount;
+    private final FilterCountReporter filterCountReporter = new FilterCountReporter();
+    private boolean noInput;
+
+    public void setResource(Resource resource) {
+        this.resource = resource;
+    }
+
+    public void setTokenizer(DelimitedBlockTokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    public void setFieldSetMapper(CursorFieldSetMapper<T> fieldSetMapper) {
+        this.fieldSetMapper = fieldSetMapper;
+    }
+
+    public void setFilter(FieldPredicate filter) {
+        this.filter = filter;
+    }
+
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+
+    //헤더처럼 건너뛸 앞쪽 레코드 수
+    public void setLinesToSkip(int linesToSkip) {
+        this.linesToSkip = linesToSkip;
+    }
+
+    //주석 라인은 따옴표와 상관없이 다음 개행까지 건너뛴다.
+    public void setComments(String... comments) {
+        this.comments = comments;
+    }
+
+    public void setStrict(boolean strict) {
+        this.strict = strict;
+    }
+
+    public void setSaveState(boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    public void setBlockSize(int blockSize) {
+        Assert.isTrue(blockSize > 0, "blockSize는 0보다 커야 합니다.");
+        this.blockSize = blockSize;
+    }
+
+    //CursorLineMapper.setDictionary()와 같다.
+    public void setDictionary(ByteDictionary dictionary, int... columns) {
+        for(int column : columns) {
+            dictionaries.put(column, dictionary);
+        }
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        Assert.notNull(resource, "resource가 필요합니다.");
+        Assert.notNull(tokenizer, "tokenizer가 필요합니다.");
+        Assert.notNull(fieldSetMapper, "fieldSetMapper가 필요합니다.");
+
+        commentBytes = new byte[comments.length][];
+        for(int i = 0; i < comments.length; i++) {
+            commentBytes[i] = comments[i].getBytes(charset);
+        }
+
+        if(!resource.exists()) {
+            if(strict) {
+                throw new ItemStreamException("입력 리소스가 존재하지 않습니다: " + resource.getDescription());
+            }
+            log.warn("입력 리소스가 존재하지 않습니다: {}", resource.getDescription());
+            noInput = true;
+            return;
+        }
+
+        try {
+            channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ);
+            fileSize = channel.size();
+        } catch (IOException e) {
+            throw new ItemStreamException("파일 채널을 열 수 없습니다: " + resource.getDescription(), e);
+        }
+
+        cursor = new FieldCursor(charset);
+        dictionaries.forEach(cursor::setDictionary);
+        block = new byte[blockSize];
+        position = 0;
+        recordNumber = 0;
+        readCount = 0;
+        filteredCount = 0;
+
+        if(executionContext.containsKey(getExecutionContextKey(POSITION))) {
+            position = executionContext.getLong(getExecutionContextKey(POSITION));
+            recordNumber = executionContext.getLong(getExecutionContextKey(RECORD_NUMBER));
+            readCount = executionContext.getLong(getExecutionContextKey(READ_COUNT));
+            filteredCount = executionContext.getLong(getExecutionContextKey(FILTER_COUNT), 0L);
+            filterCountReporter.restored(filteredCount);
+            log.info("{} 바이트 위치부터 재시작합니다. (record={}, read={})", position, recordNumber, readCount);
+        }
+        blockStart = position;
+        blockLength = 0;
+        lastBlock = position >= fileSize;
+    }
+
+    @Override
+    public T read() throws Exception {
+        if(noInput) {
+            return null;
+        }
+
+        while(true) {
+            int from = (int) (position - blockStart);
+            if(from >= blockLength && lastBlock) {
+                return null;
+            }
+
+            boolean comment = isComment(from);
+            cursor.reset(block, blockLength);
+            int end = from >= blockLength ? -1 : comment ? commentEnd(from) : tokenizer.nextRecord(from, cursor, lastBlock);
+            if(end < 0) {
+                fill();
+                continue;
+            }
+
+            long recordStart = position;
+            position = blockStart + end;
+            recordNumber++;
+            if(recordNumber <= linesToSkip || comment) {
+                continue;
+            }
+
+            try {
+                tokenizer.checkFieldCount(cursor);
+                if(filter != null && !filter.test(cursor)) {
+                    filteredCount++;
+                    continue;
+                }
+                T item = fieldSetMapper.mapFieldSet(cursor);
+                readCount++;
+                return item;
+            } catch (Exception e) {
+                String input = new String(block, from, end - from, charset).stripTrailing();
+                throw new FlatFileParseException("Parsing error at record: " + recordNumber + " (byte offset: " + recordStart
+                        + ") in resource=[" + resource.getDescription() + "], input=[" + input + "]", e, input, (int) recordNumber);
+            }
+        }
+    }
+
+    //접두어가 블록 끝에서 잘렸으면 레코드도 블록 끝에 걸린 것이므로 fill() 후 다시 확인된다.
+    private boolean isComment(int from) {
+        for(byte[] prefix : commentBytes) {
+            if(prefix.length > 0 && from + prefix.length <= blockLength && Arrays.equals(block, from, from + prefix.length, prefix, 0, prefix.length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int commentEnd(int from) {
+        int newline = SwarScanner.indexOf(block, from, blockLength, (byte) '\n');
+        if(newline >= 0) {
+            return newline + 1;
+        }
+        return lastBlock ? blockLength : -1;
+    }
+
+    //읽지 않은 레코드를 블록 앞으로 옮기고 나머지를 파일에서 채운 뒤 블록 전체를 다시 스캔한다.
+    private void fill() throws IOException {
+        int from = (int) (position - blockStart);
+        int remaining = blockLength - from;
+        if(remaining == block.length) {
+            block = Arrays.copyOf(block, block.length * 2);
+            log.debug("블록보다 긴 레코드가 있어 블록을 {} 바이트로 늘립니다. (byte offset: {})", block.length, position);
+        } else if(from > 0) {
+            System.arraycopy(block, from, block, 0, remaining);
+        }
+        blockStart = position;
+        blockLength = remaining;
+
+        ByteBuffer target = ByteBuffer.wrap(block, blockLength, block.length - blockLength);
+        long readPosition = blockStart + blockLength;
+        boolean endOfFile = false;
+        while(target.hasRemaining() && !endOfFile) {
+            int read = channel.read(target, readPosition);
+            if(read < 0) {
+                endOfFile = true;
+            } else {
+                readPosition += read;
+                endOfFile = readPosition >= fileSize;
+            }
+        }
+        blockLength = target.position();
+        lastBlock = endOfFile;
+        tokenizer.scan(block, 0, blockLength);
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        filterCountReporter.beforeStep(stepExecution);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        filterCountReporter.report(filteredCount);
+        if(saveState) {
+            executionContext.putLong(getExecutionContextKey(POSITION), position);
+            executionContext.putLong(getExecutionContextKey(RECORD_NUMBER), recordNumber);
+            executionContext.putLong(getExecutionContextKey(READ_COUNT), readCount);
+            executionContext.putLong(getExecutionContextKey(FILTER_COUNT), filteredCount);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        block = null;
+        cursor = null;
+        if(channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new ItemStreamException("파일 채널을 닫는 중 오류가 발생했습니다.", e);
+            } finally {
+                channel = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/*
+바이트를 8개씩 long 하나로 읽어서 특정 바이트의 위치를 찾는 SWAR(SIMD Within A Register) 유틸리티
+    바이트 배열/ByteBuffer를 VarHandle의 long 뷰로 읽으므로 경계 검사와 바이트 조립이 8바이트에 한 번만 일어난다.
+    리틀 엔디언으로 읽기 때문에 마스크의 하위 바이트가 앞쪽 바이트이고, numberOfTrailingZeros(mask) >>> 3이 워드 안의 위치가 된다.
+
+    matches()는 (x - 0x01..) & ~x & 0x80.. 대신 빌림(borrow)이 다음 바이트로 번지지 않는 식을 쓴다.
+    첫 번째 일치 위치만 필요한 indexOf()뿐 아니라 워드 안의 모든 일치 위치를 꺼내는 DelimitedBlockTokenizer에서도 오탐이 없어야 하기 때문이다.
+*/
+public final class SwarScanner {
+    private static final VarHandle ARRAY_LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    private SwarScanner() {
+    }
+
+    //b를 8바이트 모두에 채운 패턴
+    public static long broadcast(byte b) {
+        return (b & 0xFFL) * ONES;
+    }
+
+    public static long readLong(byte[] bytes, int index) {
+        return (long) ARRAY_LONGS.get(bytes, index);
+    }
+
+    public static long readLong(ByteBuffer buffer, int index) {
+        return (long) BUFFER_LONGS.get(buffer, index);
+    }
+
+    //word에서 pattern과 같은 바이트의 최상위 비트(0x80)만 켠 마스크
+    public static long matches(long word, long pattern) {
+        long x = word ^ pattern;
+        long y = (x & LOW_BITS) + LOW_BITS;
+        return ~(y | x | LOW_BITS);
+    }
+
+    //마스크에서 가장 앞쪽 일치 바이트의 워드 내 위치(0 ~ 7)
+    public static int firstIndex(long mask) {
+        return Long.numberOfTrailingZeros(mask) >>> 3;
+    }
+
+    //[from, to) 구간에서 target의 첫 위치, 없으면 -1
+    public static int indexOf(byte[] bytes, int from, int to, byte target) {
+        long pattern = broadcast(target);
+        int i = from;
+        for(; i + Long.BYTES <= to; i += Long.BYTES) {
+            long mask = matches(readLong(bytes, i), pattern);
+            if(mask != 0) {
+                return i + firstIndex(mask);
+            }
+        }
+        for(; i < to; i++) {
+            if(bytes[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    //MappedByteBuffer 같은 다이렉트 버퍼에서 [from, to) 구간의 target 첫 위치, 없으면 -1 (버퍼의 position/order는 바꾸지 않는다)
+    public static int indexOf(ByteBuffer buffer, int from, int to, byte target) {
+        long pattern = broadcast(target);
+        int i = from;
+        for(; i + Long.BYTES <= to; i += Long.BYTES) {
+            long mask = matches(readLong(buffer, i), pattern);
+            if(mask != 0) {
+                return i + firstIndex(mask);
+            }
+        }
+        for(; i < to; i++) {
+            if(buffer.get(i) == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
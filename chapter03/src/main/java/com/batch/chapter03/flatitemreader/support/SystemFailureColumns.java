@@ -0,0 +1,279 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import org.springframework.util.Assert;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/*
+SystemFailure 여러 건을 컬럼 단위 배열(struct-of-arrays)로 담는 블록
+    List<SystemFailure>는 아이템마다 객체 하나, String 4개, Integer 하나를 힙 여기저기에 만들기 때문에
+    한 컬럼만 훑는 처리(심각도로 거르기, processId 합계 등)도 포인터를 따라 메모리를 건너뛰며 읽게 된다.
+    이 블록은 같은 컬럼의 값을 연속된 배열에 모아 두므로 프로세서가 캐시 친화적인 루프로 처리할 수 있고, 행 수와 무관하게 배열 몇 개만 할당된다.
+
+    컬럼 구성
+        processId: int[] (빈 값은 null 비트맵으로 구분)
+        severity: ByteDictionary의 id (int[]). 사전이 가득 차서 id를 받지 못한 값만 별도 String으로 보관한다.
+        errorId, errorDateTime, errorMessage: 원본 바이트를 그대로 이어 붙인 byte[] 아레나와 행마다의 끝 위치(int[])
+
+    문자열은 errorId(row)처럼 필요한 시점에만 String으로 만든다.
+    블록은 리더가 매번 새로 만들어 반환하므로 청크가 끝날 때까지 안전하게 보관할 수 있지만, 한 스레드에서만 수정해야 한다.
+*/
+public class SystemFailureColumns {
+    private static final int ERROR_ID = 0;
+    private static final int ERROR_DATE_TIME = 1;
+    private static final int ERROR_MESSAGE = 2;
+    private static final int TEXT_COLUMNS = 3;
+
+    private final ByteDictionary severities;
+    private final Charset charset;
+
+    private int size;
+    private int[] processIds;
+    private long[] processIdNulls;
+    private int[] severityIds;
+    private String[] severityFallbacks;
+    private byte[] arena;
+    private int arenaLength;
+    private int[] textEnds;
+
+    public SystemFailureColumns(int capacity, ByteDictionary severities, Charset charset) {
+        Assert.isTrue(capacity > 0, "capacity는 0보다 커야 합니다.");
+        this.severities = severities;
+        this.charset = charset;
+        this.processIds = new int[capacity];
+        this.processIdNulls = new long[(capacity + 63) >>> 6];
+        this.severityIds = new int[capacity];
+        this.arena = new byte[capacity * 32];
+        this.textEnds = new int[capacity * TEXT_COLUMNS];
+    }
+
+    /*
+    토크나이저가 기록한 커서에서 한 행을 추가한다. 컬럼 순서는 errorId, errorDateTime, severity, processId, errorMessage다.
+        processId와 severity를 먼저 읽어 파싱 오류는 아레나에 쓰기 전에 나게 하고, 그 뒤의 오류(필드 수 부족 등)는 아레나 길이를 되돌린다.
+        실패한 행의 바이트가 아레나에 남으면 다음 행의 errorId 시작 위치가 밀리기 때문이다. (스킵 후 같은 블록에 계속 추가된다)
+    */
+    public void appendRow(FieldCursor cursor) {
+        ensureCapacity(size + 1);
+        int row = size;
+
+        boolean processIdNull = cursor.isEmpty(3);
+        int processId = processIdNull ? 0 : cursor.readInt(3);
+        int severityId = cursor.readDictionaryId(2, severities);
+        String severityFallback = severityId == ByteDictionary.NOT_FOUND ? cursor.readString(2) : null;
+
+        int arenaStart = arenaLength;
+        try {
+            appendText(cursor, 0);
+            appendText(cursor, 1);
+            appendText(cursor, 4);
+        } catch (RuntimeException e) {
+            arenaLength = arenaStart;
+            throw e;
+        }
+
+        severityIds[row] = severityId;
+        if(severityFallback != null) {
+            if(severityFallbacks == null) {
+                severityFallbacks = new String[severityIds.length];
+            }
+            severityFallbacks[row] = severityFallback;
+        }
+        if(processIdNull) {
+            processIdNulls[row >>> 6] |= 1L << row;
+        } else {
+            processIdNulls[row >>> 6] &= ~(1L << row);
+        }
+        processIds[row] = processId;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public ByteDictionary getSeverityDictionary() {
+        return severities;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public int processId(int row) {
+        checkRow(row);
+        return processIds[row];
+    }
+
+    public boolean isProcessIdNull(int row) {
+        checkRow(row);
+        return (processIdNulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    public Integer processIdOrNull(int row) {
+        return isProcessIdNull(row) ? null : processIds[row];
+    }
+
+    //사전에 없는 값이면 ByteDictionary.NOT_FOUND
+    public int severityId(int row) {
+        checkRow(row);
+        return severityIds[row];
+    }
+
+    public String severity(int row) {
+        int id = severityId(row);
+        return id != ByteDictionary.NOT_FOUND ? severities.valueOf(id) : severityFallbacks[row];
+    }
+
+    public String errorId(int row) {
+        return text(row, ERROR_ID);
+    }
+
+    public String errorDateTime(int row) {
+        return text(row, ERROR_DATE_TIME);
+    }
+
+    public String errorMessage(int row) {
+        return text(row, ERROR_MESSAGE);
+    }
+
+    //문자열 컬럼은 String을 만들지 않고 아레나 위치로 직접 읽을 수 있다. (column: 0 errorId, 1 errorDateTime, 2 errorMessage)
+    public byte[] arena() {
+        return arena;
+    }
+
+    public int textStart(int row, int column) {
+        checkRow(row);
+        int index = row * TEXT_COLUMNS + column;
+        return index == 0 ? 0 : textEnds[index - 1];
+    }
+
+    public int textEnd(int row, int column) {
+        checkRow(row);
+        return textEnds[row * TEXT_COLUMNS + column];
+    }
+
+    //processId 컬럼만 연속으로 읽어 합계를 구한다. null은 건너뛴다.
+    public long sumProcessIds() {
+        long sum = 0;
+        for(int row = 0; row < size; row++) {
+            if((processIdNulls[row >>> 6] & (1L << row)) == 0) {
+                sum += processIds[row];
+            }
+        }
+        return sum;
+    }
+
+    /*
+    severity가 주어진 값인 행만 남긴다.
+        사전에 등록된 값이면 id만 비교하고, 사전이 가득 차서 등록되지 않은 값이면 사전 밖에 보관한 String과 비교한다.
+        사전이 가득 찬 상태에서 retain(row -> severityId(row) == id)로 직접 비교하면 NOT_FOUND끼리 같다고 판단하므로 이 메서드를 사용해야 한다.
+    */
+    public void retainSeverity(String severity) {
+        int id = severities.idOf(severity);
+        if(id != ByteDictionary.NOT_FOUND) {
+            retain(row -> severityIds[row] == id);
+        } else {
+            retain(row -> severityIds[row] == ByteDictionary.NOT_FOUND && severity.equals(severityFallbacks[row]));
+        }
+    }
+
+    /*
+    조건을 만족하는 행만 남기고 앞으로 당긴다.
+        모든 컬럼을 제자리에서 왼쪽으로만 옮기므로 추가 할당이 없다.
+        predicate는 압축 전 행 번호로 호출되며, 앞쪽 행은 이미 옮겨졌을 수 있으므로 전달받은 행의 값만 읽어야 한다.
+    */
+    public void retain(IntPredicate predicate) {
+        int kept = 0;
+        int arenaWrite = 0;
+        for(int row = 0; row < size; row++) {
+            int rowStart = row == 0 ? 0 : textEnds[row * TEXT_COLUMNS - 1];
+            if(!predicate.test(row)) {
+                continue;
+            }
+
+            int rowEnd = textEnds[row * TEXT_COLUMNS + TEXT_COLUMNS - 1];
+            if(kept != row) {
+                processIds[kept] = processIds[row];
+                if((processIdNulls[row >>> 6] & (1L << row)) != 0) {
+                    processIdNulls[kept >>> 6] |= 1L << kept;
+                } else {
+                    processIdNulls[kept >>> 6] &= ~(1L << kept);
+                }
+                severityIds[kept] = severityIds[row];
+                if(severityFallbacks != null) {
+                    severityFallbacks[kept] = severityFallbacks[row];
+                }
+                System.arraycopy(arena, rowStart, arena, arenaWrite, rowEnd - rowStart);
+            }
+
+            //행의 텍스트 끝 위치를 옮겨진 만큼 보정한다. kept < row이면 다음 행이 읽을 이전 행의 끝 위치보다 앞쪽에만 쓰고, kept == row이면 값이 그대로다.
+            int shift = rowStart - arenaWrite;
+            for(int column = 0; column < TEXT_COLUMNS; column++) {
+                textEnds[kept * TEXT_COLUMNS + column] = textEnds[row * TEXT_COLUMNS + column] - shift;
+            }
+            arenaWrite += rowEnd - rowStart;
+            kept++;
+        }
+
+        if(severityFallbacks != null) {
+            Arrays.fill(severityFallbacks, kept, size, null);
+        }
+        size = kept;
+        arenaLength = arenaWrite;
+    }
+
+    private void appendText(FieldCursor cursor, int index) {
+        byte[] bytes;
+        int start;
+        int length;
+        if(cursor.isEscaped(index)) {
+            bytes = cursor.readString(index).getBytes(charset);
+            start = 0;
+            length = bytes.length;
+        } else {
+            bytes = cursor.getLine();
+            start = cursor.start(index);
+            length = cursor.length(index);
+        }
+
+        if(arenaLength + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaLength + length));
+        }
+        System.arraycopy(bytes, start, arena, arenaLength, length);
+        arenaLength += length;
+
+        int column = index == 4 ? ERROR_MESSAGE : index;
+        textEnds[size * TEXT_COLUMNS + column] = arenaLength;
+    }
+
+    private String text(int row, int column) {
+        int start = textStart(row, column);
+        return new String(arena, start, textEnds[row * TEXT_COLUMNS + column] - start, charset);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if(capacity <= processIds.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, processIds.length * 2);
+        processIds = Arrays.copyOf(processIds, newCapacity);
+        processIdNulls = Arrays.copyOf(processIdNulls, (newCapacity + 63) >>> 6);
+        severityIds = Arrays.copyOf(severityIds, newCapacity);
+        if(severityFallbacks != null) {
+            severityFallbacks = Arrays.copyOf(severityFallbacks, newCapacity);
+        }
+        textEnds = Arrays.copyOf(textEnds, newCapacity * TEXT_COLUMNS);
+    }
+
+    private void checkRow(int row) {
+        if(row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("행 번호가 범위를 벗어났습니다: " + row + " (행 수: " + size + ")");
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.util.Assert;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/*
+라인 blockSize개를 SystemFailureColumns 블록 하나로 묶어 반환하는 ItemReader
+    read() 한 번이 블록 하나이므로 청크 크기는 블록 수다. 예를 들어 blockSize가 4096이고 chunk(4)이면 한 트랜잭션에 최대 16384행이 처리된다.
+
+    라인은 전달받은 MappedLineItemReaderBuilder로 만든 MappedLineItemReader가 읽는다.
+    이 리더가 lineMapper를 직접 설정해서 라인을 토큰화한 커서에서 바로 현재 블록에 행을 추가하므로 행마다 객체가 만들어지지 않는다.
+    블록을 반환하는 시점에는 블록의 모든 라인을 읽은 뒤이므로 재시작 위치(position 등)는 MappedLineItemReader가 저장한 값을 그대로 쓰면 된다.
+    라인 하나가 잘못되어 read()가 예외를 던지면 그때까지 채운 블록을 버리지 않고 다음 read()에서 이어 채운다.
+        rowReader는 이미 그 라인들을 지나갔으므로 블록을 버리면 스킵/재시도 시 행이 조용히 사라진다.
+*/
+public class SystemFailureColumnsItemReader implements ItemStreamReader<SystemFailureColumns> {
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private final MappedLineItemReader<SystemFailureColumns> rowReader;
+    private final CursorTokenizer tokenizer;
+    private final ByteDictionary severities;
+    private final Charset charset;
+    private final FieldCursor cursor;
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+    private SystemFailureColumns current;
+
+    public SystemFailureColumnsItemReader(MappedLineItemReaderBuilder<SystemFailureColumns> rowReader, CursorTokenizer tokenizer, ByteDictionary severities) {
+        this(rowReader, tokenizer, severities, StandardCharsets.UTF_8);
+    }
+
+    public SystemFailureColumnsItemReader(MappedLineItemReaderBuilder<SystemFailureColumns> rowReader, CursorTokenizer tokenizer,
+                                          ByteDictionary severities, Charset charset) {
+        this.tokenizer = tokenizer;
+        this.severities = severities;
+        this.charset = charset;
+        this.cursor = new FieldCursor(charset);
+        this.rowReader = rowReader.lineMapper(this::appendRow).build();
+    }
+
+    public void setBlockSize(int blockSize) {
+        Assert.isTrue(blockSize > 0, "blockSize는 0보다 커야 합니다.");
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public SystemFailureColumns read() throws Exception {
+        //이전 read()가 라인 오류로 중간에 끝났다면 current에 그때까지 채운 블록이 남아 있다.
+        if(current == null) {
+            current = new SystemFailureColumns(blockSize, severities, charset);
+        }
+        //rowReader.read()가 라인마다 appendRow()를 호출해 현재 블록에 행을 추가한다.
+        while(current.size() < blockSize) {
+            if(rowReader.read() == null) {
+                break;
+            }
+        }
+        SystemFailureColumns block = current;
+        current = null;
+        return block.isEmpty() ? null : block;
+    }
+
+    private SystemFailureColumns appendRow(byte[] line, int length, long lineNumber) {
+        cursor.reset(line, length);
+        tokenizer.tokenize(line, length, cursor);
+        current.appendRow(cursor);
+        return current;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        current = null;
+        rowReader.open(executionContext);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        rowReader.update(executionContext);
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        current = null;
+        rowReader.close();
+    }
+}
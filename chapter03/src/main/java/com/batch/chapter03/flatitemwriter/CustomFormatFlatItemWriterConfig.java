@@ -1,5 +1,9 @@
 package com.batch.chapter03.flatitemwriter;
 
+import com.batch.chapter03.flatitemwriter.support.CompiledFieldExtractorFactory;
+import com.batch.chapter03.flatitemwriter.support.ChannelFlatFileItemWriter;
+import com.batch.chapter03.flatitemwriter.support.CompiledFormatLineAggregator;
+import com.batch.chapter03.flatitemwriter.support.Utf8LineAggregator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
@@ -21,6 +25,8 @@ import java.util.List;
 @Configuration
 @RequiredArgsConstructor
 public class CustomFormatFlatItemWriterConfig {
+    private static final String FORMAT = "에러ID: %s | 발생시각: %s | 심각도: %s | 프로세스ID: %d | 에러메시지: %s";
+
     private final JobRepository jobRepository;
     private final PlatformTransactionManager transactionManager;
 
@@ -86,7 +92,7 @@ public class CustomFormatFlatItemWriterConfig {
                 .resource(new FileSystemResource(filePath + "/10.csv"))
                 .append(true)
                 .formatted()
-                .format("에러ID: %s | 발생시각: %s | 심각도: %s | 프로세스ID: %d | 에러메시지: %s")
+                .format(FORMAT)
                 .sourceType(SystemFailure.class)
                 .names("errorId", "errorDateTime", "severity", "processId", "errorMessage")
                 .headerCallback(writer -> writer.write("===시작==="))
@@ -94,6 +100,85 @@ public class CustomFormatFlatItemWriterConfig {
                 .build();
     }
 
+    @Bean
+    public Job compiledFormatFlatItemWriterJob(Step compiledFormatFlatItemWriterStep) {
+        return new JobBuilder("compiledFormatFlatItemWriterJob", jobRepository)
+                .start(compiledFormatFlatItemWriterStep)
+                .build();
+    }
+
+    @Bean
+    public Step compiledFormatFlatItemWriterStep(FlatFileItemWriter<SystemFailure> compiledFormatFlatItemWriter) {
+        return new StepBuilder("compiledFormatFlatItemWriterStep", jobRepository)
+                .<SystemFailure, SystemFailure>chunk(10, transactionManager)
+                .reader(customFormatListItemReader())
+                .writer(compiledFormatFlatItemWriter)
+                .build();
+    }
+
+    /*
+    lineAggregator()
+        formatted() 대신 CompiledFormatLineAggregator를 직접 지정한다.
+        출력은 customFormatFlatItemWriter와 같고, 포맷 문자열은 첫 아이템에서 한 번만 파싱된다.
+
+    CompiledFieldExtractorFactory
+        레코드의 접근자 메서드를 미리 컴파일한 FieldExtractor를 만든다. names를 생략하면 레코드 컴포넌트 순서를 따른다.
+    */
+    @Bean
+    @StepScope
+    public FlatFileItemWriter<SystemFailure> compiledFormatFlatItemWriter(@Value("#{jobParameters['filePath']}") String filePath) {
+        CompiledFormatLineAggregator<SystemFailure> lineAggregator = new CompiledFormatLineAggregator<>();
+        lineAggregator.setFormat(FORMAT);
+        lineAggregator.setFieldExtractor(CompiledFieldExtractorFactory.create(SystemFailure.class));
+
+        return new FlatFileItemWriterBuilder<SystemFailure>()
+                .name("compiledFormatFlatItemWriter")
+                .resource(new FileSystemResource(filePath + "/11.csv"))
+                .append(true)
+                .lineAggregator(lineAggregator)
+                .headerCallback(writer -> writer.write("===시작==="))
+                .footerCallback(writer -> writer.write("===완료===\n"))
+                .build();
+    }
+
+    @Bean
+    public Job utf8FormatFlatItemWriterJob(Step utf8FormatFlatItemWriterStep) {
+        return new JobBuilder("utf8FormatFlatItemWriterJob", jobRepository)
+                .start(utf8FormatFlatItemWriterStep)
+                .build();
+    }
+
+    @Bean
+    public Step utf8FormatFlatItemWriterStep(ChannelFlatFileItemWriter<SystemFailure> utf8FormatFlatItemWriter) {
+        return new StepBuilder("utf8FormatFlatItemWriterStep", jobRepository)
+                .<SystemFailure, SystemFailure>chunk(10, transactionManager)
+                .reader(customFormatListItemReader())
+                .writer(utf8FormatFlatItemWriter)
+                .build();
+    }
+
+    /*
+    Utf8LineAggregator
+        FORMAT의 한글 라벨("에러ID: ", " | 발생시각: " 등)을 한 번만 UTF-8로 인코딩해 두고, 필드를 재사용하는 바이트 버퍼에 바로 인코딩한다.
+        ChannelFlatFileItemWriter는 ByteLineAggregator를 받으면 라인 String과 CharsetEncoder를 거치지 않고 이 바이트를 그대로 쓴다.
+        ChannelFlatFileItemWriter에는 append 모드가 없으므로 11.csv를 새로 쓴다.
+    */
+    @Bean
+    @StepScope
+    public ChannelFlatFileItemWriter<SystemFailure> utf8FormatFlatItemWriter(@Value("#{jobParameters['filePath']}") String filePath) {
+        Utf8LineAggregator<SystemFailure> lineAggregator = new Utf8LineAggregator<>();
+        lineAggregator.setFormat(FORMAT);
+        lineAggregator.setFieldExtractor(CompiledFieldExtractorFactory.create(SystemFailure.class));
+
+        ChannelFlatFileItemWriter<SystemFailure> writer = new ChannelFlatFileItemWriter<>();
+        writer.setName("utf8FormatFlatItemWriter");
+        writer.setResource(new FileSystemResource(filePath + "/11.csv"));
+        writer.setLineAggregator(lineAggregator);
+        writer.setHeaderCallback(headerWriter -> headerWriter.write("===시작==="));
+        writer.setFooterCallback(footerWriter -> footerWriter.write("===완료===\n"));
+        return writer;
+    }
+
     public record SystemFailure(String errorId, String errorDateTime, String severity, Integer processId, String errorMessage) {
 
     }
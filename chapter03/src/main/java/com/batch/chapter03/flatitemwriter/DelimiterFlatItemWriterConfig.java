@@ -1,26 +1,44 @@
 package com.batch.chapter03.flatitemwriter;
 
+import com.batch.chapter03.flatitemwriter.support.ChannelFlatFileItemWriter;
+import com.batch.chapter03.flatitemwriter.support.CompiledFieldExtractorFactory;
+import com.batch.chapter03.flatitemwriter.support.GzipFlatFileItemWriter;
+import com.batch.chapter03.flatitemwriter.support.RollingFlatFileItemWriter;
+import com.batch.chapter03.flatitemwriter.support.ShardMergeTasklet;
+import com.batch.chapter03.flatitemwriter.support.ShardPartitioner;
+import com.batch.chapter03.flatitemwriter.support.WriteBehindFlatFileItemWriter;
 import lombok.*;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobScope;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.partition.support.SimplePartitioner;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.item.file.FlatFileItemWriter;
 import org.springframework.batch.item.file.builder.FlatFileItemWriterBuilder;
+import org.springframework.batch.item.file.transform.DelimitedLineAggregator;
 import org.springframework.batch.item.support.ListItemReader;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.Assert;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 @Configuration
 @RequiredArgsConstructor
 public class DelimiterFlatItemWriterConfig {
+    //에러ID,발생시각,심각도,프로세스ID,에러메시지
+    private static final int SHARD_COLUMN_COUNT = 5;
+
     private final JobRepository jobRepository;
     private final PlatformTransactionManager transactionManager;
 
@@ -41,7 +59,11 @@ public class DelimiterFlatItemWriterConfig {
     }
 
     public ListItemReader<SystemFailure> delimiterListItemReader() {
-        List<SystemFailure> systemFailures = List.of(
+        return new ListItemReader<>(systemFailures());
+    }
+
+    private List<SystemFailure> systemFailures() {
+        return List.of(
                 new SystemFailure(
                         "ERR001",
                         "2025-01-01 08:01:02",
@@ -61,8 +83,6 @@ public class DelimiterFlatItemWriterConfig {
                         1235,
                         "MEMORY_OVERFLOW")
         );
-
-        return new ListItemReader<>(systemFailures);
     }
 
     /*
@@ -105,6 +125,301 @@ public class DelimiterFlatItemWriterConfig {
                 .build();
     }
 
+    /*
+    채널 쓰기 모드
+        ChannelFlatFileItemWriter는 delimiterFlatItemWriter와 같은 DelimitedLineAggregator로 라인을 만들지만
+        청크를 String 하나로 이어붙이지 않고 라인마다 다이렉트 ByteBuffer에 바로 인코딩한 뒤 gathering write로 쓴다.
+        syncPolicy로 force() 시점을 고른다. (EVERY_COMMIT, EVERY_N_COMMITS, ON_CLOSE / 생략 시 EVERY_COMMIT)
+        EVERY_N_COMMITS는 syncInterval번째 커밋마다 force()한다.
+    */
+    @Bean
+    public Job channelFlatItemWriterJob(Step channelFlatItemWriterStep) {
+        return new JobBuilder("channelFlatItemWriterJob", jobRepository)
+                .start(channelFlatItemWriterStep)
+                .build();
+    }
+
+    @Bean
+    public Step channelFlatItemWriterStep(ChannelFlatFileItemWriter<SystemFailure> channelFlatItemWriter) {
+        return new StepBuilder("channelFlatItemWriterStep", jobRepository)
+                .<SystemFailure, SystemFailure>chunk(10, transactionManager)
+                .reader(delimiterListItemReader())
+                .writer(channelFlatItemWriter)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public ChannelFlatFileItemWriter<SystemFailure> channelFlatItemWriter(@Value("#{jobParameters['filePath']}") String filePath,
+                                                                          @Value("#{jobParameters['syncPolicy']}") String syncPolicy,
+                                                                          @Value("#{jobParameters['syncInterval']}") Integer syncInterval) {
+        DelimitedLineAggregator<SystemFailure> lineAggregator = new DelimitedLineAggregator<>();
+        lineAggregator.setDelimiter(",");
+        lineAggregator.setFieldExtractor(CompiledFieldExtractorFactory.create(SystemFailure.class,
+                "errorId", "errorDateTime", "severity", "processId", "errorMessage"));
+
+        ChannelFlatFileItemWriter<SystemFailure> writer = new ChannelFlatFileItemWriter<>();
+        writer.setName("channelFlatItemWriter");
+        writer.setResource(new FileSystemResource(filePath + "/8.csv"));
+        writer.setLineAggregator(lineAggregator);
+        writer.setHeaderCallback(headerWriter -> headerWriter.write("에러ID,발생시각,심각도,프로세스ID,에러메시지"));
+        writer.setSyncPolicy(syncPolicy != null ? ChannelFlatFileItemWriter.SyncPolicy.valueOf(syncPolicy) : ChannelFlatFileItemWriter.SyncPolicy.EVERY_COMMIT);
+        writer.setSyncInterval(syncInterval != null ? syncInterval : 1);
+        return writer;
+    }
+
+    /*
+    조각 쓰기 모드
+        delimiterFlatItemWriter는 하나의 파일 핸들에 쓰기 때문에 여러 스레드가 쓰려면 writer 전체를 동기화해야 한다.
+        ShardPartitioner가 파티션마다 8.csv.part-N을 배정하고, 각 워커 스텝은 자기 조각에만 헤더 없이 쓴다.
+        파티션마다 StepExecution이 따로 있으므로 조각마다 재시작 위치가 따로 저장된다.
+        모든 파티션이 끝나면 ShardMergeTasklet이 헤더를 한 번 쓰고 조각들을 transferTo()로 이어붙여 8.csv를 만든다.
+
+        gridSize 잡 파라미터를 생략하면 CPU 코어 수만큼 나눈다.
+        sortColumn(0부터)을 지정하면 병합할 때 그 컬럼 값 순서로 다시 정렬한다.
+            프로세스ID(3)는 숫자로 비교하고(값이 없으면 맨 뒤), 나머지 컬럼은 문자열 순서다.
+            범위를 벗어난 sortColumn은 병합 도중이 아니라 스텝을 만들 때 거부한다.
+    */
+    @Bean
+    public Job shardedFlatItemWriterJob(Step shardedFlatItemWriterStep, Step shardMergeStep) {
+        return new JobBuilder("shardedFlatItemWriterJob", jobRepository)
+                .start(shardedFlatItemWriterStep)
+                .next(shardMergeStep)
+                .build();
+    }
+
+    @Bean
+    @JobScope
+    public Step shardedFlatItemWriterStep(@Value("#{jobParameters['filePath']}") String filePath,
+                                          @Value("#{jobParameters['gridSize']}") Integer gridSize,
+                                          Step shardWorkerStep) {
+        int partitionCount = gridSize != null ? gridSize : Runtime.getRuntime().availableProcessors();
+
+        SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("shard-writer-");
+        taskExecutor.setConcurrencyLimit(partitionCount);
+
+        return new StepBuilder("shardedFlatItemWriterStep", jobRepository)
+                .partitioner("shardWorkerStep", new ShardPartitioner(new SimplePartitioner(), new FileSystemResource(filePath + "/8.csv")))
+                .step(shardWorkerStep)
+                .gridSize(partitionCount)
+                .taskExecutor(taskExecutor)
+                .build();
+    }
+
+    @Bean
+    public Step shardWorkerStep(ListItemReader<SystemFailure> shardListItemReader,
+                                ChannelFlatFileItemWriter<SystemFailure> shardFlatItemWriter) {
+        return new StepBuilder("shardWorkerStep", jobRepository)
+                .<SystemFailure, SystemFailure>chunk(10, transactionManager)
+                .reader(shardListItemReader)
+                .writer(shardFlatItemWriter)
+                .build();
+    }
+
+    //아이템을 조각 수로 나눈 나머지가 자기 조각 번호인 것만 읽는다.
+    @Bean
+    @StepScope
+    public ListItemReader<SystemFailure> shardListItemReader(@Value("#{stepExecutionContext['shard']}") Integer shard,
+                                                             @Value("#{stepExecutionContext['shardCount']}") Integer shardCount) {
+        List<SystemFailure> systemFailures = systemFailures();
+        return new ListItemReader<>(IntStream.range(0, systemFailures.size())
+                .filter(i -> i % shardCount == shard)
+                .mapToObj(systemFailures::get)
+                .toList());
+    }
+
+    @Bean
+    @StepScope
+    public ChannelFlatFileItemWriter<SystemFailure> shardFlatItemWriter(@Value("#{stepExecutionContext['shardPath']}") String shardPath) {
+        DelimitedLineAggregator<SystemFailure> lineAggregator = new DelimitedLineAggregator<>();
+        lineAggregator.setDelimiter(",");
+        lineAggregator.setFieldExtractor(CompiledFieldExtractorFactory.create(SystemFailure.class,
+                "errorId", "errorDateTime", "severity", "processId", "errorMessage"));
+
+        ChannelFlatFileItemWriter<SystemFailure> writer = new ChannelFlatFileItemWriter<>();
+        writer.setName("shardFlatItemWriter");
+        writer.setResource(new FileSystemResource(shardPath));
+        writer.setLineAggregator(lineAggregator);
+        return writer;
+    }
+
+    @Bean
+    @JobScope
+    public Step shardMergeStep(@Value("#{jobParameters['filePath']}") String filePath,
+                               @Value("#{jobParameters['sortColumn']}") Integer sortColumn) {
+        ShardMergeTasklet tasklet = new ShardMergeTasklet(new FileSystemResource(filePath + "/8.csv"));
+        tasklet.setHeaderCallback(headerWriter -> headerWriter.write("에러ID,발생시각,심각도,프로세스ID,에러메시지"));
+        if(sortColumn != null) {
+            tasklet.setLineComparator(shardLineComparator(sortColumn));
+        }
+
+        return new StepBuilder("shardMergeStep", jobRepository)
+                .tasklet(tasklet, transactionManager)
+                .build();
+    }
+
+    //마지막 컬럼(에러메시지)에 쉼표가 있어도 컬럼 위치가 밀리지 않도록 컬럼 수만큼만 나눈다.
+    private static Comparator<String> shardLineComparator(int sortColumn) {
+        Assert.isTrue(sortColumn >= 0 && sortColumn < SHARD_COLUMN_COUNT,
+                "sortColumn은 0부터 " + (SHARD_COLUMN_COUNT - 1) + " 사이여야 합니다: " + sortColumn);
+        Function<String, String> column = line -> {
+            String[] columns = line.split(",", SHARD_COLUMN_COUNT);
+            return sortColumn < columns.length ? columns[sortColumn] : "";
+        };
+        if(sortColumn == 3) {
+            return Comparator.comparing(column.andThen(DelimiterFlatItemWriterConfig::parseLongOrNull),
+                    Comparator.nullsLast(Comparator.naturalOrder()));
+        }
+        return Comparator.comparing(column);
+    }
+
+    private static Long parseLongOrNull(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /*
+    gzip 모드
+        GzipFlatFileItemWriter가 라인을 청크와 관계없이 blockSize마다 잘라 threads개의 압축 스레드에서 동시에 압축하고 8.csv.gz에 순서대로 이어붙인다.
+        블록마다 독립된 gzip member가 되므로 일반 gunzip으로 풀 수 있다.
+        커밋 시점에 아직 member로 쓰지 못한 라인은 8.csv.gz.journal-N에 남겨 두므로 재시작 시 마지막 member 경계부터 이어서 쓴다.
+        남은 블록과 푸터는 스텝이 COMPLETED로 끝날 때 쓰고 저널을 지운다.
+
+        threads 잡 파라미터를 생략하면 CPU 코어 수, blockSize를 생략하면 128KB다.
+    */
+    @Bean
+    public Job gzipFlatItemWriterJob(Step gzipFlatItemWriterStep) {
+        return new JobBuilder("gzipFlatItemWriterJob", jobRepository)
+                .start(gzipFlatItemWriterStep)
+                .build();
+    }
+
+    @Bean
+    public Step gzipFlatItemWriterStep(GzipFlatFileItemWriter<SystemFailure> gzipFlatItemWriter) {
+        return new StepBuilder("gzipFlatItemWriterStep", jobRepository)
+                .<SystemFailure, SystemFailure>chunk(10, transactionManager)
+                .reader(delimiterListItemReader())
+                .writer(gzipFlatItemWriter)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public GzipFlatFileItemWriter<SystemFailure> gzipFlatItemWriter(@Value("#{jobParameters['filePath']}") String filePath,
+                                                                    @Value("#{jobParameters['threads']}") Integer threads,
+                                                                    @Value("#{jobParameters['blockSize']}") Integer blockSize) {
+        DelimitedLineAggregator<SystemFailure> lineAggregator = new DelimitedLineAggregator<>();
+        lineAggregator.setDelimiter(",");
+        lineAggregator.setFieldExtractor(CompiledFieldExtractorFactory.create(SystemFailure.class,
+                "errorId", "errorDateTime", "severity", "processId", "errorMessage"));
+
+        GzipFlatFileItemWriter<SystemFailure> writer = new GzipFlatFileItemWriter<>();
+        writer.setName("gzipFlatItemWriter");
+        writer.setResource(new FileSystemResource(filePath + "/8.csv.gz"));
+        writer.setLineAggregator(lineAggregator);
+        writer.setHeaderCallback(headerWriter -> headerWriter.write("에러ID,발생시각,심각도,프로세스ID,에러메시지"));
+        writer.setThreads(threads != null ? threads : Runtime.getRuntime().availableProcessors());
+        writer.setBlockSize(blockSize != null ? blockSize : GzipFlatFileItemWriter.DEFAULT_BLOCK_SIZE);
+        return writer;
+    }
+
+    /*
+    롤링 모드
+        RollingFlatFileItemWriter가 maxRecords개 또는 maxBytes 바이트마다 8.00001.csv, 8.00002.csv ... 로 파일을 바꿔 가며 쓴다.
+        쓰는 중인 파일은 .inprogress가 붙어 있고, 다 쓴 파일은 그 청크가 커밋된 뒤 원래 이름으로 원자적으로 이동되므로
+        소비자는 잡이 끝나기 전에도 .inprogress가 아닌 파일을 가져갈 수 있다.
+
+        파일은 청크 경계에서만 바뀌므로 예제 데이터(3건)에서도 롤링이 보이도록 청크 크기를 1로 했다.
+        maxRecords를 생략하면 2, maxBytes를 생략하면 제한 없음(0)이다.
+    */
+    @Bean
+    public Job rollingFlatItemWriterJob(Step rollingFlatItemWriterStep) {
+        return new JobBuilder("rollingFlatItemWriterJob", jobRepository)
+                .start(rollingFlatItemWriterStep)
+                .build();
+    }
+
+    @Bean
+    public Step rollingFlatItemWriterStep(RollingFlatFileItemWriter<SystemFailure> rollingFlatItemWriter) {
+        return new StepBuilder("rollingFlatItemWriterStep", jobRepository)
+                .<SystemFailure, SystemFailure>chunk(1, transactionManager)
+                .reader(delimiterListItemReader())
+                .writer(rollingFlatItemWriter)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public RollingFlatFileItemWriter<SystemFailure> rollingFlatItemWriter(@Value("#{jobParameters['filePath']}") String filePath,
+                                                                          @Value("#{jobParameters['maxRecords']}") Long maxRecords,
+                                                                          @Value("#{jobParameters['maxBytes']}") Long maxBytes) {
+        DelimitedLineAggregator<SystemFailure> lineAggregator = new DelimitedLineAggregator<>();
+        lineAggregator.setDelimiter(",");
+        lineAggregator.setFieldExtractor(CompiledFieldExtractorFactory.create(SystemFailure.class,
+                "errorId", "errorDateTime", "severity", "processId", "errorMessage"));
+
+        ChannelFlatFileItemWriter<SystemFailure> delegate = new ChannelFlatFileItemWriter<>();
+        delegate.setName("rollingFileWriter");
+        delegate.setLineAggregator(lineAggregator);
+        delegate.setHeaderCallback(headerWriter -> headerWriter.write("에러ID,발생시각,심각도,프로세스ID,에러메시지"));
+
+        RollingFlatFileItemWriter<SystemFailure> writer = new RollingFlatFileItemWriter<>(delegate);
+        writer.setName("rollingFlatItemWriter");
+        writer.setResource(new FileSystemResource(filePath + "/8.csv"));
+        writer.setMaxRecords(maxRecords != null ? maxRecords : 2);
+        writer.setMaxBytes(maxBytes != null ? maxBytes : 0);
+        return writer;
+    }
+
+    /*
+    write-behind 모드
+        WriteBehindFlatFileItemWriter는 스텝 스레드에서 라인을 blockSize 블록으로 인코딩하고, 파일 쓰기는 전용 I/O 스레드에서 한다.
+        update()가 쓰기 완료를 기다린 뒤 위치를 저장하므로 커밋된 위치는 항상 실제로 파일에 쓰인 위치다.
+        파일을 읽는 스텝이라면 리더를 AsyncReadAheadItemReader로 감싸 청크 N을 쓰는 동안 청크 N+1을 미리 읽게 한다.
+
+        blockSize를 생략하면 64KB, bufferCount를 생략하면 4, forceSync를 생략하면 false다.
+    */
+    @Bean
+    public Job writeBehindFlatItemWriterJob(Step writeBehindFlatItemWriterStep) {
+        return new JobBuilder("writeBehindFlatItemWriterJob", jobRepository)
+                .start(writeBehindFlatItemWriterStep)
+                .build();
+    }
+
+    @Bean
+    public Step writeBehindFlatItemWriterStep(WriteBehindFlatFileItemWriter<SystemFailure> writeBehindFlatItemWriter) {
+        return new StepBuilder("writeBehindFlatItemWriterStep", jobRepository)
+                .<SystemFailure, SystemFailure>chunk(10, transactionManager)
+                .reader(delimiterListItemReader())
+                .writer(writeBehindFlatItemWriter)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public WriteBehindFlatFileItemWriter<SystemFailure> writeBehindFlatItemWriter(@Value("#{jobParameters['filePath']}") String filePath,
+                                                                                  @Value("#{jobParameters['blockSize']}") Integer blockSize,
+                                                                                  @Value("#{jobParameters['bufferCount']}") Integer bufferCount,
+                                                                                  @Value("#{jobParameters['forceSync']}") Boolean forceSync) {
+        DelimitedLineAggregator<SystemFailure> lineAggregator = new DelimitedLineAggregator<>();
+        lineAggregator.setDelimiter(",");
+        lineAggregator.setFieldExtractor(CompiledFieldExtractorFactory.create(SystemFailure.class,
+                "errorId", "errorDateTime", "severity", "processId", "errorMessage"));
+
+        WriteBehindFlatFileItemWriter<SystemFailure> writer = new WriteBehindFlatFileItemWriter<>();
+        writer.setName("writeBehindFlatItemWriter");
+        writer.setResource(new FileSystemResource(filePath + "/8.csv"));
+        writer.setLineAggregator(lineAggregator);
+        writer.setHeaderCallback(headerWriter -> headerWriter.write("에러ID,발생시각,심각도,프로세스ID,에러메시지"));
+        writer.setBlockSize(blockSize != null ? blockSize : WriteBehindFlatFileItemWriter.DEFAULT_BLOCK_SIZE);
+        writer.setBufferCount(bufferCount != null ? bufferCount : 4);
+        writer.setForceSync(forceSync != null && forceSync);
+        return writer;
+    }
+
     @Getter
     @Setter
     @ToString
@@ -0,0 +1,15 @@
+package com.batch.chapter03.flatitemwriter.support;
+
+import org.springframework.batch.item.file.transform.LineAggregator;
+
+/*
+아이템 한 건을 String 대신 UTF-8 바이트로 바로 만드는 LineAggregator
+    ChannelFlatFileItemWriter는 lineAggregator가 이 인터페이스를 구현하고 인코딩이 UTF-8이면
+    aggregate(item, line)으로 받은 바이트를 그대로 채널 버퍼에 옮기고 CharsetEncoder를 거치지 않는다.
+    그 밖의 writer에서는 LineAggregator로 동작한다.
+
+    라인 구분자는 writer가 붙이므로 line에는 라인 내용만 붙인다.
+*/
+public interface ByteLineAggregator<T> extends LineAggregator<T> {
+    void aggregate(T item, Utf8LineBuffer line);
+}
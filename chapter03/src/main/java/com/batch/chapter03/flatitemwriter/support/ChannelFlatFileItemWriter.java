@@ -0,0 +1,348 @@
+package com.batch.chapter03.flatitemwriter.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.file.FlatFileFooterCallback;
+import org.springframework.batch.item.file.FlatFileHeaderCallback;
+import org.springframework.batch.item.file.transform.LineAggregator;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+FlatFileItemWriter를 FileChannel에 직접 쓰는 방식으로 바꾼 ItemWriter
+    FlatFileItemWriter는 청크 전체를 StringBuilder 하나로 이어붙인 뒤 Writer -> 인코더 -> 힙 버퍼 -> FileChannel 순서로 쓴다.
+    이 writer는 라인마다 CharsetEncoder로 재사용하는 다이렉트 ByteBuffer에 바로 인코딩하고,
+    청크가 끝나면 채워진 버퍼들을 한 번의 gathering write(FileChannel.write(ByteBuffer[]))로 쓴다.
+    버퍼 풀은 가장 큰 청크에 맞춰 늘어난 뒤 계속 재사용된다.
+    lineAggregator가 ByteLineAggregator(Utf8LineAggregator 등)이고 인코딩이 UTF-8이면 String과 CharsetEncoder를 거치지 않고
+    aggregator가 만든 UTF-8 바이트를 그대로 버퍼에 옮긴다.
+
+    동기화 정책 (SyncPolicy)
+        EVERY_COMMIT: 커밋(update())마다 force(). FlatFileItemWriter의 forceSync(true)와 같다.
+        EVERY_N_COMMITS: syncInterval번째 커밋마다 force().
+        ON_CLOSE: close()에서만 force().
+        force()하지 않은 커밋은 프로세스가 죽어도 OS 페이지 캐시에 남아 있지만, OS/전원 장애에서는 사라질 수 있다.
+        그 경우 파일이 저장된 위치보다 짧아지므로 재시작 시 open()에서 예외가 발생한다. (잃어버린 커밋을 조용히 건너뛰지 않는다)
+
+    재시작
+        FlatFileItemWriter와 같이 update()에서 바이트 위치를 저장하고, 재시작 시 그 뒤(커밋되지 않은 청크)를 잘라낸 뒤 이어서 쓴다.
+        헤더는 새 파일에만 쓰고, 푸터는 close()에서 쓴다.
+        트랜잭션에 맞춰 쓰기를 미루지 않으므로 청크 재시도/스킵(faultTolerant)이 없는 스텝에서 사용한다.
+*/
+@Slf4j
+public class ChannelFlatFileItemWriter<T> extends ItemStreamSupport implements ItemStreamWriter<T> {
+    private static final String POSITION = "position";
+    private static final String WRITTEN = "written";
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    public enum SyncPolicy {
+        EVERY_COMMIT, EVERY_N_COMMITS, ON_CLOSE
+    }
+
+    private Resource resource;
+    private LineAggregator<T> lineAggregator;
+    private Charset charset = StandardCharsets.UTF_8;
+    private String lineSeparator = System.lineSeparator();
+    private FlatFileHeaderCallback headerCallback;
+    private FlatFileFooterCallback footerCallback;
+    private SyncPolicy syncPolicy = SyncPolicy.EVERY_COMMIT;
+    private int syncInterval = 1;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private boolean saveState = true;
+
+    private CharsetEncoder encoder;
+    private CharBuffer separatorChars;
+    private ByteLineAggregator<T> byteLineAggregator;
+    private Utf8LineBuffer line;
+    private byte[] separatorBytes;
+    private ByteBuffer[] buffers = new ByteBuffer[0];
+    private int current;
+    private FileChannel channel;
+    private long position;
+    private long written;
+    private int unsyncedCommits;
+    private boolean dirty;
+
+    public void setResource(Resource resource) {
+        this.resource = resource;
+    }
+
+    public void setLineAggregator(LineAggregator<T> lineAggregator) {
+        this.lineAggregator = lineAggregator;
+    }
+
+    public void setEncoding(String encoding) {
+        this.charset = Charset.forName(encoding);
+    }
+
+    public void setLineSeparator(String lineSeparator) {
+        this.lineSeparator = lineSeparator;
+    }
+
+    public void setHeaderCallback(FlatFileHeaderCallback headerCallback) {
+        this.headerCallback = headerCallback;
+    }
+
+    public void setFooterCallback(FlatFileFooterCallback footerCallback) {
+        this.footerCallback = footerCallback;
+    }
+
+    public void setSyncPolicy(SyncPolicy syncPolicy) {
+        this.syncPolicy = syncPolicy;
+    }
+
+    //EVERY_N_COMMITS에서 force()할 커밋 간격
+    public void setSyncInterval(int syncInterval) {
+        Assert.isTrue(syncInterval > 0, "syncInterval은 0보다 커야 합니다.");
+        this.syncInterval = syncInterval;
+    }
+
+    //다이렉트 버퍼 하나의 크기. 한 라인이 이보다 길면 여러 버퍼에 나눠 인코딩된다.
+    public void setBufferSize(int bufferSize) {
+        Assert.isTrue(bufferSize > 0, "bufferSize는 0보다 커야 합니다.");
+        this.bufferSize = bufferSize;
+    }
+
+    public void setSaveState(boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    //지금까지 파일에 쓴 바이트 수 (헤더 포함)
+    public long getPosition() {
+        return position;
+    }
+
+    //지금까지 쓴 아이템 수
+    public long getWritten() {
+        return written;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        Assert.notNull(resource, "resource가 필요합니다.");
+        Assert.notNull(lineAggregator, "lineAggregator가 필요합니다.");
+
+        encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        separatorChars = CharBuffer.wrap(lineSeparator);
+        if(lineAggregator instanceof ByteLineAggregator<T> aggregator && StandardCharsets.UTF_8.equals(charset)) {
+            byteLineAggregator = aggregator;
+            line = new Utf8LineBuffer();
+            separatorBytes = Utf8LineBuffer.encode(lineSeparator);
+        } else {
+            byteLineAggregator = null;
+        }
+        unsyncedCommits = 0;
+        dirty = false;
+
+        try {
+            Path path = resource.getFile().toPath();
+            if(saveState && executionContext.containsKey(getExecutionContextKey(POSITION))) {
+                position = executionContext.getLong(getExecutionContextKey(POSITION));
+                written = executionContext.getLong(getExecutionContextKey(WRITTEN));
+                channel = FileChannel.open(path, StandardOpenOption.WRITE);
+                if(channel.size() < position) {
+                    throw new ItemStreamException("파일 크기(" + channel.size() + ")가 마지막 커밋 위치(" + position + ")보다 작습니다. "
+                            + "동기화되지 않은 커밋이 유실되었을 수 있습니다: " + resource.getDescription());
+                }
+                channel.truncate(position);
+                channel.position(position);
+                log.info("{} 바이트 위치부터 이어서 씁니다. (written={})", position, written);
+                return;
+            }
+
+            if(path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            position = 0;
+            written = 0;
+
+            if(headerCallback != null) {
+                StringWriter header = new StringWriter();
+                headerCallback.writeHeader(header);
+                if(header.getBuffer().length() > 0) {
+                    encode(header.getBuffer());
+                    encode(separatorChars.rewind());
+                    flush();
+                }
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("출력 파일을 열 수 없습니다: " + resource.getDescription(), e);
+        }
+    }
+
+    @Override
+    public void write(Chunk<? extends T> chunk) throws Exception {
+        //프로세서가 모든 아이템을 걸러도 write()는 빈 청크로 호출된다.
+        if(chunk.isEmpty()) {
+            return;
+        }
+        try {
+            for(T item : chunk) {
+                if(byteLineAggregator != null) {
+                    line.clear();
+                    byteLineAggregator.aggregate(item, line);
+                    line.append(separatorBytes);
+                    put(line);
+                } else {
+                    encode(lineAggregator.aggregate(item));
+                    encode(separatorChars.rewind());
+                }
+            }
+        } catch (RuntimeException e) {
+            //청크 일부만 인코딩된 내용은 버린다.
+            discard();
+            throw e;
+        }
+        flush();
+        written += chunk.size();
+    }
+
+    //현재 버퍼에 인코딩하고, 가득 차면 풀의 다음 버퍼로 넘어간다.
+    private void encode(CharSequence chars) {
+        CharBuffer in = chars instanceof CharBuffer buffer ? buffer : CharBuffer.wrap(chars);
+        encoder.reset();
+        ByteBuffer out = buffer(current);
+        while(true) {
+            CoderResult result = encoder.encode(in, out, true);
+            if(result.isOverflow()) {
+                out = buffer(++current);
+                continue;
+            }
+            result = encoder.flush(out);
+            if(result.isOverflow()) {
+                out = buffer(++current);
+                continue;
+            }
+            return;
+        }
+    }
+
+    //이미 UTF-8로 인코딩된 라인을 현재 버퍼에 옮기고, 가득 차면 풀의 다음 버퍼로 넘어간다.
+    private void put(Utf8LineBuffer bytes) {
+        ByteBuffer out = buffer(current);
+        int offset = bytes.copyTo(0, out);
+        while(offset < bytes.length()) {
+            out = buffer(++current);
+            offset += bytes.copyTo(offset, out);
+        }
+    }
+
+    private ByteBuffer buffer(int index) {
+        if(index == buffers.length) {
+            buffers = Arrays.copyOf(buffers, index + 1);
+            buffers[index] = ByteBuffer.allocateDirect(bufferSize);
+        }
+        return buffers[index];
+    }
+
+    //채워진 버퍼를 gathering write로 모두 쓰고 비운다. 아직 아무것도 인코딩하지 않았으면 풀이 비어 있을 수 있다.
+    private void flush() throws IOException {
+        int count = Math.min(current + 1, buffers.length);
+        long remaining = 0;
+        for(int i = 0; i < count; i++) {
+            remaining += buffers[i].flip().remaining();
+        }
+        while(remaining > 0) {
+            long bytes = channel.write(buffers, 0, count);
+            position += bytes;
+            remaining -= bytes;
+        }
+        discard();
+        dirty = true;
+    }
+
+    private void discard() {
+        for(int i = 0; i <= current && i < buffers.length; i++) {
+            buffers[i].clear();
+        }
+        current = 0;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if(channel == null) {
+            return;
+        }
+        if(dirty && shouldSync()) {
+            sync();
+        }
+        if(saveState) {
+            executionContext.putLong(getExecutionContextKey(POSITION), position);
+            executionContext.putLong(getExecutionContextKey(WRITTEN), written);
+        }
+    }
+
+    private boolean shouldSync() {
+        return switch(syncPolicy) {
+            case EVERY_COMMIT -> true;
+            case EVERY_N_COMMITS -> ++unsyncedCommits >= syncInterval;
+            case ON_CLOSE -> false;
+        };
+    }
+
+    private void sync() {
+        try {
+            channel.force(false);
+            unsyncedCommits = 0;
+            dirty = false;
+        } catch (IOException e) {
+            throw new ItemStreamException("출력 파일을 디스크에 기록할 수 없습니다: " + resource.getDescription(), e);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if(channel == null) {
+            return;
+        }
+        try {
+            if(footerCallback != null) {
+                StringWriter footer = new StringWriter();
+                footerCallback.writeFooter(footer);
+                if(footer.getBuffer().length() > 0) {
+                    encode(footer.getBuffer());
+                    encode(separatorChars.rewind());
+                    flush();
+                }
+            }
+            if(dirty) {
+                sync();
+            }
+            log.info("{} 라인, {} 바이트를 썼습니다: {}", written, position, resource.getDescription());
+        } catch (IOException e) {
+            throw new ItemStreamException("출력 파일을 마무리할 수 없습니다: " + resource.getDescription(), e);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("출력 파일을 닫는 중 오류가 발생했습니다.", e);
+            }
+            channel = null;
+            buffers = new ByteBuffer[0];
+            current = 0;
+        }
+    }
+}
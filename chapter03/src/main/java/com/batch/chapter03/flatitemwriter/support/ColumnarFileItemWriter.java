@@ -0,0 +1,478 @@
+package com.batch.chapter03.flatitemwriter.support;
+
+import com.batch.chapter03.flatitemwriter.support.ColumnarFormat.RowGroup;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.file.transform.FieldExtractor;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+아이템을 컬럼 단위로 모아 로우 그룹마다 인코딩해 쓰는 컬럼형 파일 ItemWriter (Parquet 방식, 형식은 ColumnarFormat 참고)
+    CSV는 분석 엔진에 적재할 때 텍스트를 다시 파싱해야 하고, 같은 값(심각도, 프로세스ID)이 행마다 반복되어 크기도 크다.
+    이 writer는 fieldExtractor로 꺼낸 값을 컬럼별 버퍼에 모았다가 rowGroupSize행마다 컬럼 청크로 인코딩한다.
+        문자열 컬럼: 사전 인코딩(값 종류가 적을 때) 또는 PLAIN 중 작은 쪽
+        정수 컬럼: 최솟값을 뺀 값을 RLE/비트 패킹 하이브리드로
+        각 컬럼 청크는 deflate로 한 번 더 압축한다. (줄어들 때만)
+    컬럼 청크는 따로 떨어져 있으므로 ColumnarFileReader로 필요한 컬럼만 읽을 수 있다.
+
+    로우 그룹은 청크(커밋)를 넘어 여러 청크의 행으로 채워진다.
+    커밋된 행이 메모리에만 있으면 프로세스가 죽었을 때 사라지므로, update()(커밋 직전)마다 아직 로우 그룹에 들어가지 않은 새 행을
+    저널 파일(<출력 파일>.journal-<로우 그룹 번호>)에 이어 쓰고 force()한다. 로우 그룹은 update()에서만 파일에 쓴다.
+
+    재시작
+        ExecutionContext에 마지막 로우 그룹의 끝 위치(position), 로우 그룹 수, 저널 길이를 저장한다.
+        재시작 시 출력 파일을 position 뒤로 잘라내고 로우 그룹 헤더를 훑어 위치를 다시 만든 뒤, 저널의 커밋된 행을 버퍼로 다시 읽는다.
+        로우 그룹을 쓴 update()의 커밋이 실패해도 이전 저널이 남아 있도록, 이전 저널은 다음 update()(이전 커밋이 끝난 뒤)에 지운다.
+
+    푸터
+        스텝이 COMPLETED로 끝나면 afterStep()에서 남은 커밋된 행을 마지막 로우 그룹으로 쓰고 푸터를 붙인 뒤 저널을 지운다.
+        이때 실패하면 스텝을 FAILED로 바꾸므로 저널에서 재시작할 수 있다.
+        실패한 스텝에서는 푸터를 쓰지 않고 저널을 남겨 둔다. (푸터가 없는 파일은 ColumnarFileReader가 읽지 않는다)
+        스텝 빌더는 writer가 StepExecutionListener를 구현하면 리스너로 등록하므로 따로 등록할 필요가 없다.
+
+    ChannelFlatFileItemWriter와 같이 트랜잭션에 맞춰 쓰기를 되돌리지 않으므로 청크 재시도/스킵(faultTolerant)이 없는 스텝에서 사용한다.
+*/
+@Slf4j
+public class ColumnarFileItemWriter<T> extends ItemStreamSupport implements ItemStreamWriter<T>, StepExecutionListener {
+    private static final String POSITION = "position";
+    private static final String ROW_GROUP_COUNT = "row.group.count";
+    private static final String JOURNAL_LENGTH = "journal.length";
+    private static final String WRITTEN = "written";
+
+    public static final int DEFAULT_ROW_GROUP_SIZE = 64 * 1024;
+
+    public enum ColumnType {
+        STRING, INT32, INT64
+    }
+
+    private Resource resource;
+    private FieldExtractor<T> fieldExtractor;
+    private String[] names;
+    private ColumnType[] types;
+    private int rowGroupSize = DEFAULT_ROW_GROUP_SIZE;
+    private int maxDictionarySize = 64 * 1024;
+    private boolean deflate = true;
+    private boolean saveState = true;
+
+    private Path path;
+    private FileChannel channel;
+    private FileChannel journal;
+    private Path journalPath;
+    private Path staleJournalPath;
+    private long position;
+    private long journalLength;
+    private long written;
+    private List<Object>[] columns;
+    //버퍼의 행 중 저널에 쓴(커밋된) 행 수
+    private int journaledRows;
+    private final List<RowGroup> rowGroups = new ArrayList<>();
+    private boolean completed;
+
+    public void setResource(Resource resource) {
+        this.resource = resource;
+    }
+
+    public void setFieldExtractor(FieldExtractor<T> fieldExtractor) {
+        this.fieldExtractor = fieldExtractor;
+    }
+
+    //fieldExtractor가 꺼내는 값의 순서대로 컬럼 이름을 지정한다.
+    public void setNames(String... names) {
+        this.names = names;
+    }
+
+    //names와 같은 순서의 컬럼 타입. INT32는 Integer/Short/Byte, INT64는 Long까지 받는다.
+    public void setTypes(ColumnType... types) {
+        this.types = types;
+    }
+
+    //로우 그룹 하나의 행 수. 클수록 압축이 잘 되지만 버퍼(메모리)와 저널이 커진다.
+    public void setRowGroupSize(int rowGroupSize) {
+        Assert.isTrue(rowGroupSize > 0, "rowGroupSize는 0보다 커야 합니다.");
+        this.rowGroupSize = rowGroupSize;
+    }
+
+    //로우 그룹 안의 값 종류가 이보다 많은 문자열 컬럼은 사전 인코딩하지 않는다.
+    public void setMaxDictionarySize(int maxDictionarySize) {
+        Assert.isTrue(maxDictionarySize > 0, "maxDictionarySize는 0보다 커야 합니다.");
+        this.maxDictionarySize = maxDictionarySize;
+    }
+
+    public void setDeflate(boolean deflate) {
+        this.deflate = deflate;
+    }
+
+    public void setSaveState(boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        Assert.notNull(resource, "resource가 필요합니다.");
+        Assert.notNull(fieldExtractor, "fieldExtractor가 필요합니다.");
+        Assert.notNull(names, "names가 필요합니다.");
+        Assert.isTrue(types != null && types.length == names.length, "types는 names와 같은 수만큼 지정해야 합니다.");
+
+        columns = new List[names.length];
+        for(int c = 0; c < columns.length; c++) {
+            columns[c] = new ArrayList<>();
+        }
+        rowGroups.clear();
+        journaledRows = 0;
+        staleJournalPath = null;
+        completed = false;
+
+        try {
+            path = resource.getFile().toPath().toAbsolutePath();
+            if(saveState && executionContext.containsKey(getExecutionContextKey(POSITION))) {
+                restore(executionContext);
+                return;
+            }
+
+            Files.createDirectories(path.getParent());
+            deleteJournals(-1);
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            position = 0;
+            writeFully(ByteBuffer.wrap(ColumnarFormat.MAGIC));
+            written = 0;
+            openJournal(0, 0);
+        } catch (IOException e) {
+            throw new ItemStreamException("출력 파일을 열 수 없습니다: " + resource.getDescription(), e);
+        }
+    }
+
+    private void restore(ExecutionContext executionContext) throws IOException {
+        position = executionContext.getLong(getExecutionContextKey(POSITION));
+        int rowGroupCount = executionContext.getInt(getExecutionContextKey(ROW_GROUP_COUNT));
+        long savedJournalLength = executionContext.getLong(getExecutionContextKey(JOURNAL_LENGTH));
+        written = executionContext.getLong(getExecutionContextKey(WRITTEN));
+
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if(channel.size() < position) {
+            throw new ItemStreamException("파일 크기(" + channel.size() + ")가 마지막 커밋 위치(" + position + ")보다 작습니다: " + resource.getDescription());
+        }
+        channel.truncate(position);
+
+        //로우 그룹 헤더를 훑어 푸터에 쓸 위치를 다시 만든다.
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0))));
+        byte[] magic = in.readNBytes(ColumnarFormat.MAGIC.length);
+        if(!Arrays.equals(magic, ColumnarFormat.MAGIC)) {
+            throw new ItemStreamException("컬럼형 파일이 아닙니다: " + resource.getDescription());
+        }
+        long offset = ColumnarFormat.MAGIC.length;
+        while(offset < position) {
+            RowGroup rowGroup = ColumnarFormat.readRowGroup(in, offset, names.length);
+            rowGroups.add(rowGroup);
+            offset = rowGroup.end();
+        }
+        if(offset != position || rowGroups.size() != rowGroupCount) {
+            throw new ItemStreamException("로우 그룹이 저장된 상태와 맞지 않습니다. (로우 그룹 " + rowGroups.size() + "/" + rowGroupCount + "): " + resource.getDescription());
+        }
+        channel.position(position);
+
+        openJournal(rowGroupCount, savedJournalLength);
+        readJournal();
+        deleteJournals(rowGroupCount);
+        log.info("로우 그룹 {}개 뒤, 저널의 {}행부터 이어서 씁니다. (written={})", rowGroupCount, journaledRows, written);
+    }
+
+    @Override
+    public void write(Chunk<? extends T> chunk) throws Exception {
+        int start = bufferedRows();
+        try {
+            for(T item : chunk) {
+                Object[] fields = fieldExtractor.extract(item);
+                Assert.state(fields.length == names.length, () -> "필드 수(" + fields.length + ")가 컬럼 수(" + names.length + ")와 다릅니다.");
+                for(int c = 0; c < names.length; c++) {
+                    columns[c].add(convert(c, fields[c]));
+                }
+            }
+        } catch (RuntimeException e) {
+            //청크 일부만 버퍼에 들어간 행은 버린다.
+            truncateBuffer(start);
+            throw e;
+        }
+        written += chunk.size();
+    }
+
+    private Object convert(int column, Object value) {
+        if(value == null) {
+            return null;
+        }
+        return switch(types[column]) {
+            case STRING -> value.toString();
+            case INT32 -> {
+                if(value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                    yield ((Number) value).intValue();
+                }
+                throw new IllegalArgumentException(names[column] + " 컬럼(INT32)에 " + value.getClass().getName() + " 값을 쓸 수 없습니다.");
+            }
+            case INT64 -> {
+                if(value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                    yield ((Number) value).longValue();
+                }
+                throw new IllegalArgumentException(names[column] + " 컬럼(INT64)에 " + value.getClass().getName() + " 값을 쓸 수 없습니다.");
+            }
+        };
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if(channel == null) {
+            return;
+        }
+        try {
+            //이 update()가 호출되었다면 이전 update()의 커밋은 끝났다.
+            if(staleJournalPath != null) {
+                Files.deleteIfExists(staleJournalPath);
+                staleJournalPath = null;
+            }
+
+            if(bufferedRows() >= rowGroupSize) {
+                int from = 0;
+                while(bufferedRows() - from >= rowGroupSize) {
+                    writeRowGroup(from, from + rowGroupSize);
+                    from += rowGroupSize;
+                }
+                channel.force(false);
+                truncateBufferHead(from);
+
+                //남은 행은 새 로우 그룹 번호의 저널에 처음부터 다시 쓴다.
+                journal.close();
+                staleJournalPath = journalPath;
+                openJournal(rowGroups.size(), 0);
+                journaledRows = 0;
+            }
+            appendJournal(journaledRows, bufferedRows());
+            journal.force(false);
+            journaledRows = bufferedRows();
+        } catch (IOException e) {
+            throw new ItemStreamException("로우 그룹/저널을 쓸 수 없습니다: " + resource.getDescription(), e);
+        }
+
+        if(saveState) {
+            executionContext.putLong(getExecutionContextKey(POSITION), position);
+            executionContext.putInt(getExecutionContextKey(ROW_GROUP_COUNT), rowGroups.size());
+            executionContext.putLong(getExecutionContextKey(JOURNAL_LENGTH), journalLength);
+            executionContext.putLong(getExecutionContextKey(WRITTEN), written);
+        }
+    }
+
+    private void writeRowGroup(int from, int to) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[names.length + 1];
+        buffers[0] = ByteBuffer.allocate(4).putInt(0, to - from);
+        long[] columnOffsets = new long[names.length];
+        long offset = position + 4;
+        for(int c = 0; c < names.length; c++) {
+            byte[] chunk = ColumnarFormat.encodeColumn(types[c], columns[c], from, to, maxDictionarySize, deflate);
+            columnOffsets[c] = offset;
+            offset += chunk.length;
+            buffers[c + 1] = ByteBuffer.wrap(chunk);
+        }
+
+        long remaining = offset - position;
+        while(remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+        rowGroups.add(new RowGroup(to - from, columnOffsets, offset));
+        position = offset;
+    }
+
+    /*
+    스텝이 COMPLETED면 남은 커밋된 행을 마지막 로우 그룹으로 쓰고 푸터를 붙인 뒤 저널을 지운다.
+        close()는 스텝이 COMPLETED로 저장된 뒤에 호출되므로 거기서 실패하면 푸터 없는 파일을 재시작할 수도 없다.
+        afterStep()은 스텝 상태가 저장되기 전에 호출되므로, 실패하면 스텝을 FAILED로 바꿔 저널에서 재시작할 수 있게 한다.
+    */
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        if(channel == null || stepExecution.getStatus() != BatchStatus.COMPLETED) {
+            return null;
+        }
+        try {
+            //마지막 update() 뒤에 버퍼에 들어온 행은 커밋되지 않았으므로 쓰지 않는다.
+            if(journaledRows > 0) {
+                writeRowGroup(0, journaledRows);
+            }
+            writeFooter();
+            channel.force(false);
+            journal.close();
+            deleteJournals(-1);
+            completed = true;
+            log.info("{}행을 로우 그룹 {}개로 썼습니다: {} ({} 바이트)", written, rowGroups.size(), resource.getDescription(), position);
+            return null;
+        } catch (IOException | RuntimeException e) {
+            log.error("출력 파일을 마무리할 수 없습니다. 재시작하면 마지막 커밋 위치부터 다시 씁니다: {}", resource.getDescription(), e);
+            stepExecution.setStatus(BatchStatus.FAILED);
+            stepExecution.addFailureException(e);
+            return ExitStatus.FAILED.addExitDescription(e);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if(channel == null) {
+            return;
+        }
+        if(!completed) {
+            log.info("스텝이 완료되지 않아 푸터를 쓰지 않습니다. 재시작하면 마지막 커밋 위치부터 이어서 씁니다: {}", resource.getDescription());
+        }
+        try {
+            channel.close();
+            journal.close();
+        } catch (IOException e) {
+            log.warn("출력 파일을 닫는 중 오류가 발생했습니다.", e);
+        }
+        channel = null;
+        journal = null;
+        columns = null;
+        rowGroups.clear();
+    }
+
+    private void writeFooter() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(names.length);
+        for(int c = 0; c < names.length; c++) {
+            out.writeUTF(names[c]);
+            out.writeByte(types[c].ordinal());
+        }
+        out.writeInt(rowGroups.size());
+        for(RowGroup rowGroup : rowGroups) {
+            out.writeInt(rowGroup.rowCount());
+            for(long columnOffset : rowGroup.columnOffsets()) {
+                out.writeLong(columnOffset);
+            }
+        }
+        int footerLength = bytes.size();
+        out.writeInt(footerLength);
+        out.write(ColumnarFormat.MAGIC);
+        writeFully(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    //저널 행: 컬럼마다 null 여부(byte)와 값 (STRING: 길이(int) + UTF-8, INT32: int, INT64: long)
+    private void appendJournal(int from, int to) throws IOException {
+        if(from == to) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for(int row = from; row < to; row++) {
+            for(int c = 0; c < names.length; c++) {
+                Object value = columns[c].get(row);
+                out.writeBoolean(value != null);
+                if(value == null) {
+                    continue;
+                }
+                switch(types[c]) {
+                    case STRING -> {
+                        byte[] utf8 = ((String) value).getBytes(StandardCharsets.UTF_8);
+                        out.writeInt(utf8.length);
+                        out.write(utf8);
+                    }
+                    case INT32 -> out.writeInt((Integer) value);
+                    case INT64 -> out.writeLong((Long) value);
+                }
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        while(buffer.hasRemaining()) {
+            journalLength += journal.write(buffer, journalLength);
+        }
+    }
+
+    private void readJournal() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(journalLength));
+        while(buffer.hasRemaining()) {
+            if(journal.read(buffer, buffer.position()) < 0) {
+                throw new ItemStreamException("저널이 저장된 길이(" + journalLength + ")보다 짧습니다: " + journalPath);
+            }
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+        while(in.available() > 0) {
+            for(int c = 0; c < names.length; c++) {
+                if(!in.readBoolean()) {
+                    columns[c].add(null);
+                    continue;
+                }
+                columns[c].add(switch(types[c]) {
+                    case STRING -> new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+                    case INT32 -> in.readInt();
+                    case INT64 -> in.readLong();
+                });
+            }
+        }
+        journaledRows = bufferedRows();
+    }
+
+    private void openJournal(int rowGroupIndex, long length) throws IOException {
+        journalPath = path.resolveSibling(path.getFileName() + ".journal-" + rowGroupIndex);
+        journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if(journal.size() < length) {
+            throw new ItemStreamException("저널 크기(" + journal.size() + ")가 마지막 커밋 위치(" + length + ")보다 작습니다: " + journalPath);
+        }
+        journal.truncate(length);
+        journalLength = length;
+    }
+
+    //keep 번호 외의 저널 파일을 지운다. (-1이면 모두)
+    private void deleteJournals(int keep) throws IOException {
+        String prefix = path.getFileName() + ".journal-";
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(path.getParent(), prefix + "*")) {
+            for(Path file : stream) {
+                if(!file.getFileName().toString().equals(prefix + keep)) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private int bufferedRows() {
+        return columns[0].size();
+    }
+
+    private void truncateBuffer(int rows) {
+        for(List<Object> column : columns) {
+            column.subList(rows, column.size()).clear();
+        }
+    }
+
+    private void truncateBufferHead(int rows) {
+        for(List<Object> column : columns) {
+            column.subList(0, rows).clear();
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+    }
+}
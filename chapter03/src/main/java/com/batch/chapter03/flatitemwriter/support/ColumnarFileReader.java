@@ -0,0 +1,126 @@
+package com.batch.chapter03.flatitemwriter.support;
+
+import com.batch.chapter03.flatitemwriter.support.ColumnarFileItemWriter.ColumnType;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ColumnarFileItemWriter가 쓴 파일을 컬럼 단위로 읽는 최소한의 리더
+    파일 끝의 푸터에서 컬럼 이름/타입과 로우 그룹별 컬럼 청크 위치를 읽고,
+    readColumn()은 요청한 로우 그룹의 컬럼 청크 하나만 읽어 디코딩하므로 다른 컬럼의 바이트는 읽지 않는다.
+    푸터가 없는 파일(완료되지 않은 스텝의 출력)은 열지 않는다.
+*/
+public class ColumnarFileReader implements AutoCloseable {
+    private final FileChannel channel;
+    private final String[] names;
+    private final ColumnType[] types;
+    private final int[] rowCounts;
+    private final long[][] columnOffsets;
+
+    public ColumnarFileReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            int tailLength = 4 + ColumnarFormat.MAGIC.length;
+            if(size < ColumnarFormat.MAGIC.length + tailLength) {
+                throw new IOException("컬럼형 파일이 아니거나 푸터가 없습니다: " + path);
+            }
+            ByteBuffer tail = read(size - tailLength, tailLength);
+            byte[] magic = Arrays.copyOfRange(tail.array(), 4, tailLength);
+            if(!Arrays.equals(magic, ColumnarFormat.MAGIC)) {
+                throw new IOException("컬럼형 파일이 아니거나 푸터가 없습니다: " + path);
+            }
+            int footerLength = tail.getInt(0);
+
+            DataInputStream footer = new DataInputStream(new ByteArrayInputStream(read(size - tailLength - footerLength, footerLength).array()));
+            int columnCount = footer.readInt();
+            names = new String[columnCount];
+            types = new ColumnType[columnCount];
+            for(int c = 0; c < columnCount; c++) {
+                names[c] = footer.readUTF();
+                types[c] = ColumnType.values()[footer.readByte()];
+            }
+            int rowGroupCount = footer.readInt();
+            rowCounts = new int[rowGroupCount];
+            columnOffsets = new long[rowGroupCount][columnCount];
+            for(int g = 0; g < rowGroupCount; g++) {
+                rowCounts[g] = footer.readInt();
+                for(int c = 0; c < columnCount; c++) {
+                    columnOffsets[g][c] = footer.readLong();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public List<String> getNames() {
+        return List.of(names);
+    }
+
+    public ColumnType getType(String name) {
+        return types[indexOf(name)];
+    }
+
+    public int getRowGroupCount() {
+        return rowCounts.length;
+    }
+
+    public int getRowCount(int rowGroup) {
+        return rowCounts[rowGroup];
+    }
+
+    public long getRowCount() {
+        long total = 0;
+        for(int rowCount : rowCounts) {
+            total += rowCount;
+        }
+        return total;
+    }
+
+    //로우 그룹 하나의 컬럼 값 (STRING은 String, INT32는 Integer, INT64는 Long, 값이 없으면 null)
+    public Object[] readColumn(int rowGroup, String name) throws IOException {
+        int column = indexOf(name);
+        long offset = columnOffsets[rowGroup][column];
+        ByteBuffer header = read(offset, 10);
+        byte encoding = header.get(0);
+        byte codec = header.get(1);
+        int uncompressedLength = header.getInt(2);
+        int length = header.getInt(6);
+        byte[] stored = read(offset + 10, length).array();
+        return ColumnarFormat.decodeColumn(types[column], encoding, codec, uncompressedLength, stored, rowCounts[rowGroup]);
+    }
+
+    private int indexOf(String name) {
+        for(int c = 0; c < names.length; c++) {
+            if(names[c].equals(name)) {
+                return c;
+            }
+        }
+        throw new IllegalArgumentException("컬럼이 없습니다: " + name + " (컬럼: " + Arrays.toString(names) + ")");
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("파일이 중간에 끝났습니다. (offset: " + position + ")");
+            }
+        }
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
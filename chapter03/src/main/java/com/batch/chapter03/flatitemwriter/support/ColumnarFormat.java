@@ -0,0 +1,433 @@
+package com.batch.chapter03.flatitemwriter.support;
+
+import com.batch.chapter03.flatitemwriter.support.ColumnarFileItemWriter.ColumnType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/*
+ColumnarFileItemWriter와 ColumnarFileReader가 함께 쓰는 파일 형식과 인코딩 (Parquet의 구성을 단순화한 것)
+
+    파일
+        MAGIC(4) | 로우 그룹 ... | 푸터 | 푸터 길이(int) | MAGIC(4)
+    로우 그룹
+        행 수(int) | 컬럼 청크 ... (컬럼 순서대로)
+    컬럼 청크
+        인코딩(byte) | 압축(byte) | 압축 전 길이(int) | 길이(int) | 데이터
+        로우 그룹마다 헤더가 있으므로 푸터 없이 앞에서부터 훑어도 로우 그룹 위치를 다시 만들 수 있다. (재시작 시 사용)
+    푸터
+        컬럼 수(int) | (이름(UTF), 타입(byte)) ... | 로우 그룹 수(int) | (행 수(int), 컬럼마다 데이터 오프셋(long)) ...
+
+    컬럼 데이터 (압축 전)
+        null 수(varint) | null이 있으면 정의 레벨(값 있음 1, null 0)을 비트 폭 1의 RLE/비트 패킹 하이브리드로 | null이 아닌 값
+        PLAIN (문자열): 값마다 길이(varint) + UTF-8 바이트
+        DICTIONARY (문자열): 사전 크기(varint) | 사전 항목(길이 + UTF-8) | 비트 폭(byte) | 사전 인덱스의 RLE/비트 패킹 하이브리드
+        RLE_BIT_PACKED (정수): 최솟값(zigzag varint) | 비트 폭(byte) | (값 - 최솟값)의 RLE/비트 패킹 하이브리드
+
+    RLE/비트 패킹 하이브리드 (Parquet과 같은 방식)
+        같은 값이 8개 이상 이어지면 RLE 런: 헤더 varint(개수 << 1) | 값(비트 폭을 바이트로 올림한 길이, 리틀 엔디언)
+        그 밖에는 8개씩 묶은 비트 패킹 그룹: 헤더 varint(그룹 수 << 1 | 1) | 그룹마다 비트 폭 바이트 (낮은 비트부터)
+        마지막 그룹의 남는 자리는 0으로 채우고, 읽는 쪽은 값 개수만큼만 읽는다.
+*/
+final class ColumnarFormat {
+    static final byte[] MAGIC = {'S', 'B', 'C', '1'};
+
+    static final byte PLAIN = 0;
+    static final byte DICTIONARY = 1;
+    static final byte RLE_BIT_PACKED = 2;
+
+    static final byte UNCOMPRESSED = 0;
+    static final byte DEFLATE = 1;
+
+    private ColumnarFormat() {
+    }
+
+    //컬럼 청크 (헤더 포함)
+    static byte[] encodeColumn(ColumnType type, List<Object> values, int from, int to, int maxDictionarySize, boolean deflate) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int rowCount = to - from;
+        int nullCount = 0;
+        for(int i = from; i < to; i++) {
+            if(values.get(i) == null) {
+                nullCount++;
+            }
+        }
+        writeVarint(bytes, nullCount);
+        if(nullCount > 0) {
+            long[] levels = new long[rowCount];
+            for(int i = 0; i < rowCount; i++) {
+                levels[i] = values.get(from + i) != null ? 1 : 0;
+            }
+            writeHybrid(bytes, levels, rowCount, 1);
+        }
+
+        byte encoding = type == ColumnType.STRING
+                ? encodeStrings(bytes, values, from, to, rowCount - nullCount, maxDictionarySize)
+                : encodeIntegers(bytes, values, from, to, rowCount - nullCount);
+
+        byte[] data = bytes.toByteArray();
+        byte codec = UNCOMPRESSED;
+        byte[] stored = data;
+        if(deflate) {
+            byte[] compressed = deflate(data);
+            if(compressed.length < data.length) {
+                codec = DEFLATE;
+                stored = compressed;
+            }
+        }
+
+        ByteArrayOutputStream chunk = new ByteArrayOutputStream(stored.length + 10);
+        DataOutputStream out = new DataOutputStream(chunk);
+        out.writeByte(encoding);
+        out.writeByte(codec);
+        out.writeInt(data.length);
+        out.writeInt(stored.length);
+        out.write(stored);
+        return chunk.toByteArray();
+    }
+
+    //사전 인코딩과 PLAIN 중 작은 쪽으로 쓴다.
+    private static byte encodeStrings(ByteArrayOutputStream out, List<Object> values, int from, int to, int count, int maxDictionarySize) {
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<byte[]> entries = new ArrayList<>();
+        long[] indices = new long[count];
+        long plainSize = 0;
+        long dictionarySize = 0;
+        int n = 0;
+        for(int i = from; i < to; i++) {
+            String value = (String) values.get(i);
+            if(value == null) {
+                continue;
+            }
+            Integer index = dictionary.get(value);
+            if(index == null) {
+                index = entries.size();
+                dictionary.put(value, index);
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                entries.add(utf8);
+                dictionarySize += utf8.length + varintSize(utf8.length);
+            }
+            int length = entries.get(index).length;
+            plainSize += length + varintSize(length);
+            indices[n++] = index;
+        }
+
+        int bitWidth = bitWidth(entries.size() - 1L);
+        if(!entries.isEmpty() && entries.size() <= maxDictionarySize && dictionarySize + ((long) count * bitWidth + 7) / 8 < plainSize) {
+            writeVarint(out, entries.size());
+            for(byte[] entry : entries) {
+                writeVarint(out, entry.length);
+                out.writeBytes(entry);
+            }
+            out.write(bitWidth);
+            writeHybrid(out, indices, count, bitWidth);
+            return DICTIONARY;
+        }
+
+        for(int i = 0; i < count; i++) {
+            byte[] utf8 = entries.get((int) indices[i]);
+            writeVarint(out, utf8.length);
+            out.writeBytes(utf8);
+        }
+        return PLAIN;
+    }
+
+    private static byte encodeIntegers(ByteArrayOutputStream out, List<Object> values, int from, int to, int count) {
+        long[] numbers = new long[count];
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        int n = 0;
+        for(int i = from; i < to; i++) {
+            Object value = values.get(i);
+            if(value != null) {
+                long number = ((Number) value).longValue();
+                numbers[n++] = number;
+                min = Math.min(min, number);
+                max = Math.max(max, number);
+            }
+        }
+        if(count == 0) {
+            min = 0;
+            max = 0;
+        }
+        //max - min이 long 범위를 넘어도 부호 없는 값으로 보면 맞다.
+        int bitWidth = bitWidth(max - min);
+        for(int i = 0; i < count; i++) {
+            numbers[i] -= min;
+        }
+        writeVarint(out, (min << 1) ^ (min >> 63));
+        out.write(bitWidth);
+        writeHybrid(out, numbers, count, bitWidth);
+        return RLE_BIT_PACKED;
+    }
+
+    //컬럼 청크의 데이터(헤더 뒤)를 읽어 행 수만큼의 값으로 되돌린다. null은 null, 정수는 타입에 맞는 Integer/Long
+    static Object[] decodeColumn(ColumnType type, byte encoding, byte codec, int uncompressedLength, byte[] stored, int rowCount) throws IOException {
+        byte[] data = codec == DEFLATE ? inflate(stored, uncompressedLength) : stored;
+        Reader in = new Reader(data);
+
+        int nullCount = (int) in.varint();
+        long[] levels = null;
+        if(nullCount > 0) {
+            levels = in.hybrid(rowCount, 1);
+        }
+        int count = rowCount - nullCount;
+        Object[] decoded = new Object[count];
+
+        switch(encoding) {
+            case PLAIN -> {
+                for(int i = 0; i < count; i++) {
+                    decoded[i] = in.string((int) in.varint());
+                }
+            }
+            case DICTIONARY -> {
+                String[] dictionary = new String[(int) in.varint()];
+                for(int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = in.string((int) in.varint());
+                }
+                long[] indices = in.hybrid(count, in.read());
+                for(int i = 0; i < count; i++) {
+                    decoded[i] = dictionary[(int) indices[i]];
+                }
+            }
+            case RLE_BIT_PACKED -> {
+                long zigzag = in.varint();
+                long min = (zigzag >>> 1) ^ -(zigzag & 1);
+                long[] deltas = in.hybrid(count, in.read());
+                for(int i = 0; i < count; i++) {
+                    long number = min + deltas[i];
+                    decoded[i] = type == ColumnType.INT32 ? (Object) (int) number : (Object) number;
+                }
+            }
+            default -> throw new IOException("알 수 없는 컬럼 인코딩입니다: " + encoding);
+        }
+
+        if(levels == null) {
+            return decoded;
+        }
+        Object[] column = new Object[rowCount];
+        for(int i = 0, n = 0; i < rowCount; i++) {
+            column[i] = levels[i] != 0 ? decoded[n++] : null;
+        }
+        return column;
+    }
+
+    //values[0, count)를 RLE/비트 패킹 하이브리드로 쓴다.
+    static void writeHybrid(ByteArrayOutputStream out, long[] values, int count, int bitWidth) {
+        int valueBytes = (bitWidth + 7) / 8;
+        int i = 0;
+        while(i < count) {
+            int run = runLength(values, i, count);
+            if(run >= 8) {
+                writeVarint(out, (long) run << 1);
+                for(int b = 0; b < valueBytes; b++) {
+                    out.write((int) (values[i] >>> (8 * b)));
+                }
+                i += run;
+                continue;
+            }
+
+            //다음 8개 이상 런이 시작되기 전까지를 8개 단위 그룹으로 비트 패킹한다.
+            int start = i;
+            int groups = 0;
+            do {
+                i = Math.min(i + 8, count);
+                groups++;
+            } while(i < count && runLength(values, i, count) < 8);
+
+            writeVarint(out, (long) groups << 1 | 1);
+            long buffer = 0;
+            int bits = 0;
+            for(int v = 0; v < groups * 8; v++) {
+                long value = start + v < i ? values[start + v] : 0;
+                for(int bit = 0; bit < bitWidth; bit++) {
+                    buffer |= (value >>> bit & 1) << bits;
+                    if(++bits == 8) {
+                        out.write((int) buffer);
+                        buffer = 0;
+                        bits = 0;
+                    }
+                }
+            }
+        }
+    }
+
+    private static int runLength(long[] values, int from, int count) {
+        int end = from + 1;
+        while(end < count && values[end] == values[from]) {
+            end++;
+        }
+        return end - from;
+    }
+
+    //부호 없는 value를 담는 데 필요한 비트 수
+    static int bitWidth(long value) {
+        return 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while((value & ~0x7fL) != 0) {
+            out.write((int) (value & 0x7f | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static int varintSize(long value) {
+        return Math.max(1, (bitWidth(value) + 6) / 7);
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] out = new byte[data.length / 2 + 64];
+            int length = 0;
+            while(!deflater.finished()) {
+                if(length == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                length += deflater.deflate(out, length, out.length - length);
+            }
+            return Arrays.copyOf(out, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] stored, int length) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored);
+            byte[] data = new byte[length];
+            int read = 0;
+            while(read < length && !inflater.finished()) {
+                int count = inflater.inflate(data, read, length - read);
+                if(count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += count;
+            }
+            if(read != length) {
+                throw new IOException("컬럼 청크의 압축을 풀 수 없습니다. (길이: " + read + " / " + length + ")");
+            }
+            return data;
+        } catch (DataFormatException e) {
+            throw new IOException("컬럼 청크가 손상되었습니다.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    //로우 그룹 하나의 위치 (end는 다음 로우 그룹의 오프셋). 재시작 시 파일을 훑어 다시 만들고, 푸터에 기록한다.
+    record RowGroup(int rowCount, long[] columnOffsets, long end) {
+    }
+
+    //offset에서 시작하는 로우 그룹의 헤더만 읽고 컬럼 데이터는 건너뛴다.
+    static RowGroup readRowGroup(DataInputStream in, long offset, int columnCount) throws IOException {
+        int rowCount = in.readInt();
+        long position = offset + 4;
+        long[] columnOffsets = new long[columnCount];
+        for(int c = 0; c < columnCount; c++) {
+            columnOffsets[c] = position;
+            in.readByte();
+            in.readByte();
+            in.readInt();
+            int length = in.readInt();
+            in.skipNBytes(length);
+            position += 10 + length;
+        }
+        return new RowGroup(rowCount, columnOffsets, position);
+    }
+
+    static final class Reader {
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        int read() throws IOException {
+            if(position >= data.length) {
+                throw new IOException("컬럼 데이터가 중간에 끝났습니다.");
+            }
+            return data[position++] & 0xff;
+        }
+
+        long varint() throws IOException {
+            long value = 0;
+            for(int shift = 0; shift < 64; shift += 7) {
+                int b = read();
+                value |= (long) (b & 0x7f) << shift;
+                if((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("varint가 너무 깁니다.");
+        }
+
+        String string(int length) throws IOException {
+            if(length < 0 || position + length > data.length) {
+                throw new IOException("컬럼 데이터가 중간에 끝났습니다.");
+            }
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        long[] hybrid(int count, int bitWidth) throws IOException {
+            long[] values = new long[count];
+            int valueBytes = (bitWidth + 7) / 8;
+            int n = 0;
+            while(n < count) {
+                long header = varint();
+                if((header & 1) == 0) {
+                    int run = (int) (header >>> 1);
+                    long value = 0;
+                    for(int b = 0; b < valueBytes; b++) {
+                        value |= (long) read() << (8 * b);
+                    }
+                    if(run > count - n) {
+                        throw new IOException("RLE 런이 값 개수를 넘습니다.");
+                    }
+                    Arrays.fill(values, n, n + run, value);
+                    n += run;
+                    continue;
+                }
+
+                int total = (int) (header >>> 1) * 8;
+                long buffer = 0;
+                int bits = 0;
+                for(int v = 0; v < total; v++) {
+                    long value = 0;
+                    for(int bit = 0; bit < bitWidth; bit++) {
+                        if(bits == 0) {
+                            buffer = read();
+                            bits = 8;
+                        }
+                        value |= (buffer & 1) << bit;
+                        buffer >>>= 1;
+                        bits--;
+                    }
+                    if(n < count) {
+                        values[n++] = value;
+                    }
+                }
+            }
+            return values;
+        }
+    }
+}
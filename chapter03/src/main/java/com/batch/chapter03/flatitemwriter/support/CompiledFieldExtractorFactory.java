@@ -0,0 +1,120 @@
+package com.batch.chapter03.flatitemwriter.support;
+
+import org.springframework.batch.item.file.transform.FieldExtractor;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.Assert;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+import java.util.function.Function;
+
+/*
+대상 타입의 getter/record 접근자를 LambdaMetafactory로 미리 컴파일해서 FieldExtractor를 만드는 팩토리
+    BeanWrapperFieldExtractor는 아이템마다 BeanWrapperImpl을 만들고 프로퍼티 이름으로 getter를 찾아 리플렉션으로 호출한다.
+    RecordFieldExtractor는 아이템마다 이름으로 RecordComponent를 찾고 접근자를 Method.invoke()로 호출한다.
+    이 팩토리는 create() 시점에 names를 접근자에 한 번만 묶어 두므로 아이템당 비용은 접근자 호출과 Object[] 하나뿐이다.
+        참조 타입 필드는 그대로 담기고, primitive 필드만 Object[]에 담기 위해 박싱된다.
+
+    names는 기존 extractor와 같이 프로퍼티/컴포넌트 이름이어야 한다.
+        일반 클래스: getter가 있는 프로퍼티 이름. BeanWrapperFieldExtractor의 중첩 경로("a.b")는 지원하지 않는다.
+        record: 컴포넌트 이름. names를 생략하면 RecordFieldExtractor와 같이 모든 컴포넌트를 선언 순서대로 꺼낸다.
+
+    FlatFileReader 쪽의 CompiledFieldSetMapperFactory와 같은 방식이며, 만들어진 extractor는 스레드 안전하다.
+*/
+public final class CompiledFieldExtractorFactory {
+    private CompiledFieldExtractorFactory() {
+    }
+
+    public static <T> FieldExtractor<T> create(Class<T> type, String... names) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            Method[] accessors = type.isRecord() ? recordAccessors(type, names) : beanAccessors(type, names);
+
+            Function<Object, Object>[] getters = newGetterArray(accessors.length);
+            for(int i = 0; i < accessors.length; i++) {
+                getters[i] = getter(lookup, accessors[i]);
+            }
+            return new CompiledFieldExtractor<>(getters);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("FieldExtractor를 만들 수 없습니다: " + type.getName(), e);
+        }
+    }
+
+    private static Method[] recordAccessors(Class<?> type, String[] names) {
+        RecordComponent[] components = type.getRecordComponents();
+        if(names.length == 0) {
+            return Arrays.stream(components).map(RecordComponent::getAccessor).toArray(Method[]::new);
+        }
+
+        Method[] accessors = new Method[names.length];
+        for(int i = 0; i < names.length; i++) {
+            String name = names[i];
+            accessors[i] = Arrays.stream(components)
+                    .filter(component -> component.getName().equals(name))
+                    .map(RecordComponent::getAccessor)
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException(type.getName() + "에 record 컴포넌트가 없습니다: " + name));
+        }
+        return accessors;
+    }
+
+    private static Method[] beanAccessors(Class<?> type, String[] names) {
+        Assert.notEmpty(names, "names가 필요합니다.");
+        Method[] accessors = new Method[names.length];
+        for(int i = 0; i < names.length; i++) {
+            PropertyDescriptor property = BeanUtils.getPropertyDescriptor(type, names[i]);
+            if(property == null || property.getReadMethod() == null) {
+                throw new IllegalArgumentException(type.getName() + "에 읽기 가능한 프로퍼티가 없습니다: " + names[i]);
+            }
+            accessors[i] = property.getReadMethod();
+        }
+        return accessors;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object>[] newGetterArray(int length) {
+        return (Function<Object, Object>[]) new Function[length];
+    }
+
+    //primitive 반환 타입은 LambdaMetafactory가 박싱한다.
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> getter(MethodHandles.Lookup lookup, Method readMethod) throws ReflectiveOperationException {
+        MethodHandle handle = lookup.unreflect(readMethod);
+        try {
+            CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+                    MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class),
+                    handle,
+                    MethodType.methodType(readMethod.getReturnType(), readMethod.getDeclaringClass()));
+            return (Function<Object, Object>) site.getTarget().invokeExact();
+        } catch (ReflectiveOperationException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("getter를 컴파일할 수 없습니다: " + readMethod, e);
+        }
+    }
+
+    private static final class CompiledFieldExtractor<T> implements FieldExtractor<T> {
+        private final Function<Object, Object>[] getters;
+
+        private CompiledFieldExtractor(Function<Object, Object>[] getters) {
+            this.getters = getters;
+        }
+
+        @Override
+        public Object[] extract(T item) {
+            Object[] values = new Object[getters.length];
+            for(int i = 0; i < getters.length; i++) {
+                values[i] = getters[i].apply(item);
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.batch.chapter03.flatitemwriter.support;
+
+import org.springframework.batch.item.file.transform.ExtractorLineAggregator;
+import org.springframework.util.Assert;
+
+import java.math.BigInteger;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Formattable;
+import java.util.IllegalFormatConversionException;
+import java.util.List;
+import java.util.Locale;
+import java.util.MissingFormatArgumentException;
+import java.util.UnknownFormatConversionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+FormatterLineAggregator와 같은 결과를 내지만 포맷 문자열을 한 번만 파싱하는 LineAggregator
+    FormatterLineAggregator는 아이템마다 String.format()을 호출하므로 매번 포맷 문자열을 정규식으로 파싱하고 Formatter와 StringBuilder를 새로 만든다.
+    이 aggregator는 setFormat() 시점에 포맷 문자열을 리터럴 조각과 필드 조각의 배열로 컴파일해 두고,
+    아이템마다 재사용하는 StringBuilder에 조각을 차례로 붙이기만 한다.
+
+    직접 처리하는 변환
+        %s, %S: 너비, '-' 플래그, 정밀도(최대 길이). Formattable 인자는 String.format()에 맡긴다.
+        %d: 너비와 '-', '0', '+', ' ', ',' 플래그. Integer/Long/Short/Byte는 String 없이 자릿수를 바로 붙인다.
+        %%, %n, 인자 인덱스(1$, <)
+    그 밖의 변환(%f, %x, %tY 등), BigInteger 인자, '(' 플래그와 숫자가 '0'이 아닌 로케일은 해당 조각만 String.format()으로 처리하므로 결과는 항상 같다.
+    잘못된 플래그 조합이나 없는 인자는 Formatter와 같은 예외를 던진다. (플래그 검사는 컴파일할 때 한 번 Formatter로 확인한다)
+
+    StringBuilder를 재사용하므로 한 writer(한 스레드)에서만 사용해야 한다.
+*/
+public class CompiledFormatLineAggregator<T> extends ExtractorLineAggregator<T> {
+    //java.util.Formatter의 포맷 지정자 형식
+    private static final Pattern SPECIFIER = Pattern.compile("%(\\d+\\$)?([-#+ 0,(<]*)?(\\d+)?(\\.\\d+)?([tT])?([a-zA-Z%])");
+
+    private String format;
+    private Locale locale = Locale.getDefault();
+    private int maximumLength = 0;
+    private int minimumLength = 0;
+
+    private Segment[] segments;
+    private final StringBuilder builder = new StringBuilder(128);
+    private final char[] digits = new char[32];
+
+    public void setFormat(String format) {
+        this.format = format;
+        this.segments = null;
+    }
+
+    public void setLocale(Locale locale) {
+        this.locale = locale;
+        this.segments = null;
+    }
+
+    //FormatterLineAggregator와 같이 0이면 최대 길이를 검사하지 않는다.
+    public void setMaximumLength(int maximumLength) {
+        this.maximumLength = maximumLength;
+    }
+
+    public void setMinimumLength(int minimumLength) {
+        this.minimumLength = minimumLength;
+    }
+
+    @Override
+    protected String doAggregate(Object[] fields) {
+        Assert.notNull(format, "format이 필요합니다.");
+        if(segments == null) {
+            segments = compile(format, locale);
+        }
+
+        builder.setLength(0);
+        for(Segment segment : segments) {
+            segment.append(builder, fields);
+        }
+
+        if(maximumLength > 0) {
+            Assert.state(builder.length() <= maximumLength,
+                    () -> "String overflowed in formatter - longer than " + maximumLength + " characters: [" + builder + "]");
+        }
+        Assert.state(builder.length() >= minimumLength,
+                () -> "String underflowed in formatter - shorter than " + minimumLength + " characters: [" + builder + "]");
+        return builder.toString();
+    }
+
+    private Segment[] compile(String format, Locale locale) {
+        List<Segment> compiled = new ArrayList<>();
+        Matcher matcher = SPECIFIER.matcher(format);
+        int ordinary = 0;
+        int last = -1;
+        int i = 0;
+
+        while(i < format.length()) {
+            int percent = format.indexOf('%', i);
+            if(percent < 0) {
+                compiled.add(literal(format.substring(i)));
+                break;
+            }
+            if(percent > i) {
+                compiled.add(literal(format.substring(i, percent)));
+            }
+            if(!matcher.find(percent) || matcher.start() != percent) {
+                throw new UnknownFormatConversionException(percent + 1 < format.length() ? String.valueOf(format.charAt(percent + 1)) : "%");
+            }
+            i = matcher.end();
+
+            String flags = matcher.group(2) != null ? matcher.group(2) : "";
+            int width = matcher.group(3) != null ? Integer.parseInt(matcher.group(3)) : -1;
+            int precision = matcher.group(4) != null ? Integer.parseInt(matcher.group(4).substring(1)) : -1;
+            boolean time = matcher.group(5) != null;
+            char conversion = matcher.group(6).charAt(0);
+            String specifier = "%" + flags.replace("<", "") + (width >= 0 ? width : "") + (precision >= 0 ? "." + precision : "")
+                    + (time ? matcher.group(5) : "") + conversion;
+
+            //인자가 없는 %n, %%는 결과가 항상 같으므로 리터럴로 만든다.
+            if(!time && (conversion == 'n' || conversion == '%')) {
+                compiled.add(literal(String.format(locale, specifier)));
+                continue;
+            }
+
+            int index;
+            if(flags.indexOf('<') >= 0) {
+                index = last;
+            } else if(matcher.group(1) != null) {
+                index = Integer.parseInt(matcher.group(1).substring(0, matcher.group(1).length() - 1)) - 1;
+            } else {
+                index = ordinary++;
+            }
+            last = index;
+            compiled.add(field(index, matcher.group(), specifier, flags.replace("<", ""), width, precision, time, conversion, locale));
+        }
+        return compiled.toArray(new Segment[0]);
+    }
+
+    private static Segment literal(String text) {
+        return (builder, args) -> builder.append(text);
+    }
+
+    private Segment field(int index, String original, String specifier, String flags, int width, int precision,
+                          boolean time, char conversion, Locale locale) {
+        Segment fallback = (builder, args) -> builder.append(String.format(locale, specifier, argument(args, index, original)));
+        if(time) {
+            return fallback;
+        }
+
+        //'#' 플래그는 Formattable 인자에만 쓸 수 있으므로 Formatter에 맡긴다.
+        if((conversion == 's' || conversion == 'S') && flags.indexOf('#') < 0) {
+            //플래그/너비 조합이 잘못되었으면 여기서 Formatter가 예외를 던진다.
+            String.format(locale, specifier, "");
+            boolean upperCase = conversion == 'S';
+            boolean leftJustify = flags.indexOf('-') >= 0;
+            return (builder, args) -> {
+                Object arg = argument(args, index, original);
+                if(arg instanceof Formattable) {
+                    fallback.append(builder, args);
+                    return;
+                }
+                String value = String.valueOf(arg);
+                if(precision >= 0 && precision < value.length()) {
+                    value = value.substring(0, precision);
+                }
+                if(upperCase) {
+                    value = value.toUpperCase(locale);
+                }
+                appendJustified(builder, value, width, leftJustify);
+            };
+        }
+
+        if(conversion == 'd') {
+            String.format(locale, specifier, 0);
+            DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+            if(flags.indexOf('(') >= 0 || symbols.getZeroDigit() != '0') {
+                return fallback;
+            }
+            IntegerFormat integerFormat = new IntegerFormat(flags, width, groupingSeparator(flags, locale, symbols), groupingSize(locale));
+            return (builder, args) -> {
+                Object arg = argument(args, index, original);
+                if(arg instanceof Integer || arg instanceof Long || arg instanceof Short || arg instanceof Byte) {
+                    integerFormat.append(builder, ((Number) arg).longValue(), digits);
+                } else if(arg == null) {
+                    appendJustified(builder, "null", width, flags.indexOf('-') >= 0);
+                } else if(arg instanceof BigInteger) {
+                    fallback.append(builder, args);
+                } else {
+                    throw new IllegalFormatConversionException('d', arg.getClass());
+                }
+            };
+        }
+
+        return fallback;
+    }
+
+    private static Object argument(Object[] args, int index, String original) {
+        if(index < 0 || index >= args.length) {
+            throw new MissingFormatArgumentException(original);
+        }
+        return args[index];
+    }
+
+    private static void appendJustified(StringBuilder builder, String value, int width, boolean leftJustify) {
+        int padding = width - value.length();
+        if(!leftJustify) {
+            pad(builder, ' ', padding);
+        }
+        builder.append(value);
+        if(leftJustify) {
+            pad(builder, ' ', padding);
+        }
+    }
+
+    private static void pad(StringBuilder builder, char c, int count) {
+        for(int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+    }
+
+    //','가 없거나 로케일이 그룹 구분을 쓰지 않으면 0
+    private static char groupingSeparator(String flags, Locale locale, DecimalFormatSymbols symbols) {
+        if(flags.indexOf(',') < 0) {
+            return 0;
+        }
+        NumberFormat numberFormat = NumberFormat.getIntegerInstance(locale);
+        if(numberFormat instanceof DecimalFormat decimalFormat && (!decimalFormat.isGroupingUsed() || decimalFormat.getGroupingSize() == 0)) {
+            return 0;
+        }
+        return symbols.getGroupingSeparator();
+    }
+
+    private static int groupingSize(Locale locale) {
+        NumberFormat numberFormat = NumberFormat.getIntegerInstance(locale);
+        return numberFormat instanceof DecimalFormat decimalFormat ? decimalFormat.getGroupingSize() : 3;
+    }
+
+    @FunctionalInterface
+    private interface Segment {
+        void append(StringBuilder builder, Object[] args);
+    }
+
+    /*
+    Formatter의 %d 출력 순서: 부호 -> ('0' 플래그면) 0 채움 -> 그룹 구분된 자릿수, 그 다음 너비만큼 공백으로 정렬
+        0 채움은 그룹 구분자 없이 앞에 붙는다. (String.format("%0,10d", 1234) -> "000001,234")
+    */
+    private record IntegerFormat(boolean leftJustify, boolean zeroPad, boolean plus, boolean leadingSpace,
+                                 int width, char groupingSeparator, int groupingSize) {
+        IntegerFormat(String flags, int width, char groupingSeparator, int groupingSize) {
+            this(flags.indexOf('-') >= 0, flags.indexOf('0') >= 0, flags.indexOf('+') >= 0, flags.indexOf(' ') >= 0,
+                    width, groupingSeparator, groupingSize);
+        }
+
+        void append(StringBuilder builder, long value, char[] digits) {
+            boolean negative = value < 0;
+            //Long.MIN_VALUE도 표현할 수 있도록 음수로 바꿔 자릿수를 뒤에서부터 채운다.
+            long remaining = negative ? value : -value;
+            int position = digits.length;
+            int count = 0;
+            do {
+                if(groupingSeparator != 0 && count > 0 && count % groupingSize == 0) {
+                    digits[--position] = groupingSeparator;
+                }
+                digits[--position] = (char) ('0' - remaining % 10);
+                remaining /= 10;
+                count++;
+            } while(remaining != 0);
+
+            int magnitude = digits.length - position;
+            int signLength = negative || plus || leadingSpace ? 1 : 0;
+            int zeros = zeroPad ? Math.max(0, width - signLength - magnitude) : 0;
+            int padding = width - signLength - zeros - magnitude;
+
+            if(!leftJustify) {
+                pad(builder, ' ', padding);
+            }
+            if(negative) {
+                builder.append('-');
+            } else if(plus) {
+                builder.append('+');
+            } else if(leadingSpace) {
+                builder.append(' ');
+            }
+            pad(builder, '0', zeros);
+            builder.append(digits, position, magnitude);
+            if(leftJustify) {
+                pad(builder, ' ', padding);
+            }
+        }
+    }
+}
@@ -0,0 +1,543 @@
+package com.batch.chapter03.flatitemwriter.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.file.FlatFileFooterCallback;
+import org.springframework.batch.item.file.FlatFileHeaderCallback;
+import org.springframework.batch.item.file.transform.LineAggregator;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/*
+라인을 블록 단위로 나눠 여러 스레드에서 동시에 압축하는 gzip ItemWriter (pigz 방식)
+    FlatFileItemWriter에 GZIPOutputStream을 씌우면 압축이 스텝 스레드 하나에서 라인 순서대로 진행되므로
+    멀티스레드 스텝에서도 쓰기 구간이 압축 속도(코어 하나)에 묶인다.
+    이 writer는 라인을 blockSize 바이트씩 모아 압축 스레드 풀에 넘기고, 블록마다 독립된 gzip member로 압축한 뒤
+    원래 순서대로 파일에 이어붙인다. gzip은 여러 member를 이어붙인 파일도 하나의 파일로 풀리므로 gunzip, GZIPInputStream으로 그대로 읽을 수 있다.
+    블록끼리 압축 사전을 공유하지 않으므로 단일 스트림보다 압축률이 조금 낮다. (블록이 작을수록 차이가 커진다)
+
+    블록은 청크(커밋)와 관계없이 blockSize가 찰 때만 잘리고, write()는 압축을 기다리지 않는다.
+        압축 중인 블록은 최대 threads * 2개까지 두고, 넘으면 가장 오래된 블록의 압축이 끝날 때까지 기다린다. (메모리 상한)
+        압축이 끝난 member는 write()/update()에서 제출한 순서대로 파일에 쓴다.
+
+    재시작
+        커밋 시점에 파일에는 member 경계까지만 쓰여 있고, 아직 member로 쓰지 못한 라인(압축 중인 블록과 채우는 중인 블록)이 남는다.
+        update()(커밋 직전)에서 이 라인들의 압축 전 바이트를 저널 파일(<출력 파일>.journal-<번호>)에 이어 쓰고,
+        ExecutionContext에 파일의 member 경계(position)와 저널에서 그 라인들이 있는 구간(journal.start ~ journal.length)을 저장한다.
+        재시작 시 파일을 position 뒤로 잘라내고 저널 구간을 다시 블록으로 읽어 이어서 쓴다.
+        저널은 앞부분이 member로 쓰여 쓸모없어진 만큼 커지면 남은 구간만 새 번호의 저널로 옮기고, 이전 저널은 다음 update()(이전 커밋이 끝난 뒤)에 지운다.
+        GzipLineItemReader로 이 파일을 읽으면 재시작 위치 바로 앞의 member부터 풀면 된다. (라인이 member 경계에 걸쳐 있어도 된다)
+
+    마무리
+        헤더는 새 파일의 첫 블록 앞에 붙인다.
+        스텝이 COMPLETED로 끝나면 afterStep()에서 남은 블록과 푸터를 쓰고 저널을 지운다. (afterStep()은 스텝 상태가 저장되기 전에 호출된다)
+        이때 쓰기에 실패하면 스텝을 FAILED로 바꿔 저널에서 재시작할 수 있게 한다.
+        스텝 빌더는 writer가 StepExecutionListener를 구현하면 리스너로 등록하므로 따로 등록할 필요가 없다.
+
+    멀티스레드 스텝
+        라인 인코딩은 잠금 밖에서 하고, 블록과 member 상태는 synchronized로 보호한다. lineAggregator는 스레드 안전해야 한다. (DelimitedLineAggregator 등)
+        청크의 라인은 나뉘지 않고 연속으로 들어가지만 청크끼리의 순서는 스레드 실행 순서다.
+        멀티스레드 스텝의 커밋 순서는 보장되지 않으므로 다른 ItemStream과 같이 saveState를 끄고 재시작하지 않는다.
+*/
+@Slf4j
+public class GzipFlatFileItemWriter<T> extends ItemStreamSupport implements ItemStreamWriter<T>, StepExecutionListener {
+    private static final String POSITION = "position";
+    private static final String WRITTEN = "written";
+    private static final String JOURNAL_INDEX = "journal.index";
+    private static final String JOURNAL_START = "journal.start";
+    private static final String JOURNAL_LENGTH = "journal.length";
+
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    //gzip member 헤더 (ID1, ID2, CM=deflate, FLG, MTIME 4바이트, XFL, OS=unknown)
+    private static final byte[] MEMBER_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 255};
+
+    private Resource resource;
+    private LineAggregator<T> lineAggregator;
+    private Charset charset = StandardCharsets.UTF_8;
+    private String lineSeparator = System.lineSeparator();
+    private FlatFileHeaderCallback headerCallback;
+    private FlatFileFooterCallback footerCallback;
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean forceSync = false;
+    private boolean saveState = true;
+
+    private byte[] separatorBytes;
+    private ExecutorService compressors;
+    private Path path;
+    private FileChannel channel;
+    private long position;
+    private long written;
+    private byte[] block;
+    private int blockLength;
+    //압축 중이거나 압축이 끝났지만 아직 파일에 쓰지 않은 블록 (제출 순서)
+    private final Deque<Member> members = new ArrayDeque<>();
+
+    //저널의 [journalStart, journalLength)는 members의 블록과 block을 이어붙인 바이트의 앞 journaled 바이트다.
+    private FileChannel journal;
+    private Path journalPath;
+    private Path staleJournalPath;
+    private int journalIndex;
+    private long journalStart;
+    private long journalLength;
+    private long journaled;
+    private boolean completed;
+
+    public void setResource(Resource resource) {
+        this.resource = resource;
+    }
+
+    public void setLineAggregator(LineAggregator<T> lineAggregator) {
+        this.lineAggregator = lineAggregator;
+    }
+
+    public void setEncoding(String encoding) {
+        this.charset = Charset.forName(encoding);
+    }
+
+    public void setLineSeparator(String lineSeparator) {
+        this.lineSeparator = lineSeparator;
+    }
+
+    public void setHeaderCallback(FlatFileHeaderCallback headerCallback) {
+        this.headerCallback = headerCallback;
+    }
+
+    public void setFooterCallback(FlatFileFooterCallback footerCallback) {
+        this.footerCallback = footerCallback;
+    }
+
+    //member 하나로 압축할 압축 전 바이트 수. 라인 경계에서 자르므로 실제 블록은 조금 더 클 수 있다.
+    public void setBlockSize(int blockSize) {
+        Assert.isTrue(blockSize > 0, "blockSize는 0보다 커야 합니다.");
+        this.blockSize = blockSize;
+    }
+
+    //Deflater 압축 레벨 (0 ~ 9, -1은 기본값 6)
+    public void setCompressionLevel(int compressionLevel) {
+        Assert.isTrue(compressionLevel >= -1 && compressionLevel <= 9, "compressionLevel은 -1 ~ 9 사이여야 합니다.");
+        this.compressionLevel = compressionLevel;
+    }
+
+    //압축 스레드 수
+    public void setThreads(int threads) {
+        Assert.isTrue(threads > 0, "threads는 0보다 커야 합니다.");
+        this.threads = threads;
+    }
+
+    public void setForceSync(boolean forceSync) {
+        this.forceSync = forceSync;
+    }
+
+    public void setSaveState(boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        Assert.notNull(resource, "resource가 필요합니다.");
+        Assert.notNull(lineAggregator, "lineAggregator가 필요합니다.");
+
+        separatorBytes = lineSeparator.getBytes(charset);
+        block = new byte[blockSize];
+        blockLength = 0;
+        members.clear();
+        staleJournalPath = null;
+        completed = false;
+        AtomicInteger threadNumber = new AtomicInteger();
+        compressors = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "gzip-compressor-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            path = resource.getFile().toPath().toAbsolutePath();
+            if(saveState && executionContext.containsKey(getExecutionContextKey(POSITION))) {
+                restore(executionContext);
+                return;
+            }
+
+            Files.createDirectories(path.getParent());
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            position = 0;
+            written = 0;
+            if(saveState) {
+                deleteJournals(-1);
+                openJournal(0, 0, 0);
+            }
+
+            if(headerCallback != null) {
+                appendText(headerCallback::writeHeader);
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("출력 파일을 열 수 없습니다: " + resource.getDescription(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ItemStreamException("압축이 중단되었습니다.", e);
+        }
+    }
+
+    private void restore(ExecutionContext executionContext) throws IOException, InterruptedException {
+        position = executionContext.getLong(getExecutionContextKey(POSITION));
+        written = executionContext.getLong(getExecutionContextKey(WRITTEN));
+        channel = FileChannel.open(path, StandardOpenOption.WRITE);
+        if(channel.size() < position) {
+            throw new ItemStreamException("파일 크기(" + channel.size() + ")가 마지막 커밋 위치(" + position + ")보다 작습니다: " + resource.getDescription());
+        }
+        channel.truncate(position);
+        channel.position(position);
+
+        //저널에 남은 커밋된 라인을 다시 블록으로 읽는다. 블록이 차면 바로 압축을 시작하므로 journaled는 블록을 넘기기 전에 맞춰 둔다.
+        openJournal(executionContext.getInt(getExecutionContextKey(JOURNAL_INDEX)),
+                executionContext.getLong(getExecutionContextKey(JOURNAL_START)),
+                executionContext.getLong(getExecutionContextKey(JOURNAL_LENGTH)));
+        deleteJournals(journalIndex);
+        journaled = journalLength - journalStart;
+        ByteBuffer pending = ByteBuffer.allocate(Math.toIntExact(journaled));
+        while(pending.hasRemaining()) {
+            if(journal.read(pending, journalStart + pending.position()) < 0) {
+                throw new ItemStreamException("저널이 저장된 길이(" + journalLength + ")보다 짧습니다: " + journalPath);
+            }
+        }
+        append(pending.array(), 0, pending.capacity());
+        log.info("{} 바이트 위치부터 이어서 씁니다. (저널의 압축 전 {} 바이트, written={})", position, pending.capacity(), written);
+    }
+
+    @Override
+    public void write(Chunk<? extends T> chunk) throws Exception {
+        //라인 인코딩은 잠금 밖에서 하고, 청크 전체가 인코딩된 뒤에만 블록에 넣으므로 중간에 실패한 청크는 남지 않는다.
+        ByteArrayOutputStream lines = new ByteArrayOutputStream(chunk.size() * 128);
+        for(T item : chunk) {
+            lines.writeBytes(lineAggregator.aggregate(item).getBytes(charset));
+            lines.writeBytes(separatorBytes);
+        }
+        byte[] bytes = lines.toByteArray();
+
+        synchronized(this) {
+            Assert.state(channel != null, "writer가 열려 있지 않습니다.");
+            append(bytes, 0, bytes.length);
+            writeMembers(false);
+            written += chunk.size();
+        }
+    }
+
+    //블록을 blockSize까지 채우고, 찬 블록은 압축 스레드에 넘긴다.
+    private void append(byte[] bytes, int offset, int length) throws IOException, InterruptedException {
+        while(length > 0) {
+            int count = Math.min(length, blockSize - blockLength);
+            System.arraycopy(bytes, offset, block, blockLength, count);
+            blockLength += count;
+            offset += count;
+            length -= count;
+            if(blockLength == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+
+    //채운 블록을 압축 스레드에 넘기고 새 블록을 준비한다. 압축 중인 블록이 너무 많으면 가장 오래된 블록을 기다려 쓴다.
+    private void submitBlock() throws IOException, InterruptedException {
+        if(blockLength == 0) {
+            return;
+        }
+        byte[] data = block;
+        int length = blockLength;
+        members.add(new Member(data, length, compressors.submit(() -> compress(data, length, compressionLevel))));
+        block = new byte[blockSize];
+        blockLength = 0;
+
+        while(members.size() > threads * 2) {
+            await(members.peekFirst());
+            writeMembers(false);
+        }
+    }
+
+    /*
+    압축이 끝난 member를 제출한 순서대로 한 번의 gathering write로 쓴다.
+        all이 false면 맨 앞에서부터 압축이 끝난 것까지만, true면 모두 기다려서 쓴다.
+        쓴 블록만큼 저널의 유효 구간 시작(journalStart)을 뒤로 옮긴다. (저널에 아직 다 쓰지 않은 블록이면 저널 끝으로)
+    */
+    private void writeMembers(boolean all) throws IOException, InterruptedException {
+        int count = 0;
+        for(Member member : members) {
+            if(!all && !member.compressed().isDone()) {
+                break;
+            }
+            count++;
+        }
+        if(count == 0) {
+            return;
+        }
+
+        ByteBuffer[] buffers = new ByteBuffer[count];
+        long remaining = 0;
+        for(int i = 0; i < count; i++) {
+            Member member = members.pollFirst();
+            buffers[i] = ByteBuffer.wrap(await(member));
+            remaining += buffers[i].remaining();
+
+            long consumed = Math.min(member.length(), journaled);
+            journalStart += consumed;
+            journaled -= consumed;
+        }
+        while(remaining > 0) {
+            long bytes = channel.write(buffers);
+            position += bytes;
+            remaining -= bytes;
+        }
+    }
+
+    private byte[] await(Member member) throws InterruptedException {
+        try {
+            return member.compressed().get();
+        } catch (ExecutionException e) {
+            throw new ItemStreamException("블록을 압축할 수 없습니다.", e.getCause());
+        }
+    }
+
+    private void appendText(TextCallback callback) throws IOException {
+        StringWriter text = new StringWriter();
+        callback.write(text);
+        if(text.getBuffer().length() == 0) {
+            return;
+        }
+        byte[] bytes = (text + lineSeparator).getBytes(charset);
+        try {
+            append(bytes, 0, bytes.length);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ItemStreamException("압축이 중단되었습니다.", e);
+        }
+    }
+
+    //독립된 gzip member 하나 (헤더 + deflate 스트림 + CRC32, 길이)
+    private static byte[] compress(byte[] data, int length, int level) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+
+            byte[] member = new byte[MEMBER_HEADER.length + length / 2 + 64];
+            System.arraycopy(MEMBER_HEADER, 0, member, 0, MEMBER_HEADER.length);
+            int size = MEMBER_HEADER.length;
+            while(!deflater.finished()) {
+                if(size == member.length) {
+                    member = Arrays.copyOf(member, member.length * 2);
+                }
+                size += deflater.deflate(member, size, member.length - size);
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, length);
+            if(member.length < size + 8) {
+                member = Arrays.copyOf(member, size + 8);
+            }
+            writeIntLE(member, size, (int) crc.getValue());
+            writeIntLE(member, size + 4, length);
+            return Arrays.copyOf(member, size + 8);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeIntLE(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >>> 8);
+        bytes[offset + 2] = (byte) (value >>> 16);
+        bytes[offset + 3] = (byte) (value >>> 24);
+    }
+
+    @Override
+    public synchronized void update(ExecutionContext executionContext) throws ItemStreamException {
+        if(channel == null) {
+            return;
+        }
+        try {
+            writeMembers(false);
+            if(saveState) {
+                updateJournal();
+            }
+            if(forceSync) {
+                channel.force(false);
+                if(journal != null) {
+                    journal.force(false);
+                }
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("출력 파일/저널을 쓸 수 없습니다: " + resource.getDescription(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ItemStreamException("압축이 중단되었습니다.", e);
+        }
+
+        if(saveState) {
+            executionContext.putLong(getExecutionContextKey(POSITION), position);
+            executionContext.putLong(getExecutionContextKey(WRITTEN), written);
+            executionContext.putInt(getExecutionContextKey(JOURNAL_INDEX), journalIndex);
+            executionContext.putLong(getExecutionContextKey(JOURNAL_START), journalStart);
+            executionContext.putLong(getExecutionContextKey(JOURNAL_LENGTH), journalLength);
+        }
+    }
+
+    //아직 member로 쓰지 못한 라인 중 저널에 없는 부분을 이어 쓴다.
+    private void updateJournal() throws IOException {
+        //이 update()가 호출되었다면 이전 update()의 커밋은 끝났다.
+        if(staleJournalPath != null) {
+            Files.deleteIfExists(staleJournalPath);
+            staleJournalPath = null;
+        }
+
+        //쓸모없어진 앞부분이 남은 구간보다 커지면 남은 구간만 새 저널에 처음부터 다시 쓴다.
+        if(journalStart >= Math.max(blockSize, journaled)) {
+            journal.close();
+            staleJournalPath = journalPath;
+            openJournal(journalIndex + 1, 0, 0);
+            journaled = 0;
+        }
+
+        long offset = 0;
+        for(Member member : members) {
+            appendJournal(member.data(), offset, member.length());
+            offset += member.length();
+        }
+        appendJournal(block, offset, blockLength);
+    }
+
+    //members/block을 이어붙인 바이트에서 offset에 있는 data[0, length) 중 아직 저널에 없는 부분을 쓴다.
+    private void appendJournal(byte[] data, long offset, int length) throws IOException {
+        int from = (int) Math.max(0, journaled - offset);
+        if(from >= length) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data, from, length - from);
+        while(buffer.hasRemaining()) {
+            journalLength += journal.write(buffer, journalLength);
+        }
+        journaled += length - from;
+    }
+
+    private void openJournal(int index, long start, long length) throws IOException {
+        journalIndex = index;
+        journalPath = path.resolveSibling(path.getFileName() + ".journal-" + index);
+        journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if(journal.size() < length) {
+            throw new ItemStreamException("저널 크기(" + journal.size() + ")가 마지막 커밋 위치(" + length + ")보다 작습니다: " + journalPath);
+        }
+        journal.truncate(length);
+        journalStart = start;
+        journalLength = length;
+        journaled = 0;
+    }
+
+    //keep 번호 외의 저널 파일을 지운다. (-1이면 모두)
+    private void deleteJournals(int keep) throws IOException {
+        String prefix = path.getFileName() + ".journal-";
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(path.getParent(), prefix + "*")) {
+            for(Path file : stream) {
+                if(!file.getFileName().toString().equals(prefix + keep)) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    //스텝 상태가 저장되기 전에 남은 블록과 푸터를 쓴다. 실패하면 스텝을 FAILED로 바꿔 저널에서 재시작할 수 있게 한다.
+    @Override
+    public synchronized ExitStatus afterStep(StepExecution stepExecution) {
+        if(channel == null || stepExecution.getStatus() != BatchStatus.COMPLETED) {
+            return null;
+        }
+        try {
+            if(footerCallback != null) {
+                appendText(footerCallback::writeFooter);
+            }
+            submitBlock();
+            writeMembers(true);
+            channel.force(false);
+            if(journal != null) {
+                journal.close();
+                journal = null;
+                deleteJournals(-1);
+            }
+            completed = true;
+            log.info("{} 라인을 압축해서 {} 바이트를 썼습니다: {}", written, position, resource.getDescription());
+            return null;
+        } catch (IOException | RuntimeException e) {
+            return fail(stepExecution, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fail(stepExecution, e);
+        }
+    }
+
+    private ExitStatus fail(StepExecution stepExecution, Exception e) {
+        log.error("출력 파일을 마무리할 수 없습니다. 재시작하면 마지막 커밋 위치부터 다시 씁니다: {}", resource.getDescription(), e);
+        stepExecution.setStatus(BatchStatus.FAILED);
+        stepExecution.addFailureException(e);
+        return ExitStatus.FAILED.addExitDescription(e);
+    }
+
+    @Override
+    public synchronized void close() throws ItemStreamException {
+        if(channel == null) {
+            return;
+        }
+        if(!completed) {
+            log.info("스텝이 완료되지 않아 남은 블록과 푸터를 쓰지 않습니다. 재시작하면 마지막 커밋 위치부터 이어서 씁니다: {}", resource.getDescription());
+        }
+        compressors.shutdownNow();
+        try {
+            channel.close();
+            if(journal != null) {
+                journal.close();
+            }
+        } catch (IOException e) {
+            log.warn("출력 파일을 닫는 중 오류가 발생했습니다.", e);
+        }
+        channel = null;
+        journal = null;
+        block = null;
+        members.clear();
+    }
+
+    @FunctionalInterface
+    private interface TextCallback {
+        void write(StringWriter writer) throws IOException;
+    }
+
+    private record Member(byte[] data, int length, Future<byte[]> compressed) {
+    }
+}
@@ -0,0 +1,294 @@
+package com.batch.chapter03.flatitemwriter.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+maxRecords개 또는 maxBytes 바이트마다 새 파일로 넘어가는 ItemWriter
+    파일 하나에 계속 쓰면 잡이 끝날 때까지 후속 적재를 시작할 수 없고, 수 GB짜리 파일 하나는 전송도 느리다.
+    이 writer는 ChannelFlatFileItemWriter(delegate)로 <이름>.00001<확장자>.inprogress에 쓰다가 한도에 닿으면 파일을 닫고 다음 번호로 넘어간다.
+    delegate에 지정한 헤더/푸터는 파일마다 들어간다.
+
+    게시
+        다 쓴 파일은 그 청크가 커밋된 뒤(afterChunk) .inprogress를 뗀 이름으로 원자적으로 이동(rename)한다.
+        소비자는 .inprogress가 아닌 파일만 가져가면 커밋된 완전한 파일만 보게 되므로 잡이 실행 중일 때도 적재를 시작할 수 있다.
+        마지막 파일은 스텝이 COMPLETED로 끝났을 때 afterStep()에서 푸터를 쓴 뒤 게시한다.
+        afterStep()은 스텝 상태가 저장되기 전에 호출되므로, 푸터 쓰기나 게시가 실패하면 스텝을 FAILED로 바꿔 재시작할 수 있게 한다.
+        실패한 스텝의 파일은 재시작을 위해 .inprogress로 남겨 둔다.
+
+    파일은 청크 경계에서만 바뀌므로 한 파일은 한도를 최대 청크 하나만큼 넘을 수 있다.
+
+    재시작
+        ExecutionContext에 현재 파일 번호(file.index)와 파일이 열려 있었는지(file.open)를 저장하고,
+        파일 안의 위치는 delegate가 저장한 바이트 위치(position)로 복원한다. (delegate가 커밋 위치 뒤를 잘라낸다)
+        커밋 후 게시 전에 멈췄으면 이전 번호의 .inprogress 파일을 open()에서 게시하고,
+        커밋되지 않은 청크에서 만들어진 다음 번호의 .inprogress 파일은 지운다.
+        처음 실행할 때는 같은 이름 규칙의 기존 파일을 모두 지운다. (FlatFileItemWriter의 shouldDeleteIfExists와 같다)
+
+    롤백
+        파일은 write()에서 바뀌므로 롤백된 청크가 이미 파일을 닫고 번호를 올렸을 수 있다.
+        afterChunkError()에서 마지막으로 커밋된 상태(update()에서 저장한 값)로 재시작할 때와 같은 방법으로 되돌린다.
+            롤백된 청크에서 만든 .inprogress 파일은 지우고, 커밋 당시 열려 있던 파일은 delegate가 커밋 위치로 잘라내서 다시 연다.
+        그래서 faultTolerant() 스텝에서 청크를 재시도하거나 스킵해도 롤백된 아이템이나 푸터가 파일에 남지 않는다.
+
+    스텝 빌더는 writer가 ChunkListener/StepExecutionListener를 구현하면 리스너로 등록하므로 따로 등록할 필요가 없다.
+*/
+@Slf4j
+public class RollingFlatFileItemWriter<T> extends ItemStreamSupport implements ItemStreamWriter<T>, ChunkListener, StepExecutionListener {
+    private static final String FILE_INDEX = "file.index";
+    private static final String FILE_OPEN = "file.open";
+    private static final String IN_PROGRESS = ".inprogress";
+
+    private final ChannelFlatFileItemWriter<T> delegate;
+    private Resource resource;
+    private long maxRecords = 0;
+    private long maxBytes = 0;
+
+    private Path directory;
+    private String prefix;
+    private String extension;
+    private int index;
+    private boolean open;
+    private final List<Path> finished = new ArrayList<>();
+    //마지막으로 커밋된 상태와 이번 청크의 update()에서 저장한 상태 (afterChunk()에서 커밋된 상태가 된다)
+    private ExecutionContext committed;
+    private ExecutionContext pending;
+
+    public RollingFlatFileItemWriter(ChannelFlatFileItemWriter<T> delegate) {
+        this.delegate = delegate;
+    }
+
+    //파일 이름의 기준. 8.csv면 8.00001.csv, 8.00002.csv ... 로 쓴다.
+    public void setResource(Resource resource) {
+        this.resource = resource;
+    }
+
+    //파일 하나에 쓸 최대 아이템 수 (0이면 제한 없음)
+    public void setMaxRecords(long maxRecords) {
+        Assert.isTrue(maxRecords >= 0, "maxRecords는 0 이상이어야 합니다.");
+        this.maxRecords = maxRecords;
+    }
+
+    //파일 하나의 최대 바이트 수 (0이면 제한 없음)
+    public void setMaxBytes(long maxBytes) {
+        Assert.isTrue(maxBytes >= 0, "maxBytes는 0 이상이어야 합니다.");
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        Assert.notNull(resource, "resource가 필요합니다.");
+        finished.clear();
+        pending = null;
+
+        try {
+            Path base = resource.getFile().toPath().toAbsolutePath();
+            String fileName = base.getFileName().toString();
+            int dot = fileName.lastIndexOf('.');
+            directory = base.getParent();
+            prefix = dot > 0 ? fileName.substring(0, dot) : fileName;
+            extension = dot > 0 ? fileName.substring(dot) : "";
+            Files.createDirectories(directory);
+
+            if(!executionContext.containsKey(getExecutionContextKey(FILE_INDEX))) {
+                deleteExistingFiles();
+                index = 1;
+                open = false;
+                committed = new ExecutionContext();
+                committed.putInt(getExecutionContextKey(FILE_INDEX), index);
+                committed.put(getExecutionContextKey(FILE_OPEN), open);
+                return;
+            }
+
+            committed = new ExecutionContext(executionContext);
+            restore(committed);
+            log.info("{}번째 파일부터 이어서 씁니다.", index);
+        } catch (IOException e) {
+            throw new ItemStreamException("출력 파일을 준비할 수 없습니다: " + resource.getDescription(), e);
+        }
+    }
+
+    //커밋된 상태로 되돌린다. 이전 번호의 .inprogress는 게시하고, 커밋되지 않은 청크에서 만든 파일은 지우고, 열려 있던 파일은 커밋 위치로 다시 연다.
+    private void restore(ExecutionContext executionContext) throws IOException {
+        index = executionContext.getInt(getExecutionContextKey(FILE_INDEX));
+        open = false;
+        boolean wasOpen = Boolean.TRUE.equals(executionContext.get(getExecutionContextKey(FILE_OPEN)));
+        for(int i = 1; i < index; i++) {
+            if(Files.exists(inProgressPath(i))) {
+                publish(inProgressPath(i));
+            }
+        }
+        for(int i = wasOpen ? index + 1 : index; Files.exists(inProgressPath(i)); i++) {
+            Files.delete(inProgressPath(i));
+            log.info("커밋되지 않은 파일을 삭제했습니다: {}", inProgressPath(i));
+        }
+
+        if(wasOpen) {
+            openFile(executionContext);
+        }
+    }
+
+    @Override
+    public void write(Chunk<? extends T> chunk) throws Exception {
+        if(!open) {
+            openFile(new ExecutionContext());
+        }
+        delegate.write(chunk);
+
+        if((maxRecords > 0 && delegate.getWritten() >= maxRecords) || (maxBytes > 0 && delegate.getPosition() >= maxBytes)) {
+            //푸터를 쓰고 닫은 뒤, 이 청크가 커밋되면 afterChunk()에서 게시한다.
+            delegate.close();
+            open = false;
+            finished.add(inProgressPath(index));
+            index++;
+        }
+    }
+
+    private void openFile(ExecutionContext executionContext) {
+        delegate.setResource(new FileSystemResource(inProgressPath(index)));
+        delegate.open(executionContext);
+        open = true;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        ExecutionContext state = new ExecutionContext();
+        if(open) {
+            delegate.update(state);
+        }
+        state.putInt(getExecutionContextKey(FILE_INDEX), index);
+        state.put(getExecutionContextKey(FILE_OPEN), open);
+        for(Map.Entry<String, Object> entry : state.entrySet()) {
+            executionContext.put(entry.getKey(), entry.getValue());
+        }
+        pending = state;
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        if(pending != null) {
+            committed = pending;
+            pending = null;
+        }
+        publishFinished();
+    }
+
+    //커밋되지 않은 청크에서 닫힌 파일은 게시하지 않고, 파일 번호와 delegate를 마지막 커밋 상태로 되돌린다.
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        pending = null;
+        finished.clear();
+        if(open) {
+            try {
+                delegate.close();
+            } catch (ItemStreamException e) {
+                log.warn("롤백된 파일을 닫는 중 오류가 발생했습니다.", e);
+            }
+            open = false;
+        }
+        try {
+            restore(committed);
+            log.info("롤백된 청크를 되돌렸습니다. {}번째 파일부터 이어서 씁니다.", index);
+        } catch (IOException e) {
+            throw new ItemStreamException("롤백된 청크를 되돌릴 수 없습니다: " + resource.getDescription(), e);
+        }
+    }
+
+    /*
+    마지막 파일에 푸터를 쓰고 남은 파일을 모두 게시한다.
+        close()는 스텝이 COMPLETED로 저장된 뒤에 호출되어 실패해도 재시작할 수 없으므로 afterStep()에서 마무리한다.
+    */
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        if(stepExecution.getStatus() != BatchStatus.COMPLETED) {
+            return null;
+        }
+        try {
+            if(open) {
+                delegate.close();
+                open = false;
+                finished.add(inProgressPath(index));
+            }
+            publishFinished();
+            return null;
+        } catch (RuntimeException e) {
+            log.error("마지막 파일을 게시할 수 없습니다. 재시작하면 마지막 커밋 위치부터 다시 씁니다: {}", resource.getDescription(), e);
+            stepExecution.setStatus(BatchStatus.FAILED);
+            stepExecution.addFailureException(e);
+            return ExitStatus.FAILED.addExitDescription(e);
+        }
+    }
+
+    //자원만 정리한다. 열려 있는 파일은 .inprogress로 남고, 재시작하면 delegate가 커밋 위치 뒤(푸터 포함)를 잘라낸다.
+    @Override
+    public void close() throws ItemStreamException {
+        if(open) {
+            open = false;
+            delegate.close();
+        }
+        finished.clear();
+        pending = null;
+    }
+
+    private void publishFinished() {
+        try {
+            for(Path path : finished) {
+                publish(path);
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("파일을 게시할 수 없습니다: " + finished, e);
+        }
+        finished.clear();
+    }
+
+    private void publish(Path inProgress) throws IOException {
+        String name = inProgress.getFileName().toString();
+        Path published = inProgress.resolveSibling(name.substring(0, name.length() - IN_PROGRESS.length()));
+        Files.move(inProgress, published, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("파일을 게시했습니다: {}", published);
+    }
+
+    private Path inProgressPath(int index) {
+        return directory.resolve(String.format("%s.%05d%s%s", prefix, index, extension, IN_PROGRESS));
+    }
+
+    private void deleteExistingFiles() throws IOException {
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + ".[0-9][0-9][0-9][0-9][0-9]*" + extension + "*")) {
+            for(Path path : stream) {
+                String name = path.getFileName().toString();
+                String rest = name.substring(prefix.length() + 1);
+                int digits = 0;
+                while(digits < rest.length() && Character.isDigit(rest.charAt(digits))) {
+                    digits++;
+                }
+                String suffix = rest.substring(digits);
+                if(suffix.equals(extension) || suffix.equals(extension + IN_PROGRESS)) {
+                    Files.delete(path);
+                    log.info("이전 실행의 파일을 삭제했습니다: {}", path);
+                }
+            }
+        }
+    }
+}
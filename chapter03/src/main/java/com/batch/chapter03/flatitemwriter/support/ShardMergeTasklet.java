@@ -0,0 +1,226 @@
+package com.batch.chapter03.flatitemwriter.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.file.FlatFileFooterCallback;
+import org.springframework.batch.item.file.FlatFileHeaderCallback;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/*
+ShardPartitioner로 나눠 쓴 조각 파일(<출력 파일>.part-N)을 하나의 출력 파일로 합치는 Tasklet
+    헤더/푸터는 여기서 한 번만 쓴다. (워커 스텝의 writer에는 헤더/푸터를 지정하지 않는다)
+
+    lineComparator를 지정하지 않으면 조각을 번호 순서대로 FileChannel.transferTo()로 이어붙인다.
+        파일 내용이 JVM 힙을 거치지 않고 커널 안에서 복사된다.
+    lineComparator를 지정하면 라인을 그 순서로 다시 정렬한다.
+        각 조각을 하나씩 메모리에서 정렬해 제자리에 다시 쓴 뒤(presorted면 생략), 모든 조각을 동시에 읽으며 k-way 병합한다.
+        메모리에는 가장 큰 조각 하나만 올라가며, 같은 키의 라인은 조각 번호 순서를 유지한다.
+
+    결과는 <출력 파일>.merging에 쓴 뒤 출력 파일로 원자적으로 이동하므로 중간에 실패해도 출력 파일이 반쯤 쓰인 채로 남지 않는다.
+    조각 파일은 지우지 않으므로 병합 스텝만 다시 실행해도 같은 결과가 나온다. 다음 실행에서 덮어쓰이거나 ShardPartitioner가 지운다.
+*/
+@Slf4j
+public class ShardMergeTasklet implements Tasklet {
+    private final Resource resource;
+
+    private Charset charset = StandardCharsets.UTF_8;
+    private String lineSeparator = System.lineSeparator();
+    private FlatFileHeaderCallback headerCallback;
+    private FlatFileFooterCallback footerCallback;
+    private Comparator<String> lineComparator;
+    private boolean presorted;
+
+    public ShardMergeTasklet(Resource resource) {
+        this.resource = resource;
+    }
+
+    public void setEncoding(String encoding) {
+        this.charset = Charset.forName(encoding);
+    }
+
+    public void setLineSeparator(String lineSeparator) {
+        this.lineSeparator = lineSeparator;
+    }
+
+    public void setHeaderCallback(FlatFileHeaderCallback headerCallback) {
+        this.headerCallback = headerCallback;
+    }
+
+    public void setFooterCallback(FlatFileFooterCallback footerCallback) {
+        this.footerCallback = footerCallback;
+    }
+
+    public void setLineComparator(Comparator<String> lineComparator) {
+        this.lineComparator = lineComparator;
+    }
+
+    //조각마다 이미 lineComparator 순서로 정렬되어 있으면 조각 정렬을 생략한다.
+    public void setPresorted(boolean presorted) {
+        this.presorted = presorted;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        Assert.notNull(resource, "resource가 필요합니다.");
+        Path output = resource.getFile().toPath().toAbsolutePath();
+        Path merging = output.resolveSibling(output.getFileName() + ".merging");
+        List<Path> shards = ShardPartitioner.shards(output);
+        if(shards.isEmpty()) {
+            log.warn("합칠 조각 파일이 없습니다: {}.part-*", output);
+        }
+
+        long start = System.currentTimeMillis();
+        try(FileChannel out = FileChannel.open(merging, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            if(headerCallback != null) {
+                StringWriter header = new StringWriter();
+                headerCallback.writeHeader(header);
+                writeLine(out, header);
+            }
+
+            if(lineComparator == null) {
+                concatenate(shards, out);
+            } else {
+                if(!presorted) {
+                    for(Path shard : shards) {
+                        sort(shard);
+                    }
+                }
+                merge(shards, out);
+            }
+
+            if(footerCallback != null) {
+                StringWriter footer = new StringWriter();
+                footerCallback.writeFooter(footer);
+                writeLine(out, footer);
+            }
+            out.force(false);
+        }
+
+        Files.move(merging, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("조각 파일 {}개를 합쳤습니다: {} ({} 바이트, {}ms)", shards.size(), output, Files.size(output), System.currentTimeMillis() - start);
+        return RepeatStatus.FINISHED;
+    }
+
+    private void writeLine(FileChannel out, StringWriter text) throws IOException {
+        if(text.getBuffer().length() == 0) {
+            return;
+        }
+        ByteBuffer bytes = charset.encode(text + lineSeparator);
+        while(bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+    }
+
+    private void concatenate(List<Path> shards, FileChannel out) throws IOException {
+        for(Path shard : shards) {
+            try(FileChannel in = FileChannel.open(shard, StandardOpenOption.READ)) {
+                long size = in.size();
+                long position = 0;
+                while(position < size) {
+                    position += in.transferTo(position, size - position, out);
+                }
+            }
+        }
+    }
+
+    //정렬한 내용을 옆 파일에 쓴 뒤 원자적으로 바꾸므로, 중간에 실패해도 조각 파일은 정렬 전이나 후 중 하나다.
+    private void sort(Path shard) throws IOException {
+        List<String> lines = Files.readAllLines(shard, charset);
+        lines.sort(lineComparator);
+
+        Path sorting = shard.resolveSibling(shard.getFileName() + ".sorting");
+        try(Writer writer = Files.newBufferedWriter(sorting, charset)) {
+            for(String line : lines) {
+                writer.write(line);
+                writer.write(lineSeparator);
+            }
+        }
+        Files.move(sorting, shard, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void merge(List<Path> shards, FileChannel out) throws IOException {
+        PriorityQueue<ShardCursor> queue = new PriorityQueue<>(Math.max(1, shards.size()),
+                Comparator.comparing(ShardCursor::line, lineComparator).thenComparingInt(ShardCursor::shard));
+        //out을 닫지 않도록 writer는 flush만 한다.
+        Writer writer = Channels.newWriter(out, charset.newEncoder(), 64 * 1024);
+        try {
+            for(int i = 0; i < shards.size(); i++) {
+                ShardCursor cursor = new ShardCursor(i, Files.newBufferedReader(shards.get(i), charset));
+                if(cursor.advance()) {
+                    queue.add(cursor);
+                } else {
+                    cursor.close();
+                }
+            }
+
+            while(!queue.isEmpty()) {
+                ShardCursor cursor = queue.poll();
+                writer.write(cursor.line());
+                writer.write(lineSeparator);
+                if(cursor.advance()) {
+                    queue.add(cursor);
+                } else {
+                    cursor.close();
+                }
+            }
+            writer.flush();
+        } finally {
+            for(ShardCursor cursor : queue) {
+                cursor.close();
+            }
+        }
+    }
+
+    private static final class ShardCursor {
+        private final int shard;
+        private final BufferedReader reader;
+        private String line;
+
+        private ShardCursor(int shard, BufferedReader reader) {
+            this.shard = shard;
+            this.reader = reader;
+        }
+
+        int shard() {
+            return shard;
+        }
+
+        String line() {
+            return line;
+        }
+
+        boolean advance() throws IOException {
+            line = reader.readLine();
+            return line != null;
+        }
+
+        void close() {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                log.warn("조각 파일을 닫는 중 오류가 발생했습니다.", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.batch.chapter03.flatitemwriter.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/*
+다른 Partitioner가 만든 파티션마다 자기 출력 파일(<출력 파일>.part-N)을 배정하는 Partitioner
+    각 파티션의 ExecutionContext에 shard(번호), shardCount, shardPath가 추가되고
+    워커 스텝의 writer는 #{stepExecutionContext['shardPath']}로 자기 파일에만 쓴다.
+    파티션끼리 파일 핸들을 공유하지 않으므로 잠금 없이 병렬로 쓸 수 있고, 재시작 상태도 파티션(StepExecution)별로 관리된다.
+
+    이전 실행에서 남은 번호가 shardCount 이상인 조각 파일은 지운다. (ShardMergeTasklet이 합칠 조각은 이번 실행의 것뿐이어야 한다)
+
+    재시작
+        이 파티셔너는 PartitionNameProvider가 아니므로 SimpleStepExecutionSplitter는 재시작할 때도 partition()을 다시 호출한다.
+        그래도 이미 쓴 조각은 그대로 남는다.
+            매니저 스텝에 저장된 gridSize로 다시 나누므로 파티션 수가 같고, 지우는 조각은 번호가 파티션 수 이상인 것뿐이다.
+            이름이 같은 이전 StepExecution이 COMPLETED면 건너뛰고, 실패했으면 새로 만든 ExecutionContext 대신 이전 것(shardPath 포함)으로 재시작한다.
+        delegate가 재시작 때 다른 수의 파티션을 돌려주면 이 전제가 깨지므로 delegate는 같은 gridSize에 같은 파티션을 만들어야 한다.
+*/
+@Slf4j
+public class ShardPartitioner implements Partitioner {
+    public static final String SHARD = "shard";
+    public static final String SHARD_COUNT = "shardCount";
+    public static final String SHARD_PATH = "shardPath";
+
+    private final Partitioner delegate;
+    private final Resource resource;
+
+    public ShardPartitioner(Partitioner delegate, Resource resource) {
+        this.delegate = delegate;
+        this.resource = resource;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        Map<String, ExecutionContext> partitions = delegate.partition(gridSize);
+
+        try {
+            Path output = resource.getFile().toPath().toAbsolutePath();
+            int shard = 0;
+            for(ExecutionContext context : partitions.values()) {
+                context.putInt(SHARD, shard);
+                context.putInt(SHARD_COUNT, partitions.size());
+                context.putString(SHARD_PATH, shardPath(output, shard).toString());
+                shard++;
+            }
+
+            for(Path stale : shards(output)) {
+                if(shardIndex(output, stale) >= partitions.size()) {
+                    Files.delete(stale);
+                    log.info("이전 실행의 조각 파일을 삭제했습니다: {}", stale);
+                }
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("조각 파일 경로를 준비할 수 없습니다: " + resource.getDescription(), e);
+        }
+        return partitions;
+    }
+
+    public static Path shardPath(Path output, int shard) {
+        return output.resolveSibling(output.getFileName() + ".part-" + shard);
+    }
+
+    //출력 파일 옆의 조각 파일을 번호 순서로 반환한다.
+    public static List<Path> shards(Path output) throws IOException {
+        List<Path> shards = new ArrayList<>();
+        Path directory = output.toAbsolutePath().getParent();
+        if(directory == null || !Files.isDirectory(directory)) {
+            return shards;
+        }
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, output.getFileName() + ".part-*")) {
+            for(Path path : stream) {
+                if(shardIndex(output, path) >= 0) {
+                    shards.add(path);
+                }
+            }
+        }
+        shards.sort(Comparator.comparingInt(path -> shardIndex(output, path)));
+        return shards;
+    }
+
+    //.part- 뒤가 숫자가 아니면(.part-3.sorting 등) -1
+    private static int shardIndex(Path output, Path shard) {
+        String suffix = shard.getFileName().toString().substring(output.getFileName().toString().length() + ".part-".length());
+        if(suffix.isEmpty() || suffix.length() > 9 || !suffix.chars().allMatch(Character::isDigit)) {
+            return -1;
+        }
+        return Integer.parseInt(suffix);
+    }
+}
@@ -0,0 +1,183 @@
+package com.batch.chapter03.flatitemwriter.support;
+
+import com.batch.chapter03.flatitemreader.support.FileFingerprint;
+import com.batch.chapter03.flatitemreader.support.StagingCodec;
+import com.batch.chapter03.flatitemreader.support.StagingFileHeader;
+import com.batch.chapter03.flatitemreader.support.StagingOutput;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+아이템을 StagingCodec으로 인코딩해서 길이가 앞에 붙은 바이너리 레코드로 쓰는 ItemWriter
+    CSV를 한 번만 파싱해서 스테이징 파일로 남겨 두면, 같은 데이터를 읽는 이후 잡들은 StagedItemReader로 파싱 없이 읽을 수 있다.
+    파일 형식은 StagingFileHeader를 참고한다.
+
+    완료 표시
+        스텝 리스너(afterStep)로 스텝이 COMPLETED로 끝났는지 확인하고, close()에서 레코드 수와 COMPLETE 플래그를 헤더에 기록한다.
+        스텝 빌더는 writer가 StepExecutionListener를 구현하면 자동으로 리스너로 등록한다.
+        실패한 스텝이 남긴 파일은 COMPLETE 플래그가 없으므로 StagedItemReader가 읽지 않는다.
+
+    재시작
+        update()에서 지금까지 쓴 내용을 force()한 뒤 바이트 위치와 레코드 수를 저장하고,
+        재시작 시 저장된 위치 뒤에 쓰인(커밋되지 않은 청크의) 내용을 잘라내고 이어서 쓴다.
+        FlatFileItemWriter처럼 트랜잭션에 맞춰 쓰기를 미루지 않으므로 청크 재시도/스킵(faultTolerant)이 없는 스텝에서 사용한다.
+*/
+@Slf4j
+public class StagedItemWriter<T> extends ItemStreamSupport implements ItemStreamWriter<T>, StepExecutionListener {
+    private static final String POSITION = "position";
+    private static final String WRITE_COUNT = "write.count";
+
+    private Resource resource;
+    private Resource sourceResource;
+    private StagingCodec<T> codec;
+    private boolean saveState = true;
+
+    private final StagingOutput output = new StagingOutput();
+    private final ByteBuffer lengths = ByteBuffer.allocate(Integer.BYTES);
+    private FileChannel channel;
+    private long position;
+    private long writeCount;
+    private boolean completed;
+
+    public void setResource(Resource resource) {
+        this.resource = resource;
+    }
+
+    //지정하면 원본 파일의 지문을 헤더에 기록해서 StagedItemReader가 오래된 스테이징 파일을 거부할 수 있게 한다.
+    public void setSourceResource(Resource sourceResource) {
+        this.sourceResource = sourceResource;
+    }
+
+    public void setCodec(StagingCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    public void setSaveState(boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        Assert.notNull(resource, "resource가 필요합니다.");
+        Assert.notNull(codec, "codec이 필요합니다.");
+
+        try {
+            Path path = resource.getFile().toPath();
+            completed = false;
+
+            if(saveState && executionContext.containsKey(getExecutionContextKey(POSITION))) {
+                position = executionContext.getLong(getExecutionContextKey(POSITION));
+                writeCount = executionContext.getLong(getExecutionContextKey(WRITE_COUNT));
+                channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+                StagingFileHeader header = StagingFileHeader.read(channel);
+                if(!header.schema().equals(codec.schema())) {
+                    throw new ItemStreamException("재시작할 스테이징 파일의 스키마가 다릅니다: " + resource.getDescription());
+                }
+                channel.truncate(position);
+                channel.position(position);
+                StagingFileHeader.finish(channel, writeCount, false);
+                log.info("스테이징 파일 재시작: position={}, write.count={}", position, writeCount);
+                return;
+            }
+
+            if(path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            StagingFileHeader header = StagingFileHeader.create(codec.schema(), sourceFingerprint());
+            header.write(channel);
+            position = header.dataStart();
+            channel.position(position);
+            writeCount = 0;
+        } catch (IOException e) {
+            throw new ItemStreamException("스테이징 파일을 열 수 없습니다: " + resource.getDescription(), e);
+        }
+    }
+
+    private FileFingerprint sourceFingerprint() throws IOException {
+        if(sourceResource == null) {
+            return new FileFingerprint(0, 0, 0, 0, 0);
+        }
+        Path source = sourceResource.getFile().toPath();
+        try(FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ)) {
+            return FileFingerprint.of(sourceChannel, Files.getLastModifiedTime(source).toMillis(), sourceChannel.size());
+        }
+    }
+
+    @Override
+    public void write(Chunk<? extends T> chunk) throws Exception {
+        for(T item : chunk) {
+            output.reset();
+            codec.encode(item, output);
+            ByteBuffer record = output.buffer().flip();
+
+            lengths.clear();
+            lengths.putInt(record.remaining()).flip();
+            ByteBuffer[] buffers = {lengths, record};
+            while(lengths.hasRemaining() || record.hasRemaining()) {
+                position += channel.write(buffers);
+            }
+            writeCount++;
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if(saveState && channel != null) {
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw new ItemStreamException("스테이징 파일을 디스크에 기록할 수 없습니다.", e);
+            }
+            executionContext.putLong(getExecutionContextKey(POSITION), position);
+            executionContext.putLong(getExecutionContextKey(WRITE_COUNT), writeCount);
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        completed = stepExecution.getStatus() == BatchStatus.COMPLETED;
+        return null;
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if(channel == null) {
+            return;
+        }
+        try {
+            StagingFileHeader.finish(channel, writeCount, completed);
+            channel.force(true);
+            if(completed) {
+                log.info("스테이징 완료: {} (레코드 {}건, {}바이트)", resource.getDescription(), writeCount, position);
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("스테이징 파일 헤더를 기록할 수 없습니다.", e);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("스테이징 파일을 닫는 중 오류가 발생했습니다.", e);
+            }
+            channel = null;
+        }
+    }
+}
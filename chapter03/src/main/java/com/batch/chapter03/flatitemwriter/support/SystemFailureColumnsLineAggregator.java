@@ -0,0 +1,64 @@
+package com.batch.chapter03.flatitemwriter.support;
+
+import com.batch.chapter03.flatitemreader.support.SystemFailureColumns;
+import org.springframework.batch.item.file.transform.LineAggregator;
+
+/*
+SystemFailureColumns 블록 하나를 여러 라인으로 만드는 LineAggregator
+    FlatFileItemWriter는 아이템마다 aggregate() 결과 뒤에 lineSeparator를 붙이므로 블록의 행 사이에만 같은 lineSeparator를 넣는다.
+    필드 순서와 형식은 DelimitedLineAggregator + BeanWrapperFieldExtractor(errorId, errorDateTime, severity, processId, errorMessage)와 같다. (null은 빈 문자열)
+
+    행마다 객체를 만들지 않고 컬럼 배열에서 바로 StringBuilder에 쓴다.
+    문자열 컬럼은 아레나의 바이트가 모두 ASCII이면 String을 만들지 않고 문자로 바로 옮기고, severity는 사전의 정규 String을 쓴다.
+    빈 블록은 빈 라인이 되므로 프로세서에서 행을 모두 걸러냈다면 null을 반환해 블록 자체를 걸러야 한다.
+*/
+public class SystemFailureColumnsLineAggregator implements LineAggregator<SystemFailureColumns> {
+    private final String delimiter;
+    private final String lineSeparator;
+
+    public SystemFailureColumnsLineAggregator() {
+        this(",", System.lineSeparator());
+    }
+
+    public SystemFailureColumnsLineAggregator(String delimiter, String lineSeparator) {
+        this.delimiter = delimiter;
+        this.lineSeparator = lineSeparator;
+    }
+
+    @Override
+    public String aggregate(SystemFailureColumns columns) {
+        StringBuilder builder = new StringBuilder(columns.size() * 64);
+        for(int row = 0; row < columns.size(); row++) {
+            if(row > 0) {
+                builder.append(lineSeparator);
+            }
+            appendText(builder, columns, row, 0).append(delimiter);
+            appendText(builder, columns, row, 1).append(delimiter);
+
+            builder.append(columns.severity(row)).append(delimiter);
+
+            if(!columns.isProcessIdNull(row)) {
+                builder.append(columns.processId(row));
+            }
+            builder.append(delimiter);
+
+            appendText(builder, columns, row, 2);
+        }
+        return builder.toString();
+    }
+
+    private StringBuilder appendText(StringBuilder builder, SystemFailureColumns columns, int row, int column) {
+        byte[] arena = columns.arena();
+        int start = columns.textStart(row, column);
+        int end = columns.textEnd(row, column);
+        for(int i = start; i < end; i++) {
+            if(arena[i] < 0) {
+                return builder.append(new String(arena, start, end - start, columns.getCharset()));
+            }
+        }
+        for(int i = start; i < end; i++) {
+            builder.append((char) arena[i]);
+        }
+        return builder;
+    }
+}
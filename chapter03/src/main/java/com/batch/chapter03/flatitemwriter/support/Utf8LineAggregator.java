@@ -0,0 +1,175 @@
+package com.batch.chapter03.flatitemwriter.support;
+
+import org.springframework.batch.item.file.transform.ExtractorLineAggregator;
+import org.springframework.batch.item.file.transform.FieldExtractor;
+import org.springframework.util.Assert;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Formattable;
+import java.util.IllegalFormatConversionException;
+import java.util.List;
+import java.util.MissingFormatArgumentException;
+
+/*
+필드를 재사용하는 UTF-8 바이트 버퍼에 바로 인코딩하는 ByteLineAggregator
+    DelimitedLineAggregator/FormatterLineAggregator는 필드마다 String을 만들고 라인 String으로 이어붙인 뒤
+    writer의 Writer/CharsetEncoder에서 다시 바이트로 인코딩하므로 한글이 많은 라인은 문자가 여러 번 복사된다.
+    이 aggregator는 구분자와 포맷의 리터럴("에러ID: ", " | " 등)을 설정할 때 한 번만 UTF-8로 인코딩해 두고,
+    아이템마다 리터럴 바이트와 필드를 Utf8LineBuffer에 차례로 붙인다. (문자열 필드는 ASCII 빠른 경로, 정수 필드는 자릿수를 바로 붙인다)
+
+    setDelimiter(): DelimitedLineAggregator와 같은 형식 (기본값 쉼표)
+    setFormat(): 너비/플래그가 없는 %s, %d와 %%, %n만 지원한다. 그 밖의 지정자는 CompiledFormatLineAggregator를 사용한다.
+        %d는 Integer/Long/Short/Byte/BigInteger만 받고, 그 밖의 값은 String.format()과 같이 IllegalFormatConversionException을 던진다.
+        숫자는 로케일과 관계없이 ASCII 숫자로 쓴다.
+
+    null 필드는 ExtractorLineAggregator와 같이 빈 문자열로 쓴다.
+    버퍼를 재사용하므로 한 writer(한 스레드)에서만 사용해야 한다.
+*/
+public class Utf8LineAggregator<T> extends ExtractorLineAggregator<T> implements ByteLineAggregator<T> {
+    private FieldExtractor<T> fieldExtractor;
+    private String delimiter = ",";
+    private String format;
+
+    private boolean compiled;
+    private byte[] delimiterBytes;
+    private Segment[] segments;
+    private final Utf8LineBuffer buffer = new Utf8LineBuffer();
+
+    @Override
+    public void setFieldExtractor(FieldExtractor<T> fieldExtractor) {
+        super.setFieldExtractor(fieldExtractor);
+        this.fieldExtractor = fieldExtractor;
+    }
+
+    public void setDelimiter(String delimiter) {
+        this.delimiter = delimiter;
+        this.format = null;
+        this.compiled = false;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+        this.compiled = false;
+    }
+
+    @Override
+    public void aggregate(T item, Utf8LineBuffer line) {
+        Assert.notNull(item, "Item is required");
+        Assert.notNull(fieldExtractor, "fieldExtractor가 필요합니다.");
+        append(fieldExtractor.extract(item), line);
+    }
+
+    @Override
+    protected String doAggregate(Object[] fields) {
+        buffer.clear();
+        append(fields, buffer);
+        return buffer.toString();
+    }
+
+    private void append(Object[] fields, Utf8LineBuffer line) {
+        if(!compiled) {
+            compile();
+        }
+
+        if(segments == null) {
+            for(int i = 0; i < fields.length; i++) {
+                if(i > 0) {
+                    line.append(delimiterBytes);
+                }
+                appendString(fields[i], line);
+            }
+            return;
+        }
+        for(Segment segment : segments) {
+            segment.append(fields, line);
+        }
+    }
+
+    //리터럴을 한 번만 UTF-8로 인코딩해 둔다. delimited 형식이면 segments는 null이다.
+    private void compile() {
+        if(format != null) {
+            segments = compileFormat(format);
+        } else {
+            delimiterBytes = Utf8LineBuffer.encode(delimiter);
+            segments = null;
+        }
+        compiled = true;
+    }
+
+    private static Segment[] compileFormat(String format) {
+        List<Segment> parts = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int index = 0;
+        for(int i = 0; i < format.length(); i++) {
+            char c = format.charAt(i);
+            if(c != '%') {
+                literal.append(c);
+                continue;
+            }
+            Assert.isTrue(i + 1 < format.length(), () -> "포맷 문자열이 %로 끝납니다: " + format);
+            char conversion = format.charAt(++i);
+            switch(conversion) {
+                case '%' -> literal.append('%');
+                case 'n' -> literal.append(System.lineSeparator());
+                case 's', 'd' -> {
+                    if(!literal.isEmpty()) {
+                        byte[] bytes = Utf8LineBuffer.encode(literal.toString());
+                        parts.add((fields, line) -> line.append(bytes));
+                        literal.setLength(0);
+                    }
+                    int fieldIndex = index++;
+                    String specifier = "%" + conversion;
+                    parts.add(conversion == 's'
+                            ? (fields, line) -> appendString(argument(fields, fieldIndex, specifier), line)
+                            : (fields, line) -> appendInteger(argument(fields, fieldIndex, specifier), line));
+                }
+                default -> throw new IllegalArgumentException("지원하지 않는 포맷 지정자입니다: %" + conversion
+                        + " (너비/플래그가 없는 %s, %d, %%, %n만 지원합니다. 그 밖의 포맷은 CompiledFormatLineAggregator를 사용하세요)");
+            }
+        }
+        if(!literal.isEmpty()) {
+            byte[] bytes = Utf8LineBuffer.encode(literal.toString());
+            parts.add((fields, line) -> line.append(bytes));
+        }
+        return parts.toArray(new Segment[0]);
+    }
+
+    private static Object argument(Object[] fields, int index, String specifier) {
+        if(index >= fields.length) {
+            throw new MissingFormatArgumentException(specifier);
+        }
+        return fields[index];
+    }
+
+    private static void appendString(Object value, Utf8LineBuffer line) {
+        if(value == null) {
+            return;
+        }
+        if(value instanceof CharSequence chars) {
+            line.appendUtf8(chars);
+        } else if(value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            line.appendLong(((Number) value).longValue());
+        } else if(value instanceof Formattable) {
+            line.appendUtf8(String.format("%s", value));
+        } else {
+            line.appendUtf8(String.valueOf(value));
+        }
+    }
+
+    private static void appendInteger(Object value, Utf8LineBuffer line) {
+        if(value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            line.appendLong(((Number) value).longValue());
+        } else if(value instanceof BigInteger number) {
+            line.appendUtf8(number.toString());
+        } else {
+            //ExtractorLineAggregator라면 null은 ""가 되어 String.format()에서 같은 예외가 난다.
+            throw new IllegalFormatConversionException('d', value != null ? value.getClass() : String.class);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Segment {
+        void append(Object[] fields, Utf8LineBuffer line);
+    }
+}
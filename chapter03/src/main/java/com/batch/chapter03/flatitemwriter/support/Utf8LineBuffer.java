@@ -0,0 +1,145 @@
+package com.batch.chapter03.flatitemwriter.support;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+라인 하나를 UTF-8 바이트로 모으는 재사용 버퍼
+    String.getBytes()나 CharsetEncoder를 거치지 않고 문자를 바로 UTF-8 바이트로 바꿔 붙인다.
+    appendUtf8()은 ASCII 문자가 이어지는 동안 char를 byte로 그대로 복사하고(ASCII 빠른 경로),
+    한글처럼 ASCII가 아닌 문자를 만나면 그 자리부터 직접 2~4바이트로 인코딩한다.
+    짝이 맞지 않는 서로게이트는 CharsetEncoder의 REPLACE와 같이 '?'로 바꾼다.
+
+    정수는 String을 만들지 않고 자릿수를 바로 붙인다.
+    리터럴(구분자, 라벨, 라인 구분자)은 encode()로 미리 바이트 배열로 만들어 append(byte[])로 붙인다.
+*/
+public final class Utf8LineBuffer {
+    private static final byte[] LONG_MIN_VALUE = encode(String.valueOf(Long.MIN_VALUE));
+
+    private byte[] bytes;
+    private int length;
+
+    public Utf8LineBuffer() {
+        this(256);
+    }
+
+    public Utf8LineBuffer(int capacity) {
+        this.bytes = new byte[capacity];
+    }
+
+    public static byte[] encode(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public byte[] array() {
+        return bytes;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public void clear() {
+        length = 0;
+    }
+
+    public Utf8LineBuffer append(byte[] literal) {
+        ensureCapacity(literal.length);
+        System.arraycopy(literal, 0, bytes, length, literal.length);
+        length += literal.length;
+        return this;
+    }
+
+    public Utf8LineBuffer appendUtf8(CharSequence chars) {
+        int count = chars.length();
+        //ASCII만 있으면 count 바이트, 그렇지 않으면 문자당 최대 3바이트 (서로게이트 쌍은 2문자에 4바이트)
+        ensureCapacity(count);
+        int i = 0;
+        int position = length;
+        byte[] out = bytes;
+        for(; i < count; i++) {
+            char c = chars.charAt(i);
+            if(c >= 0x80) {
+                break;
+            }
+            out[position++] = (byte) c;
+        }
+        length = position;
+        if(i < count) {
+            appendNonAscii(chars, i, count);
+        }
+        return this;
+    }
+
+    private void appendNonAscii(CharSequence chars, int from, int count) {
+        ensureCapacity((count - from) * 3);
+        byte[] out = bytes;
+        int position = length;
+        for(int i = from; i < count; i++) {
+            char c = chars.charAt(i);
+            if(c < 0x80) {
+                out[position++] = (byte) c;
+            } else if(c < 0x800) {
+                out[position++] = (byte) (0xc0 | c >> 6);
+                out[position++] = (byte) (0x80 | c & 0x3f);
+            } else if(Character.isSurrogate(c)) {
+                if(Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+                    out[position++] = (byte) (0xf0 | codePoint >> 18);
+                    out[position++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                    out[position++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                    out[position++] = (byte) (0x80 | codePoint & 0x3f);
+                } else {
+                    out[position++] = '?';
+                }
+            } else {
+                out[position++] = (byte) (0xe0 | c >> 12);
+                out[position++] = (byte) (0x80 | c >> 6 & 0x3f);
+                out[position++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        length = position;
+    }
+
+    public Utf8LineBuffer appendLong(long value) {
+        if(value == Long.MIN_VALUE) {
+            return append(LONG_MIN_VALUE);
+        }
+        ensureCapacity(20);
+        if(value < 0) {
+            bytes[length++] = '-';
+            value = -value;
+        }
+        int start = length;
+        do {
+            bytes[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while(value != 0);
+        //낮은 자리부터 붙였으므로 뒤집는다.
+        for(int i = start, j = length - 1; i < j; i++, j--) {
+            byte digit = bytes[i];
+            bytes[i] = bytes[j];
+            bytes[j] = digit;
+        }
+        return this;
+    }
+
+    //dst에 들어가는 만큼 offset부터 옮기고 옮긴 바이트 수를 반환한다.
+    public int copyTo(int offset, ByteBuffer dst) {
+        int count = Math.min(length - offset, dst.remaining());
+        dst.put(bytes, offset, count);
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void ensureCapacity(int additional) {
+        if(bytes.length - length < additional) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + additional));
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.batch.chapter03.flatitemwriter.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.file.FlatFileFooterCallback;
+import org.springframework.batch.item.file.FlatFileHeaderCallback;
+import org.springframework.batch.item.file.transform.LineAggregator;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+라인 인코딩(스텝 스레드)과 파일 쓰기(전용 I/O 스레드)를 겹쳐서 진행하는 write-behind ItemWriter
+    FlatFileItemWriter는 스텝 스레드가 청크 전체를 문자열로 만든 뒤 직접 write()하므로 디스크가 느리면 스텝 스레드가 그만큼 멈춰 있다.
+    이 writer는 청크의 라인을 blockSize 바이트 블록에 인코딩하다가 블록이 차면 I/O 스레드에 넘기고 곧바로 다음 블록을 채운다.
+    write()는 마지막 블록을 넘긴 뒤 쓰기 완료를 기다리지 않고 반환한다.
+
+    커밋 경계
+        update()는 넘긴 블록의 쓰기(Future)가 모두 끝난 뒤에야 위치를 저장한다.
+        update()는 청크 트랜잭션이 커밋되기 직전에 호출되므로, 커밋된 ExecutionContext의 position은 항상 실제로 파일에 쓰인 바이트까지만 가리킨다.
+        그래서 재시작은 ChannelFlatFileItemWriter와 같이 position 뒤를 잘라내고 이어서 쓰면 정확하다.
+        (기다리지 않고 커밋하면 I/O 스레드가 쓰기 전에 프로세스가 죽었을 때 커밋된 청크가 파일에서 사라진다)
+
+    스텝 스레드는 청크 사이에서 I/O를 기다리지만, 리더를 AsyncReadAheadItemReader로 감싸면 그 사이에 다음 청크의 읽기가 리더의 I/O 스레드에서 진행된다.
+    결과적으로 청크 N의 쓰기, 청크 N+1의 읽기, 블록 인코딩이 서로 다른 스레드에서 겹친다.
+
+    I/O 스레드에 넘긴 블록은 bufferCount개까지다. 모두 쓰는 중이면 블록이 반환될 때까지 스텝 스레드가 기다리므로 메모리 사용량이 bufferCount * blockSize로 묶인다.
+    write() 중 예외가 나면 아직 쓰는 중인 블록을 기다린 뒤 파일을 마지막 커밋 위치로 잘라내고 예외를 다시 던진다.
+*/
+@Slf4j
+public class WriteBehindFlatFileItemWriter<T> extends ItemStreamSupport implements ItemStreamWriter<T> {
+    private static final String POSITION = "position";
+    private static final String WRITTEN = "written";
+
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    private Resource resource;
+    private LineAggregator<T> lineAggregator;
+    private Charset charset = StandardCharsets.UTF_8;
+    private String lineSeparator = System.lineSeparator();
+    private FlatFileHeaderCallback headerCallback;
+    private FlatFileFooterCallback footerCallback;
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+    private int bufferCount = 4;
+    private boolean forceSync = false;
+    private boolean saveState = true;
+
+    private byte[] separatorBytes;
+    private ExecutorService ioThread;
+    private BlockingQueue<byte[]> freeBlocks;
+    private FileChannel channel;
+    //I/O 스레드에 넘긴 블록까지 포함한 다음 쓰기 위치
+    private long position;
+    private long written;
+    //마지막으로 update()가 저장한 위치
+    private long committedPosition;
+    private long committedWritten;
+    private byte[] block;
+    private int blockLength;
+    private final List<Future<?>> pending = new ArrayList<>();
+
+    public void setResource(Resource resource) {
+        this.resource = resource;
+    }
+
+    public void setLineAggregator(LineAggregator<T> lineAggregator) {
+        this.lineAggregator = lineAggregator;
+    }
+
+    public void setEncoding(String encoding) {
+        this.charset = Charset.forName(encoding);
+    }
+
+    public void setLineSeparator(String lineSeparator) {
+        this.lineSeparator = lineSeparator;
+    }
+
+    public void setHeaderCallback(FlatFileHeaderCallback headerCallback) {
+        this.headerCallback = headerCallback;
+    }
+
+    public void setFooterCallback(FlatFileFooterCallback footerCallback) {
+        this.footerCallback = footerCallback;
+    }
+
+    //I/O 스레드에 한 번에 넘길 바이트 수. 라인 경계에서 자르므로 실제 블록은 조금 더 클 수 있다.
+    public void setBlockSize(int blockSize) {
+        Assert.isTrue(blockSize > 0, "blockSize는 0보다 커야 합니다.");
+        this.blockSize = blockSize;
+    }
+
+    //I/O 스레드에 동시에 넘길 수 있는 블록 수
+    public void setBufferCount(int bufferCount) {
+        Assert.isTrue(bufferCount > 0, "bufferCount는 0보다 커야 합니다.");
+        this.bufferCount = bufferCount;
+    }
+
+    //true면 update()에서 쓰기 완료를 기다린 뒤 force()까지 하고 커밋한다.
+    public void setForceSync(boolean forceSync) {
+        this.forceSync = forceSync;
+    }
+
+    public void setSaveState(boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        Assert.notNull(resource, "resource가 필요합니다.");
+        Assert.notNull(lineAggregator, "lineAggregator가 필요합니다.");
+
+        separatorBytes = lineSeparator.getBytes(charset);
+        freeBlocks = new ArrayBlockingQueue<>(bufferCount + 1);
+        for(int i = 0; i < bufferCount; i++) {
+            freeBlocks.add(new byte[blockSize + 1024]);
+        }
+        block = new byte[blockSize + 1024];
+        blockLength = 0;
+        ioThread = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, getClass().getSimpleName() + "-" + getExecutionContextKey("io"));
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            Path path = resource.getFile().toPath();
+            if(saveState && executionContext.containsKey(getExecutionContextKey(POSITION))) {
+                position = executionContext.getLong(getExecutionContextKey(POSITION));
+                written = executionContext.getLong(getExecutionContextKey(WRITTEN));
+                channel = FileChannel.open(path, StandardOpenOption.WRITE);
+                if(channel.size() < position) {
+                    throw new ItemStreamException("파일 크기(" + channel.size() + ")가 마지막 커밋 위치(" + position + ")보다 작습니다: " + resource.getDescription());
+                }
+                channel.truncate(position);
+                committedPosition = position;
+                committedWritten = written;
+                log.info("{} 바이트 위치부터 이어서 씁니다. (written={})", position, written);
+                return;
+            }
+
+            if(path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            position = 0;
+            written = 0;
+
+            if(headerCallback != null) {
+                StringWriter header = new StringWriter();
+                headerCallback.writeHeader(header);
+                writeText(header);
+            }
+            committedPosition = position;
+            committedWritten = written;
+        } catch (IOException e) {
+            throw new ItemStreamException("출력 파일을 열 수 없습니다: " + resource.getDescription(), e);
+        }
+    }
+
+    @Override
+    public void write(Chunk<? extends T> chunk) throws Exception {
+        try {
+            for(T item : chunk) {
+                append(lineAggregator.aggregate(item).getBytes(charset));
+                append(separatorBytes);
+                if(blockLength >= blockSize) {
+                    submitBlock();
+                }
+            }
+            submitBlock();
+        } catch (Exception e) {
+            rollback();
+            throw e;
+        }
+        written += chunk.size();
+    }
+
+    private void append(byte[] bytes) {
+        if(block.length < blockLength + bytes.length) {
+            block = Arrays.copyOf(block, Math.max(blockLength + bytes.length, block.length * 2));
+        }
+        System.arraycopy(bytes, 0, block, blockLength, bytes.length);
+        blockLength += bytes.length;
+    }
+
+    //채운 블록을 I/O 스레드에 넘기고, 쓰기가 끝나 반환된 블록을 받아 다음 블록으로 쓴다.
+    private void submitBlock() throws InterruptedException {
+        if(blockLength == 0) {
+            return;
+        }
+        byte[] data = block;
+        int length = blockLength;
+        long offset = position;
+        pending.add(ioThread.submit(() -> {
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+                while(buffer.hasRemaining()) {
+                    channel.write(buffer, offset + buffer.position());
+                }
+                return null;
+            } finally {
+                freeBlocks.offer(data);
+            }
+        }));
+        position += length;
+
+        block = freeBlocks.take();
+        blockLength = 0;
+    }
+
+    //I/O 스레드에 넘긴 블록이 모두 파일에 쓰일 때까지 기다린다.
+    private void awaitPending() throws InterruptedException {
+        try {
+            for(Future<?> write : pending) {
+                write.get();
+            }
+        } catch (ExecutionException e) {
+            throw new ItemStreamException("출력 파일에 쓸 수 없습니다: " + resource.getDescription(), e.getCause());
+        } finally {
+            pending.clear();
+        }
+    }
+
+    //커밋되지 않은 청크가 쓴 내용을 지우고 마지막 커밋 위치로 되돌린다.
+    private void rollback() {
+        try {
+            awaitPending();
+        } catch (Exception e) {
+            log.debug("되돌리는 중 쓰기 오류를 무시합니다.", e);
+        }
+        blockLength = 0;
+        position = committedPosition;
+        written = committedWritten;
+        try {
+            channel.truncate(committedPosition);
+        } catch (IOException e) {
+            throw new ItemStreamException("출력 파일을 마지막 커밋 위치로 되돌릴 수 없습니다: " + resource.getDescription(), e);
+        }
+    }
+
+    private void writeText(StringWriter text) {
+        if(text.getBuffer().length() == 0) {
+            return;
+        }
+        append(text.toString().getBytes(charset));
+        append(separatorBytes);
+        try {
+            submitBlock();
+            awaitPending();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ItemStreamException("쓰기가 중단되었습니다.", e);
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if(channel == null) {
+            return;
+        }
+        try {
+            awaitPending();
+            if(forceSync) {
+                channel.force(false);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ItemStreamException("쓰기 완료를 기다리는 중 중단되었습니다.", e);
+        } catch (IOException e) {
+            throw new ItemStreamException("출력 파일을 디스크에 기록할 수 없습니다: " + resource.getDescription(), e);
+        }
+        committedPosition = position;
+        committedWritten = written;
+        if(saveState) {
+            executionContext.putLong(getExecutionContextKey(POSITION), position);
+            executionContext.putLong(getExecutionContextKey(WRITTEN), written);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if(channel == null) {
+            return;
+        }
+        try {
+            awaitPending();
+            if(footerCallback != null) {
+                StringWriter footer = new StringWriter();
+                footerCallback.writeFooter(footer);
+                writeText(footer);
+            }
+            channel.force(false);
+            log.info("{} 라인, {} 바이트를 썼습니다: {}", written, position, resource.getDescription());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ItemStreamException("쓰기 완료를 기다리는 중 중단되었습니다.", e);
+        } catch (IOException e) {
+            throw new ItemStreamException("출력 파일을 마무리할 수 없습니다: " + resource.getDescription(), e);
+        } finally {
+            ioThread.shutdownNow();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("출력 파일을 닫는 중 오류가 발생했습니다.", e);
+            }
+            channel = null;
+            block = null;
+            pending.clear();
+        }
+    }
+}
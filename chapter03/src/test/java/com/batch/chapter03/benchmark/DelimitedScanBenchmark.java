@@ -0,0 +1,122 @@
+package com.batch.chapter03.benchmark;
+
+import com.batch.chapter03.flatitemreader.support.DelimitedBlockTokenizer;
+import com.batch.chapter03.flatitemreader.support.DelimitedCursorTokenizer;
+import com.batch.chapter03.flatitemreader.support.FieldCursor;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/*
+SystemFailure 형식의 CSV 버퍼 전체(2000 레코드)를 토큰화하는 시간 비교
+    narrow: SystemFailure 5개 컬럼
+    wide: SystemFailure 5개 컬럼 + 지표 컬럼 35개 (일부는 쉼표가 든 따옴표 필드)
+
+    bufferedReaderLineTokenizer: FlatFileItemReader 경로 (BufferedReader.readLine() + DelimitedLineTokenizer)
+    scalarCursorTokenizer: MappedLineItemReader의 이전 경로 (한 바이트씩 개행 검색 + 라인 복사 + DelimitedCursorTokenizer)
+    swarBlockTokenizer: SwarDelimitedItemReader 경로 (DelimitedBlockTokenizer.scan()으로 오프셋 테이블을 만든 뒤 레코드마다 nextRecord())
+
+    ./gradlew jmh --args='DelimitedScanBenchmark -prof gc'
+    반환값은 필드 수의 합이며 결과가 JIT에 의해 제거되지 않게 하기 위한 것이다.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DelimitedScanBenchmark {
+    private static final int RECORDS = 2000;
+    private static final String[] SEVERITIES = {"CRITICAL", "FATAL", "HIGH", "LOW"};
+
+    @Param({"narrow", "wide"})
+    public String shape;
+
+    private byte[] data;
+    private int fieldCount;
+
+    private DelimitedLineTokenizer lineTokenizer;
+    private DelimitedCursorTokenizer cursorTokenizer;
+    private DelimitedBlockTokenizer blockTokenizer;
+    private final FieldCursor cursor = new FieldCursor();
+    private byte[] lineBuffer = new byte[1024];
+
+    @Setup
+    public void setUp() {
+        fieldCount = "wide".equals(shape) ? 40 : 5;
+        StringBuilder csv = new StringBuilder();
+        for(int i = 0; i < RECORDS; i++) {
+            csv.append("ERR").append(i).append(",2025-01-01 08:01:02,").append(SEVERITIES[i % SEVERITIES.length])
+                    .append(',').append(1000 + i).append(",SYSTEM_CRASH");
+            for(int c = 5; c < fieldCount; c++) {
+                csv.append(',');
+                if(c % 10 == 0) {
+                    csv.append("\"host-").append(c).append(", rack ").append(i % 8).append('"');
+                } else {
+                    csv.append(i * c % 10007);
+                }
+            }
+            csv.append('\n');
+        }
+        data = csv.toString().getBytes(StandardCharsets.UTF_8);
+
+        lineTokenizer = new DelimitedLineTokenizer(",");
+        cursorTokenizer = new DelimitedCursorTokenizer(',', fieldCount);
+        blockTokenizer = new DelimitedBlockTokenizer(',', fieldCount);
+    }
+
+    @Benchmark
+    public int bufferedReaderLineTokenizer() throws IOException {
+        int fields = 0;
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8))) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                fields += lineTokenizer.tokenize(line).getFieldCount();
+            }
+        }
+        return fields;
+    }
+
+    @Benchmark
+    public int scalarCursorTokenizer() {
+        int fields = 0;
+        int position = 0;
+        while(position < data.length) {
+            int newline = position;
+            while(newline < data.length && data[newline] != '\n') {
+                newline++;
+            }
+            int length = newline - position;
+            if(lineBuffer.length < length) {
+                lineBuffer = Arrays.copyOf(lineBuffer, Math.max(length, lineBuffer.length * 2));
+            }
+            System.arraycopy(data, position, lineBuffer, 0, length);
+
+            cursor.reset(lineBuffer, length);
+            cursorTokenizer.tokenize(lineBuffer, length, cursor);
+            fields += cursor.getFieldCount();
+            position = newline + 1;
+        }
+        return fields;
+    }
+
+    @Benchmark
+    public int swarBlockTokenizer() {
+        int fields = 0;
+        int position = 0;
+        blockTokenizer.scan(data, 0, data.length);
+        while(position < data.length) {
+            cursor.reset(data, data.length);
+            position = blockTokenizer.nextRecord(position, cursor, true);
+            fields += cursor.getFieldCount();
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,70 @@
+package com.batch.chapter03.benchmark;
+
+import com.batch.chapter03.flatitemwriter.DelimiterFlatItemWriterConfig;
+import com.batch.chapter03.flatitemwriter.RecordFlatItemWriterConfig;
+import com.batch.chapter03.flatitemwriter.support.CompiledFieldExtractorFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.batch.item.file.transform.BeanWrapperFieldExtractor;
+import org.springframework.batch.item.file.transform.FieldExtractor;
+import org.springframework.batch.item.file.transform.RecordFieldExtractor;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+아이템 하나에서 필드 값을 꺼낼 때의 시간과 할당량 비교
+    beanWrapperFieldExtractor / compiledBeanFieldExtractor: 일반 클래스(DelimiterFlatItemWriterConfig.SystemFailure)
+    recordFieldExtractor / compiledRecordFieldExtractor: record(RecordFlatItemWriterConfig.SystemFailure)
+
+    ./gradlew jmh --args='FieldExtractorBenchmark -prof gc'
+    결과의 gc.alloc.rate.norm 값이 아이템 하나당 할당된 바이트 수다.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldExtractorBenchmark {
+    private static final String[] NAMES = {"errorId", "errorDateTime", "severity", "processId", "errorMessage"};
+
+    private final DelimiterFlatItemWriterConfig.SystemFailure bean = new DelimiterFlatItemWriterConfig.SystemFailure(
+            "ERR001", "2025-01-01 08:01:02", "CRITICAL", 1234, "SYSTEM_CRASH");
+    private final RecordFlatItemWriterConfig.SystemFailure record = new RecordFlatItemWriterConfig.SystemFailure(
+            "ERR001", "2025-01-01 08:01:02", "CRITICAL", 1234, "SYSTEM_CRASH");
+
+    private BeanWrapperFieldExtractor<DelimiterFlatItemWriterConfig.SystemFailure> beanWrapperFieldExtractor;
+    private FieldExtractor<DelimiterFlatItemWriterConfig.SystemFailure> compiledBeanFieldExtractor;
+    private RecordFieldExtractor<RecordFlatItemWriterConfig.SystemFailure> recordFieldExtractor;
+    private FieldExtractor<RecordFlatItemWriterConfig.SystemFailure> compiledRecordFieldExtractor;
+
+    @Setup
+    public void setUp() {
+        beanWrapperFieldExtractor = new BeanWrapperFieldExtractor<>();
+        beanWrapperFieldExtractor.setNames(NAMES);
+        compiledBeanFieldExtractor = CompiledFieldExtractorFactory.create(DelimiterFlatItemWriterConfig.SystemFailure.class, NAMES);
+
+        recordFieldExtractor = new RecordFieldExtractor<>(RecordFlatItemWriterConfig.SystemFailure.class);
+        recordFieldExtractor.setNames(NAMES);
+        compiledRecordFieldExtractor = CompiledFieldExtractorFactory.create(RecordFlatItemWriterConfig.SystemFailure.class, NAMES);
+    }
+
+    @Benchmark
+    public Object[] beanWrapperFieldExtractor() {
+        return beanWrapperFieldExtractor.extract(bean);
+    }
+
+    @Benchmark
+    public Object[] compiledBeanFieldExtractor() {
+        return compiledBeanFieldExtractor.extract(bean);
+    }
+
+    @Benchmark
+    public Object[] recordFieldExtractor() {
+        return recordFieldExtractor.extract(record);
+    }
+
+    @Benchmark
+    public Object[] compiledRecordFieldExtractor() {
+        return compiledRecordFieldExtractor.extract(record);
+    }
+}
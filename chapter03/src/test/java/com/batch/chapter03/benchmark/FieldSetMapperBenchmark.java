@@ -0,0 +1,75 @@
+package com.batch.chapter03.benchmark;
+
+import com.batch.chapter03.flatitemreader.DelimiterFlatItemReaderConfig.SystemFailure;
+import com.batch.chapter03.flatitemreader.RecordFlatItemReaderConfig.System;
+import com.batch.chapter03.flatitemreader.support.CompiledFieldSetMapperFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.batch.item.file.mapping.BeanWrapperFieldSetMapper;
+import org.springframework.batch.item.file.mapping.FieldSetMapper;
+import org.springframework.batch.item.file.mapping.RecordFieldSetMapper;
+import org.springframework.batch.item.file.transform.DefaultFieldSet;
+import org.springframework.batch.item.file.transform.FieldSet;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+FieldSet 하나를 객체로 매핑할 때의 시간과 할당량 비교
+    beanWrapperFieldSetMapper / compiledBeanFieldSetMapper: 일반 클래스(SystemFailure)
+    recordFieldSetMapper / compiledRecordFieldSetMapper: record(System)
+
+    ./gradlew jmh --args='FieldSetMapperBenchmark -prof gc'
+    결과의 gc.alloc.rate.norm 값이 아이템 하나당 할당된 바이트 수다.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldSetMapperBenchmark {
+    private FieldSet systemFailureFieldSet;
+    private FieldSet systemFieldSet;
+
+    private BeanWrapperFieldSetMapper<SystemFailure> beanWrapperFieldSetMapper;
+    private FieldSetMapper<SystemFailure> compiledBeanFieldSetMapper;
+    private RecordFieldSetMapper<System> recordFieldSetMapper;
+    private FieldSetMapper<System> compiledRecordFieldSetMapper;
+
+    @Setup
+    public void setUp() throws Exception {
+        systemFailureFieldSet = new DefaultFieldSet(
+                new String[]{"ERR001", "2025-01-01 08:01:02", "CRITICAL", "1234", "SYSTEM_CRASH"},
+                new String[]{"errorId", "errorDateTime", "severity", "processId", "errorMessage"});
+        systemFieldSet = new DefaultFieldSet(
+                new String[]{"java", "85", "RUNNING"},
+                new String[]{"command", "cpu", "status"});
+
+        beanWrapperFieldSetMapper = new BeanWrapperFieldSetMapper<>();
+        beanWrapperFieldSetMapper.setTargetType(SystemFailure.class);
+        beanWrapperFieldSetMapper.afterPropertiesSet();
+        compiledBeanFieldSetMapper = CompiledFieldSetMapperFactory.create(SystemFailure.class);
+
+        recordFieldSetMapper = new RecordFieldSetMapper<>(System.class);
+        compiledRecordFieldSetMapper = CompiledFieldSetMapperFactory.create(System.class);
+    }
+
+    @Benchmark
+    public SystemFailure beanWrapperFieldSetMapper() throws Exception {
+        return beanWrapperFieldSetMapper.mapFieldSet(systemFailureFieldSet);
+    }
+
+    @Benchmark
+    public SystemFailure compiledBeanFieldSetMapper() throws Exception {
+        return compiledBeanFieldSetMapper.mapFieldSet(systemFailureFieldSet);
+    }
+
+    @Benchmark
+    public System recordFieldSetMapper() {
+        return recordFieldSetMapper.mapFieldSet(systemFieldSet);
+    }
+
+    @Benchmark
+    public System compiledRecordFieldSetMapper() throws Exception {
+        return compiledRecordFieldSetMapper.mapFieldSet(systemFieldSet);
+    }
+}
@@ -0,0 +1,75 @@
+package com.batch.chapter03.benchmark;
+
+import com.batch.chapter03.flatitemwriter.support.CompiledFormatLineAggregator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.batch.item.file.transform.DelimitedLineAggregator;
+import org.springframework.batch.item.file.transform.FormatterLineAggregator;
+import org.springframework.batch.item.file.transform.RecordFieldExtractor;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+SystemFailure 한 건을 라인 문자열로 만드는 시간과 할당량 비교
+    formatterLineAggregator: FlatFileItemWriterBuilder.formatted() 경로 (아이템마다 String.format())
+    compiledFormatLineAggregator: 같은 포맷 문자열을 미리 컴파일한 CompiledFormatLineAggregator
+    delimitedLineAggregator: 포맷 없이 쉼표로 이어붙이는 delimited() 경로 (기준값)
+
+    padded는 너비/정렬/그룹 구분 지정자를 쓰는 고정폭 형식이다.
+
+    ./gradlew jmh --args='LineAggregatorBenchmark -prof gc'
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineAggregatorBenchmark {
+    @Param({"plain", "padded"})
+    public String shape;
+
+    private final SystemFailure item = new SystemFailure("ERR001", "2025-01-01 08:01:02", "CRITICAL", 1234567, "SYSTEM_CRASH");
+
+    private FormatterLineAggregator<SystemFailure> formatterLineAggregator;
+    private CompiledFormatLineAggregator<SystemFailure> compiledFormatLineAggregator;
+    private DelimitedLineAggregator<SystemFailure> delimitedLineAggregator;
+
+    @Setup
+    public void setUp() {
+        String format = "padded".equals(shape)
+                ? "%-8s|%19s|%-10s|%,12d|%.20s"
+                : "에러ID: %s | 발생시각: %s | 심각도: %s | 프로세스ID: %d | 에러메시지: %s";
+
+        RecordFieldExtractor<SystemFailure> fieldExtractor = new RecordFieldExtractor<>(SystemFailure.class);
+
+        formatterLineAggregator = new FormatterLineAggregator<>();
+        formatterLineAggregator.setFormat(format);
+        formatterLineAggregator.setFieldExtractor(fieldExtractor);
+
+        compiledFormatLineAggregator = new CompiledFormatLineAggregator<>();
+        compiledFormatLineAggregator.setFormat(format);
+        compiledFormatLineAggregator.setFieldExtractor(fieldExtractor);
+
+        delimitedLineAggregator = new DelimitedLineAggregator<>();
+        delimitedLineAggregator.setFieldExtractor(fieldExtractor);
+    }
+
+    @Benchmark
+    public String formatterLineAggregator() {
+        return formatterLineAggregator.aggregate(item);
+    }
+
+    @Benchmark
+    public String compiledFormatLineAggregator() {
+        return compiledFormatLineAggregator.aggregate(item);
+    }
+
+    @Benchmark
+    public String delimitedLineAggregator() {
+        return delimitedLineAggregator.aggregate(item);
+    }
+
+    public record SystemFailure(String errorId, String errorDateTime, String severity, Integer processId, String errorMessage) {
+
+    }
+}
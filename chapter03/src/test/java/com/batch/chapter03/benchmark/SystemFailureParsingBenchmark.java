@@ -0,0 +1,59 @@
+package com.batch.chapter03.benchmark;
+
+import com.batch.chapter03.flatitemreader.DelimiterFlatItemReaderConfig.SystemFailure;
+import com.batch.chapter03.flatitemreader.DelimiterFlatItemReaderConfig.SystemFailureCursorMapper;
+import com.batch.chapter03.flatitemreader.support.CursorLineMapper;
+import com.batch.chapter03.flatitemreader.support.DelimitedCursorTokenizer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.batch.item.file.mapping.BeanWrapperFieldSetMapper;
+import org.springframework.batch.item.file.mapping.DefaultLineMapper;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/*
+SystemFailure 한 라인을 매핑할 때의 시간과 할당량 비교
+    fieldSetLineMapper: FlatFileItemReader 경로 (라인 String 디코딩 + DelimitedLineTokenizer + BeanWrapperFieldSetMapper)
+    cursorLineMapper: MappedLineItemReader 경로 (DelimitedCursorTokenizer + SystemFailureCursorMapper)
+
+    ./gradlew jmh --args='SystemFailureParsingBenchmark -prof gc'
+    결과의 gc.alloc.rate.norm 값이 아이템 하나당 할당된 바이트 수다.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SystemFailureParsingBenchmark {
+    private static final byte[] LINE = "ERR001,2025-01-01 08:01:02,CRITICAL,1234,SYSTEM_CRASH".getBytes(StandardCharsets.UTF_8);
+
+    private DefaultLineMapper<SystemFailure> fieldSetLineMapper;
+    private CursorLineMapper<SystemFailure> cursorLineMapper;
+
+    @Setup
+    public void setUp() {
+        DelimitedLineTokenizer tokenizer = new DelimitedLineTokenizer(",");
+        tokenizer.setNames("errorId", "errorDateTime", "severity", "processId", "errorMessage");
+
+        BeanWrapperFieldSetMapper<SystemFailure> fieldSetMapper = new BeanWrapperFieldSetMapper<>();
+        fieldSetMapper.setTargetType(SystemFailure.class);
+
+        fieldSetLineMapper = new DefaultLineMapper<>();
+        fieldSetLineMapper.setLineTokenizer(tokenizer);
+        fieldSetLineMapper.setFieldSetMapper(fieldSetMapper);
+
+        cursorLineMapper = new CursorLineMapper<>(new DelimitedCursorTokenizer(',', 5), new SystemFailureCursorMapper());
+    }
+
+    @Benchmark
+    public SystemFailure fieldSetLineMapper() throws Exception {
+        return fieldSetLineMapper.mapLine(new String(LINE, StandardCharsets.UTF_8), 1);
+    }
+
+    @Benchmark
+    public SystemFailure cursorLineMapper() throws Exception {
+        return cursorLineMapper.mapLine(LINE, LINE.length, 1);
+    }
+}
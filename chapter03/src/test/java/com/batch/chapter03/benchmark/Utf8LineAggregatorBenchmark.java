@@ -0,0 +1,97 @@
+package com.batch.chapter03.benchmark;
+
+import com.batch.chapter03.flatitemwriter.support.CompiledFieldExtractorFactory;
+import com.batch.chapter03.flatitemwriter.support.CompiledFormatLineAggregator;
+import com.batch.chapter03.flatitemwriter.support.Utf8LineAggregator;
+import com.batch.chapter03.flatitemwriter.support.Utf8LineBuffer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.batch.item.file.transform.DelimitedLineAggregator;
+import org.springframework.batch.item.file.transform.FieldExtractor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/*
+SystemFailure 한 건을 UTF-8 라인 바이트로 만드는 시간과 할당량 비교 (라인 구분자 포함)
+    delimitedLineAggregator / compiledFormatLineAggregator: 라인 String을 만든 뒤 구분자를 붙여 UTF-8로 인코딩 (writer의 인코딩 단계를 getBytes()로 대신한다)
+    utf8DelimitedLineAggregator / utf8FormatLineAggregator: Utf8LineAggregator가 재사용하는 Utf8LineBuffer에 바로 인코딩
+
+    data
+        ascii: 필드가 모두 ASCII
+        mixed: 심각도와 에러메시지가 한글 (포맷 라벨도 한글이다)
+
+    ./gradlew jmh --args='Utf8LineAggregatorBenchmark -prof gc'
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Utf8LineAggregatorBenchmark {
+    private static final String FORMAT = "에러ID: %s | 발생시각: %s | 심각도: %s | 프로세스ID: %d | 에러메시지: %s";
+    private static final String LINE_SEPARATOR = "\n";
+
+    @Param({"ascii", "mixed"})
+    public String data;
+
+    private SystemFailure item;
+
+    private DelimitedLineAggregator<SystemFailure> delimitedLineAggregator;
+    private CompiledFormatLineAggregator<SystemFailure> compiledFormatLineAggregator;
+    private Utf8LineAggregator<SystemFailure> utf8DelimitedLineAggregator;
+    private Utf8LineAggregator<SystemFailure> utf8FormatLineAggregator;
+    private final Utf8LineBuffer line = new Utf8LineBuffer();
+    private final byte[] separator = Utf8LineBuffer.encode(LINE_SEPARATOR);
+
+    @Setup
+    public void setUp() {
+        item = "mixed".equals(data)
+                ? new SystemFailure("ERR001", "2025-01-01 08:01:02", "치명적", 1234567, "시스템이 비정상 종료되었습니다 (SYSTEM_CRASH)")
+                : new SystemFailure("ERR001", "2025-01-01 08:01:02", "CRITICAL", 1234567, "System terminated abnormally (SYSTEM_CRASH)");
+
+        FieldExtractor<SystemFailure> fieldExtractor = CompiledFieldExtractorFactory.create(SystemFailure.class);
+
+        delimitedLineAggregator = new DelimitedLineAggregator<>();
+        delimitedLineAggregator.setFieldExtractor(fieldExtractor);
+
+        compiledFormatLineAggregator = new CompiledFormatLineAggregator<>();
+        compiledFormatLineAggregator.setFormat(FORMAT);
+        compiledFormatLineAggregator.setFieldExtractor(fieldExtractor);
+
+        utf8DelimitedLineAggregator = new Utf8LineAggregator<>();
+        utf8DelimitedLineAggregator.setFieldExtractor(fieldExtractor);
+
+        utf8FormatLineAggregator = new Utf8LineAggregator<>();
+        utf8FormatLineAggregator.setFormat(FORMAT);
+        utf8FormatLineAggregator.setFieldExtractor(fieldExtractor);
+    }
+
+    @Benchmark
+    public byte[] delimitedLineAggregator() {
+        return (delimitedLineAggregator.aggregate(item) + LINE_SEPARATOR).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] compiledFormatLineAggregator() {
+        return (compiledFormatLineAggregator.aggregate(item) + LINE_SEPARATOR).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int utf8DelimitedLineAggregator() {
+        line.clear();
+        utf8DelimitedLineAggregator.aggregate(item, line);
+        return line.append(separator).length();
+    }
+
+    @Benchmark
+    public int utf8FormatLineAggregator() {
+        line.clear();
+        utf8FormatLineAggregator.aggregate(item, line);
+        return line.append(separator).length();
+    }
+
+    public record SystemFailure(String errorId, String errorDateTime, String severity, Integer processId, String errorMessage) {
+
+    }
+}
@@ -0,0 +1,69 @@
+package com.batch.chapter03.flatitemreader.support;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.file.mapping.FieldSetMapper;
+import org.springframework.batch.item.file.mapping.PatternMatchingCompositeLineMapper;
+import org.springframework.batch.item.file.transform.DefaultFieldSet;
+import org.springframework.batch.item.file.transform.LineTokenizer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class PrefixTrieCompositeLineMapperTest {
+    private static final List<String> PATTERNS = List.of("*", "E*", "ERROR*", "ERROR,*", "ERROR,?ysql*", "ERR*R*", "ABORT*", "ABORT", "A?ORT*", "COLLECT*", "*,TERMINATED");
+
+    private static final List<String> LINES = List.of(
+            "ERROR,mysql-prod,OOM,2025-01-24T09:30:00,heap space killing spree,85%,/var/log/mysql",
+            "ERROR,redis-cache,SocketTimeout,2025-01-24T13:45:00,connection timeout,92%,/var/log/redis",
+            "ERRXR,broken",
+            "ERROR",
+            "E",
+            "ABORT,spring-batch,MemoryLeak,2025-01-24T10:15:30,forced termination,-1,/usr/apps/batch,TERMINATED",
+            "ABORT",
+            "AXORT,zombie-process",
+            "COLLECT,heap-dump,PID-9012,2025-01-24T11:00:15,/tmp/heapdump",
+            "WARN,TERMINATED",
+            "",
+            "UNKNOWN");
+
+    @Test
+    void samePrecedenceAsPatternMatchingCompositeLineMapper_test() throws Exception {
+        //토크나이저와 매퍼의 패턴 집합이 서로 달라도 각각 PatternMatcher와 같은 패턴이 선택되어야 한다.
+        Map<String, LineTokenizer> tokenizers = new HashMap<>();
+        Map<String, FieldSetMapper<String>> mappers = new HashMap<>();
+        for(int i = 0; i < PATTERNS.size(); i++) {
+            String pattern = PATTERNS.get(i);
+            if(i % 3 != 1) {
+                tokenizers.put(pattern, line -> new DefaultFieldSet(new String[]{pattern}));
+            }
+            if(i % 3 != 2) {
+                mappers.put(pattern, fieldSet -> fieldSet.readString(0) + " -> " + pattern);
+            }
+        }
+
+        PatternMatchingCompositeLineMapper<String> expected = new PatternMatchingCompositeLineMapper<>();
+        expected.setTokenizers(tokenizers);
+        expected.setFieldSetMappers(mappers);
+
+        PrefixTrieCompositeLineMapper<String> actual = new PrefixTrieCompositeLineMapper<>();
+        actual.setTokenizers(tokenizers);
+        actual.setFieldSetMappers(mappers);
+
+        for(String line : LINES) {
+            Assertions.assertThat(actual.mapLine(line, 1)).as(line).isEqualTo(expected.mapLine(line, 1));
+        }
+    }
+
+    @Test
+    void noMatchingPattern_test() {
+        PrefixTrieCompositeLineMapper<String> lineMapper = new PrefixTrieCompositeLineMapper<>();
+        lineMapper.setTokenizers(Map.of("ERROR*", line -> new DefaultFieldSet(new String[]{line})));
+        lineMapper.setFieldSetMappers(Map.of("ERROR*", fieldSet -> fieldSet.readString(0)));
+
+        Assertions.assertThatThrownBy(() -> lineMapper.mapLine("COLLECT,heap-dump", 1))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Could not find a matching pattern for key=[COLLECT,heap-dump]");
+    }
+}
@@ -0,0 +1,187 @@
+package com.batch.chapter03.flatitemwriter.support;
+
+import com.batch.chapter03.flatitemwriter.support.ColumnarFileItemWriter.ColumnType;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+class ColumnarFileItemWriterTest {
+    private static final String[] NAMES = {"severity", "errorMessage", "processId", "sequence"};
+    private static final ColumnType[] TYPES = {ColumnType.STRING, ColumnType.STRING, ColumnType.INT32, ColumnType.INT64};
+    private static final String[] SEVERITIES = {"CRITICAL", "치명적", "WARN"};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTrip_test() throws Exception {
+        //로우 그룹 크기(64)로 나누어떨어지지 않는 행 수, 모든 컬럼의 null, INT32/INT64 양 끝 값
+        List<Object[]> rows = rows(1000);
+        Path file = dir.resolve("9.sbc");
+
+        ColumnarFileItemWriter<Object[]> writer = writer(file, 64);
+        ExecutionContext executionContext = new ExecutionContext();
+        writer.open(executionContext);
+        writeChunks(writer, executionContext, rows, 0, 7);
+        complete(writer);
+
+        Assertions.assertThat(readAll(file)).containsExactlyElementsOf(rows);
+        Assertions.assertThat(journals(file)).isEmpty();
+        try(ColumnarFileReader reader = new ColumnarFileReader(file)) {
+            Assertions.assertThat(reader.getNames()).containsExactly(NAMES);
+            Assertions.assertThat(reader.getRowGroupCount()).isEqualTo(16);
+            Assertions.assertThat(reader.getRowCount(15)).isEqualTo(1000 - 15 * 64);
+        }
+    }
+
+    @Test
+    void stringEncoding_test() throws Exception {
+        //값 종류가 적으면 사전 인코딩, 모두 다르면 PLAIN
+        List<Object> repeated = new ArrayList<>();
+        List<Object> unique = new ArrayList<>();
+        for(int i = 0; i < 200; i++) {
+            repeated.add(i % 5 == 0 ? null : SEVERITIES[i % SEVERITIES.length]);
+            unique.add(i % 7 == 0 ? null : "메시지-" + i);
+        }
+
+        byte[] dictionary = ColumnarFormat.encodeColumn(ColumnType.STRING, repeated, 0, repeated.size(), 1024, true);
+        byte[] plain = ColumnarFormat.encodeColumn(ColumnType.STRING, unique, 0, unique.size(), 1024, true);
+        Assertions.assertThat(dictionary[0]).isEqualTo(ColumnarFormat.DICTIONARY);
+        Assertions.assertThat(plain[0]).isEqualTo(ColumnarFormat.PLAIN);
+
+        Assertions.assertThat(decode(ColumnType.STRING, dictionary, repeated.size())).containsExactlyElementsOf(repeated);
+        Assertions.assertThat(decode(ColumnType.STRING, plain, unique.size())).containsExactlyElementsOf(unique);
+    }
+
+    @Test
+    void restartAfterRowGroupFlush_test() throws Exception {
+        //chunk(3), 로우 그룹 10행: 커밋마다 실패시켜 로우 그룹을 쓴 update() 직후를 포함한 모든 지점에서 재시작한다.
+        List<Object[]> rows = rows(100);
+        int chunkSize = 3;
+        int commits = (rows.size() + chunkSize - 1) / chunkSize;
+
+        for(int failAt = 1; failAt < commits; failAt++) {
+            Path file = dir.resolve("restart-" + failAt + ".sbc");
+
+            ColumnarFileItemWriter<Object[]> writer = writer(file, 10);
+            ExecutionContext executionContext = new ExecutionContext();
+            writer.open(executionContext);
+            ExecutionContext committed = null;
+            for(int commit = 0; commit <= failAt; commit++) {
+                int from = commit * chunkSize;
+                writer.write(new Chunk<>(rows.subList(from, Math.min(from + chunkSize, rows.size()))));
+                writer.update(executionContext);
+                //failAt번째 커밋은 update() 뒤에 실패해서 저장되지 않는다.
+                if(commit < failAt) {
+                    committed = new ExecutionContext(executionContext);
+                }
+            }
+            writer.close();
+            Assertions.assertThatThrownBy(() -> new ColumnarFileReader(file)).isInstanceOf(IOException.class);
+
+            ColumnarFileItemWriter<Object[]> restarted = writer(file, 10);
+            restarted.open(committed);
+            writeChunks(restarted, committed, rows, failAt * chunkSize, chunkSize);
+            complete(restarted);
+
+            Assertions.assertThat(readAll(file)).as("failAt=%d", failAt).containsExactlyElementsOf(rows);
+            Assertions.assertThat(journals(file)).as("failAt=%d", failAt).isEmpty();
+        }
+    }
+
+    private static ColumnarFileItemWriter<Object[]> writer(Path file, int rowGroupSize) {
+        ColumnarFileItemWriter<Object[]> writer = new ColumnarFileItemWriter<>();
+        writer.setName("columnarItemWriter");
+        writer.setResource(new FileSystemResource(file));
+        writer.setFieldExtractor(item -> item);
+        writer.setNames(NAMES);
+        writer.setTypes(TYPES);
+        writer.setRowGroupSize(rowGroupSize);
+        return writer;
+    }
+
+    private static void writeChunks(ColumnarFileItemWriter<Object[]> writer, ExecutionContext executionContext, List<Object[]> rows, int from, int chunkSize) throws Exception {
+        for(int i = from; i < rows.size(); i += chunkSize) {
+            writer.write(new Chunk<>(rows.subList(i, Math.min(i + chunkSize, rows.size()))));
+            writer.update(executionContext);
+        }
+    }
+
+    private static void complete(ColumnarFileItemWriter<Object[]> writer) {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        stepExecution.setStatus(BatchStatus.COMPLETED);
+        writer.afterStep(stepExecution);
+        Assertions.assertThat(stepExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        writer.close();
+    }
+
+    private static List<Object[]> rows(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            String severity = i % 11 == 0 ? null : SEVERITIES[i % SEVERITIES.length];
+            String message = i % 13 == 0 ? null : "에러메시지 " + i;
+            Integer processId = switch(i % 17) {
+                case 0 -> null;
+                case 1 -> Integer.MIN_VALUE;
+                case 2 -> Integer.MAX_VALUE;
+                default -> i * 31;
+            };
+            Long sequence = switch(i % 19) {
+                case 0 -> null;
+                case 1 -> Long.MIN_VALUE;
+                case 2 -> Long.MAX_VALUE;
+                default -> (long) i;
+            };
+            rows.add(new Object[] {severity, message, processId, sequence});
+        }
+        return rows;
+    }
+
+    private static List<Object[]> readAll(Path file) throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        try(ColumnarFileReader reader = new ColumnarFileReader(file)) {
+            for(int rowGroup = 0; rowGroup < reader.getRowGroupCount(); rowGroup++) {
+                Object[][] columns = new Object[NAMES.length][];
+                for(int c = 0; c < NAMES.length; c++) {
+                    columns[c] = reader.readColumn(rowGroup, NAMES[c]);
+                }
+                for(int row = 0; row < reader.getRowCount(rowGroup); row++) {
+                    Object[] values = new Object[NAMES.length];
+                    for(int c = 0; c < NAMES.length; c++) {
+                        values[c] = columns[c][row];
+                    }
+                    rows.add(values);
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static List<Object> decode(ColumnType type, byte[] chunk, int rowCount) throws IOException {
+        //컬럼 청크 헤더: 인코딩(1) | 압축(1) | 압축 전 길이(4) | 길이(4)
+        ByteBuffer header = ByteBuffer.wrap(chunk);
+        byte[] stored = Arrays.copyOfRange(chunk, 10, 10 + header.getInt(6));
+        return Arrays.asList(ColumnarFormat.decodeColumn(type, chunk[0], chunk[1], header.getInt(2), stored, rowCount));
+    }
+
+    private static List<Path> journals(Path file) throws IOException {
+        try(Stream<Path> files = Files.list(file.getParent())) {
+            return files.filter(path -> path.getFileName().toString().startsWith(file.getFileName() + ".journal-")).toList();
+        }
+    }
+}